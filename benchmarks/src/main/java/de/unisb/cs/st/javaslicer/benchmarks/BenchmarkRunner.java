@@ -0,0 +1,99 @@
+/** License information:
+ *    Component: javaslicer-core-benchmarks
+ *    Package:   de.unisb.cs.st.javaslicer.benchmarks
+ *    Class:     BenchmarkRunner
+ *    Filename:  javaslicer-core/benchmarks/src/main/java/de/unisb/cs/st/javaslicer/benchmarks/BenchmarkRunner.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.benchmarks;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionType;
+import de.unisb.cs.st.javaslicer.traceResult.BackwardTraceIterator;
+import de.unisb.cs.st.javaslicer.traceResult.TraceResult;
+
+/**
+ * Entry point of the benchmark jar.
+ *
+ * Accepts the usual JMH command line options. In addition to JMH's defaults, it
+ * <ul>
+ *   <li>always enables the GC profiler, which reports the allocation rate,</li>
+ *   <li>runs the trace based benchmarks on all traces of the trace directory (unless
+ *       the <code>trace</code> parameter is given explicitly), and</li>
+ *   <li>restricts the simulator benchmark to instruction types that occur in these
+ *       traces.</li>
+ * </ul>
+ * Peak heap usage is reported as secondary result by all benchmarks (see {@link PeakHeap}).
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        CommandLineOptions cmdOptions;
+        try {
+            cmdOptions = new CommandLineOptions(args);
+        } catch (CommandLineOptionException e) {
+            System.err.println("Error parsing the command line arguments: " + e.getMessage());
+            System.exit(-1);
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+            .parent(cmdOptions)
+            .addProfiler(GCProfiler.class)
+            .jvmArgsAppend("-D" + BenchmarkTraces.TRACES_DIR_PROPERTY + "="
+                + BenchmarkTraces.getTracesDirectory().getAbsolutePath());
+
+        if (!cmdOptions.getParameter("trace").hasValue())
+            options.param("trace", BenchmarkTraces.getTraceNames());
+        if (!cmdOptions.getParameter("instructionType").hasValue()) {
+            Set<InstructionType> types = getOccurringInstructionTypes();
+            String[] typeNames = new String[types.size()];
+            int i = 0;
+            for (InstructionType type: types)
+                typeNames[i++] = type.name();
+            options.param("instructionType", typeNames);
+        }
+
+        new Runner(options.build()).run();
+    }
+
+    private static Set<InstructionType> getOccurringInstructionTypes() throws IOException {
+        Set<InstructionType> types = EnumSet.noneOf(InstructionType.class);
+        for (String traceName: BenchmarkTraces.getTraceNames()) {
+            TraceResult trace = BenchmarkTraces.load(traceName);
+            BackwardTraceIterator<InstructionInstance> it = trace.getBackwardIterator(
+                BenchmarkTraces.getMainThread(trace), null);
+            while (it.hasNext())
+                types.add(it.next().getInstruction().getType());
+        }
+        return types;
+    }
+
+}
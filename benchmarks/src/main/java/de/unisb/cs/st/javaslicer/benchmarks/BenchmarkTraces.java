@@ -0,0 +1,148 @@
+/** License information:
+ *    Component: javaslicer-core-benchmarks
+ *    Package:   de.unisb.cs.st.javaslicer.benchmarks
+ *    Class:     BenchmarkTraces
+ *    Filename:  javaslicer-core/benchmarks/src/main/java/de/unisb/cs/st/javaslicer/benchmarks/BenchmarkTraces.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.LocalVariable;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.slicing.SlicingCriterion;
+import de.unisb.cs.st.javaslicer.slicing.StaticSlicingCriterion;
+import de.unisb.cs.st.javaslicer.traceResult.BackwardTraceIterator;
+import de.unisb.cs.st.javaslicer.traceResult.ThreadId;
+import de.unisb.cs.st.javaslicer.traceResult.TraceResult;
+
+/**
+ * Locates and loads the traces the benchmarks are run on.
+ *
+ * The trace directory is taken from the system property {@value #TRACES_DIR_PROPERTY}.
+ * If it is not set, the test traces of javaslicer-core are used (looked up relative
+ * to the current working directory, which is either the core or the benchmark module).
+ */
+public final class BenchmarkTraces {
+
+    public static final String TRACES_DIR_PROPERTY = "javaslicer.traces";
+
+    private static final String[] DEFAULT_TRACE_DIRS = {
+        "src/test/resources/traces", "../src/test/resources/traces"
+    };
+
+    private BenchmarkTraces() {
+        // utility class
+    }
+
+    public static File getTracesDirectory() {
+        String dir = System.getProperty(TRACES_DIR_PROPERTY);
+        if (dir != null)
+            return new File(dir);
+        for (String defaultDir: DEFAULT_TRACE_DIRS) {
+            File file = new File(defaultDir);
+            if (file.isDirectory())
+                return file;
+        }
+        throw new IllegalStateException("Cannot find the trace directory; please set -D"
+            + TRACES_DIR_PROPERTY + "=<dir>");
+    }
+
+    /**
+     * @return the (sorted) names of all trace files in the trace directory
+     */
+    public static String[] getTraceNames() {
+        File[] files = getTracesDirectory().listFiles();
+        if (files == null)
+            return new String[0];
+        List<String> names = new ArrayList<String>(files.length);
+        for (File file: files)
+            if (file.isFile())
+                names.add(file.getName());
+        String[] namesArr = names.toArray(new String[names.size()]);
+        Arrays.sort(namesArr);
+        return namesArr;
+    }
+
+    public static TraceResult load(String traceName) throws IOException {
+        return TraceResult.readFrom(new File(getTracesDirectory(), traceName));
+    }
+
+    /**
+     * Returns the thread that the command line tools would choose by default: the
+     * "main" thread with the lowest java thread id, or the first thread if there is
+     * no main thread.
+     */
+    public static ThreadId getMainThread(TraceResult trace) {
+        ThreadId tracing = null;
+        for (ThreadId t: trace.getThreads()) {
+            if ("main".equals(t.getThreadName()) && (tracing == null || t.getJavaThreadId() < tracing.getJavaThreadId()))
+                tracing = t;
+        }
+        if (tracing == null && !trace.getThreads().isEmpty())
+            tracing = trace.getThreads().get(0);
+        if (tracing == null)
+            throw new IllegalArgumentException("The trace contains no threads");
+        return tracing;
+    }
+
+    /**
+     * Derives a slicing criterion that makes sense on every trace: all named local
+     * variables of the outermost traced method at the point where it is left.
+     */
+    public static List<SlicingCriterion> getDefaultCriterion(TraceResult trace, ThreadId threadId) {
+        BackwardTraceIterator<InstructionInstance> it = trace.getBackwardIterator(threadId, null);
+        ReadMethod outermost = null;
+        while (it.hasNext()) {
+            InstructionInstance inst = it.next();
+            if (inst.getStackDepth() == 1) {
+                outermost = inst.getInstruction().getMethod();
+                break;
+            }
+        }
+        if (outermost == null)
+            throw new IllegalArgumentException("The trace of thread " + threadId + " is empty");
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(outermost.getReadClass().getName()).append('.').append(outermost.getName());
+        Set<String> varNames = new LinkedHashSet<String>();
+        for (LocalVariable var: outermost.getLocalVariables())
+            if (var != null && var.getName() != null)
+                varNames.add(var.getName());
+        if (varNames.isEmpty()) {
+            sb.append(":*");
+        } else {
+            String separator = ":{";
+            for (String name: varNames) {
+                sb.append(separator).append(name);
+                separator = ",";
+            }
+            sb.append('}');
+        }
+        return StaticSlicingCriterion.parseAll(sb.toString(), trace.getReadClasses());
+    }
+
+}
@@ -0,0 +1,214 @@
+/** License information:
+ *    Component: javaslicer-core-benchmarks
+ *    Package:   de.unisb.cs.st.javaslicer.benchmarks
+ *    Class:     CompactedDependenceGraphBenchmark
+ *    Filename:  javaslicer-core/benchmarks/src/main/java/de/unisb/cs/st/javaslicer/benchmarks/CompactedDependenceGraphBenchmark.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.benchmarks;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.CompactedDependenceGraph;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DataDependenceType;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DependencesExtractor;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DependencesVisitorAdapter;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.VisitorCapability;
+import de.unisb.cs.st.javaslicer.slicing.CompiledSlicingCriteria;
+import de.unisb.cs.st.javaslicer.slicing.Slicer;
+import de.unisb.cs.st.javaslicer.slicing.SlicingCriterionInstance;
+import de.unisb.cs.st.javaslicer.slicing.StaticSlicingCriterion;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource;
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+/**
+ * Answers several slicing criteria on the dependences of a generated trace (see
+ * {@link SyntheticTraceSource}), which are recorded once, either in a
+ * {@link CompactedDependenceGraph} (as done by {@link Slicer#computeSlices}) or uncompacted
+ * as the list of dependences of each instance, which is then walked instance by instance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CompactedDependenceGraphBenchmark {
+
+    public enum Representation {
+        COMPACTED,
+        UNCOMPACTED
+    }
+
+    /**
+     * All dependences of a trace, stored per dependent instance (in compressed sparse rows).
+     */
+    private static class UncompactedGraph extends DependencesVisitorAdapter<InstructionInstance> {
+
+        private long[] pairs = new long[1024];
+        private int numPairs = 0;
+        private int[] firstDependence;
+        private long[] dependences;
+
+        @Override
+        public void visitDataDependence(InstructionInstance from, InstructionInstance to,
+                Collection<? extends Variable> fromVars, Variable toVar, DataDependenceType type) {
+            add(from.getInstanceNr(), to.getInstanceNr());
+        }
+
+        @Override
+        public void visitControlDependence(InstructionInstance from, InstructionInstance to) {
+            add(from.getInstanceNr(), to.getInstanceNr());
+        }
+
+        private void add(long from, long to) {
+            if (2*this.numPairs + 2 > this.pairs.length)
+                this.pairs = Arrays.copyOf(this.pairs, 2*this.pairs.length);
+            this.pairs[2*this.numPairs] = from;
+            this.pairs[2*this.numPairs+1] = to;
+            ++this.numPairs;
+        }
+
+        public void index(long numInstances) {
+            this.firstDependence = new int[(int) numInstances + 1];
+            for (int i = 0; i < this.numPairs; ++i)
+                ++this.firstDependence[(int) this.pairs[2*i] + 1];
+            for (int i = 0; i < numInstances; ++i)
+                this.firstDependence[i+1] += this.firstDependence[i];
+            int[] next = Arrays.copyOf(this.firstDependence, (int) numInstances);
+            this.dependences = new long[this.numPairs];
+            for (int i = 0; i < this.numPairs; ++i)
+                this.dependences[next[(int) this.pairs[2*i]]++] = this.pairs[2*i+1];
+            this.pairs = null;
+        }
+
+        public long walk(List<InstructionInstance> criterion) {
+            boolean[] reached = new boolean[this.firstDependence.length - 1];
+            ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+            long numReached = 0;
+            for (InstructionInstance instance: criterion) {
+                int nr = (int) instance.getInstanceNr();
+                if (!reached[nr]) {
+                    reached[nr] = true;
+                    ++numReached;
+                    queue.add(nr);
+                }
+            }
+            Integer nr;
+            while ((nr = queue.poll()) != null) {
+                for (int i = this.firstDependence[nr], end = this.firstDependence[nr+1]; i < end; ++i) {
+                    int to = (int) this.dependences[i];
+                    if (!reached[to]) {
+                        reached[to] = true;
+                        ++numReached;
+                        queue.add(to);
+                    }
+                }
+            }
+            return numReached;
+        }
+
+    }
+
+    @Param({"100000", "1000000"})
+    public long instances;
+
+    @Param({"MIXED", "ARRAYS", "CHAINS", "EXCEPTIONS"})
+    public SyntheticSlicerBenchmark.Workload workload;
+
+    @Param
+    public Representation representation;
+
+    private final List<List<InstructionInstance>> criterionInstances = new ArrayList<List<InstructionInstance>>();
+    private CompactedDependenceGraph graph;
+    private UncompactedGraph uncompactedGraph;
+
+    @Setup
+    public void recordDependences() throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(this.workload.getConfiguration(this.instances));
+        // the final value of the accumulator, the last loop test, and all loop tests
+        String[] criteria = { "run:23(1):*", "run:13(1):*", "run:13:*" };
+        final CompiledSlicingCriteria[] compiledCriteria = new CompiledSlicingCriteria[criteria.length];
+        for (int i = 0; i < criteria.length; ++i) {
+            compiledCriteria[i] = new CompiledSlicingCriteria(StaticSlicingCriterion.parseAll(
+                SyntheticTraceSource.PROGRAM_CLASS_NAME + "." + criteria[i], source.getReadClasses()));
+            this.criterionInstances.add(new ArrayList<InstructionInstance>());
+        }
+
+        DependencesExtractor<InstructionInstance> extractor = DependencesExtractor.forTrace(source);
+        if (this.representation == Representation.COMPACTED) {
+            this.graph = new CompactedDependenceGraph();
+            this.graph.registerAt(extractor);
+        } else {
+            this.uncompactedGraph = new UncompactedGraph();
+            extractor.registerVisitor(this.uncompactedGraph,
+                VisitorCapability.DATA_DEPENDENCES_READ_AFTER_WRITE, VisitorCapability.CONTROL_DEPENDENCES);
+        }
+        final long[] numInstances = new long[1];
+        extractor.registerVisitor(new DependencesVisitorAdapter<InstructionInstance>() {
+            @Override
+            public void visitInstructionExecution(InstructionInstance instance) {
+                numInstances[0] = Math.max(numInstances[0], instance.getInstanceNr() + 1);
+                for (int i = 0; i < compiledCriteria.length; ++i) {
+                    if (compiledCriteria[i].mayMatch(instance)) {
+                        for (SlicingCriterionInstance crit: compiledCriteria[i].getInstances()) {
+                            if (crit.matches(instance)) {
+                                CompactedDependenceGraphBenchmark.this.criterionInstances.get(i).add(instance);
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+        }, VisitorCapability.INSTRUCTION_EXECUTIONS);
+        extractor.processBackwardTrace(source.getThread());
+        if (this.uncompactedGraph != null)
+            this.uncompactedGraph.index(numInstances[0]);
+    }
+
+    @Benchmark
+    public long computeSlices() {
+        long sliceInstances = 0;
+        for (List<InstructionInstance> criterion: this.criterionInstances) {
+            if (this.representation == Representation.COMPACTED)
+                sliceInstances += this.graph.computeSlice(criterion).getNumInstances();
+            else
+                sliceInstances += this.uncompactedGraph.walk(criterion);
+        }
+        return sliceInstances;
+    }
+
+}
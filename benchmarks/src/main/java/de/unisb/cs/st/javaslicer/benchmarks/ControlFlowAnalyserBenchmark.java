@@ -0,0 +1,84 @@
+/** License information:
+ *    Component: javaslicer-core-benchmarks
+ *    Package:   de.unisb.cs.st.javaslicer.benchmarks
+ *    Class:     ControlFlowAnalyserBenchmark
+ *    Filename:  javaslicer-core/benchmarks/src/main/java/de/unisb/cs/st/javaslicer/benchmarks/ControlFlowAnalyserBenchmark.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadClass;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.controlflowanalysis.ControlFlowAnalyser;
+import de.unisb.cs.st.javaslicer.traceResult.TraceResult;
+
+/**
+ * Measures {@link ControlFlowAnalyser#getInvControlDependences(ReadMethod)} over all
+ * methods of a trace. One operation computes the control dependences of every method
+ * that contains instructions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControlFlowAnalyserBenchmark {
+
+    @Param({"simple1", "method1", "branches1", "exceptions1", "string1"})
+    public String trace;
+
+    private ReadMethod[] methods;
+
+    @Setup
+    public void loadTrace() throws IOException {
+        TraceResult traceResult = BenchmarkTraces.load(this.trace);
+        List<ReadMethod> methodList = new ArrayList<ReadMethod>();
+        for (ReadClass readClass: traceResult.getReadClasses())
+            for (ReadMethod method: readClass.getMethods())
+                if (!method.getInstructions().isEmpty())
+                    methodList.add(method);
+        this.methods = methodList.toArray(new ReadMethod[methodList.size()]);
+    }
+
+    @Benchmark
+    public void getInvControlDependences(Blackhole blackhole, PeakHeap peakHeap) {
+        ControlFlowAnalyser analyser = ControlFlowAnalyser.getInstance();
+        for (ReadMethod method: this.methods)
+            blackhole.consume(analyser.getInvControlDependences(method));
+    }
+
+}
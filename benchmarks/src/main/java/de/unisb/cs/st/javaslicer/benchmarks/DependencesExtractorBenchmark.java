@@ -0,0 +1,150 @@
+/** License information:
+ *    Component: javaslicer-core-benchmarks
+ *    Package:   de.unisb.cs.st.javaslicer.benchmarks
+ *    Class:     DependencesExtractorBenchmark
+ *    Filename:  javaslicer-core/benchmarks/src/main/java/de/unisb/cs/st/javaslicer/benchmarks/DependencesExtractorBenchmark.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.benchmarks;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DataDependenceType;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DependencesExtractor;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DependencesVisitorAdapter;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.VisitorCapability;
+import de.unisb.cs.st.javaslicer.traceResult.ThreadId;
+import de.unisb.cs.st.javaslicer.traceResult.TraceResult;
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+/**
+ * Measures {@link DependencesExtractor#processBackwardTrace(ThreadId)} with
+ * different sets of visitor capabilities. The registered visitor does nothing
+ * but consuming the events, so this measures the cost of the traversal itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DependencesExtractorBenchmark {
+
+    public enum CapabilitySet {
+        INSTRUCTIONS(VisitorCapability.INSTRUCTION_EXECUTIONS),
+        READ_AFTER_WRITE(VisitorCapability.DATA_DEPENDENCES_READ_AFTER_WRITE),
+        DATA(VisitorCapability.DATA_DEPENDENCES_ALL),
+        CONTROL(VisitorCapability.CONTROL_DEPENDENCES),
+        SLICER(VisitorCapability.CONTROL_DEPENDENCES, VisitorCapability.DATA_DEPENDENCES_READ_AFTER_WRITE,
+            VisitorCapability.INSTRUCTION_EXECUTIONS, VisitorCapability.METHOD_ENTRY_LEAVE),
+        ALL(VisitorCapability.values());
+
+        final VisitorCapability[] capabilities;
+
+        private CapabilitySet(VisitorCapability... capabilities) {
+            this.capabilities = capabilities;
+        }
+    }
+
+    @Param({"simple1", "method1", "branches1", "exceptions1", "string1"})
+    public String trace;
+
+    @Param
+    public CapabilitySet capabilities;
+
+    private TraceResult traceResult;
+    private ThreadId threadId;
+
+    @Setup
+    public void loadTrace() throws IOException {
+        this.traceResult = BenchmarkTraces.load(this.trace);
+        this.threadId = BenchmarkTraces.getMainThread(this.traceResult);
+    }
+
+    @Benchmark
+    public void processBackwardTrace(final Blackhole blackhole, PeakHeap peakHeap) throws InterruptedException {
+        DependencesExtractor<InstructionInstance> extractor = DependencesExtractor.forTrace(this.traceResult);
+        extractor.registerVisitor(new ConsumingVisitor(blackhole), this.capabilities.capabilities);
+        extractor.processBackwardTrace(this.threadId);
+    }
+
+    private static class ConsumingVisitor extends DependencesVisitorAdapter<InstructionInstance> {
+
+        private final Blackhole blackhole;
+
+        public ConsumingVisitor(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void visitDataDependence(InstructionInstance from, InstructionInstance to,
+                Collection<? extends Variable> fromVars, Variable toVar, DataDependenceType type) {
+            this.blackhole.consume(to);
+            this.blackhole.consume(toVar);
+        }
+
+        @Override
+        public void visitControlDependence(InstructionInstance from, InstructionInstance to) {
+            this.blackhole.consume(to);
+        }
+
+        @Override
+        public void visitInstructionExecution(InstructionInstance instance) {
+            this.blackhole.consume(instance);
+        }
+
+        @Override
+        public void visitPendingDataDependence(InstructionInstance from, Variable var, DataDependenceType type) {
+            this.blackhole.consume(var);
+        }
+
+        @Override
+        public void visitPendingControlDependence(InstructionInstance from) {
+            this.blackhole.consume(from);
+        }
+
+        @Override
+        public void visitMethodEntry(ReadMethod method, int stackDepth) {
+            this.blackhole.consume(method);
+        }
+
+        @Override
+        public void visitObjectCreation(long objectId, InstructionInstance instrInstance) {
+            this.blackhole.consume(objectId);
+        }
+
+    }
+
+}
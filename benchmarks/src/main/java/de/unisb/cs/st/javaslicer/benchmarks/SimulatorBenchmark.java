@@ -0,0 +1,144 @@
+/** License information:
+ *    Component: javaslicer-core-benchmarks
+ *    Package:   de.unisb.cs.st.javaslicer.benchmarks
+ *    Class:     SimulatorBenchmark
+ *    Filename:  javaslicer-core/benchmarks/src/main/java/de/unisb/cs/st/javaslicer/benchmarks/SimulatorBenchmark.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionType;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.instructionSimulation.SimulationEnvironment;
+import de.unisb.cs.st.javaslicer.instructionSimulation.Simulator;
+import de.unisb.cs.st.javaslicer.traceResult.BackwardTraceIterator;
+import de.unisb.cs.st.javaslicer.traceResult.TraceResult;
+import de.unisb.cs.st.javaslicer.variables.LocalVariable;
+import de.unisb.cs.st.javaslicer.variables.StackEntry;
+
+/**
+ * Measures {@link Simulator#simulateInstruction(InstructionInstance, SimulationEnvironment)}
+ * separately for each {@link InstructionType}.
+ *
+ * The instances are collected from all traces in the trace directory. Before each
+ * simulation, the frame of the instance is reset to a neutral state (a non-empty
+ * operand stack, no pending exception, no removed method), so the numbers reflect
+ * the cost of the simulation step itself, not of a particular program state.
+ * One operation is the simulation of a single instance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulatorBenchmark {
+
+    private static final int INSTANCES = 1024;
+    private static final int NEUTRAL_STACK_HEIGHT = 32;
+
+    @Param
+    public InstructionType instructionType;
+
+    private InstructionInstance[] instances;
+    private Simulator<InstructionInstance>[] simulators;
+    private SimulationEnvironment simEnv;
+
+    @Setup
+    public void collectInstances() throws IOException {
+        List<InstructionInstance> instanceList = new ArrayList<InstructionInstance>(INSTANCES);
+        List<Simulator<InstructionInstance>> simulatorList = new ArrayList<Simulator<InstructionInstance>>(INSTANCES);
+        int maxDepth = 1;
+        for (String traceName: BenchmarkTraces.getTraceNames()) {
+            TraceResult trace = BenchmarkTraces.load(traceName);
+            Simulator<InstructionInstance> simulator = new Simulator<InstructionInstance>(trace);
+            BackwardTraceIterator<InstructionInstance> it = trace.getBackwardIterator(
+                BenchmarkTraces.getMainThread(trace), null);
+            while (it.hasNext() && instanceList.size() < INSTANCES) {
+                InstructionInstance inst = it.next();
+                if (inst.getInstruction().getType() != this.instructionType)
+                    continue;
+                instanceList.add(inst);
+                simulatorList.add(simulator);
+                maxDepth = Math.max(maxDepth, inst.getStackDepth());
+            }
+        }
+        if (instanceList.isEmpty())
+            throw new IllegalStateException("No instances of type " + this.instructionType + " in the traces");
+        // repeat the instances found so far to get a fixed number of operations per invocation
+        for (int i = 0; instanceList.size() < INSTANCES; ++i) {
+            instanceList.add(instanceList.get(i));
+            simulatorList.add(simulatorList.get(i));
+        }
+        this.instances = instanceList.toArray(new InstructionInstance[INSTANCES]);
+        @SuppressWarnings("unchecked")
+        Simulator<InstructionInstance>[] simulatorArr = simulatorList.toArray(new Simulator[INSTANCES]);
+        this.simulators = simulatorArr;
+
+        int len = maxDepth + 2;
+        StackEntry[][] cachedStackEntries = new StackEntry[len][];
+        LocalVariable[][] cachedLocalVariables = new LocalVariable[len][];
+        long[] frames = new long[len];
+        for (int i = 0; i < len; ++i) {
+            cachedStackEntries[i] = new StackEntry[8];
+            cachedLocalVariables[i] = new LocalVariable[8];
+            frames[i] = i;
+        }
+        this.simEnv = new SimulationEnvironment(frames, new int[len], new int[len],
+            cachedStackEntries, cachedLocalVariables, new boolean[len],
+            new Instruction[len], new ReadMethod[len], new boolean[len]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSTANCES)
+    public void simulateInstruction(Blackhole blackhole, PeakHeap peakHeap) {
+        SimulationEnvironment env = this.simEnv;
+        for (int i = 0; i < INSTANCES; ++i) {
+            InstructionInstance inst = this.instances[i];
+            int depth = inst.getStackDepth();
+            env.opStack[depth] = NEUTRAL_STACK_HEIGHT;
+            env.minOpStack[depth] = NEUTRAL_STACK_HEIGHT;
+            env.throwsException[depth] = false;
+            env.method[depth] = inst.getInstruction().getMethod();
+            env.removedMethod = null;
+            blackhole.consume(this.simulators[i].simulateInstruction(inst, env));
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+/** License information:
+ *    Component: javaslicer-core-benchmarks
+ *    Package:   de.unisb.cs.st.javaslicer.benchmarks
+ *    Class:     SlicerBenchmark
+ *    Filename:  javaslicer-core/benchmarks/src/main/java/de/unisb/cs/st/javaslicer/benchmarks/SlicerBenchmark.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.unisb.cs.st.javaslicer.slicing.DirectSlicer;
+import de.unisb.cs.st.javaslicer.slicing.RelevantSlicer;
+import de.unisb.cs.st.javaslicer.slicing.SliceInstructionsCollector;
+import de.unisb.cs.st.javaslicer.slicing.Slicer;
+import de.unisb.cs.st.javaslicer.slicing.SlicingCriterion;
+import de.unisb.cs.st.javaslicer.traceResult.ThreadId;
+import de.unisb.cs.st.javaslicer.traceResult.TraceResult;
+
+/**
+ * End-to-end comparison of {@link Slicer} and {@link DirectSlicer}, and of the
+ * relevant slicing of the {@link RelevantSlicer}.
+ *
+ * The slicing criterion is derived from the trace (see
+ * {@link BenchmarkTraces#getDefaultCriterion(TraceResult, ThreadId)}), so every
+ * trace in the trace directory can be used. The default traces are a small
+ * representative subset; {@link BenchmarkRunner} sets the <code>trace</code>
+ * parameter to all traces found there, and others can be given with
+ * <code>-p trace=...</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlicerBenchmark {
+
+    public enum Engine {
+        SLICER, DIRECT_SLICER, RELEVANT_SLICER
+    }
+
+    @Param({"simple1", "method1", "branches1", "exceptions1", "string1", "exceptions7", "yhb2.trace"})
+    public String trace;
+
+    @Param
+    public Engine engine;
+
+    private TraceResult traceResult;
+    private ThreadId threadId;
+    private List<SlicingCriterion> criteria;
+
+    @Setup
+    public void loadTrace() throws IOException {
+        this.traceResult = BenchmarkTraces.load(this.trace);
+        this.threadId = BenchmarkTraces.getMainThread(this.traceResult);
+        this.criteria = BenchmarkTraces.getDefaultCriterion(this.traceResult, this.threadId);
+    }
+
+    @Benchmark
+    public int slice(PeakHeap peakHeap) throws InterruptedException {
+        switch (this.engine) {
+        case SLICER:
+            Slicer slicer = new Slicer(this.traceResult);
+            SliceInstructionsCollector collector = new SliceInstructionsCollector();
+            slicer.addSliceVisitor(collector);
+            slicer.process(this.threadId, this.criteria, false);
+            return collector.getDynamicSlice().size();
+        case DIRECT_SLICER:
+            return new DirectSlicer(this.traceResult).getDynamicSlice(this.threadId, this.criteria).size();
+        case RELEVANT_SLICER:
+            return new RelevantSlicer(this.traceResult).getDynamicSlice(this.threadId, this.criteria).size();
+        default:
+            throw new AssertionError("unknown engine: " + this.engine);
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+/** License information:
+ *    Component: javaslicer-core-benchmarks
+ *    Package:   de.unisb.cs.st.javaslicer.benchmarks
+ *    Class:     StaticSlicingCriterionBenchmark
+ *    Filename:  javaslicer-core/benchmarks/src/main/java/de/unisb/cs/st/javaslicer/benchmarks/StaticSlicingCriterionBenchmark.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.slicing.SlicingCriterion;
+import de.unisb.cs.st.javaslicer.slicing.SlicingCriterionInstance;
+import de.unisb.cs.st.javaslicer.slicing.StaticSlicingCriterion;
+import de.unisb.cs.st.javaslicer.traceResult.BackwardTraceIterator;
+import de.unisb.cs.st.javaslicer.traceResult.TraceResult;
+
+/**
+ * Measures the matching of {@link StaticSlicingCriterion} instances against all
+ * instruction instances of a trace (in backward order, as done by the slicer).
+ * One operation is a full pass over the trace.
+ *
+ * Each parameter value consists of the trace name and the slicing criterion,
+ * separated by a blank.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StaticSlicingCriterionBenchmark {
+
+    @Param({
+        "simple1 de.unisb.cs.st.javaslicer.tracedCode.Simple1.main:21:{a,b}",
+        "method1 de.unisb.cs.st.javaslicer.tracedCode.Method1.getFirst:{b}",
+        "branches1 de.unisb.cs.st.javaslicer.tracedCode.Branches1.main:30:{a,b,c,d,e,f}",
+        "string1 de.unisb.cs.st.javaslicer.tracedCode.String1.main:{args}",
+    })
+    public String criterion;
+
+    private InstructionInstance[] instances;
+    private List<SlicingCriterion> criteria;
+
+    @Setup
+    public void loadTrace() throws IOException {
+        int sep = this.criterion.indexOf(' ');
+        TraceResult trace = BenchmarkTraces.load(this.criterion.substring(0, sep));
+        this.criteria = StaticSlicingCriterion.parseAll(this.criterion.substring(sep+1), trace.getReadClasses());
+        List<InstructionInstance> instanceList = new ArrayList<InstructionInstance>();
+        BackwardTraceIterator<InstructionInstance> it = trace.getBackwardIterator(
+            BenchmarkTraces.getMainThread(trace), null);
+        while (it.hasNext())
+            instanceList.add(it.next());
+        this.instances = instanceList.toArray(new InstructionInstance[instanceList.size()]);
+    }
+
+    @Benchmark
+    public long matchAll(PeakHeap peakHeap) {
+        SlicingCriterionInstance[] critInstances = new SlicingCriterionInstance[this.criteria.size()];
+        for (int i = 0; i < critInstances.length; ++i)
+            critInstances[i] = this.criteria.get(i).getInstance();
+        long matches = 0;
+        for (InstructionInstance inst: this.instances)
+            for (SlicingCriterionInstance crit: critInstances)
+                if (crit.matches(inst))
+                    ++matches;
+        return matches;
+    }
+
+}
@@ -0,0 +1,129 @@
+/** License information:
+ *    Component: javaslicer-core-benchmarks
+ *    Package:   de.unisb.cs.st.javaslicer.benchmarks
+ *    Class:     SyntheticSlicerBenchmark
+ *    Filename:  javaslicer-core/benchmarks/src/main/java/de/unisb/cs/st/javaslicer/benchmarks/SyntheticSlicerBenchmark.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.unisb.cs.st.javaslicer.slicing.DirectSlicer;
+import de.unisb.cs.st.javaslicer.slicing.RelevantSlicer;
+import de.unisb.cs.st.javaslicer.slicing.SliceInstructionsCollector;
+import de.unisb.cs.st.javaslicer.slicing.Slicer;
+import de.unisb.cs.st.javaslicer.slicing.SlicingCriterion;
+import de.unisb.cs.st.javaslicer.slicing.StaticSlicingCriterion;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource.Configuration;
+
+/**
+ * Runs {@link Slicer}, {@link DirectSlicer} and {@link RelevantSlicer} on generated traces of a given length
+ * and shape (see {@link SyntheticTraceSource}), slicing for the final value of the
+ * accumulator of the synthetic program.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class SyntheticSlicerBenchmark {
+
+    public enum Workload {
+        MIXED(20, 32, 16, 10, 8),
+        RECURSION(200, 0, 0, 0, 0),
+        ARRAYS(0, 1024, 0, 0, 0),
+        OBJECTS(0, 0, 512, 0, 0),
+        CHAINS(0, 0, 0, 100, 0),
+        EXCEPTIONS(0, 0, 0, 0, 1);
+
+        private final int recursionDepth;
+        private final int arrayLength;
+        private final int numObjects;
+        private final int chainLength;
+        private final int exceptionPeriod;
+
+        private Workload(int recursionDepth, int arrayLength, int numObjects, int chainLength, int exceptionPeriod) {
+            this.recursionDepth = recursionDepth;
+            this.arrayLength = arrayLength;
+            this.numObjects = numObjects;
+            this.chainLength = chainLength;
+            this.exceptionPeriod = exceptionPeriod;
+        }
+
+        public Configuration getConfiguration(long numInstances) {
+            return new Configuration().setNumInstances(numInstances)
+                .setRecursionDepth(this.recursionDepth).setArrayLength(this.arrayLength)
+                .setNumObjects(this.numObjects).setChainLength(this.chainLength)
+                .setExceptionPeriod(this.exceptionPeriod);
+        }
+    }
+
+    @Param({"1000000", "10000000"})
+    public long instances;
+
+    @Param
+    public Workload workload;
+
+    @Param
+    public SlicerBenchmark.Engine engine;
+
+    private SyntheticTraceSource source;
+    private List<SlicingCriterion> criteria;
+
+    @Setup
+    public void createTrace() {
+        this.source = new SyntheticTraceSource(this.workload.getConfiguration(this.instances));
+        this.criteria = StaticSlicingCriterion.parseAll(
+            SyntheticTraceSource.PROGRAM_CLASS_NAME + ".run:{acc}", this.source.getReadClasses());
+    }
+
+    @Benchmark
+    public int slice(PeakHeap peakHeap) throws InterruptedException {
+        switch (this.engine) {
+        case SLICER:
+            Slicer slicer = new Slicer(this.source);
+            SliceInstructionsCollector collector = new SliceInstructionsCollector();
+            slicer.addSliceVisitor(collector);
+            slicer.process(this.source.getThread(), this.criteria, false);
+            return collector.getDynamicSlice().size();
+        case DIRECT_SLICER:
+            return new DirectSlicer(this.source).getDynamicSlice(this.source.getThread(), this.criteria).size();
+        case RELEVANT_SLICER:
+            return new RelevantSlicer(this.source).getDynamicSlice(this.source.getThread(), this.criteria).size();
+        default:
+            throw new AssertionError("unknown engine: " + this.engine);
+        }
+    }
+
+}
@@ -41,6 +41,8 @@ import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.LabelMa
 import de.unisb.cs.st.javaslicer.controlflowanalysis.ControlFlowGraph.AbstractInstrNode;
 import de.unisb.cs.st.javaslicer.controlflowanalysis.ControlFlowGraph.InstrNode;
 import de.unisb.cs.st.javaslicer.controlflowanalysis.ReachabilityNodeFactory.ReachInstrNode;
+import de.unisb.cs.st.javaslicer.metrics.SlicingEvents;
+import de.unisb.cs.st.javaslicer.metrics.SlicingMetrics;
 
 public class ControlFlowAnalyser {
 
@@ -63,11 +65,30 @@ public class ControlFlowAnalyser {
     // 基于控制流图计算出一个方法的控制依赖图!
     // 结果是每条指令所对应的所有依赖于这条指令的指令集合！
     public Map<Instruction, Set<Instruction>> getInvControlDependences(ReadMethod method) {
+        return getInvControlDependences(method, null);
+    }
+
+    /**
+     * Computes the (inverted) control dependences for one method, and reports the time
+     * and the number of reachability iterations to the given metrics object.
+     *
+     * @param method the method for which the dependences are computed
+     * @param metrics the metrics object to update, or <code>null</code>
+     * @return a map that contains for every instruction all instructions that are dependent on this one
+     * @see #getInvControlDependences(ReadMethod)
+     */
+    public Map<Instruction, Set<Instruction>> getInvControlDependences(ReadMethod method, SlicingMetrics metrics) {
+        long startTime = metrics == null ? 0 : System.nanoTime();
+        SlicingEvents.ControlDependences event = null;
+        if (SlicingEvents.AVAILABLE) {
+            event = new SlicingEvents.ControlDependences();
+            event.begin();
+        }
         Map<Instruction, Set<Instruction>> invControlDeps = new HashMap<Instruction, Set<Instruction>>();
         Set<Instruction> emptyInsnSet = Collections.emptySet();
         // 返回这个方法的控制流图
         ControlFlowGraph graph = new ControlFlowGraph(method, ReachabilityNodeFactory.getInstance());
-        computeReachableNodes(graph); // 计算出CFG中每个节点的reachable 和 surelyreachable信息！
+        long iterations = computeReachableNodes(graph); // 计算出CFG中每个节点的reachable 和 surelyreachable信息！
         // 下面计算每一条指令的控制依赖集合！
         for (Instruction insn: method.getInstructions()) {
             InstrNode node = graph.getNode(insn);
@@ -130,12 +151,22 @@ public class ControlFlowAnalyser {
         		System.out.println("\n");
         	}
         }*/
+        if (metrics != null)
+            metrics.methodAnalysed(System.nanoTime() - startTime, iterations);
+        if (event != null && event.shouldCommit()) {
+            event.method = SlicingEvents.getMethodName(method);
+            event.instructions = method.getInstructions().size();
+            event.reachabilityIterations = iterations;
+            event.commit();
+        }
         return invControlDeps;
     }
 
     
     // 这一步的目的是为CFG中的每一个节点增加reachable 和 surelyreachable信息！
-    private void computeReachableNodes(ControlFlowGraph cfg) {
+    // returns the number of nodes taken from the work queue
+    private long computeReachableNodes(ControlFlowGraph cfg) {
+        long iterations = 0;
     	// 唯一性队列！， true表明一个节点取出后可以再进入!
         UniqueQueue<InstrNode> queue = new UniqueQueue<InstrNode>(true);
         InstrNode node;
@@ -154,6 +185,7 @@ public class ControlFlowAnalyser {
             queue.add(cfg.getNode(instr)); // 队列中插入指令节点，保证了队列中元素的唯一性！
         // 当前面的设置为true时，会导致poll队列的同时，集合中也对应poll，所以才会带来一个元素在保证队列唯一性的前提下的可重复插入！
         while ((node = queue.poll()) != null) { //从队列中取出第一个元素
+            ++iterations;
             Iterator<InstrNode> succIt = node.getSuccessors().iterator();
             if (succIt.hasNext()) { // 后继非空，表明该节点有可达节点！
                 boolean change = false;
@@ -183,6 +215,7 @@ public class ControlFlowAnalyser {
         for (Instruction instr: cfg.getMethod().getInstructions())
             queue.add(cfg.getNode(instr));
         while ((node = queue.poll()) != null) {
+            ++iterations;
             Iterator<InstrNode> succIt = node.getSuccessors().iterator();
             if (succIt.hasNext()) {
                 boolean change = false;
@@ -210,5 +243,6 @@ public class ControlFlowAnalyser {
                 }
             }
         }
+        return iterations;
     }
 }
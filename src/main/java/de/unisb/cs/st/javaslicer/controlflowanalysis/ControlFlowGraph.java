@@ -381,7 +381,7 @@ public class ControlFlowGraph implements Graph<ControlFlowGraph.InstrNode> {
     }
 
     // 返回一条指令的所有可能执行后继集合
-    private static Collection<Instruction> getSuccessors(Instruction instruction) {
+    static Collection<Instruction> getSuccessors(Instruction instruction) {
         int opcode = instruction.getOpcode();
         // 按照index的大小返回下一条指令！， getnext仅仅是返回index+1的指令！
         Instruction nextInstruction = instruction.getNext();
@@ -0,0 +1,183 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.controlflowanalysis
+ *    Class:     MayModifyAnalysis
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/controlflowanalysis/MayModifyAnalysis.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.controlflowanalysis;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionType;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadClass;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.IIncInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.VarInstruction;
+import de.unisb.cs.st.javaslicer.metrics.SlicingMetrics;
+
+/**
+ * Computes the {@link MayModifySummary}s of the conditional branches of a set of traced classes.
+ *
+ * The instructions controlled by a branch are the instructions which are control dependent
+ * on it (see {@link ControlFlowAnalyser#getInvControlDependences(ReadMethod)}), and
+ * transitively the instructions which are control dependent on those. The effects of the
+ * methods they may call are taken from a {@link ModRefAnalysis}.
+ *
+ * The summaries of all branches of a method are computed together when the first one is
+ * requested, and are cached, so this class is not thread-safe.
+ */
+public class MayModifyAnalysis {
+
+    private static final MayModifySummary[] NO_SUMMARIES = new MayModifySummary[0];
+
+    private final ModRefAnalysis modRefAnalysis;
+    private final Map<ReadMethod, MayModifySummary[]> summaries = new HashMap<ReadMethod, MayModifySummary[]>();
+    private SlicingMetrics metrics = null;
+
+    // the method of the last request
+    private ReadMethod lastMethod = null;
+    private MayModifySummary[] lastSummaries = null;
+
+    public MayModifyAnalysis(Collection<ReadClass> readClasses) {
+        this(new ModRefAnalysis(readClasses));
+    }
+
+    public MayModifyAnalysis(ModRefAnalysis modRefAnalysis) {
+        this.modRefAnalysis = modRefAnalysis;
+    }
+
+    /**
+     * Sets the metrics object to which the control flow analyses are reported (<code>null</code> to disable).
+     */
+    public void setMetrics(SlicingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return whether the instruction is a conditional jump or a switch
+     */
+    public static boolean isConditionalBranch(Instruction instr) {
+        switch (instr.getType()) {
+        case JUMP:
+            return instr.getOpcode() != GOTO && instr.getOpcode() != JSR;
+        case LOOKUPSWITCH:
+        case TABLESWITCH:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Returns the summary of the given conditional branch.
+     *
+     * @param branch an instruction of one of the classes given to the constructor
+     * @return the (cached) summary, or <code>null</code> if the instruction is no conditional
+     *         branch or if the instructions it controls cannot write any variable
+     */
+    public MayModifySummary getSummary(Instruction branch) {
+        ReadMethod method = branch.getMethod();
+        MayModifySummary[] methodSummaries;
+        if (method == this.lastMethod) {
+            methodSummaries = this.lastSummaries;
+        } else {
+            methodSummaries = this.summaries.get(method);
+            if (methodSummaries == null)
+                this.summaries.put(method, methodSummaries = analyse(method));
+            this.lastMethod = method;
+            this.lastSummaries = methodSummaries;
+        }
+        int index = branch.getIndex() - method.getInstructionNumberStart();
+        return index < methodSummaries.length ? methodSummaries[index] : null;
+    }
+
+    /**
+     * @return the number of methods analysed so far
+     */
+    public int getAnalysedMethods() {
+        return this.summaries.size();
+    }
+
+    private MayModifySummary[] analyse(ReadMethod method) {
+        boolean hasBranches = false;
+        for (Instruction instr: method.getInstructions())
+            hasBranches |= isConditionalBranch(instr);
+        if (!hasBranches)
+            return NO_SUMMARIES;
+
+        int start = method.getInstructionNumberStart();
+        Map<Instruction, Set<Instruction>> invControlDeps =
+            ControlFlowAnalyser.getInstance().getInvControlDependences(method, this.metrics);
+        MayModifySummary[] methodSummaries = new MayModifySummary[method.getInstructionNumberEnd() - start];
+        List<Instruction> queue = new ArrayList<Instruction>();
+        List<Instruction> controlled = new ArrayList<Instruction>();
+        for (Instruction instr: method.getInstructions()) {
+            if (!isConditionalBranch(instr))
+                continue;
+            BitSet controlledInstructions = new BitSet();
+            BitSet writtenLocalVariables = new BitSet();
+            queue.addAll(invControlDeps.get(instr));
+            while (!queue.isEmpty()) {
+                Instruction dependant = queue.remove(queue.size()-1);
+                if (controlledInstructions.get(dependant.getIndex() - start))
+                    continue;
+                controlledInstructions.set(dependant.getIndex() - start);
+                controlled.add(dependant);
+                addWrittenLocalVariables(dependant, writtenLocalVariables);
+                Set<Instruction> dependants = invControlDeps.get(dependant);
+                if (dependants != null)
+                    queue.addAll(dependants);
+            }
+            MayModifySummary summary = new MayModifySummary(instr, controlledInstructions, writtenLocalVariables,
+                this.modRefAnalysis.getSummary(method, controlled));
+            controlled.clear();
+            if (!summary.isEmpty())
+                methodSummaries[instr.getIndex() - start] = summary;
+        }
+        return methodSummaries;
+    }
+
+    private static void addWrittenLocalVariables(Instruction instr, BitSet writtenLocalVariables) {
+        if (instr.getType() == InstructionType.IINC) {
+            writtenLocalVariables.set(((IIncInstruction) instr).getLocalVarIndex());
+            return;
+        }
+        switch (instr.getOpcode()) {
+        case ISTORE: case FSTORE: case ASTORE:
+            writtenLocalVariables.set(((VarInstruction) instr).getLocalVarIndex());
+            break;
+        case LSTORE: case DSTORE:
+            int varIndex = ((VarInstruction) instr).getLocalVarIndex();
+            writtenLocalVariables.set(varIndex, varIndex+2);
+            break;
+        default:
+            break;
+        }
+    }
+
+}
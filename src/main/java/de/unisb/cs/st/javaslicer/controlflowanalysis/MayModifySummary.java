@@ -0,0 +1,152 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.controlflowanalysis
+ *    Class:     MayModifySummary
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/controlflowanalysis/MayModifySummary.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.controlflowanalysis;
+
+import java.util.BitSet;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
+import de.unisb.cs.st.javaslicer.variables.ArrayElement;
+import de.unisb.cs.st.javaslicer.variables.LocalVariable;
+import de.unisb.cs.st.javaslicer.variables.ObjectField;
+import de.unisb.cs.st.javaslicer.variables.StaticField;
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+/**
+ * A statically computed summary of the variables which may be written by the instructions
+ * that are (transitively) control dependent on one conditional branch, i.e. the variables
+ * which a different outcome of the branch might have changed.
+ *
+ * Local variables are identified by their index, heap locations like in a {@link ModRefSummary}
+ * (fields by their id, array elements by the type of the array).
+ * A branch whose controlled instructions may call an untraced method may write any heap location.
+ *
+ * Summaries are computed by a {@link MayModifyAnalysis}.
+ */
+public class MayModifySummary {
+
+    private final Instruction branch;
+    private final BitSet controlledInstructions;
+    private final BitSet writtenLocalVariables;
+    private final ModRefSummary heapEffects;
+
+    MayModifySummary(Instruction branch, BitSet controlledInstructions, BitSet writtenLocalVariables,
+            ModRefSummary heapEffects) {
+        this.branch = branch;
+        this.controlledInstructions = controlledInstructions;
+        this.writtenLocalVariables = writtenLocalVariables;
+        this.heapEffects = heapEffects;
+    }
+
+    /**
+     * @return the conditional branch whose controlled instructions are summarized
+     */
+    public Instruction getBranch() {
+        return this.branch;
+    }
+
+    /**
+     * @return whether the given instruction is (transitively) control dependent on the branch
+     */
+    public boolean controls(Instruction instr) {
+        return instr.getMethod() == this.branch.getMethod()
+            && this.controlledInstructions.get(instr.getIndex() - instr.getMethod().getInstructionNumberStart());
+    }
+
+    /**
+     * @return the indexes of the local variables which may be written (must not be modified)
+     */
+    public BitSet getWrittenLocalVariables() {
+        return this.writtenLocalVariables;
+    }
+
+    /**
+     * @return the summary of the heap locations which may be written, including the called methods
+     */
+    public ModRefSummary getHeapEffects() {
+        return this.heapEffects;
+    }
+
+    public boolean mayWriteLocalVariable(int varIndex) {
+        return this.writtenLocalVariables.get(varIndex);
+    }
+
+    public boolean mayWriteField(int fieldId) {
+        return this.heapEffects.callsUntracedMethods() || this.heapEffects.mayWriteField(fieldId);
+    }
+
+    /**
+     * @param arrayType the type of the array (see {@link ModRefSummary#getArrayType(Instruction)}),
+     *                  or <code>-1</code> if it is not known
+     */
+    public boolean mayWriteArrayType(int arrayType) {
+        if (this.heapEffects.callsUntracedMethods())
+            return true;
+        return arrayType == -1 ? this.heapEffects.getWrittenArrayTypes() != 0
+            : this.heapEffects.mayWriteArrayType(arrayType);
+    }
+
+    /**
+     * @return whether any heap location (field or array element) may be written
+     */
+    public boolean mayWriteHeap() {
+        return this.heapEffects.callsUntracedMethods() || this.heapEffects.getWrittenArrayTypes() != 0
+            || !this.heapEffects.getWrittenFields().isEmpty();
+    }
+
+    /**
+     * Returns whether the given variable may be written. Local variables are only compared
+     * by their index, so the caller has to make sure that they belong to the frame of the branch.
+     * Stack entries are never reported, since an entry which is read after the controlled
+     * instructions is written on every path through them.
+     *
+     * @param var the variable
+     * @param arrayType the type of the array if <code>var</code> is an array element
+     *                  (see {@link #mayWriteArrayType(int)})
+     */
+    public boolean mayWrite(Variable var, int arrayType) {
+        if (var instanceof LocalVariable)
+            return mayWriteLocalVariable(((LocalVariable) var).getVarIndex());
+        if (var instanceof ObjectField)
+            return mayWriteField(((ObjectField) var).getFieldId());
+        if (var instanceof StaticField)
+            return mayWriteField(((StaticField) var).getFieldId());
+        if (var instanceof ArrayElement)
+            return mayWriteArrayType(arrayType);
+        return false;
+    }
+
+    /**
+     * @return whether no variable may be written
+     */
+    public boolean isEmpty() {
+        return this.writtenLocalVariables.isEmpty() && !mayWriteHeap();
+    }
+
+    @Override
+    public String toString() {
+        return "may-modify summary of " + this.branch + ": " + this.writtenLocalVariables.cardinality()
+            + " local variables, " + this.heapEffects.getWrittenFields().cardinality() + " fields written"
+            + (this.heapEffects.callsUntracedMethods() ? " (calls untraced methods)" : "");
+    }
+
+}
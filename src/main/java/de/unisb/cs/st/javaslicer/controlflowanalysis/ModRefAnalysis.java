@@ -0,0 +1,277 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.controlflowanalysis
+ *    Class:     ModRefAnalysis
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/controlflowanalysis/ModRefAnalysis.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.controlflowanalysis;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Field;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadClass;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.FieldInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.MethodInvocationInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.NewArrayInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.TypeInstruction;
+import de.unisb.cs.st.javaslicer.variables.FieldTable;
+
+/**
+ * Computes {@link ModRefSummary}s for the methods of a set of traced classes.
+ *
+ * The summary of a method is the union of the local effects of all methods reachable
+ * in the call graph. Method invocations are resolved by their owner class and its traced
+ * superclasses; virtual and interface calls additionally may reach every traced method
+ * with the same name and descriptor. The static initializers of the classes referenced
+ * by <code>NEW</code>, static field accesses and static calls are reachable as well.
+ * Invocations that cannot be resolved to a traced method (except for the methods of
+ * <code>java.lang.Object</code>) are recorded in {@link ModRefSummary#callsUntracedMethods()}.
+ *
+ * Summaries are computed lazily and cached, so this class is not thread-safe.
+ */
+public class ModRefAnalysis {
+
+    private static final String OBJECT_INTERNAL_NAME = "java/lang/Object";
+
+    /**
+     * The effects of the instructions of one method, without the called methods.
+     */
+    private static class LocalEffects {
+
+        final BitSet writtenFields = new BitSet();
+        final BitSet allocatedFields = new BitSet();
+        int writtenArrayTypes = 0;
+        int allocatedArrayTypes = 0;
+        boolean allocatesUntracedObjects = false;
+        boolean callsUntracedMethods = false;
+        final Set<ReadMethod> callees = new HashSet<ReadMethod>();
+
+    }
+
+    private final Map<String, ReadClass> classes = new HashMap<String, ReadClass>();
+    private final Map<String, List<ReadMethod>> methodsBySignature = new HashMap<String, List<ReadMethod>>();
+    private final Map<ReadMethod, LocalEffects> localEffects = new HashMap<ReadMethod, LocalEffects>();
+    private final Map<ReadMethod, ModRefSummary> summaries = new HashMap<ReadMethod, ModRefSummary>();
+
+    public ModRefAnalysis(Collection<ReadClass> readClasses) {
+        for (ReadClass readClass: readClasses) {
+            this.classes.put(readClass.getInternalClassName(), readClass);
+            for (ReadMethod method: readClass.getMethods()) {
+                String signature = method.getName() + method.getDesc();
+                List<ReadMethod> methods = this.methodsBySignature.get(signature);
+                if (methods == null)
+                    this.methodsBySignature.put(signature, methods = new ArrayList<ReadMethod>(1));
+                methods.add(method);
+            }
+        }
+    }
+
+    /**
+     * Returns the summary of the given method, including all methods it may call.
+     *
+     * @param method a method of one of the classes given to the constructor
+     * @return the (cached) summary of the method
+     */
+    public ModRefSummary getSummary(ReadMethod method) {
+        ModRefSummary summary = this.summaries.get(method);
+        if (summary != null)
+            return summary;
+        Set<ReadMethod> reachable = new HashSet<ReadMethod>();
+        reachable.add(method);
+        summary = computeSummary(method, getLocalEffects(method), reachable);
+        this.summaries.put(method, summary);
+        return summary;
+    }
+
+    /**
+     * Returns the summary of some instructions of a method, including all methods they may call.
+     * The result is not cached, but the summaries of the called methods are.
+     *
+     * @param method the method containing the instructions
+     * @param instructions some instructions of <code>method</code>
+     * @return the summary of the instructions (its reachable methods are only the called ones)
+     */
+    public ModRefSummary getSummary(ReadMethod method, Iterable<? extends Instruction> instructions) {
+        return computeSummary(method, computeLocalEffects(instructions), new HashSet<ReadMethod>());
+    }
+
+    private ModRefSummary computeSummary(ReadMethod method, LocalEffects localEffects, Set<ReadMethod> reachable) {
+        BitSet writtenFields = new BitSet();
+        BitSet allocatedFields = new BitSet();
+        int writtenArrayTypes = 0;
+        int allocatedArrayTypes = 0;
+        boolean allocatesUntracedObjects = false;
+        boolean callsUntracedMethods = false;
+        List<ReadMethod> queue = new ArrayList<ReadMethod>();
+        LocalEffects effects = localEffects;
+        while (true) {
+            writtenFields.or(effects.writtenFields);
+            allocatedFields.or(effects.allocatedFields);
+            writtenArrayTypes |= effects.writtenArrayTypes;
+            allocatedArrayTypes |= effects.allocatedArrayTypes;
+            allocatesUntracedObjects |= effects.allocatesUntracedObjects;
+            callsUntracedMethods |= effects.callsUntracedMethods;
+            for (ReadMethod callee: effects.callees)
+                if (reachable.add(callee))
+                    queue.add(callee);
+            if (queue.isEmpty())
+                break;
+            effects = getLocalEffects(queue.remove(queue.size()-1));
+        }
+        return new ModRefSummary(method, writtenFields, allocatedFields, writtenArrayTypes,
+            allocatedArrayTypes, allocatesUntracedObjects, callsUntracedMethods, reachable);
+    }
+
+    private LocalEffects getLocalEffects(ReadMethod method) {
+        LocalEffects effects = this.localEffects.get(method);
+        if (effects != null)
+            return effects;
+        effects = computeLocalEffects(method.getInstructions());
+        this.localEffects.put(method, effects);
+        return effects;
+    }
+
+    private LocalEffects computeLocalEffects(Iterable<? extends Instruction> instructions) {
+        LocalEffects effects = new LocalEffects();
+        for (Instruction instr: instructions) {
+            switch (instr.getType()) {
+            case ARRAY:
+                if (instr.getOpcode() >= IASTORE)
+                    effects.writtenArrayTypes |= 1 << ModRefSummary.getArrayType(instr);
+                break;
+            case FIELD:
+                FieldInstruction fieldInstr = (FieldInstruction) instr;
+                if (instr.getOpcode() == PUTFIELD) {
+                    effects.writtenFields.set(FieldTable.getInstanceFieldId(fieldInstr.getFieldName()));
+                } else if (instr.getOpcode() == PUTSTATIC) {
+                    effects.writtenFields.set(FieldTable.getStaticFieldId(
+                        fieldInstr.getOwnerInternalClassName(), fieldInstr.getFieldName()));
+                }
+                if (instr.getOpcode() == GETSTATIC || instr.getOpcode() == PUTSTATIC)
+                    addStaticInitializers(fieldInstr.getOwnerInternalClassName(), effects);
+                break;
+            case METHODINVOCATION:
+                addCallees((MethodInvocationInstruction) instr, effects);
+                break;
+            case MULTIANEWARRAY:
+                // the element types of the inner arrays are not known
+                effects.allocatedArrayTypes |= (1 << ModRefSummary.NUM_ARRAY_TYPES) - 1;
+                break;
+            case NEWARRAY:
+                effects.allocatedArrayTypes |= 1 << ModRefSummary.getNewArrayType(
+                    ((NewArrayInstruction) instr).getArrayElemType());
+                break;
+            case TYPE:
+                if (instr.getOpcode() == ANEWARRAY) {
+                    effects.allocatedArrayTypes |= 1 << ModRefSummary.getReferenceArrayType();
+                } else if (instr.getOpcode() == NEW) {
+                    String className = ((TypeInstruction) instr).getClassName();
+                    addAllocatedFields(className, effects);
+                    addStaticInitializers(className, effects);
+                }
+                break;
+            default:
+                break;
+            }
+        }
+        return effects;
+    }
+
+    private void addCallees(MethodInvocationInstruction invocation, LocalEffects effects) {
+        String owner = invocation.getInvokedInternalClassName();
+        String name = invocation.getInvokedMethodName();
+        String desc = invocation.getInvokedMethodDesc();
+        if (invocation.getOpcode() == INVOKESTATIC)
+            addStaticInitializers(owner, effects);
+
+        // search the declaring class, starting at the owner class given in the bytecode
+        for (String className = owner; ; ) {
+            ReadClass readClass = this.classes.get(className);
+            if (readClass == null) {
+                if (!OBJECT_INTERNAL_NAME.equals(className))
+                    effects.callsUntracedMethods = true;
+                break;
+            }
+            ReadMethod declared = findMethod(readClass, name, desc);
+            if (declared != null) {
+                effects.callees.add(declared);
+                break;
+            }
+            if (readClass.getSuperClassName() == null)
+                break;
+            className = readClass.getSuperClassName().replace('.', '/');
+        }
+
+        // overriding methods
+        if (invocation.getOpcode() == INVOKEVIRTUAL || invocation.getOpcode() == INVOKEINTERFACE) {
+            List<ReadMethod> overriding = this.methodsBySignature.get(name + desc);
+            if (overriding != null)
+                effects.callees.addAll(overriding);
+        }
+    }
+
+    private void addAllocatedFields(String internalClassName, LocalEffects effects) {
+        for (String className = internalClassName; !OBJECT_INTERNAL_NAME.equals(className); ) {
+            ReadClass readClass = this.classes.get(className);
+            if (readClass == null) {
+                effects.allocatesUntracedObjects = true;
+                return;
+            }
+            for (Field field: readClass.getFields())
+                if ((field.getAccess() & ACC_STATIC) == 0)
+                    effects.allocatedFields.set(FieldTable.getInstanceFieldId(field.getName()));
+            if (readClass.getSuperClassName() == null)
+                return;
+            className = readClass.getSuperClassName().replace('.', '/');
+        }
+    }
+
+    private void addStaticInitializers(String internalClassName, LocalEffects effects) {
+        for (String className = internalClassName; !OBJECT_INTERNAL_NAME.equals(className); ) {
+            ReadClass readClass = this.classes.get(className);
+            if (readClass == null)
+                return;
+            ReadMethod clinit = findMethod(readClass, "<clinit>", "()V");
+            if (clinit != null)
+                effects.callees.add(clinit);
+            if (readClass.getSuperClassName() == null)
+                return;
+            className = readClass.getSuperClassName().replace('.', '/');
+        }
+    }
+
+    private static ReadMethod findMethod(ReadClass readClass, String name, String desc) {
+        for (ReadMethod method: readClass.getMethods())
+            if (method.getName().equals(name) && method.getDesc().equals(desc))
+                return method;
+        return null;
+    }
+
+}
@@ -0,0 +1,209 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.controlflowanalysis
+ *    Class:     ModRefSummary
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/controlflowanalysis/ModRefSummary.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.controlflowanalysis;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Set;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.variables.FieldTable;
+
+/**
+ * A statically computed summary of the heap locations which a method, together with all
+ * methods it may (transitively) call, may modify.
+ *
+ * Fields are identified by their id in the {@link FieldTable} (instance fields by their
+ * name, static fields by owner class and name), array elements only by the type of the
+ * array (see {@link #getArrayType(Instruction)}).
+ * Allocations are summarized separately, since the dependence analysis connects all
+ * reads of a field or element of a new object to the instruction allocating it.
+ *
+ * Summaries are computed by a {@link ModRefAnalysis}.
+ */
+public class ModRefSummary {
+
+    /**
+     * The number of different array types, i.e. the number of bits used in
+     * {@link #getWrittenArrayTypes()} and {@link #getAllocatedArrayTypes()}.
+     */
+    public static final int NUM_ARRAY_TYPES = 8;
+
+    private final ReadMethod method;
+    private final BitSet writtenFields;
+    private final BitSet allocatedFields;
+    private final int writtenArrayTypes;
+    private final int allocatedArrayTypes;
+    private final boolean allocatesUntracedObjects;
+    private final boolean callsUntracedMethods;
+    private final Set<ReadMethod> reachableMethods;
+
+    ModRefSummary(ReadMethod method, BitSet writtenFields, BitSet allocatedFields,
+            int writtenArrayTypes, int allocatedArrayTypes, boolean allocatesUntracedObjects,
+            boolean callsUntracedMethods, Set<ReadMethod> reachableMethods) {
+        this.method = method;
+        this.writtenFields = writtenFields;
+        this.allocatedFields = allocatedFields;
+        this.writtenArrayTypes = writtenArrayTypes;
+        this.allocatedArrayTypes = allocatedArrayTypes;
+        this.allocatesUntracedObjects = allocatesUntracedObjects;
+        this.callsUntracedMethods = callsUntracedMethods;
+        this.reachableMethods = Collections.unmodifiableSet(reachableMethods);
+    }
+
+    /**
+     * Returns the type of the array accessed by the given array load or store instruction,
+     * as an index between 0 and {@link #NUM_ARRAY_TYPES}.
+     * Byte and boolean arrays share one type, since they are accessed by the same instructions.
+     *
+     * @param instr an array load or store instruction
+     * @return the array type, or <code>-1</code> if the instruction does not access an array element
+     */
+    public static int getArrayType(Instruction instr) {
+        int opcode = instr.getOpcode();
+        if (opcode >= IALOAD && opcode <= SALOAD)
+            return opcode - IALOAD;
+        if (opcode >= IASTORE && opcode <= SASTORE)
+            return opcode - IASTORE;
+        return -1;
+    }
+
+    /**
+     * Returns the array type (see {@link #getArrayType(Instruction)}) of arrays created by
+     * a <code>NEWARRAY</code> instruction with the given element type.
+     */
+    static int getNewArrayType(int arrayElemType) {
+        // in the order of the array load instructions: I, L, F, D, A, B, C, S
+        switch (arrayElemType) {
+        case T_INT:
+            return 0;
+        case T_LONG:
+            return 1;
+        case T_FLOAT:
+            return 2;
+        case T_DOUBLE:
+            return 3;
+        case T_BOOLEAN:
+        case T_BYTE:
+            return 5;
+        case T_CHAR:
+            return 6;
+        case T_SHORT:
+            return 7;
+        default:
+            throw new AssertionError("unknown array element type " + arrayElemType);
+        }
+    }
+
+    /**
+     * @return the array type of arrays of references
+     */
+    static int getReferenceArrayType() {
+        return AALOAD - IALOAD;
+    }
+
+    /**
+     * @return the method whose effects are summarized
+     */
+    public ReadMethod getMethod() {
+        return this.method;
+    }
+
+    /**
+     * @return the ids of the instance and static fields that may be written (must not be modified)
+     */
+    public BitSet getWrittenFields() {
+        return this.writtenFields;
+    }
+
+    /**
+     * @return the ids of the instance fields of all traced classes which may be allocated
+     *         (must not be modified)
+     */
+    public BitSet getAllocatedFields() {
+        return this.allocatedFields;
+    }
+
+    /**
+     * @return a bit mask of the array types whose elements may be written
+     */
+    public int getWrittenArrayTypes() {
+        return this.writtenArrayTypes;
+    }
+
+    /**
+     * @return a bit mask of the array types which may be allocated
+     */
+    public int getAllocatedArrayTypes() {
+        return this.allocatedArrayTypes;
+    }
+
+    /**
+     * @return whether objects of a class may be allocated whose fields are not (completely) known
+     */
+    public boolean allocatesUntracedObjects() {
+        return this.allocatesUntracedObjects;
+    }
+
+    /**
+     * Returns whether a method may be called which is not traced (except for the methods of
+     * <code>java.lang.Object</code>). Such a method might call back into traced code, so its
+     * effects are unknown.
+     */
+    public boolean callsUntracedMethods() {
+        return this.callsUntracedMethods;
+    }
+
+    /**
+     * @return all traced methods that may be executed during a call of this method (including itself)
+     */
+    public Set<ReadMethod> getReachableMethods() {
+        return this.reachableMethods;
+    }
+
+    /**
+     * @return whether the given field (by its id in the {@link FieldTable}) may be written
+     */
+    public boolean mayWriteField(int fieldId) {
+        return this.writtenFields.get(fieldId);
+    }
+
+    /**
+     * @return whether elements of arrays of the given type (see {@link #getArrayType(Instruction)})
+     *         may be written
+     */
+    public boolean mayWriteArrayType(int arrayType) {
+        return (this.writtenArrayTypes & (1 << arrayType)) != 0;
+    }
+
+    @Override
+    public String toString() {
+        return "mod/ref summary of " + this.method + ": " + this.writtenFields.cardinality()
+            + " fields written, " + this.reachableMethods.size() + " reachable methods"
+            + (this.callsUntracedMethods ? " (calls untraced methods)" : "");
+    }
+
+}
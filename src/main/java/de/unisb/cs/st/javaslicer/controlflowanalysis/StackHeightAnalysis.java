@@ -0,0 +1,256 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.controlflowanalysis
+ *    Class:     StackHeightAnalysis
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/controlflowanalysis/StackHeightAnalysis.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.controlflowanalysis;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.util.Arrays;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionType;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.FieldInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.LabelMarker;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.LdcInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.MethodInvocationInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.MultiANewArrayInstruction;
+
+/**
+ * Computes the height of the operand stack before each instruction of a method,
+ * similar to ASM's <code>Analyzer</code>, but only tracking the number of stack slots.
+ *
+ * The heights are propagated along the edges of the {@link ControlFlowGraph};
+ * catch blocks start with an empty stack (their label pushes the exception, like
+ * in the {@link de.unisb.cs.st.javaslicer.instructionSimulation.Simulator}).
+ * Double-sized values (long and double) count as two slots.
+ */
+public class StackHeightAnalysis {
+
+    /**
+     * The height of instructions that are not reachable from the method entry or a catch block.
+     */
+    public static final int UNREACHABLE = -1;
+
+    private StackHeightAnalysis() {
+        // utility class
+    }
+
+    /**
+     * Computes the stack height before each instruction of the given method.
+     *
+     * @param method the method to analyse
+     * @return an array containing the height before each instruction, indexed by
+     *         <code>instr.getIndex() - method.getInstructionNumberStart()</code>
+     *         ({@link #UNREACHABLE} for unreachable instructions), or <code>null</code>
+     *         if the method has no consistent stack heights
+     */
+    public static int[] computeEntryHeights(ReadMethod method) {
+        int start = method.getInstructionNumberStart();
+        int[] heights = new int[method.getInstructionNumberEnd() - start];
+        Arrays.fill(heights, UNREACHABLE);
+        if (method.getInstructions().isEmpty())
+            return heights;
+
+        int[] queue = new int[heights.length];
+        int queueSize = 0;
+        for (Instruction instr: method.getInstructions()) {
+            if (instr == method.getMethodEntryLabel()
+                    || (instr.getType() == InstructionType.LABEL && ((LabelMarker)instr).isCatchBlock())) {
+                heights[instr.getIndex() - start] = 0;
+                queue[queueSize++] = instr.getIndex() - start;
+            }
+        }
+        if (queueSize == 0) {
+            int first = method.getInstructions().get(0).getIndex() - start;
+            heights[first] = 0;
+            queue[queueSize++] = first;
+        }
+
+        // every instruction is added to the queue at most once (when its height is set)
+        for (int next = 0; next < queueSize; ++next) {
+            int pos = queue[next];
+            Instruction instr = method.getInstructions().get(pos);
+            assert instr.getIndex() - start == pos;
+            int[] readWrite = getStackEffect(instr);
+            int height = heights[pos] - readWrite[0];
+            if (height < 0)
+                return null;
+            height += readWrite[1];
+            // the successors of the nodes of a ControlFlowGraph, without building the graph
+            for (Instruction succ: ControlFlowGraph.getSuccessors(instr)) {
+                int succPos = succ.getIndex() - start;
+                if (heights[succPos] == UNREACHABLE) {
+                    heights[succPos] = height;
+                    queue[queueSize++] = succPos;
+                } else if (heights[succPos] != height) {
+                    return null;
+                }
+            }
+        }
+        return heights;
+    }
+
+    /**
+     * Returns the number of stack slots read and written by the given instruction when it
+     * completes normally. Double-sized values (long and double) count as two slots.
+     *
+     * @param instr the instruction
+     * @return an array <code>{read, written}</code>
+     */
+    public static int[] getStackEffect(Instruction instr) {
+        int opcode = instr.getOpcode();
+        switch (instr.getType()) {
+        case ARRAY:
+            switch (opcode) {
+            case LALOAD: case DALOAD:
+                return new int[] { 2, 2 };
+            case IASTORE: case FASTORE: case AASTORE: case BASTORE: case CASTORE: case SASTORE:
+                return new int[] { 3, 0 };
+            case LASTORE: case DASTORE:
+                return new int[] { 4, 0 };
+            default:
+                return new int[] { 2, 1 };
+            }
+        case FIELD:
+            int size = ((FieldInstruction)instr).isLongValue() ? 2 : 1;
+            switch (opcode) {
+            case GETSTATIC:
+                return new int[] { 0, size };
+            case PUTSTATIC:
+                return new int[] { size, 0 };
+            case GETFIELD:
+                return new int[] { 1, size };
+            default:
+                return new int[] { 1 + size, 0 };
+            }
+        case IINC:
+            return new int[] { 0, 0 };
+        case INT:
+            return new int[] { 0, 1 };
+        case JUMP:
+            switch (opcode) {
+            case IFEQ: case IFNE: case IFLT: case IFGE: case IFGT: case IFLE:
+            case IFNULL: case IFNONNULL:
+                return new int[] { 1, 0 };
+            case IF_ICMPEQ: case IF_ICMPNE: case IF_ICMPLT: case IF_ICMPGE:
+            case IF_ICMPGT: case IF_ICMPLE: case IF_ACMPEQ: case IF_ACMPNE:
+                return new int[] { 2, 0 };
+            case JSR:
+                return new int[] { 0, 1 };
+            default:
+                return new int[] { 0, 0 };
+            }
+        case LABEL:
+            return new int[] { 0, ((LabelMarker)instr).isCatchBlock() ? 1 : 0 };
+        case LDC:
+            return new int[] { 0, ((LdcInstruction)instr).constantIsLong() ? 2 : 1 };
+        case LOOKUPSWITCH:
+        case TABLESWITCH:
+            return new int[] { 1, 0 };
+        case METHODINVOCATION:
+            MethodInvocationInstruction invocation = (MethodInvocationInstruction) instr;
+            int params = opcode == INVOKESTATIC ? 0 : 1;
+            for (int param = invocation.getParameterCount()-1; param >= 0; --param)
+                params += invocation.parameterIsLong(param) ? 2 : 1;
+            return new int[] { params, invocation.getReturnedSize() };
+        case MULTIANEWARRAY:
+            return new int[] { ((MultiANewArrayInstruction)instr).getDimension(), 1 };
+        case NEWARRAY:
+            return new int[] { 1, 1 };
+        case SIMPLE:
+            return getSimpleStackEffect(opcode);
+        case TYPE:
+            return new int[] { opcode == NEW ? 0 : 1, 1 };
+        case VAR:
+            switch (opcode) {
+            case ILOAD: case FLOAD: case ALOAD:
+                return new int[] { 0, 1 };
+            case LLOAD: case DLOAD:
+                return new int[] { 0, 2 };
+            case ISTORE: case FSTORE: case ASTORE:
+                return new int[] { 1, 0 };
+            case LSTORE: case DSTORE:
+                return new int[] { 2, 0 };
+            default: // RET
+                return new int[] { 0, 0 };
+            }
+        default:
+            throw new AssertionError("unknown instruction type " + instr.getType());
+        }
+    }
+
+    private static int[] getSimpleStackEffect(int opcode) {
+        switch (opcode) {
+        case NOP: case RETURN:
+            return new int[] { 0, 0 };
+        case ACONST_NULL: case ICONST_M1: case ICONST_0: case ICONST_1: case ICONST_2: case ICONST_3:
+        case ICONST_4: case ICONST_5: case FCONST_0: case FCONST_1: case FCONST_2:
+            return new int[] { 0, 1 };
+        case DCONST_0: case DCONST_1: case LCONST_0: case LCONST_1:
+            return new int[] { 0, 2 };
+        case POP: case MONITORENTER: case MONITOREXIT: case ATHROW:
+        case IRETURN: case FRETURN: case ARETURN:
+            return new int[] { 1, 0 };
+        case POP2: case LRETURN: case DRETURN:
+            return new int[] { 2, 0 };
+        case DUP:
+            return new int[] { 1, 2 };
+        case DUP2:
+            return new int[] { 2, 4 };
+        case DUP_X1:
+            return new int[] { 2, 3 };
+        case DUP_X2:
+            return new int[] { 3, 4 };
+        case DUP2_X1:
+            return new int[] { 3, 5 };
+        case DUP2_X2:
+            return new int[] { 4, 6 };
+        case SWAP:
+            return new int[] { 2, 2 };
+        case I2F: case F2I: case I2B: case I2C: case I2S:
+        case INEG: case FNEG: case ARRAYLENGTH:
+            return new int[] { 1, 1 };
+        case I2L: case I2D: case F2L: case F2D:
+            return new int[] { 1, 2 };
+        case L2I: case D2I: case L2F: case D2F:
+            return new int[] { 2, 1 };
+        case L2D: case D2L:
+        case LNEG: case DNEG:
+            return new int[] { 2, 2 };
+        case FCMPL: case FCMPG:
+        case IADD: case FADD: case ISUB: case FSUB: case IMUL: case FMUL: case IDIV: case FDIV: case IREM:
+        case FREM: case ISHL: case ISHR: case IUSHR: case IAND: case IOR: case IXOR:
+            return new int[] { 2, 1 };
+        case LCMP: case DCMPL: case DCMPG:
+            return new int[] { 4, 1 };
+        case LADD: case DADD: case LSUB: case DSUB: case LMUL: case DMUL: case LDIV: case DDIV: case LREM:
+        case DREM: case LAND: case LOR: case LXOR:
+            return new int[] { 4, 2 };
+        case LSHL: case LSHR: case LUSHR:
+            return new int[] { 3, 2 };
+        default:
+            throw new AssertionError("unknown opcode " + opcode);
+        }
+    }
+
+}
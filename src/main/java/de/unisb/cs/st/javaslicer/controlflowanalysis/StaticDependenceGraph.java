@@ -0,0 +1,730 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.controlflowanalysis
+ *    Class:     StaticDependenceGraph
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/controlflowanalysis/StaticDependenceGraph.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.controlflowanalysis;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionType;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadClass;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.TryCatchBlock;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.FieldInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.IIncInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.LabelMarker;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.MethodInvocationInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.NewArrayInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.VarInstruction;
+import de.unisb.cs.st.javaslicer.controlflowanalysis.ControlFlowGraph.AbstractNodeFactory;
+import de.unisb.cs.st.javaslicer.controlflowanalysis.ControlFlowGraph.InstrNode;
+import de.unisb.cs.st.javaslicer.variables.FieldTable;
+
+/**
+ * A static program dependence graph over the instructions of a set of traced classes.
+ * The static slice computed on this graph contains every instruction which may have an
+ * instance on a dynamic slice computed by the
+ * {@link de.unisb.cs.st.javaslicer.dependenceAnalysis.DependencesExtractor}.
+ *
+ * Within a method, the data dependences are computed by a reaching definitions analysis
+ * over the local variables and operand stack slots (with the heights of the
+ * {@link StackHeightAnalysis}) on the {@link ControlFlowGraph} including the edges from
+ * try blocks to their handlers. The control dependences are the ones of the
+ * {@link ControlFlowAnalyser}.
+ *
+ * The edges between methods are conservative:
+ * <ul>
+ *   <li>a field read depends on all writes of a field with the same name and on all
+ *       <code>NEW</code> instructions, an array element read on all writes and allocations
+ *       of arrays of the same type (see {@link ModRefSummary#getArrayType(Instruction)});</li>
+ *   <li>an instruction reading a parameter depends on all invocations of its method, and
+ *       these invocations are control dependent on all instructions of the method;</li>
+ *   <li>a method invocation depends on all returns of traced methods with the same name
+ *       and descriptor;</li>
+ *   <li>a catch block depends on all instructions of the methods reachable from its method
+ *       which may throw the caught exception (only <code>ATHROW</code> instructions and
+ *       invocations of untraced methods, unless it may be thrown by the virtual machine).</li>
+ * </ul>
+ * Invocations of untraced methods may call back any traced method which is not static,
+ * private or a constructor, as well as static initializers.
+ *
+ * The analysis of each method is computed lazily and cached, so this class is not thread-safe.
+ */
+public class StaticDependenceGraph {
+
+    /**
+     * The name of the counter group of the static slice filter in the
+     * {@link de.unisb.cs.st.javaslicer.metrics.SlicingMetrics}.
+     */
+    public static final String COUNTERS = "static slice";
+
+    private static final String OBJECT_INTERNAL_NAME = "java/lang/Object";
+
+    // the exceptions thrown by the virtual machine when executing an instruction, and their superclasses
+    private static final Set<String> IMPLICIT_EXCEPTION_TYPES = new HashSet<String>(Arrays.asList(
+        "java/lang/Throwable", "java/lang/Exception", "java/lang/RuntimeException",
+        "java/lang/ArithmeticException", "java/lang/ArrayStoreException", "java/lang/ClassCastException",
+        "java/lang/IllegalMonitorStateException", "java/lang/IndexOutOfBoundsException",
+        "java/lang/ArrayIndexOutOfBoundsException", "java/lang/NegativeArraySizeException",
+        "java/lang/NullPointerException"));
+
+    /**
+     * The dependences between the instructions of one method, by their position in the method.
+     */
+    private static class MethodDependences {
+
+        final int[][] dataDependences;
+        final int[][] controlDependences;
+        // positions which read a parameter of the method
+        final BitSet readsParameters = new BitSet();
+        // positions which were not analysed; they depend on all instructions of the method
+        final BitSet unanalysed = new BitSet();
+
+        public MethodDependences(int size) {
+            this.dataDependences = new int[size][];
+            this.controlDependences = new int[size][];
+        }
+
+    }
+
+    private final Instruction[] instructions;
+    private final Collection<ReadClass> readClasses;
+    private final Map<String, ReadClass> classes = new HashMap<String, ReadClass>();
+
+    private final Map<String, List<Instruction>> invocationsBySignature = new HashMap<String, List<Instruction>>();
+    private final List<Instruction> untracedInvocations = new ArrayList<Instruction>();
+    private final List<Instruction> classInitializations = new ArrayList<Instruction>();
+    private final Map<String, List<Instruction>> returnsBySignature = new HashMap<String, List<Instruction>>();
+    private final List<Instruction> callbackReturns = new ArrayList<Instruction>();
+    private final Map<Integer, List<Instruction>> instanceFieldWrites = new HashMap<Integer, List<Instruction>>();
+    private final Map<Integer, List<Instruction>> staticFieldWrites = new HashMap<Integer, List<Instruction>>();
+    private final List<Instruction> objectAllocations = new ArrayList<Instruction>();
+    private final List<List<Instruction>> arrayWrites = new ArrayList<List<Instruction>>();
+    private final List<List<Instruction>> arrayAllocations = new ArrayList<List<Instruction>>();
+    // invocations which cannot be resolved to a traced method, by instruction index
+    private final BitSet untraced = new BitSet();
+
+    private final Map<ReadMethod, MethodDependences> methodDependences = new HashMap<ReadMethod, MethodDependences>();
+    private ModRefAnalysis modRefAnalysis = null;
+    // the methods reachable from any method which may be called back from untraced code
+    private Set<ReadMethod> callbackReachableMethods = null;
+    // the instructions which may throw an exception caught in a method, if it may be thrown
+    // implicitly or only explicitly
+    private final Map<ReadMethod, List<Instruction>> implicitlyThrowing = new HashMap<ReadMethod, List<Instruction>>();
+    private final Map<ReadMethod, List<Instruction>> explicitlyThrowing = new HashMap<ReadMethod, List<Instruction>>();
+
+    public StaticDependenceGraph(Collection<ReadClass> readClasses) {
+        this.readClasses = readClasses;
+        int numInstructions = 0;
+        for (ReadClass readClass: readClasses) {
+            this.classes.put(readClass.getInternalClassName(), readClass);
+            for (ReadMethod method: readClass.getMethods())
+                numInstructions = Math.max(numInstructions, method.getInstructionNumberEnd());
+        }
+        for (int type = 0; type < ModRefSummary.NUM_ARRAY_TYPES; ++type) {
+            this.arrayWrites.add(new ArrayList<Instruction>());
+            this.arrayAllocations.add(new ArrayList<Instruction>());
+        }
+        this.instructions = new Instruction[numInstructions];
+        for (ReadClass readClass: readClasses)
+            for (ReadMethod method: readClass.getMethods())
+                for (Instruction instr: method.getInstructions())
+                    addInstruction(instr);
+    }
+
+    private void addInstruction(Instruction instr) {
+        this.instructions[instr.getIndex()] = instr;
+        int opcode = instr.getOpcode();
+        switch (instr.getType()) {
+        case ARRAY:
+            if (opcode >= IASTORE)
+                this.arrayWrites.get(ModRefSummary.getArrayType(instr)).add(instr);
+            break;
+        case FIELD:
+            FieldInstruction fieldInstr = (FieldInstruction) instr;
+            if (opcode == PUTFIELD) {
+                add(this.instanceFieldWrites, FieldTable.getInstanceFieldId(fieldInstr.getFieldName()), instr);
+            } else if (opcode == PUTSTATIC) {
+                add(this.staticFieldWrites, FieldTable.getStaticFieldId(
+                    fieldInstr.getOwnerInternalClassName(), fieldInstr.getFieldName()), instr);
+            }
+            if (opcode == GETSTATIC || opcode == PUTSTATIC)
+                this.classInitializations.add(instr);
+            break;
+        case METHODINVOCATION:
+            MethodInvocationInstruction invocation = (MethodInvocationInstruction) instr;
+            add(this.invocationsBySignature, invocation.getInvokedMethodName() + invocation.getInvokedMethodDesc(), instr);
+            if (opcode == INVOKESTATIC)
+                this.classInitializations.add(instr);
+            if (!isResolved(invocation)) {
+                this.untraced.set(instr.getIndex());
+                this.untracedInvocations.add(instr);
+            }
+            break;
+        case MULTIANEWARRAY:
+            // the element types of the inner arrays are not known
+            for (List<Instruction> allocations: this.arrayAllocations)
+                allocations.add(instr);
+            break;
+        case NEWARRAY:
+            this.arrayAllocations.get(ModRefSummary.getNewArrayType(
+                ((NewArrayInstruction) instr).getArrayElemType())).add(instr);
+            break;
+        case SIMPLE:
+            if (opcode >= IRETURN && opcode <= ARETURN) {
+                ReadMethod method = instr.getMethod();
+                add(this.returnsBySignature, method.getName() + method.getDesc(), instr);
+                if (mayBeCalledBack(method))
+                    this.callbackReturns.add(instr);
+            }
+            break;
+        case TYPE:
+            if (opcode == ANEWARRAY) {
+                this.arrayAllocations.get(ModRefSummary.getReferenceArrayType()).add(instr);
+            } else if (opcode == NEW) {
+                this.objectAllocations.add(instr);
+                this.classInitializations.add(instr);
+            }
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Checks whether the given method may be called from untraced code, i.e. whether it may
+     * override a method of an untraced class or interface (or is a static initializer).
+     */
+    private static boolean mayBeCalledBack(ReadMethod method) {
+        if ("<clinit>".equals(method.getName()))
+            return true;
+        return (method.getAccess() & (ACC_STATIC | ACC_PRIVATE)) == 0 && !"<init>".equals(method.getName());
+    }
+
+    private static <K> void add(Map<K, List<Instruction>> map, K key, Instruction instr) {
+        List<Instruction> list = map.get(key);
+        if (list == null)
+            map.put(key, list = new ArrayList<Instruction>(2));
+        list.add(instr);
+    }
+
+    /**
+     * Checks whether the invoked method is declared in a traced class (searching the owner
+     * class given in the bytecode and its superclasses). Only the constructor of
+     * <code>java.lang.Object</code> is known not to call back any traced method.
+     */
+    private boolean isResolved(MethodInvocationInstruction invocation) {
+        String name = invocation.getInvokedMethodName();
+        String desc = invocation.getInvokedMethodDesc();
+        for (String className = invocation.getInvokedInternalClassName(); ; ) {
+            ReadClass readClass = this.classes.get(className);
+            if (readClass == null)
+                return OBJECT_INTERNAL_NAME.equals(className) && "<init>".equals(name);
+            for (ReadMethod method: readClass.getMethods())
+                if (method.getName().equals(name) && method.getDesc().equals(desc))
+                    return true;
+            if (readClass.getSuperClassName() == null)
+                return false;
+            className = readClass.getSuperClassName().replace('.', '/');
+        }
+    }
+
+    /**
+     * Computes the static slice for the given instructions, i.e. all instructions that
+     * they transitively depend on (including themselves).
+     *
+     * An invocation which is only on the slice because an instruction of the called method
+     * is on it just depends on its control dependences (and on the callers of its method),
+     * like in the {@link de.unisb.cs.st.javaslicer.slicing.Slicer}.
+     *
+     * @param criteria the indexes of the instructions of the slicing criteria
+     * @return the indexes of all instructions on the static slice
+     */
+    public BitSet computeSlice(BitSet criteria) {
+        return computeSlice(criteria, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Computes the static slice for the given instructions, but gives up as soon as it
+     * contains more than <code>maxSize</code> instructions.
+     *
+     * @param criteria the indexes of the instructions of the slicing criteria
+     * @param maxSize the maximum number of instructions on the slice
+     * @return the indexes of all instructions on the static slice, or <code>null</code> if
+     *         there are more than <code>maxSize</code> of them
+     */
+    public BitSet computeSlice(BitSet criteria, int maxSize) {
+        BitSet slice = new BitSet();
+        int size = 0;
+        // the instructions whose data dependences have been added to the slice
+        BitSet dataSlice = new BitSet();
+        Set<ReadMethod> methods = new HashSet<ReadMethod>();
+        List<Instruction> dataQueue = new ArrayList<Instruction>();
+        List<Instruction> controlQueue = new ArrayList<Instruction>();
+        List<Instruction> dataDeps = new ArrayList<Instruction>();
+        List<Instruction> controlDeps = new ArrayList<Instruction>();
+        for (int index = criteria.nextSetBit(0); index >= 0; index = criteria.nextSetBit(index+1)) {
+            if (index < this.instructions.length && this.instructions[index] != null) {
+                slice.set(index);
+                dataSlice.set(index);
+                dataQueue.add(this.instructions[index]);
+            }
+        }
+        size = slice.cardinality();
+        while (!dataQueue.isEmpty() || !controlQueue.isEmpty()) {
+            boolean allData = !dataQueue.isEmpty();
+            Instruction instr = allData ? dataQueue.remove(dataQueue.size()-1)
+                : controlQueue.remove(controlQueue.size()-1);
+            dataDeps.clear();
+            controlDeps.clear();
+            addDependences(instr, allData, dataDeps);
+            // the callers are the same for all instructions of a method
+            if (methods.add(instr.getMethod()))
+                addCallers(instr.getMethod(), dataDeps, controlDeps);
+            for (Instruction dep: dataDeps) {
+                if (!dataSlice.get(dep.getIndex())) {
+                    if (!slice.get(dep.getIndex()))
+                        ++size;
+                    slice.set(dep.getIndex());
+                    dataSlice.set(dep.getIndex());
+                    dataQueue.add(dep);
+                }
+            }
+            for (Instruction dep: controlDeps) {
+                if (!slice.get(dep.getIndex())) {
+                    ++size;
+                    slice.set(dep.getIndex());
+                    controlQueue.add(dep);
+                }
+            }
+            if (size > maxSize)
+                return null;
+        }
+        return slice;
+    }
+
+    /**
+     * Returns all instructions which the given instruction directly depends on.
+     *
+     * @param instr an instruction of one of the traced classes
+     * @return the data and control dependences of the instruction
+     */
+    public Collection<Instruction> getDependences(Instruction instr) {
+        List<Instruction> dependences = new ArrayList<Instruction>();
+        addDependences(instr, true, dependences);
+        addCallers(instr.getMethod(), dependences, dependences);
+        return dependences;
+    }
+
+    /**
+     * Adds the dependences of the given instruction within its method and on the heap.
+     * If <code>allData</code> is <code>false</code>, only the control dependences are added.
+     */
+    private void addDependences(Instruction instr, boolean allData, List<Instruction> dependences) {
+        ReadMethod method = instr.getMethod();
+        MethodDependences deps = getMethodDependences(method);
+        int start = method.getInstructionNumberStart();
+        int pos = instr.getIndex() - start;
+        if (deps.unanalysed.get(pos)) {
+            dependences.addAll(method.getInstructions());
+            if (allData)
+                addAll(this.invocationsBySignature.get(method.getName() + method.getDesc()), dependences);
+        } else {
+            addPositions(deps.controlDependences[pos], start, dependences);
+            if (!allData)
+                return;
+            addPositions(deps.dataDependences[pos], start, dependences);
+            if (deps.readsParameters.get(pos))
+                addAll(this.invocationsBySignature.get(method.getName() + method.getDesc()), dependences);
+        }
+        if (!allData)
+            return;
+
+        int opcode = instr.getOpcode();
+        switch (instr.getType()) {
+        case ARRAY:
+            if (opcode < IASTORE) {
+                int type = ModRefSummary.getArrayType(instr);
+                dependences.addAll(this.arrayWrites.get(type));
+                dependences.addAll(this.arrayAllocations.get(type));
+            }
+            break;
+        case FIELD:
+            FieldInstruction fieldInstr = (FieldInstruction) instr;
+            if (opcode == GETFIELD) {
+                addAll(this.instanceFieldWrites.get(FieldTable.getInstanceFieldId(fieldInstr.getFieldName())), dependences);
+                dependences.addAll(this.objectAllocations);
+            } else if (opcode == GETSTATIC) {
+                addAll(this.staticFieldWrites.get(FieldTable.getStaticFieldId(
+                    fieldInstr.getOwnerInternalClassName(), fieldInstr.getFieldName())), dependences);
+            }
+            break;
+        case METHODINVOCATION:
+            MethodInvocationInstruction invocation = (MethodInvocationInstruction) instr;
+            addAll(this.returnsBySignature.get(invocation.getInvokedMethodName() + invocation.getInvokedMethodDesc()),
+                dependences);
+            if (this.untraced.get(instr.getIndex()))
+                dependences.addAll(this.callbackReturns);
+            break;
+        case LABEL:
+            if (((LabelMarker) instr).isCatchBlock())
+                addThrowingInstructions((LabelMarker) instr, dependences);
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Adds the instructions which may call the given method. Invocations of the method are
+     * control dependent on the called frame; any other instruction which may trigger the
+     * call (untraced invocations and class initializations) depends on it with all its data.
+     */
+    private void addCallers(ReadMethod method, List<Instruction> dataDeps, List<Instruction> controlDeps) {
+        addAll(this.invocationsBySignature.get(method.getName() + method.getDesc()), controlDeps);
+        if (mayBeCalledBack(method))
+            dataDeps.addAll(this.untracedInvocations);
+        if ("<clinit>".equals(method.getName()))
+            dataDeps.addAll(this.classInitializations);
+    }
+
+    /**
+     * Adds the instructions which may throw an exception caught by the given handler: all
+     * instructions of the methods reachable from the handler's method, or only the
+     * <code>ATHROW</code> instructions and untraced invocations if the caught exception
+     * is never thrown implicitly by the virtual machine.
+     */
+    private void addThrowingInstructions(LabelMarker handler, List<Instruction> dependences) {
+        ReadMethod method = handler.getMethod();
+        boolean implicit = false;
+        for (TryCatchBlock tcb: method.getTryCatchBlocks())
+            if (tcb.getHandler() == handler && mayBeThrownImplicitly(tcb.getType()))
+                implicit = true;
+
+        Map<ReadMethod, List<Instruction>> cache = implicit ? this.implicitlyThrowing : this.explicitlyThrowing;
+        List<Instruction> throwing = cache.get(method);
+        if (throwing == null)
+            cache.put(method, throwing = computeThrowingInstructions(method, implicit));
+        dependences.addAll(throwing);
+    }
+
+    private List<Instruction> computeThrowingInstructions(ReadMethod method, boolean implicit) {
+        if (this.modRefAnalysis == null)
+            this.modRefAnalysis = new ModRefAnalysis(this.readClasses);
+        ModRefSummary summary = this.modRefAnalysis.getSummary(method);
+        Set<ReadMethod> methods = summary.getReachableMethods();
+        if (summary.callsUntracedMethods()) {
+            // the exception may also be thrown by a method called back from untraced code
+            methods = new HashSet<ReadMethod>(methods);
+            methods.addAll(getCallbackReachableMethods());
+        }
+        List<Instruction> throwing = new ArrayList<Instruction>();
+        for (ReadMethod reachable: methods) {
+            for (Instruction instr: reachable.getInstructions())
+                if (implicit || instr.getOpcode() == ATHROW || this.untraced.get(instr.getIndex()))
+                    throwing.add(instr);
+        }
+        return throwing;
+    }
+
+    private Set<ReadMethod> getCallbackReachableMethods() {
+        if (this.callbackReachableMethods == null) {
+            this.callbackReachableMethods = new HashSet<ReadMethod>();
+            for (ReadClass readClass: this.readClasses)
+                for (ReadMethod callback: readClass.getMethods())
+                    if (mayBeCalledBack(callback) && !this.callbackReachableMethods.contains(callback))
+                        this.callbackReachableMethods.addAll(this.modRefAnalysis.getSummary(callback).getReachableMethods());
+        }
+        return this.callbackReachableMethods;
+    }
+
+    private static boolean mayBeThrownImplicitly(String exceptionType) {
+        return exceptionType == null || IMPLICIT_EXCEPTION_TYPES.contains(exceptionType)
+            || exceptionType.endsWith("Error");
+    }
+
+    private static void addAll(List<Instruction> instructions, List<Instruction> dependences) {
+        if (instructions != null)
+            dependences.addAll(instructions);
+    }
+
+    private void addPositions(int[] positions, int start, List<Instruction> dependences) {
+        if (positions != null)
+            for (int pos: positions)
+                dependences.add(this.instructions[start + pos]);
+    }
+
+    private MethodDependences getMethodDependences(ReadMethod method) {
+        MethodDependences deps = this.methodDependences.get(method);
+        if (deps == null) {
+            deps = analyse(method);
+            this.methodDependences.put(method, deps);
+        }
+        return deps;
+    }
+
+    // variables are encoded as (slot << 1) for operand stack slots and (index << 1) | 1 for local variables
+
+    private MethodDependences analyse(ReadMethod method) {
+        int start = method.getInstructionNumberStart();
+        int size = method.getInstructionNumberEnd() - start;
+        MethodDependences deps = new MethodDependences(size);
+        computeControlDependences(method, deps);
+        int[] heights = StackHeightAnalysis.computeEntryHeights(method);
+        if (heights == null) {
+            deps.unanalysed.set(0, size);
+            return deps;
+        }
+
+        // enumerate the definitions: first the parameters (all local variables at the method entry),
+        // then the variables written by each instruction
+        int numLocals = 0;
+        int numSlots = 0;
+        for (Instruction instr: method.getInstructions()) {
+            int local = getLocalVarIndex(instr);
+            if (local >= numLocals)
+                numLocals = local + 1;
+            int height = heights[instr.getIndex() - start];
+            if (height != StackHeightAnalysis.UNREACHABLE) {
+                int[] readWrite = StackHeightAnalysis.getStackEffect(instr);
+                numSlots = Math.max(numSlots, height - readWrite[0] + readWrite[1]);
+            }
+        }
+        int numVars = 2 * Math.max(numLocals, numSlots);
+        BitSet[] varDefs = new BitSet[numVars];
+        for (int var = 0; var < numVars; ++var)
+            varDefs[var] = new BitSet();
+        // definitions of position p: firstDef[p] .. firstDef[p+1]-1 (with their variable in defVars)
+        int[] firstDef = new int[size+1];
+        List<Integer> defVars = new ArrayList<Integer>();
+        // variables which are written, but whose earlier definitions stay visible
+        BitSet[] genOnly = new BitSet[size];
+        for (int local = 0; local < numLocals; ++local) {
+            varDefs[(local << 1) | 1].set(defVars.size());
+            defVars.add((local << 1) | 1);
+        }
+        int numEntryDefs = defVars.size();
+        for (int pos = 0; pos < size; ++pos) {
+            firstDef[pos] = defVars.size();
+            Instruction instr = method.getInstructions().get(pos);
+            int height = heights[pos];
+            if (height == StackHeightAnalysis.UNREACHABLE)
+                continue;
+            int[] readWrite = StackHeightAnalysis.getStackEffect(instr);
+            int base = height - readWrite[0];
+            for (int slot = base; slot < base + readWrite[1]; ++slot) {
+                varDefs[slot << 1].set(defVars.size());
+                defVars.add(slot << 1);
+            }
+            // double-sized values are only traced by their lower slot
+            if (readWrite[1] == 2 && (instr.getOpcode() < DUP || instr.getOpcode() > SWAP))
+                genOnly[pos] = bitSetOf((base + 1) << 1);
+            if (this.untraced.get(instr.getIndex())) {
+                // a method called back from untraced code may write the stack of this frame
+                for (int slot = 0; slot < base; ++slot) {
+                    varDefs[slot << 1].set(defVars.size());
+                    defVars.add(slot << 1);
+                    if (genOnly[pos] == null)
+                        genOnly[pos] = new BitSet();
+                    genOnly[pos].set(slot << 1);
+                }
+            }
+            int local = getLocalVarIndex(instr);
+            if (local >= 0 && isLocalVarWrite(instr)) {
+                varDefs[(local << 1) | 1].set(defVars.size());
+                defVars.add((local << 1) | 1);
+            }
+        }
+        firstDef[size] = defVars.size();
+
+        // reaching definitions before each instruction
+        ControlFlowGraph cfg = new ControlFlowGraph(method, new AbstractNodeFactory(), true, false);
+        BitSet[] in = new BitSet[size];
+        int[] queue = new int[size];
+        boolean[] queued = new boolean[size];
+        int queueSize = 0;
+        Instruction entry = method.getMethodEntryLabel() != null ? method.getMethodEntryLabel()
+            : method.getInstructions().isEmpty() ? null : method.getInstructions().get(0);
+        if (entry != null) {
+            int entryPos = entry.getIndex() - start;
+            in[entryPos] = new BitSet();
+            in[entryPos].set(0, numEntryDefs);
+            queue[queueSize++] = entryPos;
+            queued[entryPos] = true;
+        }
+        while (queueSize > 0) {
+            int pos = queue[--queueSize];
+            queued[pos] = false;
+            BitSet out = (BitSet) in[pos].clone();
+            for (int def = firstDef[pos]; def < firstDef[pos+1]; ++def) {
+                int var = defVars.get(def);
+                if (genOnly[pos] == null || !genOnly[pos].get(var))
+                    out.andNot(varDefs[var]);
+            }
+            out.set(firstDef[pos], firstDef[pos+1]);
+            Instruction instr = method.getInstructions().get(pos);
+            InstrNode node = cfg.getNode(instr);
+            if (node == null)
+                continue;
+            for (InstrNode succ: node.getSuccessors()) {
+                Instruction succInstr = succ.getInstruction();
+                int succPos = succInstr.getIndex() - start;
+                BitSet succIn = in[succPos];
+                boolean reached = succIn == null;
+                if (reached)
+                    in[succPos] = succIn = new BitSet();
+                int oldCardinality = succIn.cardinality();
+                succIn.or(out);
+                // the instruction may throw before writing its variables
+                if (succInstr.getType() == InstructionType.LABEL && ((LabelMarker) succInstr).isCatchBlock())
+                    succIn.or(in[pos]);
+                if ((reached || succIn.cardinality() != oldCardinality) && !queued[succPos]) {
+                    queue[queueSize++] = succPos;
+                    queued[succPos] = true;
+                }
+            }
+        }
+
+        // the data dependences of each instruction on the reaching definitions of the variables it reads
+        BitSet reaching = new BitSet();
+        BitSet positions = new BitSet();
+        for (int pos = 0; pos < size; ++pos) {
+            if (heights[pos] == StackHeightAnalysis.UNREACHABLE)
+                continue;
+            if (in[pos] == null) {
+                deps.unanalysed.set(pos);
+                continue;
+            }
+            Instruction instr = method.getInstructions().get(pos);
+            positions.clear();
+            int[] readWrite = StackHeightAnalysis.getStackEffect(instr);
+            for (int slot = heights[pos] - readWrite[0]; slot < heights[pos]; ++slot)
+                addReachingDefinitions(slot << 1, in[pos], varDefs, reaching, firstDef, positions);
+            int local = getLocalVarIndex(instr);
+            if (local >= 0 && !isLocalVarWrite(instr) || instr.getType() == InstructionType.IINC) {
+                addReachingDefinitions((local << 1) | 1, in[pos], varDefs, reaching, firstDef, positions);
+                // the parameters are defined by the invocation in the calling frame
+                if (reaching.nextSetBit(0) < numEntryDefs && reaching.nextSetBit(0) >= 0)
+                    deps.readsParameters.set(pos);
+            }
+            if (!positions.isEmpty()) {
+                int[] dataDeps = new int[positions.cardinality()];
+                for (int i = 0, p = positions.nextSetBit(0); p >= 0; p = positions.nextSetBit(p+1))
+                    dataDeps[i++] = p;
+                deps.dataDependences[pos] = dataDeps;
+            }
+        }
+        return deps;
+    }
+
+    private static void addReachingDefinitions(int var, BitSet in, BitSet[] varDefs, BitSet reaching,
+            int[] firstDef, BitSet positions) {
+        reaching.clear();
+        reaching.or(in);
+        reaching.and(varDefs[var]);
+        // the parameters (definitions before firstDef[0]) are handled separately
+        for (int def = reaching.nextSetBit(firstDef[0]); def >= 0; def = reaching.nextSetBit(def+1))
+            positions.set(getDefinitionPosition(def, firstDef));
+    }
+
+    private static int getDefinitionPosition(int def, int[] firstDef) {
+        // binary search for the last position whose first definition is <= def
+        int low = 0;
+        int high = firstDef.length - 2;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (firstDef[mid] <= def)
+                low = mid;
+            else
+                high = mid - 1;
+        }
+        return low;
+    }
+
+    private static void computeControlDependences(ReadMethod method, MethodDependences deps) {
+        int start = method.getInstructionNumberStart();
+        Map<Instruction, Set<Instruction>> invControlDeps = ControlFlowAnalyser.getInstance().getInvControlDependences(method);
+        Map<Integer, List<Integer>> controllers = new HashMap<Integer, List<Integer>>();
+        for (Entry<Instruction, Set<Instruction>> entry: invControlDeps.entrySet()) {
+            for (Instruction dependent: entry.getValue()) {
+                List<Integer> list = controllers.get(dependent.getIndex() - start);
+                if (list == null)
+                    controllers.put(dependent.getIndex() - start, list = new ArrayList<Integer>(2));
+                list.add(entry.getKey().getIndex() - start);
+            }
+        }
+        for (Entry<Integer, List<Integer>> entry: controllers.entrySet()) {
+            int[] positions = new int[entry.getValue().size()];
+            for (int i = 0; i < positions.length; ++i)
+                positions[i] = entry.getValue().get(i);
+            deps.controlDependences[entry.getKey()] = positions;
+        }
+    }
+
+    private static int getLocalVarIndex(Instruction instr) {
+        switch (instr.getType()) {
+        case VAR:
+            // RET reads a local variable, but the simulation does not trace it
+            return instr.getOpcode() == RET ? -1 : ((VarInstruction) instr).getLocalVarIndex();
+        case IINC:
+            return ((IIncInstruction) instr).getLocalVarIndex();
+        default:
+            return -1;
+        }
+    }
+
+    private static boolean isLocalVarWrite(Instruction instr) {
+        return instr.getType() == InstructionType.IINC
+            || (instr.getOpcode() >= ISTORE && instr.getOpcode() <= ASTORE);
+    }
+
+    private static BitSet bitSetOf(int bit) {
+        BitSet bitSet = new BitSet();
+        bitSet.set(bit);
+        return bitSet;
+    }
+
+    /**
+     * @return the number of methods analysed so far
+     */
+    public int getAnalysedMethods() {
+        return this.methodDependences.size();
+    }
+
+    @Override
+    public String toString() {
+        return "StaticDependenceGraph[" + this.instructions.length + " instructions, "
+            + this.methodDependences.size() + " methods analysed]";
+    }
+
+}
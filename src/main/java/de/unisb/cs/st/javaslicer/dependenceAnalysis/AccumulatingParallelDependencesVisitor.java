@@ -527,7 +527,6 @@ public class AccumulatingParallelDependencesVisitor<InstanceType>
     @Override
 	public void visitObjectCreation(long objectId,
             InstanceType instrInstance) throws InterruptedException {
-    	System.out.println("enterINg PARREL!!!!!++++++++++++++++++++++++++++++\n");
         if (this.visitors.isEmpty())
             return;
         this.events[this.eventCount++] = OBJECT_CREATION;
@@ -0,0 +1,112 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.dependenceAnalysis
+ *    Class:     BlackBoxScope
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/dependenceAnalysis/BlackBoxScope.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.dependenceAnalysis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadClass;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+
+/**
+ * A set of packages and classes whose methods are treated as black boxes during the
+ * backward traversal (e.g. the JDK or third-party libraries).
+ *
+ * The frames of these methods are not simulated; instead, the invocation in the calling
+ * frame gets a conservative summary of the frame (see
+ * {@link DependencesExtractor#setBlackBoxScope(BlackBoxScope)}).
+ *
+ * A pattern ending in <code>.*</code> or <code>.</code> matches all classes in this package
+ * and its subpackages, any other pattern matches the class of this name and its inner classes.
+ */
+public class BlackBoxScope {
+
+    /**
+     * The name of the counter group of the black box frames in the
+     * {@link de.unisb.cs.st.javaslicer.metrics.SlicingMetrics}.
+     */
+    public static final String COUNTERS = "black box frames";
+
+    private final List<String> packagePrefixes = new ArrayList<String>();
+    private final List<String> classNames = new ArrayList<String>();
+    private final Map<ReadClass, Boolean> containedClasses = new HashMap<ReadClass, Boolean>();
+
+    public BlackBoxScope(List<String> patterns) {
+        for (String pattern: patterns) {
+            pattern = pattern.trim();
+            if (pattern.endsWith(".*"))
+                this.packagePrefixes.add(pattern.substring(0, pattern.length()-1));
+            else if (pattern.endsWith("."))
+                this.packagePrefixes.add(pattern);
+            else if (pattern.length() > 0)
+                this.classNames.add(pattern);
+        }
+    }
+
+    /**
+     * Parses a comma separated list of patterns, e.g. <code>java.*,javax.*,org.junit.Assert</code>.
+     */
+    public static BlackBoxScope parse(String patterns) {
+        List<String> list = new ArrayList<String>();
+        Collections.addAll(list, patterns.split(","));
+        return new BlackBoxScope(list);
+    }
+
+    public boolean contains(String className) {
+        for (String prefix: this.packagePrefixes)
+            if (className.startsWith(prefix))
+                return true;
+        for (String name: this.classNames)
+            if (className.equals(name) || (className.startsWith(name) && className.charAt(name.length()) == '$'))
+                return true;
+        return false;
+    }
+
+    public boolean contains(ReadMethod method) {
+        ReadClass readClass = method.getReadClass();
+        Boolean contained = this.containedClasses.get(readClass);
+        if (contained == null) {
+            contained = contains(readClass.getName());
+            this.containedClasses.put(readClass, contained);
+        }
+        return contained.booleanValue();
+    }
+
+    public boolean isEmpty() {
+        return this.packagePrefixes.isEmpty() && this.classNames.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (String prefix: this.packagePrefixes)
+            sb.append(sb.length() == 0 ? "" : ",").append(prefix).append('*');
+        for (String name: this.classNames)
+            sb.append(sb.length() == 0 ? "" : ",").append(name);
+        return sb.toString();
+    }
+
+}
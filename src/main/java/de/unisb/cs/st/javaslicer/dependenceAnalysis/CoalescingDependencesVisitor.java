@@ -0,0 +1,54 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.dependenceAnalysis
+ *    Class:     CoalescingDependencesVisitor
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/dependenceAnalysis/CoalescingDependencesVisitor.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.dependenceAnalysis;
+
+import java.util.Collection;
+
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+
+/**
+ * A {@link DependencesVisitor} which receives the data dependences of coalesced readers
+ * as one batch (see {@link DependencesExtractor#setReaderCoalescing(ReaderEquivalence)}).
+ *
+ * Readers are only coalesced if all registered RAW visitors implement this interface;
+ * otherwise each reader is reported by its own call to
+ * {@link DependencesVisitor#visitDataDependence}.
+ */
+public interface CoalescingDependencesVisitor<InstanceType> extends DependencesVisitor<InstanceType> {
+
+    /**
+     * Gets called instead of {@link #visitDataDependence} for a group of equivalent readers
+     * of <code>toVar</code> which have been coalesced.
+     *
+     * @param representative the first of the coalesced readers
+     * @param count the number of coalesced readers (at least 1)
+     * @param to the &quot;target&quot; of the data dependences
+     * @param fromVars the set of variables used to produce the value of <code>toVar</code>
+     * @param toVar the variable through which the dependences exist
+     * @param type the type of the data dependences (always read after write)
+     */
+    void visitDataDependences(InstanceType representative, int count, InstanceType to,
+            Collection<? extends Variable> fromVars, Variable toVar, DataDependenceType type) throws InterruptedException;
+
+}
@@ -0,0 +1,800 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.dependenceAnalysis
+ *    Class:     CompactedDependenceGraph
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/dependenceAnalysis/CompactedDependenceGraph.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.dependenceAnalysis;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import de.hammacher.util.maps.IntegerMap;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.traceResult.ThreadId;
+import de.unisb.cs.st.javaslicer.traceSource.TraceSource;
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+/**
+ * A compacted dynamic dependence graph, in the style of the compacted graphs of
+ * Zhang and Gupta (Cost Effective Dynamic Program Slicing, PLDI 2004).
+ *
+ * The nodes of the graph are the static instructions. All dynamic dependences
+ * (read-after-write data dependences and control dependences) between instances of the
+ * same two instructions form one static edge, which is labeled with a list of <i>runs</i>.
+ * A run stands for the dependences
+ * <code>(fromStart + i*fromStride) -&gt; (toStart + i*toStride)</code> for
+ * <code>0 &lt;= i &lt; length</code> between instance numbers, so the dependences that a
+ * loop creates in consecutive iterations are stored as one labeled shortcut edge.
+ *
+ * A slice is computed by a reachability search which propagates arithmetic progressions
+ * of instance numbers over the runs, instead of single instances over single dependences.
+ * Loop-carried chains that are entered with one instance at a time (e.g. from a single
+ * criterion instance) are followed along a cycle of static edges for as many iterations
+ * as the runs on the cycle continue. Only existing dependences are followed either way,
+ * so the result is always the same as the one of a walk over the uncompacted dependences.
+ */
+public class CompactedDependenceGraph {
+
+    private final IntegerMap<Node> nodes = new IntegerMap<Node>();
+    private final List<Node> nodeList = new ArrayList<Node>();
+    private long numDependences = 0;
+    private boolean indexed = true;
+
+    /**
+     * Builds the compacted dependence graph of one thread of the given trace.
+     *
+     * @param trace the trace
+     * @param threadId the thread whose dependences are recorded
+     * @return the compacted graph
+     * @throws InterruptedException if the traversal was interrupted
+     */
+    public static CompactedDependenceGraph build(TraceSource trace, ThreadId threadId) throws InterruptedException {
+        DependencesExtractor<InstructionInstance> extractor = DependencesExtractor.forTrace(trace);
+        CompactedDependenceGraph graph = new CompactedDependenceGraph();
+        graph.registerAt(extractor);
+        extractor.processBackwardTrace(threadId);
+        return graph;
+    }
+
+    /**
+     * Registers a visitor at the given extractor which adds all dependences of the
+     * following traversals to this graph. This way, the graph can be built during a
+     * traversal that is needed anyway (e.g. to find the instances of a slicing criterion).
+     *
+     * @param extractor the extractor to register at
+     */
+    public void registerAt(DependencesExtractor<? extends InstructionInstance> extractor) {
+        extractor.registerVisitor(new DependencesVisitorAdapter<InstructionInstance>() {
+            @Override
+            public void visitDataDependence(InstructionInstance from, InstructionInstance to,
+                    Collection<? extends Variable> fromVars, Variable toVar, DataDependenceType type) {
+                assert type == DataDependenceType.READ_AFTER_WRITE;
+                addDependence(from, to, false);
+            }
+            @Override
+            public void visitControlDependence(InstructionInstance from, InstructionInstance to) {
+                addDependence(from, to, true);
+            }
+            @Override
+            public void visitInstructionExecution(InstructionInstance instance) {
+                ++getNode(instance.getInstruction()).numInstances;
+                CompactedDependenceGraph.this.indexed = false;
+            }
+        }, VisitorCapability.INSTRUCTION_EXECUTIONS, VisitorCapability.DATA_DEPENDENCES_READ_AFTER_WRITE,
+            VisitorCapability.CONTROL_DEPENDENCES);
+    }
+
+    /**
+     * Adds a dependence of instance <code>from</code> on instance <code>to</code>.
+     *
+     * @param from the dependent instance
+     * @param to the instance that <code>from</code> depends on
+     * @param control whether it is a control dependence (otherwise: a data dependence)
+     */
+    public void addDependence(InstructionInstance from, InstructionInstance to, boolean control) {
+        Node fromNode = getNode(from.getInstruction());
+        Node toNode = getNode(to.getInstruction());
+        if (fromNode.getEdge(toNode, control).add(from.getInstanceNr(), to.getInstanceNr())) {
+            ++this.numDependences;
+            this.indexed = false;
+        }
+    }
+
+    private Node getNode(Instruction instruction) {
+        Node node = this.nodes.get(instruction.getIndex());
+        if (node == null) {
+            node = new Node(instruction, this.nodeList.size());
+            this.nodes.put(instruction.getIndex(), node);
+            this.nodeList.add(node);
+        }
+        return node;
+    }
+
+    /**
+     * @return the number of dynamic dependences stored in this graph (a dependence which
+     *         is found via several variables may be counted more than once)
+     */
+    public long getNumDependences() {
+        return this.numDependences;
+    }
+
+    /**
+     * @return the number of static edges, i.e. of pairs of instructions with at least one dependence
+     */
+    public int getNumEdges() {
+        int edges = 0;
+        for (Node node: this.nodeList)
+            edges += node.numEdges;
+        return edges;
+    }
+
+    /**
+     * @return the number of runs that the labels of all edges consist of
+     */
+    public long getNumRuns() {
+        long runs = 0;
+        for (Node node: this.nodeList)
+            for (int i = 0; i < node.numEdges; ++i)
+                runs += node.edges[i].numRuns;
+        return runs;
+    }
+
+    /**
+     * Computes the dynamic slice of the given instances, i.e. all instances that they
+     * transitively depend on (including themselves).
+     *
+     * @param criterion the instances to start from
+     * @return the slice
+     */
+    public Slice computeSlice(Collection<? extends InstructionInstance> criterion) {
+        if (!this.indexed) {
+            for (Node node: this.nodeList)
+                node.index();
+            this.indexed = true;
+        }
+        return new SliceComputation().run(criterion);
+    }
+
+    /**
+     * The result of {@link CompactedDependenceGraph#computeSlice(Collection)}.
+     */
+    public static class Slice {
+
+        private final InstanceSet instances;
+        private final Set<Instruction> instructions;
+        private final long visitedRuns;
+
+        Slice(InstanceSet instances, Set<Instruction> instructions, long visitedRuns) {
+            this.instances = instances;
+            this.instructions = instructions;
+            this.visitedRuns = visitedRuns;
+        }
+
+        public boolean contains(long instanceNr) {
+            return this.instances.get(instanceNr);
+        }
+
+        public long getNumInstances() {
+            return this.instances.cardinality();
+        }
+
+        /**
+         * @return the numbers of all instances in the slice, in ascending order
+         */
+        public long[] getInstanceNrs() {
+            return this.instances.toArray();
+        }
+
+        /**
+         * @return the instructions that have at least one instance in the slice
+         */
+        public Set<Instruction> getInstructions() {
+            return this.instructions;
+        }
+
+        /**
+         * @return the number of runs that were looked at while computing the slice; this is the
+         *         counterpart to the number of dynamic dependences visited by an uncompacted walk
+         */
+        public long getVisitedRuns() {
+            return this.visitedRuns;
+        }
+
+    }
+
+    private static class Node {
+
+        private static final Edge[] NO_EDGES = new Edge[0];
+        private static final int MAX_CYCLE_LENGTH = 16;
+
+        final Instruction instruction;
+        final int id;
+        Edge[] edges = NO_EDGES;
+        int numEdges = 0;
+        long numInstances = 0;
+        // computed on demand, reset by index()
+        Edge[] cycle = null;
+
+        public Node(Instruction instruction, int id) {
+            this.instruction = instruction;
+            this.id = id;
+        }
+
+        public Edge getEdge(Node target, boolean control) {
+            for (int i = 0; i < this.numEdges; ++i) {
+                Edge edge = this.edges[i];
+                if (edge.target == target && edge.control == control)
+                    return edge;
+            }
+            if (this.numEdges == this.edges.length)
+                this.edges = Arrays.copyOf(this.edges, Math.max(2, 2*this.numEdges));
+            return this.edges[this.numEdges++] = new Edge(target, control);
+        }
+
+        public void index() {
+            for (int i = 0; i < this.numEdges; ++i)
+                this.edges[i].index(this.numInstances);
+            this.cycle = null;
+        }
+
+        /**
+         * Returns a shortest cycle of edges leading from this node back to itself (with at most
+         * {@link #MAX_CYCLE_LENGTH} edges), or an empty array if there is none. Inside a loop,
+         * such a cycle typically is the chain of dependences from one iteration to the next.
+         */
+        public Edge[] getCycle() {
+            if (this.cycle == null)
+                this.cycle = findCycle();
+            return this.cycle;
+        }
+
+        private Edge[] findCycle() {
+            Map<Node, Edge> reachedVia = new HashMap<Node, Edge>();
+            Map<Node, Node> predecessor = new HashMap<Node, Node>();
+            List<Node> level = Collections.<Node>singletonList(this);
+            for (int length = 1; length <= MAX_CYCLE_LENGTH && !level.isEmpty(); ++length) {
+                List<Node> nextLevel = new ArrayList<Node>();
+                for (Node node: level) {
+                    for (int i = 0; i < node.numEdges; ++i) {
+                        Edge edge = node.edges[i];
+                        if (edge.target == this) {
+                            Edge[] path = new Edge[length];
+                            path[length - 1] = edge;
+                            for (Node n = node; n != this; n = predecessor.get(n))
+                                path[--length - 1] = reachedVia.get(n);
+                            return path;
+                        }
+                        if (!reachedVia.containsKey(edge.target)) {
+                            reachedVia.put(edge.target, edge);
+                            predecessor.put(edge.target, node);
+                            nextLevel.add(edge.target);
+                        }
+                    }
+                }
+                level = nextLevel;
+            }
+            return NO_EDGES;
+        }
+
+    }
+
+    private static class Edge {
+
+        final Node target;
+        final boolean control;
+
+        // the number of dependences, and the distance between the instance numbers of all of them
+        // (if it is the same for all)
+        long numDependences = 0;
+        long offset;
+        boolean singleOffset = true;
+        // set by index(): true iff every instance of the "from" node has a dependence along
+        // this edge, with the same offset. Such an edge needs no label: it maps every segment
+        // to the segment shifted by the offset.
+        boolean shift;
+
+        long[] fromStart = new long[1];
+        long[] fromStride = new long[1];
+        long[] toStart = new long[1];
+        long[] toStride = new long[1];
+        int[] length = new int[1];
+        int numRuns = 0;
+
+        // the runs are sorted by their minimal "from" instance number in index();
+        // maxFromEnd[k] is the maximal "from" instance number of the runs 0..k
+        long[] maxFromEnd;
+
+        public Edge(Node target, boolean control) {
+            this.target = target;
+            this.control = control;
+        }
+
+        /**
+         * Appends a dependence to the label of this edge, extending the last run if possible.
+         *
+         * @return <code>false</code> if the dependence was just added before
+         */
+        public boolean add(long from, long to) {
+            if (!addToRuns(from, to))
+                return false;
+            if (this.numDependences++ == 0)
+                this.offset = to - from;
+            else if (to - from != this.offset)
+                this.singleOffset = false;
+            return true;
+        }
+
+        private boolean addToRuns(long from, long to) {
+            int r = this.numRuns - 1;
+            if (r >= 0) {
+                int len = this.length[r];
+                long lastFrom = this.fromStart[r] + (len - 1) * this.fromStride[r];
+                long lastTo = this.toStart[r] + (len - 1) * this.toStride[r];
+                if (from == lastFrom && to == lastTo)
+                    return false;
+                if (len == 1) {
+                    this.fromStride[r] = from - lastFrom;
+                    this.toStride[r] = to - lastTo;
+                    this.length[r] = 2;
+                    return true;
+                }
+                if (from - lastFrom == this.fromStride[r] && to - lastTo == this.toStride[r]
+                        && len < Integer.MAX_VALUE) {
+                    this.length[r] = len + 1;
+                    return true;
+                }
+            }
+            if (this.numRuns == this.length.length) {
+                int newSize = 2*this.numRuns;
+                this.fromStart = Arrays.copyOf(this.fromStart, newSize);
+                this.fromStride = Arrays.copyOf(this.fromStride, newSize);
+                this.toStart = Arrays.copyOf(this.toStart, newSize);
+                this.toStride = Arrays.copyOf(this.toStride, newSize);
+                this.length = Arrays.copyOf(this.length, newSize);
+            }
+            r = this.numRuns++;
+            this.fromStart[r] = from;
+            this.fromStride[r] = 0;
+            this.toStart[r] = to;
+            this.toStride[r] = 0;
+            this.length[r] = 1;
+            return true;
+        }
+
+        public long getFromMin(int r) {
+            long other = this.fromStart[r] + (this.length[r] - 1) * this.fromStride[r];
+            return Math.min(this.fromStart[r], other);
+        }
+
+        public long getFromMax(int r) {
+            long other = this.fromStart[r] + (this.length[r] - 1) * this.fromStride[r];
+            return Math.max(this.fromStart[r], other);
+        }
+
+        public void index(long numFromInstances) {
+            // the dependences arrive ordered by their "to" instance, so with a single offset,
+            // they are all distinct and there is one per "from" instance
+            this.shift = this.singleOffset && this.numDependences == numFromInstances;
+            boolean sorted = true;
+            for (int r = 1; sorted && r < this.numRuns; ++r)
+                sorted = getFromMin(r - 1) <= getFromMin(r);
+            if (!sorted) {
+                Integer[] order = new Integer[this.numRuns];
+                for (int r = 0; r < this.numRuns; ++r)
+                    order[r] = r;
+                Arrays.sort(order, new Comparator<Integer>() {
+                    @Override
+                    public int compare(Integer o1, Integer o2) {
+                        long min1 = getFromMin(o1.intValue());
+                        long min2 = getFromMin(o2.intValue());
+                        return min1 < min2 ? -1 : min1 == min2 ? 0 : 1;
+                    }
+                });
+                long[] newFromStart = new long[this.numRuns];
+                long[] newFromStride = new long[this.numRuns];
+                long[] newToStart = new long[this.numRuns];
+                long[] newToStride = new long[this.numRuns];
+                int[] newLength = new int[this.numRuns];
+                for (int r = 0; r < this.numRuns; ++r) {
+                    int old = order[r].intValue();
+                    newFromStart[r] = this.fromStart[old];
+                    newFromStride[r] = this.fromStride[old];
+                    newToStart[r] = this.toStart[old];
+                    newToStride[r] = this.toStride[old];
+                    newLength[r] = this.length[old];
+                }
+                this.fromStart = newFromStart;
+                this.fromStride = newFromStride;
+                this.toStart = newToStart;
+                this.toStride = newToStride;
+                this.length = newLength;
+            }
+            this.maxFromEnd = new long[this.numRuns];
+            long max = Long.MIN_VALUE;
+            for (int r = 0; r < this.numRuns; ++r)
+                this.maxFromEnd[r] = max = Math.max(max, getFromMax(r));
+        }
+
+        /**
+         * @return the number of runs whose minimal "from" instance number is <= <code>nr</code>
+         */
+        public int countRunsStartingUpTo(long nr) {
+            int low = 0;
+            int high = this.numRuns;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (getFromMin(mid) <= nr)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            return low;
+        }
+
+    }
+
+    /**
+     * A set of instances of one node, given as an arithmetic progression of instance numbers.
+     * The stride is positive, or 1 if the segment contains only one instance.
+     */
+    private static class Segment {
+
+        final Node node;
+        final long start;
+        final long stride;
+        final long count;
+
+        public Segment(Node node, long start, long stride, long count) {
+            this.node = node;
+            this.start = start;
+            this.stride = stride;
+            this.count = count;
+        }
+
+        public long getLast() {
+            return this.start + (this.count - 1) * this.stride;
+        }
+
+        public boolean contains(long nr) {
+            return nr >= this.start && nr <= getLast() && (nr - this.start) % this.stride == 0;
+        }
+
+    }
+
+    /**
+     * A set of instance numbers, stored as a bit set that is split into pages.
+     */
+    private static class InstanceSet {
+
+        private static final int PAGE_SHIFT = 16;
+        private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+
+        private long[][] pages = new long[1][];
+
+        public boolean get(long nr) {
+            if (nr < 0)
+                return false;
+            long word = nr >>> 6;
+            int page = (int) (word >>> PAGE_SHIFT);
+            return page < this.pages.length && this.pages[page] != null
+                && (this.pages[page][(int) word & PAGE_MASK] & (1L << nr)) != 0;
+        }
+
+        public void set(long nr) {
+            long word = nr >>> 6;
+            int page = (int) (word >>> PAGE_SHIFT);
+            if (page >= this.pages.length)
+                this.pages = Arrays.copyOf(this.pages, Math.max(page + 1, 2*this.pages.length));
+            if (this.pages[page] == null)
+                this.pages[page] = new long[1 << PAGE_SHIFT];
+            this.pages[page][(int) word & PAGE_MASK] |= 1L << nr;
+        }
+
+        public long cardinality() {
+            long card = 0;
+            for (long[] words: this.pages)
+                if (words != null)
+                    for (long word: words)
+                        card += Long.bitCount(word);
+            return card;
+        }
+
+        public long[] toArray() {
+            long card = cardinality();
+            if (card > Integer.MAX_VALUE)
+                throw new IllegalStateException("too many instances: " + card);
+            long[] array = new long[(int) card];
+            int pos = 0;
+            for (int page = 0; page < this.pages.length; ++page) {
+                long[] words = this.pages[page];
+                if (words == null)
+                    continue;
+                for (int i = 0; i < words.length; ++i) {
+                    long word = words[i];
+                    long base = (((long) page << PAGE_SHIFT) + i) << 6;
+                    while (word != 0) {
+                        array[pos++] = base + Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+                    }
+                }
+            }
+            return array;
+        }
+
+    }
+
+    private class SliceComputation {
+
+        private final InstanceSet reached = new InstanceSet();
+        private final boolean[] inSlice = new boolean[CompactedDependenceGraph.this.nodeList.size()];
+        private final Set<Instruction> otherInstructions = new HashSet<Instruction>();
+        private long visitedRuns = 0;
+
+        public SliceComputation() {
+            // nothing to initialize
+        }
+
+        public Slice run(Collection<? extends InstructionInstance> criterion) {
+            ArrayDeque<Segment> queue = new ArrayDeque<Segment>();
+            Map<Node, List<Long>> criterionInstances = new HashMap<Node, List<Long>>();
+            for (InstructionInstance instance: criterion) {
+                Node node = CompactedDependenceGraph.this.nodes.get(instance.getInstruction().getIndex());
+                if (node == null) {
+                    // no dependences, so nothing to follow
+                    this.reached.set(instance.getInstanceNr());
+                    this.otherInstructions.add(instance.getInstruction());
+                    continue;
+                }
+                List<Long> instances = criterionInstances.get(node);
+                if (instances == null)
+                    criterionInstances.put(node, instances = new ArrayList<Long>());
+                instances.add(instance.getInstanceNr());
+            }
+            // enqueue the criterion instances of each node as few segments as possible
+            for (Entry<Node, List<Long>> e: criterionInstances.entrySet()) {
+                List<Long> instances = e.getValue();
+                Collections.sort(instances);
+                long start = instances.get(0).longValue();
+                long stride = 1;
+                long count = 1;
+                for (int i = 1; i < instances.size(); ++i) {
+                    long nr = instances.get(i).longValue();
+                    long last = start + (count - 1) * stride;
+                    if (nr == last)
+                        continue;
+                    if (count == 1 || nr - last == stride) {
+                        stride = nr - last;
+                        ++count;
+                    } else {
+                        produce(e.getKey(), start, stride, count, queue);
+                        start = nr;
+                        stride = 1;
+                        count = 1;
+                    }
+                }
+                produce(e.getKey(), start, stride, count, queue);
+            }
+
+            Segment segment;
+            while ((segment = queue.poll()) != null) {
+                followCycle(segment, queue);
+                follow(segment, queue);
+            }
+
+            Set<Instruction> instructions = new HashSet<Instruction>(this.otherInstructions);
+            for (Node node: CompactedDependenceGraph.this.nodeList)
+                if (this.inSlice[node.id])
+                    instructions.add(node.instruction);
+            return new Slice(this.reached, instructions, this.visitedRuns);
+        }
+
+        /**
+         * Follows the dependence cycle of the segment's node (see {@link Node#getCycle()}) from
+         * the last instance of the segment, for as many rounds as all edges of the cycle stay
+         * inside runs whose strides equal the distance of one round. All instances on the way
+         * are added at once, so a loop-carried chain is not followed one iteration at a time.
+         * Since only existing dependences are followed, this never adds instances that are not
+         * in the slice.
+         */
+        private void followCycle(Segment segment, ArrayDeque<Segment> queue) {
+            Edge[] cycle = segment.node.getCycle();
+            if (cycle.length == 0)
+                return;
+            int[] runs = new int[cycle.length];
+            long[] starts = new long[cycle.length + 1];
+            starts[0] = segment.getLast();
+            while (true) {
+                for (int j = 0; j < cycle.length; ++j) {
+                    int r = findRun(cycle[j], starts[j]);
+                    if (r < 0)
+                        return;
+                    runs[j] = r;
+                    Edge edge = cycle[j];
+                    long index = edge.fromStride[r] == 0 ? 0 : (starts[j] - edge.fromStart[r]) / edge.fromStride[r];
+                    starts[j+1] = edge.toStart[r] + index * edge.toStride[r];
+                }
+                long delta = starts[cycle.length] - starts[0];
+                if (delta <= 0)
+                    return;
+                long rounds = Long.MAX_VALUE;
+                for (int j = 0; j < cycle.length; ++j) {
+                    Edge edge = cycle[j];
+                    int r = runs[j];
+                    if (edge.fromStride[r] != delta || edge.toStride[r] != delta)
+                        return;
+                    rounds = Math.min(rounds, edge.length[r] - (starts[j] - edge.fromStart[r]) / delta);
+                }
+                // stop if the end of the chain has already been reached before
+                if (rounds <= 1 || this.reached.get(starts[0] + rounds * delta))
+                    return;
+                for (int j = 0; j < cycle.length; ++j)
+                    produce(cycle[j].target, starts[j+1], delta, rounds, queue);
+                starts[0] += rounds * delta;
+            }
+        }
+
+        /**
+         * @return the index of a run of the given edge that contains <code>nr</code> as "from"
+         *         instance (preferring the one that continues furthest), or -1 if there is none
+         */
+        private int findRun(Edge edge, long nr) {
+            int found = -1;
+            long remaining = 0;
+            for (int r = edge.countRunsStartingUpTo(nr) - 1; r >= 0 && edge.maxFromEnd[r] >= nr; --r) {
+                ++this.visitedRuns;
+                long stride = edge.fromStride[r];
+                if (stride <= 0) {
+                    if (nr == edge.fromStart[r] && found == -1)
+                        found = r;
+                    continue;
+                }
+                if ((nr - edge.fromStart[r]) % stride != 0)
+                    continue;
+                long runRemaining = edge.length[r] - (nr - edge.fromStart[r]) / stride;
+                if (runRemaining > remaining) {
+                    found = r;
+                    remaining = runRemaining;
+                }
+            }
+            return found;
+        }
+
+        private void follow(Segment segment, ArrayDeque<Segment> queue) {
+            Node node = segment.node;
+            long last = segment.getLast();
+            for (int e = 0; e < node.numEdges; ++e) {
+                Edge edge = node.edges[e];
+                if (edge.shift) {
+                    ++this.visitedRuns;
+                    produce(edge.target, segment.start + edge.offset, segment.stride, segment.count, queue);
+                    continue;
+                }
+                for (int r = edge.countRunsStartingUpTo(last) - 1; r >= 0 && edge.maxFromEnd[r] >= segment.start; --r) {
+                    ++this.visitedRuns;
+                    followRun(segment, edge, r, queue);
+                }
+            }
+        }
+
+        private void followRun(Segment segment, Edge edge, int r, ArrayDeque<Segment> queue) {
+            long fromStart = edge.fromStart[r];
+            long fromStride = edge.fromStride[r];
+            int length = edge.length[r];
+            // compute the indexes i (lo, lo+step, ..., <= hi) of the run whose "from" instance is in the segment
+            long lo;
+            long hi;
+            long step = 1;
+            if (fromStride == 0) {
+                if (!segment.contains(fromStart))
+                    return;
+                lo = 0;
+                hi = length - 1;
+            } else {
+                if (fromStride > 0) {
+                    lo = ceilDiv(segment.start - fromStart, fromStride);
+                    hi = Math.floorDiv(segment.getLast() - fromStart, fromStride);
+                } else {
+                    lo = ceilDiv(fromStart - segment.getLast(), -fromStride);
+                    hi = Math.floorDiv(fromStart - segment.start, -fromStride);
+                }
+                lo = Math.max(lo, 0);
+                hi = Math.min(hi, length - 1);
+                if (lo > hi)
+                    return;
+                if (lo == hi) {
+                    if (!segment.contains(fromStart + lo * fromStride))
+                        return;
+                } else if (segment.count > 1) {
+                    // solve fromStart + i*fromStride == segment.start (mod segment.stride)
+                    long a = Math.floorMod(fromStride, segment.stride);
+                    long c = Math.floorMod(segment.start - fromStart, segment.stride);
+                    long gcd = BigInteger.valueOf(a).gcd(BigInteger.valueOf(segment.stride)).longValue();
+                    if (c % gcd != 0)
+                        return;
+                    step = segment.stride / gcd;
+                    if (step > 1) {
+                        BigInteger mod = BigInteger.valueOf(step);
+                        long i0 = BigInteger.valueOf(a / gcd).modInverse(mod)
+                            .multiply(BigInteger.valueOf(c / gcd)).mod(mod).longValue();
+                        lo += Math.floorMod(i0 - lo, step);
+                        if (lo > hi)
+                            return;
+                    }
+                }
+            }
+
+            long count = (hi - lo) / step + 1;
+            long toStride = edge.toStride[r] * step;
+            long toStart = edge.toStart[r] + lo * edge.toStride[r];
+            if (toStride < 0) {
+                toStart += (count - 1) * toStride;
+                toStride = -toStride;
+            } else if (toStride == 0) {
+                count = 1;
+            }
+            produce(edge.target, toStart, count == 1 ? 1 : toStride, count, queue);
+        }
+
+        /**
+         * Adds the given instances to the slice, and enqueues the ones that were not reached before.
+         */
+        private void produce(Node node, long start, long stride, long count, ArrayDeque<Segment> queue) {
+            long newStart = 0;
+            long newCount = 0;
+            boolean added = false;
+            for (long k = 0; k < count; ++k) {
+                long nr = start + k * stride;
+                if (this.reached.get(nr)) {
+                    if (newCount > 0) {
+                        queue.add(new Segment(node, newStart, newCount == 1 ? 1 : stride, newCount));
+                        newCount = 0;
+                    }
+                    continue;
+                }
+                this.reached.set(nr);
+                if (newCount++ == 0)
+                    newStart = nr;
+                added = true;
+            }
+            if (newCount > 0)
+                queue.add(new Segment(node, newStart, newCount == 1 ? 1 : stride, newCount));
+            if (added)
+                this.inSlice[node.id] = true;
+        }
+
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+}
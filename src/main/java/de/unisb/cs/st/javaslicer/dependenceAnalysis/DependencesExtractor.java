@@ -22,11 +22,12 @@
  */
 package de.unisb.cs.st.javaslicer.dependenceAnalysis;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -53,14 +54,31 @@ import de.unisb.cs.st.javaslicer.common.exceptions.TracerException;
 import de.unisb.cs.st.javaslicer.common.progress.ProgressInformationProvider;
 import de.unisb.cs.st.javaslicer.common.progress.ProgressMonitor;
 import de.unisb.cs.st.javaslicer.controlflowanalysis.ControlFlowAnalyser;
+import de.unisb.cs.st.javaslicer.controlflowanalysis.StackHeightAnalysis;
+import de.unisb.cs.st.javaslicer.controlflowanalysis.StaticDependenceGraph;
 import de.unisb.cs.st.javaslicer.instructionSimulation.AdditionalDataDependence;
+import de.unisb.cs.st.javaslicer.instructionSimulation.BlackBoxEffects;
 import de.unisb.cs.st.javaslicer.instructionSimulation.DynamicInformation;
 import de.unisb.cs.st.javaslicer.instructionSimulation.SimulationEnvironment;
 import de.unisb.cs.st.javaslicer.instructionSimulation.Simulator;
-import de.unisb.cs.st.javaslicer.traceResult.BackwardTraceIterator;
+import de.unisb.cs.st.javaslicer.instructionSimulation.VariableRole;
+import de.unisb.cs.st.javaslicer.metrics.Diagnostics;
+import de.unisb.cs.st.javaslicer.metrics.Diagnostics.Category;
+import de.unisb.cs.st.javaslicer.metrics.Diagnostics.Level;
+import de.unisb.cs.st.javaslicer.metrics.SlicingEvents;
+import de.unisb.cs.st.javaslicer.metrics.SlicingMetrics;
+import de.unisb.cs.st.javaslicer.metrics.SlicingMetrics.Counter;
+import de.unisb.cs.st.javaslicer.metrics.SlicingMetrics.Phase;
+import de.unisb.cs.st.javaslicer.offheap.OffHeapConfiguration;
+import de.unisb.cs.st.javaslicer.offheap.OffHeapVariableMap;
+import de.unisb.cs.st.javaslicer.offheap.VariableEncoder;
 import de.unisb.cs.st.javaslicer.traceResult.ThreadId;
 import de.unisb.cs.st.javaslicer.traceResult.TraceResult;
+import de.unisb.cs.st.javaslicer.traceSource.BackwardInstanceIterator;
+import de.unisb.cs.st.javaslicer.traceSource.TraceResultSource;
+import de.unisb.cs.st.javaslicer.traceSource.TraceSource;
 import de.unisb.cs.st.javaslicer.variables.ArrayElement;
+import de.unisb.cs.st.javaslicer.variables.HeapAbstraction;
 import de.unisb.cs.st.javaslicer.variables.LocalVariable;
 import de.unisb.cs.st.javaslicer.variables.ObjectField;
 import de.unisb.cs.st.javaslicer.variables.StackEntry;
@@ -77,7 +95,17 @@ import de.unisb.cs.st.javaslicer.variables.Variable;
 // 注意便利的是动态产生的轨迹，访问轨迹上的所有的动态数据和控制依赖，并访问其他选项例如方法的进入和退出！
 public class DependencesExtractor<InstanceType extends InstructionInstance> {
 
-    private final TraceResult trace;
+    /**
+     * The maximum number of instances of a frame whose transfer function is memoized.
+     */
+    private static final int MAX_MEMOIZED_FRAME_SIZE = 256;
+
+    /**
+     * The name of the counter group of the frame transfer cache in the {@link SlicingMetrics}.
+     */
+    public static final String FRAME_TRANSFER_COUNTERS = "frame transfer cache";
+
+    private final TraceSource trace;
     
     private final Simulator<InstanceType> simulator;
 
@@ -94,6 +122,15 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
 
     private final InstructionInstanceFactory<? extends InstanceType> instanceFactory;
     private final Set<ProgressMonitor> progressMonitors = new HashSet<ProgressMonitor>(2);
+    private SlicingMetrics metrics = null;
+    private OffHeapConfiguration offHeapConfiguration = OffHeapConfiguration.fromSystemProperties();
+    private FrameFilter frameFilter = null;
+    private BlackBoxScope blackBoxScope = null;
+    private int frameTransferCacheSize = 0;
+    private BitSet relevantInstructions = null;
+    private ReaderEquivalence<? super InstanceType> readerEquivalence = null;
+    private ReaderEquivalence<? super InstanceType> summaryReaderEquivalence = null;
+    private volatile boolean stopRequested = false;
 
 
     /**
@@ -102,22 +139,41 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
      *
      * @param trace the trace that this DependencesExtracter should traverse
      * @return a new {@link DependencesExtractor}
-     * @see #DependencesExtractor(TraceResult, InstructionInstanceFactory)
+     * @see #DependencesExtractor(TraceSource, InstructionInstanceFactory)
      */
     
     
     
     public static DependencesExtractor<InstructionInstance> forTrace(TraceResult trace) {
+        return forTrace(new TraceResultSource(trace));
+    }
+
+    /**
+     * Constructs a {@link DependencesExtractor} for an arbitrary {@link TraceSource}, using the
+     * default {@link AbstractInstructionInstanceFactory}.
+     *
+     * @see #DependencesExtractor(TraceSource, InstructionInstanceFactory)
+     */
+    public static DependencesExtractor<InstructionInstance> forTrace(TraceSource trace) {
         InstructionInstanceFactory<? extends InstructionInstance> factory = new AbstractInstructionInstanceFactory();
         return new DependencesExtractor<InstructionInstance>(trace, factory);
     }
 
     /**
-     * @see #DependencesExtractor(TraceResult, InstructionInstanceFactory)
+     * @see #DependencesExtractor(TraceSource, InstructionInstanceFactory)
      * @return a new {@link DependencesExtractor} for the given trace, using the given instance factory
      */
     public static <InstanceType extends InstructionInstance> DependencesExtractor<InstanceType> forTrace(
             TraceResult trace, InstructionInstanceFactory<? extends InstanceType> instanceFactory) {
+        return new DependencesExtractor<InstanceType>(new TraceResultSource(trace), instanceFactory);
+    }
+
+    /**
+     * @see #DependencesExtractor(TraceSource, InstructionInstanceFactory)
+     * @return a new {@link DependencesExtractor} for the given trace source, using the given instance factory
+     */
+    public static <InstanceType extends InstructionInstance> DependencesExtractor<InstanceType> forTrace(
+            TraceSource trace, InstructionInstanceFactory<? extends InstanceType> instanceFactory) {
         return new DependencesExtractor<InstanceType>(trace, instanceFactory);
     }
 
@@ -129,7 +185,7 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
      * @param trace the trace that this DependencesExtracter should traverse
      * @param instanceFactory the factory to create the instruction instances
      */
-    private DependencesExtractor(TraceResult trace, InstructionInstanceFactory<? extends InstanceType> instanceFactory) {
+    private DependencesExtractor(TraceSource trace, InstructionInstanceFactory<? extends InstanceType> instanceFactory) {
         this.trace = trace;
         this.simulator = new Simulator<InstanceType>(trace);
         this.instanceFactory = instanceFactory;
@@ -159,19 +215,15 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
                 break;
             case DATA_DEPENDENCES_READ_AFTER_WRITE:
                 change |= this.dataDependenceVisitorsReadAfterWrite.add(visitor);
-                System.out.println("RAW\n");
                 break;
             case DATA_DEPENDENCES_WRITE_AFTER_READ:
                 change |= this.dataDependenceVisitorsWriteAfterRead.add(visitor);
-               System.out.println("WAR\n");
                 break;
             case CONTROL_DEPENDENCES:
                 change |= this.controlDependenceVisitors.add(visitor);
-                System.out.println("ControlDep\n");
                 break;
             case INSTRUCTION_EXECUTIONS:
                 change |= this.instructionVisitors.add(visitor);
-                System.out.println("INSTR exec\n");
                 break;
             case PENDING_CONTROL_DEPENDENCES:
                 change |= this.pendingControlDependenceVisitors.add(visitor);
@@ -270,37 +322,33 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
      */
     // backward 扫描threadId产生的trace，获取所有的感兴趣动态依赖关系！multithreaded 标识是否采用多线程来处理！
     // 在backward中，遇到依赖处理，就调用注册的DependenceVisitor 来处理这样的关系！
-    static int aa=1;
-	static int ww=1;
     
     public void processBackwardTrace(ThreadId threadId, boolean multithreaded) throws InterruptedException {
     
     	// 构造一个面向特定线程产生指令的逆向遍历iterator, 其中threadId用来获取特定的ThreadTraceResult
-        final BackwardTraceIterator<InstanceType> backwardInsnItr =
-        		//null 标记的为filter参数，功能是在扫描过程中过滤掉特定指令，默认的filter为过滤labels 和addtionalLabels!
-            this.trace.getBackwardIterator(threadId, null, this.instanceFactory);
+        final BackwardInstanceIterator<InstanceType> backwardInsnItr =
+            this.trace.getBackwardIterator(threadId, this.instanceFactory);
 
         if (backwardInsnItr == null)
             throw new IllegalArgumentException("No such thread");
+        this.stopRequested = false;
+
+        final SlicingMetrics metrics = this.metrics;
+        if (metrics != null)
+            metrics.start();
+        final SlicingEvents.SimulationTimes simulationTimes = SlicingEvents.SimulationTimes.createIfEnabled();
 
         // store the current set of visitors of each capability in an array for better
         // performance and faster empty-check (null reference if empty)
-      //  System.out.println("size of RAW visitor :");
-     //   System.out.print(this.dataDependenceVisitorsReadAfterWrite.size());
-        
         final DependencesVisitor<? super InstanceType>[] dataDependenceVisitorsReadAfterWrite0 = this.dataDependenceVisitorsReadAfterWrite.isEmpty()
             ? null : this.dataDependenceVisitorsReadAfterWrite.toArray(
                 newDependencesVisitorArray(this.dataDependenceVisitorsReadAfterWrite.size()));
-   //     System.out.println("RAW array size:  ");
-   //     System.out.print(this.dataDependenceVisitorsReadAfterWrite.size());
         final DependencesVisitor<? super InstanceType>[] dataDependenceVisitorsWriteAfterRead0 = this.dataDependenceVisitorsWriteAfterRead.isEmpty()
             ? null : this.dataDependenceVisitorsWriteAfterRead.toArray(
                 newDependencesVisitorArray(this.dataDependenceVisitorsWriteAfterRead.size()));
         final DependencesVisitor<? super InstanceType>[] controlDependenceVisitors0 = this.controlDependenceVisitors.isEmpty()
             ? null : this.controlDependenceVisitors.toArray(
                 newDependencesVisitorArray(this.controlDependenceVisitors.size()));
-        System.out.println("Control array size:  ");
-        System.out.print(this.controlDependenceVisitors.size());
         final DependencesVisitor<? super InstanceType>[] instructionVisitors0 = this.instructionVisitors.isEmpty()
             ? null : this.instructionVisitors.toArray(
                 newDependencesVisitorArray(this.instructionVisitors.size()));
@@ -331,6 +379,11 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
             pendingControlDependenceVisitors0,
             methodEntryLeaveVisitors0,
             objectCreationVisitors0);
+        if (Diagnostics.ENABLED)
+            Diagnostics.log(Category.VISITORS, Level.DEBUG,
+                "visitors: %d RAW, %d WAR, %d control dependences, %d instruction executions",
+                this.dataDependenceVisitorsReadAfterWrite.size(), this.dataDependenceVisitorsWriteAfterRead.size(),
+                this.controlDependenceVisitors.size(), this.instructionVisitors.size());
       
          // controlDependence 是一个由Set<instrucion>类型组成的 Integermap,  
         // Int 型的key为指令的index!
@@ -338,6 +391,53 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
         // 如果直接获取没有，那么就在CFG上计算！
         IntegerMap<Set<Instruction>> controlDependences = new IntegerMap<Set<Instruction>>();
 
+        final FrameFilter frameFilter0 = this.frameFilter;
+        final BlackBoxScope blackBoxScope0 = this.blackBoxScope;
+        final HeapAbstraction heapAbstraction = this.simulator.getHeapAbstraction();
+        final BitSet relevantInstructions0 = this.relevantInstructions;
+        // readers are only coalesced if each of them does not need to be discarded separately,
+        // and if all RAW visitors accept batches of readers (see setReaderCoalescing)
+        final boolean batchedReaders = dataDependenceVisitorsReadAfterWrite0 != null
+            && pendingDataDependenceVisitorsReadAfterWrite0 == null
+            && (this.readerEquivalence != null || this.summaryReaderEquivalence != null)
+            && allCoalescing(dataDependenceVisitorsReadAfterWrite0);
+        final ReaderEquivalence<InstanceType> readerEquivalence0 = batchedReaders && this.readerEquivalence != null
+            ? ofSameInstruction(this.readerEquivalence) : null;
+        // the same holds for the merging of the readers of summary variables (see setSummaryReaderMerging)
+        final ReaderEquivalence<InstanceType> summaryEquivalence0 = batchedReaders && this.summaryReaderEquivalence != null
+                && heapAbstraction != HeapAbstraction.OBJECTS
+            ? ofSameInstruction(this.summaryReaderEquivalence) : null;
+        // the transfer functions of frames are only memoized if the data dependences are
+        // reported when they are found (see setFrameTransferCacheSize)
+        final FrameTransferCache transferCache = this.frameTransferCacheSize > 0
+                && dataDependenceVisitorsReadAfterWrite0 != null && dataDependenceVisitorsWriteAfterRead0 == null
+                && pendingDataDependenceVisitorsReadAfterWrite0 == null && pendingDataDependenceVisitorsWriteAfterRead0 == null
+            ? new FrameTransferCache(this.frameTransferCacheSize, metrics) : null;
+
+        // the counters of the optional features are only registered if the feature is in use
+        final Counter blackBoxFrames = metrics == null || blackBoxScope0 == null ? null
+            : metrics.getCounter(BlackBoxScope.COUNTERS, "frames");
+        final Counter blackBoxInstances = blackBoxFrames == null ? null
+            : metrics.getCounter(BlackBoxScope.COUNTERS, "instances");
+        final Counter skippedFrames = metrics == null || frameFilter0 == null ? null
+            : metrics.getCounter(FrameFilter.COUNTERS, "frames");
+        final Counter skippedInstances = skippedFrames == null ? null
+            : metrics.getCounter(FrameFilter.COUNTERS, "instances");
+        final Counter transferHits = metrics == null || transferCache == null ? null
+            : metrics.getCounter(FRAME_TRANSFER_COUNTERS, "hits");
+        final Counter transferMisses = transferHits == null ? null
+            : metrics.getCounter(FRAME_TRANSFER_COUNTERS, "misses");
+        final Counter replayedInstances = transferHits == null ? null
+            : metrics.getCounter(FRAME_TRANSFER_COUNTERS, "replayed instances");
+        final Counter filteredInstances = metrics == null || relevantInstructions0 == null ? null
+            : metrics.getCounter(StaticDependenceGraph.COUNTERS, "filtered instances");
+        final Counter coalescedReaders = metrics == null || readerEquivalence0 == null ? null
+            : metrics.getCounter(ReaderEquivalence.COUNTERS, "readers");
+        final Counter mergedSummaryReaders = metrics == null || summaryEquivalence0 == null ? null
+            : metrics.getCounter(ReaderEquivalence.COUNTERS, "summary readers");
+        final Counter coalescedBatches = coalescedReaders == null && mergedSummaryReaders == null ? null
+            : metrics.getCounter(ReaderEquivalence.COUNTERS, "batches");
+
         // 非多线程处理的话 ，instanceIterator 和 processInfoProv 都是前面构造的BackwardInstrInterator!
         Iterator<InstanceType> instanceIterator;  
         ProgressInformationProvider progressInfoProv;
@@ -432,15 +532,24 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
             progressInfoProv = backwardInsnItr;
         }
 
+        // local variables and stack entries are stored per frame, all other variables in
+        // global maps (partitioned per object), which are moved off-heap once they exceed
+        // the heap budget
+        final OffHeapConfiguration offHeapConfig = this.offHeapConfiguration;
+        final VariableEncoder variableEncoder = new VariableEncoder();
+        long offHeapThreshold = offHeapConfig.getEntryThreshold();
+
         // the lastWriter is needed for WAR data dependences
-        Map<Variable, InstanceType> lastWriter = new HashMap<Variable, InstanceType>();
+        FrameStackMap<InstanceType> lastWriter = new FrameStackMap<InstanceType>(
+            DependencesExtractor.<InstanceType>newGlobalMap(offHeapConfig, variableEncoder));
         
         
         
         // lastReaders are needed for RAW data dependences
         // 我们关心的是RAW 所以只需要关心lastReaders  Map<Variables, list<InstanceInstr>>
         // 存储的是依赖特定变量的所有指令，例如指令A ： a=b+c; 则 <b,A> <c,A> 都是lastReader的成员!
-        Map<Variable, List<InstanceType>> lastReaders = new HashMap<Variable, List<InstanceType>>();
+        LastReadersMap<InstanceType> lastReaders = new LastReadersMap<InstanceType>(
+            DependencesExtractor.<List<InstanceType>>newGlobalMap(offHeapConfig, variableEncoder));
 
         /*
         HashSet<Long> createdObjects = new HashSet<Long>();
@@ -505,11 +614,14 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
             
           // -------------------正常情况下，由于lastStackMethods为0，所以initialStackMethods也为0，所以该循环不执行
 			for (ReadMethod method0: initialStackMethods) {
-				System.out.println("initialStackMethods  -------------------------visiting \n");
+				if (Diagnostics.ENABLED)
+					Diagnostics.log(Category.TRAVERSAL, Level.DEBUG, "initial stack method %s", method0);
             	++stackDepth; //stackDepth 初始为0，所以有多少个lastStackMethod StackDepth 就有多深！
             	method[stackDepth] = method0;
             	interruptedControlFlow[stackDepth] = true;
             	frames[stackDepth] = nextFrameNr++; // 深度1，nextFramNr0; 2-1; 3-2.。。//初始情况
+            	lastReaders.enterFrame(stackDepth, frames[stackDepth], method0);
+            	lastWriter.enterFrame(stackDepth, frames[stackDepth], method0);
                 if (methodEntryLeaveVisitors0 != null)
                     for (DependencesVisitor<? super InstanceType> vis: methodEntryLeaveVisitors0)
                         vis.visitMethodLeave(method0, stackDepth); 
@@ -524,32 +636,146 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
 			
 			SimulationEnvironment simEnv = new SimulationEnvironment(frames, opStack, minOpStack,
 				cachedStackEntries, cachedLocalVariables, throwsException, lastInstruction, method, interruptedControlFlow);
+
+            // instances which have already been taken from the iterator (after a skipped frame,
+            // or to look ahead for the path through a frame)
+            ArrayDeque<InstanceType> pushedBack = new ArrayDeque<InstanceType>();
+            boolean returnFromSkippedFrame = false;
+            // the summary of the black box frame which has been consumed before the current instance
+            BlackBoxEffects blackBoxEffects = null;
+
+            // the frame whose transfer function is currently recorded or replayed
+            List<InstanceType> frameLookahead = new ArrayList<InstanceType>();
+            FrameTransfer.Builder transferBuilder = null;
+            FrameTransfer replayedTransfer = null;
+            int transferDepth = 0;
+            int transferPosition = 0;
+            @SuppressWarnings("unchecked")
+            InstanceType[] transferInstances = (InstanceType[]) new InstructionInstance[MAX_MEMOIZED_FRAME_SIZE];
+
+            long lapTime = metrics == null ? 0 : System.nanoTime();
        
 		   // 通过 Iterator 来逆向取出下一条指令！	
 			// while循环中你想不断的取next指令来获取下一条要分析的指令！
-            while (instanceIterator.hasNext()) {
+            while (!this.stopRequested && (!pushedBack.isEmpty() || instanceIterator.hasNext())) {
             	
-                instance = instanceIterator.next();
-                if(instance.getInstruction().getMethod().getName().contains("main"))
-                	System.out.println(instance.toString());
-                
+                instance = pushedBack.isEmpty() ? instanceIterator.next() : pushedBack.poll();
+                if (metrics != null) {
+                    lapTime = metrics.lap(Phase.TRACE_READING, lapTime);
+                    metrics.instanceProcessed(instance.getStackDepth());
+                }
+                if (Diagnostics.ENABLED)
+                    Diagnostics.log(Category.TRAVERSAL, Level.TRACE, "instance %s (stack depth %d)",
+                        instance, instance.getStackDepth());
+
                 instruction = instance.getInstruction();
-              	if(ww==1){
-            		System.out.println("initial value of allock: ");
-            		System.out.print(allocStack);
-            		System.out.println("\n");
-            		System.out.println("initial value of stackDepth: ");
-            		System.out.print(instance.getStackDepth());
-            		System.out.println(instance.toString());
-            		ww--;
-            	}
               // backward traverse 中，instanceNr从0开始
                 if ((instance.getInstanceNr() & ((1<<16)-1)) == 0 && Thread.interrupted())
                     throw new InterruptedException();
+                if (SlicingEvents.AVAILABLE && (instance.getInstanceNr() & (SlicingEvents.PROGRESS_INTERVAL-1)) == 0) {
+                    SlicingEvents.TraversalProgress progressEvent = new SlicingEvents.TraversalProgress();
+                    if (progressEvent.shouldCommit()) {
+                        progressEvent.instances = instance.getInstanceNr();
+                        progressEvent.percentageDone = progressInfoProv == null ? Double.NaN : progressInfoProv.getPercentageDone();
+                        progressEvent.stackDepth = stackDepth;
+                        progressEvent.liveVariables = lastReaders.size();
+                        progressEvent.commit();
+                    }
+                }
 
                 int newStackDepth = instance.getStackDepth();
                 assert newStackDepth > 0;
 
+                boolean skipSimulation = false;
+
+                if (blackBoxScope0 != null && stackDepth > 0 && newStackDepth == stackDepth+1
+                        && isReturnInstruction(instruction) && atCatchBlockStart[stackDepth] == null
+                        && !throwsException[stackDepth] && blackBoxScope0.contains(instruction.getMethod())) {
+                    blackBoxEffects = new BlackBoxEffects(this.simulator);
+                    blackBoxEffects.addInstance(instance);
+                    consumeFrame(instruction, stackDepth, instanceIterator, pushedBack, blackBoxEffects, metrics);
+                    if (Diagnostics.ENABLED)
+                        Diagnostics.log(Category.TRAVERSAL, Level.TRACE, "black box frame of %s (%d instances)",
+                            instruction.getMethod(), blackBoxEffects.getInstances());
+                    if (metrics != null) {
+                        blackBoxFrames.increment();
+                        blackBoxInstances.add(blackBoxEffects.getInstances());
+                        lapTime = metrics.lap(Phase.TRACE_READING, lapTime);
+                    }
+                    continue;
+                }
+
+                if (frameFilter0 != null && stackDepth > 0 && newStackDepth == stackDepth+1
+                        && isReturnInstruction(instruction) && atCatchBlockStart[stackDepth] == null
+                        && !throwsException[stackDepth]) {
+                    int returnedSize = instruction.getOpcode() == Opcodes.RETURN ? 0
+                        : instruction.getOpcode() == Opcodes.LRETURN || instruction.getOpcode() == Opcodes.DRETURN ? 2 : 1;
+                    Variable returnValue = returnedSize == 0 ? null
+                        : simEnv.getOpStackEntry(stackDepth, opStack[stackDepth] - returnedSize);
+                    ReadMethod skippedMethod = instruction.getMethod();
+                    if (frameFilter0.canSkipFrame(skippedMethod, newStackDepth, returnValue)) {
+                        long frameInstances = 1 + consumeFrame(instruction, stackDepth, instanceIterator, pushedBack,
+                            null, metrics);
+                        if (Diagnostics.ENABLED)
+                            Diagnostics.log(Category.TRAVERSAL, Level.TRACE, "skipped frame of %s (%d instances)",
+                                skippedMethod, frameInstances);
+                        if (metrics != null) {
+                            skippedFrames.increment();
+                            skippedInstances.add(frameInstances);
+                            lapTime = metrics.lap(Phase.TRACE_READING, lapTime);
+                        }
+                        returnFromSkippedFrame = true;
+                        continue;
+                    }
+                }
+
+                if (transferCache != null && transferBuilder == null && replayedTransfer == null
+                        && stackDepth > 0 && newStackDepth == stackDepth+1 && isReturnInstruction(instruction)
+                        && atCatchBlockStart[stackDepth] == null && !throwsException[stackDepth]) {
+                    // look ahead for the path through the frame; only frames which do not call traced
+                    // methods and do not catch exceptions are memoized
+                    ReadMethod frameMethod = instruction.getMethod();
+                    int hash = instruction.getIndex();
+                    boolean complete = false;
+                    while (!complete && frameLookahead.size() < MAX_MEMOIZED_FRAME_SIZE - 1
+                            && (!pushedBack.isEmpty() || instanceIterator.hasNext())) {
+                        InstanceType next = pushedBack.isEmpty() ? instanceIterator.next() : pushedBack.poll();
+                        frameLookahead.add(next);
+                        Instruction nextInstr = next.getInstruction();
+                        if (next.getStackDepth() != newStackDepth || nextInstr.getMethod() != frameMethod
+                                || (nextInstr.getType() == InstructionType.LABEL && ((LabelMarker)nextInstr).isCatchBlock()))
+                            break;
+                        hash = 31*hash + nextInstr.getIndex();
+                        complete = nextInstr == frameMethod.getMethodEntryLabel();
+                    }
+                    if (complete) {
+                        int[] path = new int[frameLookahead.size()+1];
+                        path[0] = instruction.getIndex();
+                        for (int i = 1; i < path.length; ++i)
+                            path[i] = frameLookahead.get(i-1).getInstruction().getIndex();
+                        replayedTransfer = transferCache.get(frameMethod, path, hash);
+                        if (replayedTransfer != null) {
+                            if (metrics != null) {
+                                transferHits.increment();
+                                replayedInstances.add(path.length);
+                            }
+                        } else {
+                            // the frame number is assigned when the frame is entered below
+                            transferBuilder = new FrameTransfer.Builder(frameMethod, path, hash, nextFrameNr);
+                            if (metrics != null)
+                                transferMisses.increment();
+                        }
+                        transferDepth = newStackDepth;
+                        transferPosition = 0;
+                    }
+                    for (int i = frameLookahead.size()-1; i >= 0; --i)
+                        pushedBack.addFirst(frameLookahead.get(i));
+                    frameLookahead.clear();
+                }
+
+                boolean afterSkippedFrame = returnFromSkippedFrame;
+                returnFromSkippedFrame = false;
+
                 simEnv.removedMethod = null;
                 boolean reenter = false;
          
@@ -591,22 +817,22 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
                  
                         if (methodEntryLeaveVisitors0 != null) {
                             for (DependencesVisitor<? super InstanceType> vis: methodEntryLeaveVisitors0) {
-                            	if (reenter) //******************************
-                            	{
+                            	if (reenter)
                             		vis.visitMethodEntry(oldMethod, newStackDepth);
-                            		if(oldMethod.getName().contains("fyhb")){
-                            		System.out.println(oldMethod.getName());
-                            		System.out.println("IN reenter enty visiting *****************************************************************  \n");}
-                            	}
                                 vis.visitMethodLeave(method[newStackDepth], newStackDepth);
                             }
                         }
 
-                        if (reenter) {
-                        	cleanUpExecutionFrame(simEnv, stackDepth, lastReaders, lastWriter,
-                            	pendingDataDependenceVisitorsWriteAfterRead0, pendingDataDependenceVisitorsReadAfterWrite0,
-                            	dataDependenceVisitorsWriteAfterRead0, dataDependenceVisitorsReadAfterWrite0);
-                        }
+                        if (reenter && Diagnostics.ENABLED)
+                            Diagnostics.log(Category.TRAVERSAL, Level.TRACE, "reentering stack depth %d: %s -> %s",
+                                newStackDepth, oldMethod, method[newStackDepth]);
+                        // the entries of a frame which is still stored at this depth get their discard callbacks
+                        // here (entering the new frame would drop them silently)
+                        if (lastReaders.hasFrame(newStackDepth) || lastWriter.hasFrame(newStackDepth))
+                        	cleanUpExecutionFrame(newStackDepth, oldMethod, lastReaders, lastWriter,
+                            	pendingDataDependenceVisitorsWriteAfterRead0, pendingDataDependenceVisitorsReadAfterWrite0);
+                        lastReaders.enterFrame(newStackDepth, frames[newStackDepth], method[newStackDepth]);
+                        lastWriter.enterFrame(newStackDepth, frames[newStackDepth], method[newStackDepth]);
 
                         atCatchBlockStart[newStackDepth] = null;
                         if (instruction == method[newStackDepth].getAbnormalTerminationLabel()) {
@@ -624,14 +850,12 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
                         interestingInstances[newStackDepth].clear();
                         if (cachedLocalVariables[newStackDepth].length > 128){
                         	cachedLocalVariables[newStackDepth] = new LocalVariable[8];
-                        	System.out.println("LV>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>128\n");
                         }
                         else
                         	// 刚进入一个新的方法，此时要将缓存的局部变量信息清空！，获取的时候可以从对应的Method中拿！
                         	Arrays.fill(cachedLocalVariables[newStackDepth], null);
                         if (cachedStackEntries[newStackDepth].length > 128){
                         	cachedStackEntries[newStackDepth] = new StackEntry[8];
-                        	System.out.println("ST>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>128\n");
                         }
                         else
                         	Arrays.fill(cachedStackEntries[newStackDepth], null);
@@ -653,7 +877,7 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
                 stackDepth = newStackDepth;
            
                 // this.removedMethod==null 表明该方法没有扫描它的entryLabel，即没有进入方法进行扫描
-                if (simEnv.removedMethod == null &&
+                if (simEnv.removedMethod == null && !afterSkippedFrame &&
                 		(this.untracedMethodsVisitors != null) &&
                 		(instruction.getType() == InstructionType.METHODINVOCATION)) {
                     for (DependencesVisitor<? super InstanceType> vis: this.untracedMethodsVisitors)
@@ -668,11 +892,65 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
                 if (atCatchBlockStart[stackDepth] != null)
                 	throwsException[stackDepth] = true;
           // DynamicInfo 主要包括动态切片中用到的def use createObj信息
-                DynamicInformation dynInfo = this.simulator.simulateInstruction(instance, simEnv);
+
+                // the position of the instance in the frame whose transfer function is replayed, or -1
+                int replayPosition = -1;
+                if (replayedTransfer != null && stackDepth == transferDepth) {
+                    replayPosition = transferPosition++;
+                    transferInstances[replayPosition] = instance;
+                    if (!replayedTransfer.isSimulated(replayPosition)) {
+                        opStack[stackDepth] = replayedTransfer.getOpStackHeight(replayPosition);
+                        skipSimulation = true;
+                    }
+                }
+
+                // instances of instructions which no relevant instance can depend on are not simulated;
+                // invocations, returns and labels link the frames, so they are always simulated, and so
+                // are allocations, which release the state of the new object and are reported to the visitors
+                if (relevantInstructions0 != null && !skipSimulation && !throwsException[stackDepth]
+                        && !relevantInstructions0.get(instruction.getIndex())
+                        && instruction.getType() != InstructionType.METHODINVOCATION
+                        && instruction.getType() != InstructionType.LABEL && !isReturnInstruction(instruction)
+                        && !isAllocationInstruction(instruction)) {
+                    int[] readWrite = StackHeightAnalysis.getStackEffect(instruction);
+                    opStack[stackDepth] += readWrite[0] - readWrite[1];
+                    skipSimulation = true;
+                    if (metrics != null)
+                        filteredInstances.increment();
+                }
+
+                long simulationStart = simulationTimes == null ? 0 : System.nanoTime();
+                DynamicInformation dynInfo = skipSimulation ? DynamicInformation.EMPTY
+                    : this.simulator.simulateInstruction(instance, simEnv);
+                if (simulationTimes != null)
+                    simulationTimes.add(instruction.getMethod(), System.nanoTime() - simulationStart);
+                if (blackBoxEffects != null) {
+                    // the caller (usually the invocation of the black box) gets the summary of the frame
+                    dynInfo = blackBoxEffects.apply(dynInfo);
+                    blackBoxEffects = null;
+                }
+                DynamicInformation simulatedDynInfo = dynInfo;
+                if (replayPosition != -1 && !skipSimulation) {
+                    // the variables of the frame are handled by the transfer function
+                    dynInfo = FrameTransfer.withoutFrameVariables(dynInfo, frames[stackDepth]);
+                } else if (transferBuilder != null && stackDepth == transferDepth) {
+                    assert frames[stackDepth] == transferBuilder.getFrame();
+                    transferBuilder.record(transferPosition++, dynInfo, opStack[stackDepth]);
+                    if (transferPosition == transferBuilder.size()) {
+                        FrameTransfer transfer = transferBuilder.build();
+                        if (transfer != null)
+                            transferCache.put(transfer);
+                        transferBuilder = null;
+                    }
+                }
+                if (metrics != null)
+                    lapTime = metrics.lap(Phase.SIMULATION, lapTime);
 
                 if (instructionVisitors0 != null)  // 每一条被分析的指令都要被instructionVisitor 来visit
                     for (DependencesVisitor<? super InstanceType> vis: instructionVisitors0)
                         vis.visitInstructionExecution(instance);
+                if (metrics != null)
+                    lapTime = metrics.lap(Phase.VISITORS, lapTime);
 
                 // the computation of control dependences only has to be performed
                 // if there are any controlDependenceVisitors
@@ -699,9 +977,13 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
                     if (instrControlDependences == null) {
                     	// 在CFG上计算该指令的控制指令集合！
                     	// 计算该方法调用指令调用的方法的控制依赖关系，结果存放在controlDependence 的Map中
-                        computeControlDependences(instruction.getMethod(), controlDependences);
+                        if (metrics != null)
+                            metrics.controlDependenceCacheMiss();
+                        computeControlDependences(instruction.getMethod(), controlDependences, metrics);
                         instrControlDependences = controlDependences.get(instruction.getIndex());
                         assert instrControlDependences != null;
+                    } else if (metrics != null) {
+                        metrics.controlDependenceCacheHit();
                     }
                     boolean isExceptionsThrowingInstruction = throwsException[stackDepth] &&
                         (instruction.getType() != InstructionType.LABEL || !((LabelMarker)instruction).isAdditionalLabel()) &&
@@ -759,8 +1041,9 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
                 	interestingInstances[stackDepth].add(instance);
                     for (DependencesVisitor<? super InstanceType> vis: pendingControlDependenceVisitors0)
                         vis.visitPendingControlDependence(instance); 
-                    System.out.println("visiting pending Control Dependence!");
                 }
+                if (metrics != null)
+                    lapTime = metrics.lap(Phase.CONTROL_DEPENDENCES, lapTime);
 
                 
                 
@@ -809,9 +1092,18 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
                                     || pendingDataDependenceVisitorsReadAfterWrite0 != null) {
                             	// remove会返回definedVariable 所对应的指令集合！
                             	// remove返回的是definedVariable 对应的readers, 即指令读了definedVariable
-                                List<InstanceType> readers = lastReaders.remove(definedVariable); // 定义了，那么数据依赖过程中该变量就需要remove
+                                // a write to a summary variable of the heap abstraction is a weak update,
+                                // so the readers also depend on earlier writes
+                                boolean weakUpdate = heapAbstraction.isSummary(definedVariable);
+                                List<InstanceType> readers = weakUpdate
+                                    ? lastReaders.get(definedVariable)
+                                    : lastReaders.removeReaders(definedVariable); // 定义了，那么数据依赖过程中该变量就需要remove
                                 // 即后面有对该变量的读！
-                                if (readers != null) {
+                                if (readers instanceof LastReadersMap.CoalescedReaders<?>) {
+                                    visitCoalescedReaders(dataDependenceVisitorsReadAfterWrite0,
+                                        (LastReadersMap.CoalescedReaders<InstanceType>) readers, instance,
+                                        dynInfo.getUsedVariables(definedVariable), definedVariable, coalescedBatches);
+                                } else if (readers != null) {
                                 	// usedVaraiable 表示该变量的定义所用到的变量集合！
                                     Collection<? extends Variable> usedVariables = dataDependenceVisitorsReadAfterWrite0 != null
                                         ? dynInfo.getUsedVariables(definedVariable)  // 取出与当前定义变量相关的使用变量集合！
@@ -821,7 +1113,7 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
                                             for (DependencesVisitor<? super InstanceType> vis: dataDependenceVisitorsReadAfterWrite0)
                                                 vis.visitDataDependence(reader, instance, usedVariables, definedVariable, DataDependenceType.READ_AFTER_WRITE);
                                         }
-                                        if (pendingDataDependenceVisitorsReadAfterWrite0 != null)
+                                        if (pendingDataDependenceVisitorsReadAfterWrite0 != null && !weakUpdate)
                                             for (DependencesVisitor<? super InstanceType> vis: pendingDataDependenceVisitorsReadAfterWrite0)
                                                 vis.discardPendingDataDependence(reader, definedVariable, DataDependenceType.READ_AFTER_WRITE);
                                     }
@@ -867,12 +1159,13 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
 
                             if (dataDependenceVisitorsReadAfterWrite0 != null
                                     || pendingDataDependenceVisitorsReadAfterWrite0 != null) {
-                                List<InstanceType> readers = lastReaders.get(usedVariable);
-                                if (readers == null) {
-                                    readers = new ArrayList<InstanceType>(4);
-                                    lastReaders.put(usedVariable, readers);
-                                }
-                                readers.add(instance); 
+                                if (summaryEquivalence0 != null && heapAbstraction.isSummary(usedVariable)) {
+                                    if (lastReaders.addSummaryReader(usedVariable, instance, summaryEquivalence0) && metrics != null)
+                                        mergedSummaryReaders.increment();
+                                } else if (readerEquivalence0 == null)
+                                    lastReaders.addReader(usedVariable, instance);
+                                else if (lastReaders.addReader(usedVariable, instance, readerEquivalence0) && metrics != null)
+                                    coalescedReaders.increment();
                                 // 因为instance指令依赖于b,c, 即A=b+c.所以，b,c对应的readers 应该添加上instance!!
                                 // for each used variable, we have a pending RAW dependence
                                 if (pendingDataDependenceVisitorsReadAfterWrite0 != null) {
@@ -884,7 +1177,23 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
                     }
                 }
  
-                
+                if (replayPosition != -1) {
+                    for (int i = 0, n = replayedTransfer.getNumDependences(replayPosition); i < n; ++i) {
+                        InstanceType reader = transferInstances[replayedTransfer.getReader(replayPosition, i)];
+                        Variable definedVariable = replayedTransfer.getVariable(replayPosition, i, simEnv, stackDepth);
+                        Collection<? extends Variable> fromVariables = replayedTransfer.getUsedVariables(replayPosition, i,
+                            simEnv, stackDepth, definedVariable, simulatedDynInfo);
+                        for (DependencesVisitor<? super InstanceType> vis: dataDependenceVisitorsReadAfterWrite0)
+                            vis.visitDataDependence(reader, instance, fromVariables, definedVariable, DataDependenceType.READ_AFTER_WRITE);
+                    }
+                    // the parameters are written by the method invocation in the calling frame
+                    for (int i = 0, n = replayedTransfer.getNumOpenReads(replayPosition); i < n; ++i)
+                        lastReaders.addReader(replayedTransfer.getOpenRead(replayPosition, i, simEnv, stackDepth), instance);
+                    if (transferPosition == replayedTransfer.size()) {
+                        Arrays.fill(transferInstances, 0, transferPosition, null);
+                        replayedTransfer = null;
+                    }
+                }
                 
                 // 因为getCreatedObjects返回的是HashMap<long, Variable>不支持iterator,所以.entrySet()返回这个
                 // HashMap的一个集合视图，可以进行iterator访问！
@@ -897,41 +1206,61 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
                     assert added;
                     */
 
-                    for (Variable var: e.getValue()) {
-                        assert var instanceof ObjectField || var instanceof ArrayElement;
-                        // clean up lastWriter if we have any WAR visitors
-                        if (pendingDataDependenceVisitorsWriteAfterRead0 != null) {
-                            InstanceType inst;
-                            if ((inst = lastWriter.remove(var)) != null)
-                                for (DependencesVisitor<? super InstanceType> vis: pendingDataDependenceVisitorsWriteAfterRead0)
-                                    vis.discardPendingDataDependence(inst, var, DataDependenceType.WRITE_AFTER_READ);
-                        } else if (dataDependenceVisitorsWriteAfterRead0 != null)
-                            lastWriter.remove(var);
+                    if (lastWriter.getGlobalMap() instanceof HeapPartitionedMap<?>
+                            && lastReaders.getGlobalMap() instanceof HeapPartitionedMap<?>) {
+                        // drop all fields / elements of the new object at once (for allocation sites, the
+                        // first object of a site carries the variables of the site's abstract object)
+                        long objectId = heapAbstraction == HeapAbstraction.ALLOCATION_SITES
+                            ? getHeapObjectId(e.getValue(), e.getKey()) : e.getKey();
+                        cleanUpCreatedObject(objectId, instance,
+                            (HeapPartitionedMap<List<InstanceType>>) lastReaders.getGlobalMap(),
+                            (HeapPartitionedMap<InstanceType>) lastWriter.getGlobalMap(),
+                            dataDependenceVisitorsReadAfterWrite0, dataDependenceVisitorsWriteAfterRead0,
+                            pendingDataDependenceVisitorsReadAfterWrite0, pendingDataDependenceVisitorsWriteAfterRead0, coalescedBatches);
+                    } else {
+                        for (Variable var: e.getValue()) {
+                            assert var instanceof ObjectField || var instanceof ArrayElement;
+                            // clean up lastWriter if we have any WAR visitors
+                            if (pendingDataDependenceVisitorsWriteAfterRead0 != null) {
+                                InstanceType inst;
+                                if ((inst = lastWriter.remove(var)) != null)
+                                    for (DependencesVisitor<? super InstanceType> vis: pendingDataDependenceVisitorsWriteAfterRead0)
+                                        vis.discardPendingDataDependence(inst, var, DataDependenceType.WRITE_AFTER_READ);
+                            } else if (dataDependenceVisitorsWriteAfterRead0 != null)
+                                lastWriter.remove(var);
                         
                         
                         
-                        // clean up lastReaders if we have any RAW visitors  
-                        // 对象e中的变量，可能在后面被使用，所以增加这样的判定！
-                        // instlist 中的指令就对应于e中变量var的readers！
-                        if (dataDependenceVisitorsReadAfterWrite0 != null || pendingDataDependenceVisitorsReadAfterWrite0 != null) {
-                            List<InstanceType> instList;
-                            if ((instList = lastReaders.remove(var)) != null) {  // 表明有对该对象变量的读！，需要visitDataDependence!
-                                if (dataDependenceVisitorsReadAfterWrite0 != null)
-                                    for (DependencesVisitor<? super InstanceType> vis: dataDependenceVisitorsReadAfterWrite0)
-                                        for (InstanceType instrInst: instList)
-                                            vis.visitDataDependence(instrInst, instance, Collections.<Variable>emptySet(), var, DataDependenceType.READ_AFTER_WRITE);
-                                if (pendingDataDependenceVisitorsReadAfterWrite0 != null)
-                                    for (DependencesVisitor<? super InstanceType> vis: pendingDataDependenceVisitorsReadAfterWrite0)
-                                        for (InstanceType instrInst: instList)
-                                         vis.discardPendingDataDependence(instrInst, var, DataDependenceType.READ_AFTER_WRITE);
+                            // clean up lastReaders if we have any RAW visitors  
+                            // 对象e中的变量，可能在后面被使用，所以增加这样的判定！
+                            // instlist 中的指令就对应于e中变量var的readers！
+                            if (dataDependenceVisitorsReadAfterWrite0 != null || pendingDataDependenceVisitorsReadAfterWrite0 != null) {
+                                List<InstanceType> instList;
+                                if ((instList = lastReaders.remove(var)) instanceof LastReadersMap.CoalescedReaders<?>) {
+                                    visitCoalescedReaders(dataDependenceVisitorsReadAfterWrite0,
+                                        (LastReadersMap.CoalescedReaders<InstanceType>) instList, instance,
+                                        Collections.<Variable>emptySet(), var, coalescedBatches);
+                                } else if (instList != null) {  // 表明有对该对象变量的读！，需要visitDataDependence!
+                                    if (dataDependenceVisitorsReadAfterWrite0 != null)
+                                        for (DependencesVisitor<? super InstanceType> vis: dataDependenceVisitorsReadAfterWrite0)
+                                            for (InstanceType instrInst: instList)
+                                                vis.visitDataDependence(instrInst, instance, Collections.<Variable>emptySet(), var, DataDependenceType.READ_AFTER_WRITE);
+                                    if (pendingDataDependenceVisitorsReadAfterWrite0 != null)
+                                        for (DependencesVisitor<? super InstanceType> vis: pendingDataDependenceVisitorsReadAfterWrite0)
+                                            for (InstanceType instrInst: instList)
+                                             vis.discardPendingDataDependence(instrInst, var, DataDependenceType.READ_AFTER_WRITE);
+                                }
                             }
                         }
+                        OffHeapConfiguration.compact(lastWriter.getGlobalMap());
+                        OffHeapConfiguration.compact(lastReaders.getGlobalMap());
                     }
                     if (objectCreationVisitors0 != null)
                     {
                         for (DependencesVisitor<? super InstanceType> vis: objectCreationVisitors0)
                             vis.visitObjectCreation(e.getKey(), instance);
-                      System.out.println("visit object creation!********************************");
+                        if (Diagnostics.ENABLED)
+                            Diagnostics.log(Category.VISITORS, Level.TRACE, "object creation %d at %s", e.getKey(), instance);
                     }
                 }
 
@@ -943,9 +1272,22 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
                 }
 
                 if (simEnv.removedMethod != null) {
-                    cleanUpExecutionFrame(simEnv, stackDepth+1, lastReaders, lastWriter,
-                        pendingDataDependenceVisitorsWriteAfterRead0, pendingDataDependenceVisitorsReadAfterWrite0,
-                        dataDependenceVisitorsWriteAfterRead0, dataDependenceVisitorsReadAfterWrite0);
+                    cleanUpExecutionFrame(stackDepth+1, simEnv.removedMethod, lastReaders, lastWriter,
+                        pendingDataDependenceVisitorsWriteAfterRead0, pendingDataDependenceVisitorsReadAfterWrite0);
+                }
+
+                if ((long) lastReaders.getGlobalMap().size() + lastWriter.getGlobalMap().size() > offHeapThreshold) {
+                    if (Diagnostics.ENABLED)
+                        Diagnostics.log(Category.TRAVERSAL, Level.INFO, "moving %d lastReaders and %d lastWriter entries off-heap",
+                            lastReaders.getGlobalMap().size(), lastWriter.getGlobalMap().size());
+                    lastReaders.setGlobalMap(offHeapConfig.moveOffHeap(lastReaders.getGlobalMap(), variableEncoder));
+                    lastWriter.setGlobalMap(offHeapConfig.moveOffHeap(lastWriter.getGlobalMap(), variableEncoder));
+                    offHeapThreshold = Long.MAX_VALUE;
+                }
+
+                if (metrics != null) {
+                    metrics.dependenceMapSizes(lastReaders.size(), lastWriter.size());
+                    lapTime = metrics.lap(Phase.DATA_DEPENDENCES, lapTime);
                 }
 
                 /*
@@ -1015,6 +1357,10 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
                 iteratorThread.interrupt();
             for (ProgressMonitor mon : this.progressMonitors)
                 mon.end();
+            if (metrics != null)
+                metrics.end();
+            if (simulationTimes != null)
+                simulationTimes.commit();
         }
     }
     // end of ProcessBackwardIterator!!!---------------------------------------------------------------------------------------------------------------
@@ -1035,32 +1381,141 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
         return (DependencesVisitor<? super InstanceType>[]) new DependencesVisitor<?>[size];
     }
 
-    private void cleanUpExecutionFrame(SimulationEnvironment simEnv, int stackDepth,
-            Map<Variable, List<InstanceType>> lastReaders,
-            Map<Variable, InstanceType> lastWriter,
-            DependencesVisitor<? super InstanceType>[] pendingDataDependenceVisitorsWriteAfterRead0,
-            DependencesVisitor<? super InstanceType>[] pendingDataDependenceVisitorsReadAfterWrite0,
+    private static <V> Map<Variable, V> newGlobalMap(OffHeapConfiguration offHeapConfig, VariableEncoder encoder) {
+        Map<Variable, V> map = offHeapConfig.newMap(encoder);
+        // off-heap maps are not partitioned, allocations fall back to removing each field then
+        return map instanceof OffHeapVariableMap<?> ? map : new HeapPartitionedMap<V>(map);
+    }
+
+    private void cleanUpCreatedObject(long objectId, InstanceType instance,
+            HeapPartitionedMap<List<InstanceType>> lastReaders,
+            HeapPartitionedMap<InstanceType> lastWriter,
+            DependencesVisitor<? super InstanceType>[] dataDependenceVisitorsReadAfterWrite0,
             DependencesVisitor<? super InstanceType>[] dataDependenceVisitorsWriteAfterRead0,
-            DependencesVisitor<? super InstanceType>[] dataDependenceVisitorsReadAfterWrite0) throws InterruptedException {
-        for (Variable var: simEnv.getAllVariables(stackDepth)) {
-            // lastWriter does not contain stack entries
-            if (!(var instanceof StackEntry)) {
-                if (pendingDataDependenceVisitorsWriteAfterRead0 != null) {
-                    InstanceType inst = lastWriter.remove(var);
-                    if (inst != null)
-                        for (DependencesVisitor<? super InstanceType> vis: pendingDataDependenceVisitorsWriteAfterRead0)
-                            vis.discardPendingDataDependence(inst, var, DataDependenceType.WRITE_AFTER_READ);
-                } else if (dataDependenceVisitorsWriteAfterRead0 != null)
-                    lastWriter.remove(var);
-            }
-            if (pendingDataDependenceVisitorsReadAfterWrite0 != null) {
-                List<InstanceType> instList = lastReaders.remove(var);
-                if (instList != null)
+            DependencesVisitor<? super InstanceType>[] pendingDataDependenceVisitorsReadAfterWrite0,
+            DependencesVisitor<? super InstanceType>[] pendingDataDependenceVisitorsWriteAfterRead0,
+            Counter batches) throws InterruptedException {
+        // clean up lastWriter if we have any WAR visitors
+        if (pendingDataDependenceVisitorsWriteAfterRead0 != null) {
+            for (Entry<Variable, InstanceType> e: lastWriter.removeObject(objectId))
+                for (DependencesVisitor<? super InstanceType> vis: pendingDataDependenceVisitorsWriteAfterRead0)
+                    vis.discardPendingDataDependence(e.getValue(), e.getKey(), DataDependenceType.WRITE_AFTER_READ);
+        } else if (dataDependenceVisitorsWriteAfterRead0 != null) {
+            lastWriter.dropObject(objectId);
+        }
+
+        // clean up lastReaders if we have any RAW visitors
+        if (dataDependenceVisitorsReadAfterWrite0 != null || pendingDataDependenceVisitorsReadAfterWrite0 != null) {
+            for (Entry<Variable, List<InstanceType>> e: lastReaders.removeObject(objectId)) {
+                if (e.getValue() instanceof LastReadersMap.CoalescedReaders<?>) {
+                    visitCoalescedReaders(dataDependenceVisitorsReadAfterWrite0,
+                        (LastReadersMap.CoalescedReaders<InstanceType>) e.getValue(), instance,
+                        Collections.<Variable>emptySet(), e.getKey(), batches);
+                    continue;
+                }
+                if (dataDependenceVisitorsReadAfterWrite0 != null)
+                    for (DependencesVisitor<? super InstanceType> vis: dataDependenceVisitorsReadAfterWrite0)
+                        for (InstanceType instrInst: e.getValue())
+                            vis.visitDataDependence(instrInst, instance, Collections.<Variable>emptySet(), e.getKey(), DataDependenceType.READ_AFTER_WRITE);
+                if (pendingDataDependenceVisitorsReadAfterWrite0 != null)
                     for (DependencesVisitor<? super InstanceType> vis: pendingDataDependenceVisitorsReadAfterWrite0)
-                        for (InstanceType instrInst: instList)
-                            vis.discardPendingDataDependence(instrInst, var, DataDependenceType.READ_AFTER_WRITE);
-            } else if (dataDependenceVisitorsReadAfterWrite0 != null)
-                lastReaders.remove(var);
+                        for (InstanceType instrInst: e.getValue())
+                            vis.discardPendingDataDependence(instrInst, e.getKey(), DataDependenceType.READ_AFTER_WRITE);
+            }
+        }
+    }
+
+    /**
+     * @return an equivalence which additionally requires both readers to be instances of
+     *         the same instruction
+     */
+    private static <I extends InstructionInstance> ReaderEquivalence<I> ofSameInstruction(
+            final ReaderEquivalence<? super I> equivalence) {
+        return new ReaderEquivalence<I>() {
+            @Override
+            public boolean isEquivalentReader(I reader, I representative) {
+                return reader.getInstruction() == representative.getInstruction()
+                    && equivalence.isEquivalentReader(reader, representative);
+            }
+        };
+    }
+
+    /**
+     * @return the id of the object whose fields resp. elements the given variables are, or
+     *         <code>defaultId</code> if there are none
+     */
+    private static long getHeapObjectId(Collection<? extends Variable> variables, long defaultId) {
+        Iterator<? extends Variable> it = variables.iterator();
+        if (!it.hasNext())
+            return defaultId;
+        Variable var = it.next();
+        return var instanceof ObjectField ? ((ObjectField) var).getObjectId() : ((ArrayElement) var).getArrayId();
+    }
+
+    private static boolean allCoalescing(DependencesVisitor<?>[] visitors) {
+        for (DependencesVisitor<?> vis: visitors) {
+            if (!(vis instanceof CoalescingDependencesVisitor<?>)) {
+                if (Diagnostics.ENABLED)
+                    Diagnostics.log(Category.VISITORS, Level.INFO,
+                        "not coalescing readers, %s does not accept batches of readers", vis);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reports the data dependences of coalesced readers on the given writer, using one batch
+     * callback for each group of more than one reader. Readers are only coalesced if there
+     * are no visitors of pending RAW dependences, so nothing has to be discarded, and if
+     * all RAW visitors are {@link CoalescingDependencesVisitor}s.
+     */
+    private static <InstanceType> void visitCoalescedReaders(DependencesVisitor<? super InstanceType>[] visitors,
+            LastReadersMap.CoalescedReaders<InstanceType> readers, InstanceType writer,
+            Collection<? extends Variable> fromVars, Variable var, Counter batches) throws InterruptedException {
+        for (int i = 0, n = readers.size(); i < n; ++i) {
+            InstanceType reader = readers.get(i);
+            int count = readers.getCount(i);
+            if (count == 1) {
+                for (DependencesVisitor<? super InstanceType> vis: visitors)
+                    vis.visitDataDependence(reader, writer, fromVars, var, DataDependenceType.READ_AFTER_WRITE);
+            } else {
+                for (DependencesVisitor<? super InstanceType> vis: visitors)
+                    ((CoalescingDependencesVisitor<? super InstanceType>) vis).visitDataDependences(
+                        reader, count, writer, fromVars, var, DataDependenceType.READ_AFTER_WRITE);
+                if (batches != null)
+                    batches.increment();
+            }
+        }
+    }
+
+    private void cleanUpExecutionFrame(int stackDepth, ReadMethod frameMethod,
+            FrameStackMap<List<InstanceType>> lastReaders,
+            FrameStackMap<InstanceType> lastWriter,
+            DependencesVisitor<? super InstanceType>[] pendingDataDependenceVisitorsWriteAfterRead0,
+            DependencesVisitor<? super InstanceType>[] pendingDataDependenceVisitorsReadAfterWrite0) throws InterruptedException {
+        SlicingEvents.FrameCleanup event = null;
+        if (SlicingEvents.AVAILABLE) {
+            event = new SlicingEvents.FrameCleanup();
+            event.begin();
+        }
+        // lastWriter does not contain stack entries
+        if (pendingDataDependenceVisitorsWriteAfterRead0 != null) {
+            for (Entry<Variable, InstanceType> e: lastWriter.getFrameEntries(stackDepth))
+                for (DependencesVisitor<? super InstanceType> vis: pendingDataDependenceVisitorsWriteAfterRead0)
+                    vis.discardPendingDataDependence(e.getValue(), e.getKey(), DataDependenceType.WRITE_AFTER_READ);
+        }
+        if (pendingDataDependenceVisitorsReadAfterWrite0 != null) {
+            for (Entry<Variable, List<InstanceType>> e: lastReaders.getFrameEntries(stackDepth))
+                for (DependencesVisitor<? super InstanceType> vis: pendingDataDependenceVisitorsReadAfterWrite0)
+                    for (InstanceType instrInst: e.getValue())
+                        vis.discardPendingDataDependence(instrInst, e.getKey(), DataDependenceType.READ_AFTER_WRITE);
+        }
+        int droppedEntries = lastWriter.dropFrame(stackDepth) + lastReaders.dropFrame(stackDepth);
+        if (event != null && event.shouldCommit()) {
+            event.method = SlicingEvents.getMethodName(frameMethod);
+            event.variables = droppedEntries;
+            event.commit();
         }
     }
 
@@ -1114,10 +1569,11 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
         return Collections.emptySet();
     }
 
-    private static void computeControlDependences(ReadMethod method, IntegerMap<Set<Instruction>> controlDependences) {
+    private static void computeControlDependences(ReadMethod method, IntegerMap<Set<Instruction>> controlDependences,
+            SlicingMetrics metrics) {
     	// 计算一个方法的控制依赖，deps中的key是方法中的指令index，set是所有依赖与该条指令的指令！
     	// ControlFlowAnalyser.getInstance 返回的是一个ControlFlowAnalyser实例！
-        Map<Instruction, Set<Instruction>> deps = ControlFlowAnalyser.getInstance().getInvControlDependences(method);
+        Map<Instruction, Set<Instruction>> deps = ControlFlowAnalyser.getInstance().getInvControlDependences(method, metrics);
         for (Entry<Instruction, Set<Instruction>> entry: deps.entrySet()) {
             int index = entry.getKey().getIndex();
             assert !controlDependences.containsKey(index);
@@ -1125,6 +1581,62 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
         }
     }
 
+    /**
+     * Consumes the remaining instances of the frame which has been left by the given return
+     * instruction, including the frames of all methods called from it, and pushes back the
+     * first instance of the calling frame (a second frame on the same depth belongs to
+     * another call).
+     *
+     * @param effects collects the heap accesses of the consumed instances, or <code>null</code>
+     * @return the number of consumed instances (not counting the return instruction)
+     */
+    private long consumeFrame(Instruction returnInstr, int callerDepth, Iterator<InstanceType> instanceIterator,
+            ArrayDeque<InstanceType> pushedBack, BlackBoxEffects effects, SlicingMetrics metrics)
+            throws InterruptedException {
+        ReadMethod method = returnInstr.getMethod();
+        int frameDepth = callerDepth + 1;
+        boolean entered = returnInstr == method.getMethodEntryLabel();
+        long instances = 0;
+        while (!this.stopRequested && (!pushedBack.isEmpty() || instanceIterator.hasNext())) {
+            InstanceType next = pushedBack.isEmpty() ? instanceIterator.next() : pushedBack.poll();
+            int depth = next.getStackDepth();
+            if (depth <= callerDepth || (depth == frameDepth
+                    && (entered || next.getInstruction().getMethod() != method))) {
+                pushedBack.addFirst(next);
+                break;
+            }
+            if ((next.getInstanceNr() & ((1<<16)-1)) == 0 && Thread.interrupted())
+                throw new InterruptedException();
+            if (metrics != null)
+                metrics.instanceProcessed(depth);
+            if (depth == frameDepth && next.getInstruction() == method.getMethodEntryLabel())
+                entered = true;
+            if (effects != null)
+                effects.addInstance(next);
+            ++instances;
+        }
+        return instances;
+    }
+
+    private static boolean isReturnInstruction(Instruction instruction) {
+        switch (instruction.getOpcode()) {
+        case Opcodes.IRETURN: case Opcodes.LRETURN: case Opcodes.FRETURN:
+        case Opcodes.DRETURN: case Opcodes.ARETURN: case Opcodes.RETURN:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private static boolean isAllocationInstruction(Instruction instruction) {
+        switch (instruction.getOpcode()) {
+        case Opcodes.NEW: case Opcodes.NEWARRAY: case Opcodes.ANEWARRAY: case Opcodes.MULTIANEWARRAY:
+            return true;
+        default:
+            return false;
+        }
+    }
+
     public void addProgressMonitor(ProgressMonitor progressMonitor) {
         this.progressMonitors.add(progressMonitor);
     }
@@ -1133,4 +1645,224 @@ public class DependencesExtractor<InstanceType extends InstructionInstance> {
         this.progressMonitors.remove(progressMonitor);
     }
 
+    /**
+     * Sets the metrics object that is updated during {@link #processBackwardTrace(ThreadId, boolean)}.
+     * Pass <code>null</code> (the default) to disable the collection of metrics.
+     *
+     * @param metrics the metrics object, or <code>null</code>
+     */
+    public void setMetrics(SlicingMetrics metrics) {
+        this.metrics = metrics;
+        this.simulator.setMetrics(metrics);
+    }
+
+    public SlicingMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Sets where the lastReaders / lastWriter state of the following traversals is stored.
+     * The default is read from the system properties (see {@link OffHeapConfiguration}).
+     */
+    public void setOffHeapConfiguration(OffHeapConfiguration offHeapConfiguration) {
+        this.offHeapConfiguration = offHeapConfiguration;
+    }
+
+    public OffHeapConfiguration getOffHeapConfiguration() {
+        return this.offHeapConfiguration;
+    }
+
+    /**
+     * Sets the filter deciding which frames of called methods are skipped during the
+     * following traversals (<code>null</code>, the default, to traverse all frames).
+     *
+     * The number of skipped frames and instances is reported to the {@link SlicingMetrics}.
+     *
+     * @param frameFilter the filter, or <code>null</code>
+     * @see FrameFilter
+     */
+    public void setFrameFilter(FrameFilter frameFilter) {
+        this.frameFilter = frameFilter;
+    }
+
+    public FrameFilter getFrameFilter() {
+        return this.frameFilter;
+    }
+
+    /**
+     * Sets the packages and classes whose frames are treated as black boxes during the
+     * following traversals (<code>null</code>, the default, to traverse all frames).
+     *
+     * The instances of a black box frame (and of all frames called from it) are not simulated
+     * and not reported to any visitor. Instead, the next instance of the calling frame, usually
+     * the invocation, is extended by a conservative summary of the frame: the receiver and the
+     * parameters, as well as the heap locations read by the frame, flow to the returned value
+     * and to all heap locations written by the frame. The invocation is reported to the
+     * {@link VisitorCapability#UNTRACED_METHOD_CALLS} visitors.
+     * Frames which end by an exception, and frames whose caller waits for the instruction
+     * which threw an exception to its catch block, are traversed as usual.
+     * The number of black box frames and instances is reported to the {@link SlicingMetrics}.
+     *
+     * @param blackBoxScope the black box scope, or <code>null</code>
+     */
+    public void setBlackBoxScope(BlackBoxScope blackBoxScope) {
+        this.blackBoxScope = blackBoxScope == null || blackBoxScope.isEmpty() ? null : blackBoxScope;
+    }
+
+    public BlackBoxScope getBlackBoxScope() {
+        return this.blackBoxScope;
+    }
+
+    /**
+     * Sets the representation of the heap locations during the following traversals
+     * (default: {@link HeapAbstraction#OBJECTS}, i.e. precise).
+     *
+     * The other abstractions merge several heap locations into one variable, which bounds the
+     * number of tracked heap variables. Writes to a merged variable are weak updates, so the
+     * data dependences are a superset of the precise ones. See
+     * {@link Simulator#setHeapAbstraction}.
+     *
+     * @param heapAbstraction the heap abstraction, must not be <code>null</code>
+     */
+    public void setHeapAbstraction(HeapAbstraction heapAbstraction) {
+        this.simulator.setHeapAbstraction(heapAbstraction);
+    }
+
+    public HeapAbstraction getHeapAbstraction() {
+        return this.simulator.getHeapAbstraction();
+    }
+
+    /**
+     * Enables the coalescing of readers during the following traversals (<code>null</code>,
+     * the default, to disable it).
+     *
+     * A variable which is read very often before it is written, e.g. a static field read in a
+     * hot loop, otherwise accumulates one entry per read in the lastReaders map, and each
+     * of them is reported separately when the write is reached. If coalescing is enabled,
+     * a reader of a variable which is not on the operand stack is merged with a recent
+     * reader of the same variable and instruction if the given equivalence accepts it. Each
+     * group of merged readers is reported by one call to
+     * {@link CoalescingDependencesVisitor#visitDataDependences}, so both the memory and the
+     * number of callbacks are bounded by the number of non-equivalent readers.
+     *
+     * Readers are not coalesced if any visitor is registered for pending RAW data
+     * dependences, or if any RAW visitor does not implement {@link CoalescingDependencesVisitor};
+     * such visitors get one call for each reader. The number of coalesced readers is reported
+     * to the {@link SlicingMetrics}.
+     *
+     * @param readerEquivalence the equivalence of readers for all registered RAW visitors,
+     *                          or <code>null</code>
+     */
+    public void setReaderCoalescing(ReaderEquivalence<? super InstanceType> readerEquivalence) {
+        this.readerEquivalence = readerEquivalence;
+    }
+
+    public ReaderEquivalence<? super InstanceType> getReaderCoalescing() {
+        return this.readerEquivalence;
+    }
+
+    /**
+     * Enables the merging of the readers of summary variables during the following
+     * traversals (<code>null</code>, the default, to disable it).
+     *
+     * A write to a summary variable of the {@link HeapAbstraction} is a weak update, so the
+     * readers of such a variable are never removed, and without merging its lastReaders entry
+     * grows with every read until the end of the traversal. If merging is enabled, a reader of
+     * a summary variable is merged with any reader of the same variable and instruction which
+     * the given equivalence accepts, so the entry is bounded by the number of reading
+     * instructions times the number of non-equivalent readers of each. The merged readers are
+     * reported in batches like coalesced readers (see {@link #setReaderCoalescing}), under the
+     * same conditions, and counted in the {@link SlicingMetrics}.
+     *
+     * @param equivalence the equivalence of readers of summary variables for all registered
+     *                    RAW visitors, or <code>null</code>
+     */
+    public void setSummaryReaderMerging(ReaderEquivalence<? super InstanceType> equivalence) {
+        this.summaryReaderEquivalence = equivalence;
+    }
+
+    public ReaderEquivalence<? super InstanceType> getSummaryReaderMerging() {
+        return this.summaryReaderEquivalence;
+    }
+
+    /**
+     * Sets the roles of the used variables whose data dependences are found during the
+     * following traversals (default: all roles). E.g. for a thin slice, only the
+     * {@link VariableRole#VALUE} uses are needed; the references and indexes selecting
+     * a heap location and the operands of conditional jumps are then not tracked at all,
+     * which also keeps the lastReaders map smaller.
+     * See {@link Simulator#setUsedVariableRoles(Set)}.
+     *
+     * @param roles the tracked roles, must contain {@link VariableRole#VALUE}
+     */
+    public void setUsedVariableRoles(Set<VariableRole> roles) {
+        this.simulator.setUsedVariableRoles(roles);
+    }
+
+    public Set<VariableRole> getUsedVariableRoles() {
+        return this.simulator.getUsedVariableRoles();
+    }
+
+    /**
+     * Sets the number of memoized frame transfer functions kept during the following
+     * traversals (0, the default, to disable the memoization).
+     *
+     * If enabled, the data dependences over the local variables and operand stack entries of
+     * each frame of a method which calls no traced method and catches no exception are
+     * recorded for the instruction path through the frame. When a frame with the same path
+     * is traversed again, these dependences are reported from the recorded transfer function,
+     * and only the instances accessing the heap or the calling frame are simulated.
+     * The least recently used transfer functions are evicted when the cache is full.
+     *
+     * The memoization is only used if RAW data dependences are visited, and no visitor is
+     * registered for WAR or pending data dependences. The cache hits and misses are reported
+     * to the {@link SlicingMetrics}.
+     *
+     * @param frameTransferCacheSize the maximum number of cached transfer functions, or 0
+     */
+    public void setFrameTransferCacheSize(int frameTransferCacheSize) {
+        if (frameTransferCacheSize < 0)
+            throw new IllegalArgumentException("cache size must not be negative");
+        this.frameTransferCacheSize = frameTransferCacheSize;
+    }
+
+    public int getFrameTransferCacheSize() {
+        return this.frameTransferCacheSize;
+    }
+
+    /**
+     * Restricts the simulation during the following traversals to the instances of the given
+     * instructions (<code>null</code>, the default, to simulate all instances).
+     *
+     * The data dependences from and to the instances of all other instructions are not
+     * computed, so the set must contain every instruction that an instance the visitors are
+     * interested in may transitively depend on, e.g. a static slice computed by the
+     * {@link de.unisb.cs.st.javaslicer.controlflowanalysis.StaticDependenceGraph}.
+     * Method invocations, returns, labels and allocations are always simulated, as well as
+     * all instances of a frame which is left by an exception. Instruction executions, object
+     * creations and control dependences are still reported for every instance.
+     * The number of instances which are not simulated is reported to the {@link SlicingMetrics}.
+     *
+     * @param relevantInstructions the indexes of the instructions whose instances are simulated,
+     *                             or <code>null</code>
+     */
+    public void setRelevantInstructions(BitSet relevantInstructions) {
+        this.relevantInstructions = relevantInstructions;
+    }
+
+    public BitSet getRelevantInstructions() {
+        return this.relevantInstructions;
+    }
+
+    /**
+     * Stops the running traversal before the next instance is processed.
+     *
+     * This is meant to be called by a visitor which knows that the remaining (earlier)
+     * part of the trace cannot contribute anything anymore. The visitors still get their
+     * {@link DependencesVisitor#visitEnd(long)} call.
+     */
+    public void stopTraversal() {
+        this.stopRequested = true;
+    }
+
 }
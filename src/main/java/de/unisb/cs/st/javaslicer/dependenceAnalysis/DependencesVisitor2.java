@@ -24,13 +24,13 @@ package de.unisb.cs.st.javaslicer.dependenceAnalysis;
 
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
 import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
 import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
 import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.MethodInvocationInstruction;
+import de.unisb.cs.st.javaslicer.controlflowanalysis.MayModifySummary;
 import de.unisb.cs.st.javaslicer.variables.Variable;
 
 
@@ -38,6 +38,16 @@ import de.unisb.cs.st.javaslicer.variables.Variable;
  * A visitor that gets informed about determined dependences of one program
  * trace as well as some other possibly interesting information.
  *
+ * In addition to the callbacks of a {@link DependencesVisitor}, it is asked about the
+ * potential dependences of relevant slicing: an instance of a conditional branch which is
+ * not on the slice is added to it if a different outcome of the branch might have changed
+ * a value which is read later by the slice.
+ * The visitor is driven by a {@link RelevantDependencesExtractor}, which computes
+ * which variables a branch may modify from static {@link MayModifySummary summaries}.
+ *
+ * The boolean results of the callbacks which receive an instance tell the extractor whether
+ * the instance is on the slice of the visitor (see the single methods).
+ *
  * @author Clemens Hammacher
  */
 public interface DependencesVisitor2<InstanceType> {
@@ -48,7 +58,17 @@ public interface DependencesVisitor2<InstanceType> {
      *                     during the tracersal of the trace
      */
     void visitEnd(long numInstances) throws InterruptedException;
-    
+
+    /**
+     * Gets called if the given branch instance, which is not on the slice yet, potentially
+     * influences the slice, i.e. {@link #visitCanModify} or {@link #visitCanModifyInteresting}
+     * returned <code>true</code>.
+     *
+     * @param instance the instance of the conditional branch
+     * @return <code>true</code> if the instance is on the slice now
+     */
+    boolean visitSpecialAddBranch(InstanceType instance)throws InterruptedException;
+
  // In program first to(a=b+c) then from(d=a+2).
  // fromVar=b,c   toVar=a
     /**
@@ -61,22 +81,39 @@ public interface DependencesVisitor2<InstanceType> {
      *        WARNING: this parameter is only set for read after write dependencies, not for write after read dependencies (there it is <code>null</code>)!!
      * @param toVar the variable through which the dependence exists (was written by <code>to</code> and read by <code>from</code>)
      * @param type the type of the data dependence (read after write / write after read)
-     */ 
-    boolean visitSpecialAddBranch(InstanceType instance)throws InterruptedException;
-
-    
+     * @return <code>true</code> if <code>to</code> is on the slice
+     */
     boolean visitDataDependence(InstanceType from, InstanceType to,
             Collection<? extends Variable> fromVars, Variable toVar, DataDependenceType type) throws InterruptedException;
 
+    /**
+     * Gets called for a reader on the slice in the frame of a branch, if the reader is
+     * control dependent on the branch, so that a different outcome of the branch would
+     * have bypassed the reader. Usually the reader then already has a control dependence
+     * on the branch, which makes the potential dependence unnecessary.
+     *
+     * @param source the reader, which is (transitively) control dependent on the branch
+     * @param steplocation the instance of the conditional branch
+     * @return <code>true</code> if the reader should still be passed to {@link #visitCanModify}
+     */
     boolean CanByPassing(InstanceType source, InstanceType steplocation)throws InterruptedException;
-    
+
+    /**
+     * Gets called for every instance of a method invocation, right after
+     * {@link #visitInstructionExecution(Object)}.
+     *
+     * @param from the instance of the method invocation
+     * @return <code>true</code> if the instance is on the slice
+     */
     boolean visitMethodInvoke(InstanceType from)throws InterruptedException;
+
     /**
      * Gets called if a dynamic occurence of a control dependence has been determined.
      *
      * @param from the instruction that depends on another
      * @param to the &quot;target&quot; of the control dependence, i.e. the instruction
      *           that controls the execution of <code>from</code>
+     * @return <code>true</code> if <code>to</code> is on the slice
      */
     boolean visitControlDependence(InstanceType from, InstanceType to) throws InterruptedException;
 
@@ -84,15 +121,51 @@ public interface DependencesVisitor2<InstanceType> {
      * Gets called for every instruction in the execution trace.
      *
      * @param instance the instruction instance that has just been visited
+     * @return <code>true</code> if the instance is on the slice (e.g. because it matches a criterion)
      */
     boolean visitInstructionExecution(InstanceType instance) throws InterruptedException;
 
+    /**
+     * Gets called for each reader which was passed to {@link #visitCanModify} after the
+     * branch has been added to the slice, i.e. for each potential dependence.
+     *
+     * @param instance the instance of the conditional branch
+     * @param instance2 the reader which potentially depends on the branch
+     * @return <code>true</code> if the potential dependence was recorded
+     */
     boolean visitCanReachEvent(InstanceType instance, InstanceType instance2)throws InterruptedException;
-    
-    //boolean visitCanModify(InstanceType instance,long frame,InstanceType instance2, Variable var1, 
-   // 		InstanceType  lastReader, Map<String,Set<Integer>> map)throws InterruptedException;
-    boolean visitCanModify(InstanceType instance,long frame,InstanceType instance2, Set<Entry<Variable,List<InstanceType>>> map1, Map<String,Set<Integer>> map)throws InterruptedException;
-    boolean visitCanModifyInteresting(InstanceType instance,long frame,InstanceType instance2, Map<String,Set<Integer>> map)throws InterruptedException;
+
+    /**
+     * Gets called for an instance of a conditional branch which is not on the slice, if the
+     * instructions controlled by the branch may write a variable which has a pending read
+     * by an instance on the slice.
+     *
+     * @param instance the instance of the conditional branch
+     * @param frame the frame of the branch (to which the local variables of the summary belong),
+     *              or <code>-1</code> if it is not known
+     * @param instance2 the instance executed after the branch in the same frame, i.e. the
+     *                  target that was taken (<code>null</code> if it is not known)
+     * @param map1 the variables that may be written, with the instances on the slice which read them
+     * @param summary the variables that may be written by the instructions controlled by the branch
+     * @return <code>true</code> if one of the reads is relevant for the slice, so that
+     *         {@link #visitSpecialAddBranch(Object)} is called
+     */
+    boolean visitCanModify(InstanceType instance,long frame,InstanceType instance2, Set<Entry<Variable,List<InstanceType>>> map1, MayModifySummary summary)throws InterruptedException;
+
+    /**
+     * Gets called for every instance of a conditional branch which is not on the slice, and
+     * whose controlled instructions may write any variable. This allows the visitor to check
+     * interesting variables which are not (yet) read by any instance, e.g. the local variables
+     * of a slicing criterion.
+     *
+     * @param instance the instance of the conditional branch
+     * @param frame the frame of the branch, or <code>-1</code> if it is not known
+     * @param instance2 the instance executed after the branch in the same frame
+     * @param summary the variables that may be written by the instructions controlled by the branch
+     * @return <code>true</code> if an interesting variable may be written, so that
+     *         {@link #visitSpecialAddBranch(Object)} is called
+     */
+    boolean visitCanModifyInteresting(InstanceType instance,long frame,InstanceType instance2, MayModifySummary summary)throws InterruptedException;
     /**
      * Gets called if there might be a data dependence that gets visited later. 
      *
@@ -24,16 +24,16 @@ package de.unisb.cs.st.javaslicer.dependenceAnalysis;
  */
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
 import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.controlflowanalysis.MayModifySummary;
 import de.unisb.cs.st.javaslicer.variables.Variable;
 
 
 /**
- * An empty Implementation of the {@link DependencesVisitor} interface.
+ * An empty Implementation of the {@link DependencesVisitor2} interface.
  *
  * @author Clemens Hammacher
  */
@@ -93,10 +93,10 @@ public abstract class DependencesVisitorAdapter2<InstanceType> implements Depend
 //    		InstanceType  lastReader, Map<String,Set<Integer>> map)throws InterruptedException {
 //    	return false;
 //    }
-  public boolean visitCanModify(InstanceType instance,long frame,InstanceType instance2, Set<Entry<Variable, List<InstanceType>>>  filteredMap, Map<String,Set<Integer>> map)throws InterruptedException {
+  public boolean visitCanModify(InstanceType instance,long frame,InstanceType instance2, Set<Entry<Variable, List<InstanceType>>>  filteredMap, MayModifySummary summary)throws InterruptedException {
 return false; 
 }   
-    public boolean visitCanModifyInteresting(InstanceType instance,long frame,InstanceType instance2, Map<String,Set<Integer>> map)throws InterruptedException {
+    public boolean visitCanModifyInteresting(InstanceType instance,long frame,InstanceType instance2, MayModifySummary summary)throws InterruptedException {
     	return false;
     }
     @Override
@@ -0,0 +1,63 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.dependenceAnalysis
+ *    Class:     FrameFilter
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/dependenceAnalysis/FrameFilter.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.dependenceAnalysis;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+/**
+ * Decides which frames of called methods the {@link DependencesExtractor} may fast-forward
+ * through without simulating them.
+ *
+ * The filter is asked when the backward traversal reaches the return instruction of a
+ * called method. If the frame is skipped, all instances of this frame (including the
+ * frames of the methods called from it) are not simulated and not reported to any visitor,
+ * and the invocation in the calling frame is handled like a call of an untraced method
+ * (without reporting it to the {@link VisitorCapability#UNTRACED_METHOD_CALLS} visitors).
+ * So a frame may only be skipped if none of its instances can be relevant to any of the
+ * registered visitors.
+ *
+ * Frames which end by an exception, and frames whose caller waits for the instruction
+ * which threw an exception to its catch block, are never skipped.
+ *
+ * @see DependencesExtractor#setFrameFilter(FrameFilter)
+ */
+public interface FrameFilter {
+
+    /**
+     * The name of the counter group of the skipped frames in the
+     * {@link de.unisb.cs.st.javaslicer.metrics.SlicingMetrics}.
+     */
+    String COUNTERS = "frame skipping";
+
+    /**
+     * @param method the method executed in the frame
+     * @param stackDepth the stack depth of the frame
+     * @param returnValue the stack entry in the calling frame which receives the returned value
+     *                    (the lower one for long and double values), or <code>null</code> if
+     *                    the method returns no value
+     * @return <code>true</code> if the frame should be skipped
+     */
+    boolean canSkipFrame(ReadMethod method, int stackDepth, Variable returnValue);
+
+}
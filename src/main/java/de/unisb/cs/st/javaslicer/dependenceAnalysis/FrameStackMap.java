@@ -0,0 +1,375 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.dependenceAnalysis
+ *    Class:     FrameStackMap
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/dependenceAnalysis/FrameStackMap.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.dependenceAnalysis;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.variables.LocalVariable;
+import de.unisb.cs.st.javaslicer.variables.StackEntry;
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+/**
+ * A map from {@link Variable}s to values, in which the local variables and stack entries
+ * are stored in dense arrays owned by the stack frame they belong to. All other variables
+ * (object fields, array elements and static fields) are stored in a global map.
+ *
+ * Each slot carries the epoch of its frame at the time it was written. Dropping a frame
+ * (or reusing its depth for a new frame) just increments the epoch, which invalidates all
+ * slots of that frame in constant time.
+ *
+ * Local variables and stack entries of frames which have not been entered (or have
+ * already been dropped), and stack entries below the frame's operand stack (negative
+ * indexes), are stored in the global map as well.
+ *
+ * Subclasses can store a different representation in the operand stack slots (see
+ * {@link #getStackSlot}, {@link #setStackSlot} and {@link #removeStackSlot}); it is
+ * converted back to a value by {@link #fromStackSlot}.
+ *
+ * @param <V> the type of the values
+ */
+public class FrameStackMap<V> extends AbstractMap<Variable, V> {
+
+    private static final Object[] NO_VALUES = new Object[0];
+    private static final int[] NO_STAMPS = new int[0];
+
+    // all arrays are indexed by the stack depth
+    private long[] frameNrs = new long[0];
+    private ReadMethod[] methods = new ReadMethod[0];
+    private int[] epochs = new int[0];
+    private int[] counts = new int[0];
+    private Object[][] localValues = new Object[0][];
+    private int[][] localStamps = new int[0][];
+    private Object[][] stackValues = new Object[0][];
+    private int[][] stackStamps = new int[0][];
+
+    private int maxDepth = 0;
+    private int frameEntries = 0;
+
+    private Map<Variable, V> globalMap;
+
+    public FrameStackMap(Map<Variable, V> globalMap) {
+        this.globalMap = globalMap;
+    }
+
+    /**
+     * @return the map storing all variables which do not belong to a frame on the stack
+     */
+    public Map<Variable, V> getGlobalMap() {
+        return this.globalMap;
+    }
+
+    public void setGlobalMap(Map<Variable, V> globalMap) {
+        this.globalMap = globalMap;
+    }
+
+    /**
+     * Associates the given stack depth with a new frame. The entries of a frame which was
+     * previously stored at this depth are dropped silently, so callers which have to know
+     * about them should enumerate them (see {@link #getFrameEntries(int)}) and call
+     * {@link #dropFrame(int)} first.
+     */
+    public void enterFrame(int stackDepth, long frameNr, ReadMethod method) {
+        if (stackDepth >= this.frameNrs.length) {
+            int oldLen = this.frameNrs.length;
+            int newLen = Math.max(2*oldLen, stackDepth+1);
+            this.frameNrs = Arrays.copyOf(this.frameNrs, newLen);
+            Arrays.fill(this.frameNrs, oldLen, newLen, -1);
+            this.methods = Arrays.copyOf(this.methods, newLen);
+            this.epochs = Arrays.copyOf(this.epochs, newLen);
+            this.counts = Arrays.copyOf(this.counts, newLen);
+            this.localValues = Arrays.copyOf(this.localValues, newLen);
+            this.localStamps = Arrays.copyOf(this.localStamps, newLen);
+            this.stackValues = Arrays.copyOf(this.stackValues, newLen);
+            this.stackStamps = Arrays.copyOf(this.stackStamps, newLen);
+            for (int i = oldLen; i < newLen; ++i) {
+                this.localValues[i] = this.stackValues[i] = NO_VALUES;
+                this.localStamps[i] = this.stackStamps[i] = NO_STAMPS;
+            }
+        }
+        dropFrame(stackDepth);
+        // the epoch is never 0, which marks slots that were never written or removed
+        nextEpoch(stackDepth);
+        this.frameNrs[stackDepth] = frameNr;
+        this.methods[stackDepth] = method;
+        if (stackDepth > this.maxDepth)
+            this.maxDepth = stackDepth;
+    }
+
+    /**
+     * @return whether a frame is stored at the given stack depth
+     */
+    public boolean hasFrame(int stackDepth) {
+        return stackDepth < this.frameNrs.length && this.frameNrs[stackDepth] != -1;
+    }
+
+    /**
+     * Removes all entries of the frame at the given stack depth in constant time.
+     *
+     * @return the number of removed entries
+     */
+    public int dropFrame(int stackDepth) {
+        if (stackDepth >= this.frameNrs.length || this.frameNrs[stackDepth] == -1)
+            return 0;
+        int dropped = this.counts[stackDepth];
+        this.frameEntries -= dropped;
+        this.counts[stackDepth] = 0;
+        nextEpoch(stackDepth);
+        this.frameNrs[stackDepth] = -1;
+        this.methods[stackDepth] = null;
+        while (this.maxDepth > 0 && this.frameNrs[this.maxDepth] == -1)
+            --this.maxDepth;
+        return dropped;
+    }
+
+    private void nextEpoch(int stackDepth) {
+        if (++this.epochs[stackDepth] == 0) {
+            // overflow: all old stamps could become valid again
+            Arrays.fill(this.localStamps[stackDepth], 0);
+            Arrays.fill(this.stackStamps[stackDepth], 0);
+            this.epochs[stackDepth] = 1;
+        }
+    }
+
+    /**
+     * @return a snapshot of all entries of the frame at the given stack depth
+     */
+    public List<Entry<Variable, V>> getFrameEntries(int stackDepth) {
+        if (stackDepth >= this.frameNrs.length || this.counts[stackDepth] == 0)
+            return Collections.emptyList();
+        List<Entry<Variable, V>> entries = new ArrayList<Entry<Variable, V>>(this.counts[stackDepth]);
+        addFrameEntries(stackDepth, entries);
+        return entries;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addFrameEntries(int stackDepth, List<Entry<Variable, V>> entries) {
+        long frameNr = this.frameNrs[stackDepth];
+        int epoch = this.epochs[stackDepth];
+        int[] stamps = this.localStamps[stackDepth];
+        for (int i = 0; i < stamps.length; ++i)
+            if (stamps[i] == epoch)
+                entries.add(new SimpleImmutableEntry<Variable, V>(
+                    new LocalVariable(frameNr, i, this.methods[stackDepth]), (V) this.localValues[stackDepth][i]));
+        stamps = this.stackStamps[stackDepth];
+        for (int i = 0; i < stamps.length; ++i)
+            if (stamps[i] == epoch)
+                entries.add(new SimpleImmutableEntry<Variable, V>(
+                    new StackEntry(frameNr, i), fromStackSlot(this.stackValues[stackDepth][i])));
+    }
+
+    /**
+     * @return the stack depth of the frame with the given number, or 0 if that frame
+     *         has not been entered
+     */
+    protected final int findDepth(long frameNr) {
+        // the accessed frames are nearly always the topmost ones
+        for (int depth = this.maxDepth; depth > 0; --depth)
+            if (this.frameNrs[depth] == frameNr)
+                return depth;
+        return 0;
+    }
+
+    @Override
+    public int size() {
+        return this.frameEntries + this.globalMap.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.frameEntries == 0 && this.globalMap.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null || this.globalMap.containsKey(key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key instanceof LocalVariable) {
+            LocalVariable var = (LocalVariable) key;
+            int depth = findDepth(var.getFrame());
+            if (depth != 0) {
+                int index = var.getVarIndex();
+                return index < this.localStamps[depth].length && this.localStamps[depth][index] == this.epochs[depth]
+                    ? (V) this.localValues[depth][index] : null;
+            }
+        } else if (key instanceof StackEntry && ((StackEntry) key).getIndex() >= 0) {
+            StackEntry var = (StackEntry) key;
+            int depth = findDepth(var.getFrame());
+            if (depth != 0)
+                return fromStackSlot(getStackSlot(depth, var.getIndex()));
+        }
+        return this.globalMap.get(key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(Variable key, V value) {
+        if (key instanceof LocalVariable) {
+            LocalVariable var = (LocalVariable) key;
+            int depth = findDepth(var.getFrame());
+            if (depth != 0) {
+                int index = var.getVarIndex();
+                if (index >= this.localStamps[depth].length) {
+                    int newLen = Math.max(2*this.localStamps[depth].length, index+4);
+                    this.localValues[depth] = Arrays.copyOf(this.localValues[depth], newLen);
+                    this.localStamps[depth] = Arrays.copyOf(this.localStamps[depth], newLen);
+                }
+                return (V) putSlot(depth, this.localValues[depth], this.localStamps[depth], index, value);
+            }
+        } else if (key instanceof StackEntry && ((StackEntry) key).getIndex() >= 0) {
+            StackEntry var = (StackEntry) key;
+            int depth = findDepth(var.getFrame());
+            if (depth != 0)
+                return fromStackSlot(setStackSlot(depth, var.getIndex(), value));
+        }
+        return this.globalMap.put(key, value);
+    }
+
+    private Object putSlot(int depth, Object[] values, int[] stamps, int index, Object value) {
+        Object old;
+        if (stamps[index] == this.epochs[depth]) {
+            old = values[index];
+        } else {
+            old = null;
+            stamps[index] = this.epochs[depth];
+            ++this.counts[depth];
+            ++this.frameEntries;
+        }
+        values[index] = value;
+        return old;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        if (key instanceof LocalVariable) {
+            LocalVariable var = (LocalVariable) key;
+            int depth = findDepth(var.getFrame());
+            if (depth != 0)
+                return (V) removeSlot(depth, this.localValues[depth], this.localStamps[depth], var.getVarIndex());
+        } else if (key instanceof StackEntry && ((StackEntry) key).getIndex() >= 0) {
+            StackEntry var = (StackEntry) key;
+            int depth = findDepth(var.getFrame());
+            if (depth != 0)
+                return fromStackSlot(removeStackSlot(depth, var.getIndex()));
+        }
+        return this.globalMap.remove(key);
+    }
+
+    private Object removeSlot(int depth, Object[] values, int[] stamps, int index) {
+        if (index >= stamps.length || stamps[index] != this.epochs[depth])
+            return null;
+        Object old = values[index];
+        stamps[index] = 0;
+        values[index] = null;
+        --this.counts[depth];
+        --this.frameEntries;
+        return old;
+    }
+
+    /**
+     * @return the content of the given operand stack slot of the frame at the given
+     *         stack depth, or <code>null</code> if the slot is empty
+     */
+    protected final Object getStackSlot(int stackDepth, int index) {
+        return index < this.stackStamps[stackDepth].length && this.stackStamps[stackDepth][index] == this.epochs[stackDepth]
+            ? this.stackValues[stackDepth][index] : null;
+    }
+
+    /**
+     * Stores the given (non-null) content in an operand stack slot of the frame at the
+     * given stack depth.
+     *
+     * @return the previous content of that slot, or <code>null</code>
+     */
+    protected final Object setStackSlot(int stackDepth, int index, Object content) {
+        if (index >= this.stackStamps[stackDepth].length) {
+            int newLen = Math.max(2*this.stackStamps[stackDepth].length, index+4);
+            this.stackValues[stackDepth] = Arrays.copyOf(this.stackValues[stackDepth], newLen);
+            this.stackStamps[stackDepth] = Arrays.copyOf(this.stackStamps[stackDepth], newLen);
+        }
+        return putSlot(stackDepth, this.stackValues[stackDepth], this.stackStamps[stackDepth], index, content);
+    }
+
+    /**
+     * Empties an operand stack slot of the frame at the given stack depth.
+     *
+     * @return the previous content of that slot, or <code>null</code>
+     */
+    protected final Object removeStackSlot(int stackDepth, int index) {
+        return removeSlot(stackDepth, this.stackValues[stackDepth], this.stackStamps[stackDepth], index);
+    }
+
+    /**
+     * Converts the content of an operand stack slot to the value it represents.
+     * The default implementation stores the values themselves.
+     */
+    @SuppressWarnings("unchecked")
+    protected V fromStackSlot(Object content) {
+        return (V) content;
+    }
+
+    @Override
+    public void clear() {
+        for (int depth = this.maxDepth; depth > 0; --depth)
+            dropFrame(depth);
+        this.globalMap.clear();
+    }
+
+    /**
+     * Returns a snapshot of all entries. The frame entries are recreated, so this
+     * should only be used at the end of a traversal.
+     */
+    @Override
+    public Set<Entry<Variable, V>> entrySet() {
+        final List<Entry<Variable, V>> entries = new ArrayList<Entry<Variable, V>>(size());
+        for (int depth = 1; depth <= this.maxDepth; ++depth)
+            if (this.frameNrs[depth] != -1 && this.counts[depth] != 0)
+                addFrameEntries(depth, entries);
+        entries.addAll(this.globalMap.entrySet());
+        return new AbstractSet<Entry<Variable, V>>() {
+            @Override
+            public Iterator<Entry<Variable, V>> iterator() {
+                return Collections.unmodifiableList(entries).iterator();
+            }
+
+            @Override
+            public int size() {
+                return entries.size();
+            }
+        };
+    }
+
+}
@@ -0,0 +1,417 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.dependenceAnalysis
+ *    Class:     FrameTransfer
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/dependenceAnalysis/FrameTransfer.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.dependenceAnalysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.instructionSimulation.DynamicInformation;
+import de.unisb.cs.st.javaslicer.instructionSimulation.SimulationEnvironment;
+import de.unisb.cs.st.javaslicer.variables.LocalVariable;
+import de.unisb.cs.st.javaslicer.variables.StackEntry;
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+/**
+ * The memoized transfer function of one execution path through a frame which did not call
+ * any traced method and did not throw or catch an exception: the data dependences over the
+ * local variables and operand stack entries of the frame, by the position of the instances
+ * in the frame.
+ *
+ * Positions are counted in the order of the backward traversal, i.e. position 0 is the return
+ * instruction and the last position is the method entry label. Since the path determines all
+ * accesses to local variables and stack entries, these dependences are the same for every
+ * execution of the path. Accesses to the heap depend on the identity of the accessed objects,
+ * so the instances accessing the heap (or the stack of the calling frame) are still simulated,
+ * only their accesses to the frame's own variables are taken from the transfer function.
+ *
+ * Transfer functions are recorded by a {@link Builder} while a frame is simulated, and stored
+ * in a {@link FrameTransferCache}.
+ */
+final class FrameTransfer {
+
+    // variables of the frame are encoded as (index << 1) | 0 for stack entries and
+    // (index << 1) | 1 for local variables
+    private static final int[] NO_VARIABLES = new int[0];
+
+    private final ReadMethod method;
+    private final int[] path;
+    private final int hash;
+
+    private final boolean[] simulated;
+    private final int[] opStackHeights;
+
+    // the data dependences, indexed by the position of the writing instance
+    private final int[][] edgeReaders;
+    private final int[][] edgeVariables;
+    // the variables used to compute the written variable, or null to take them from the simulation
+    private final int[][][] edgeUsedVariables;
+
+    // the variables read by each instance which are not written in the frame (the parameters)
+    private final int[][] openReads;
+
+    private FrameTransfer(ReadMethod method, int[] path, int hash, boolean[] simulated, int[] opStackHeights,
+            int[][] edgeReaders, int[][] edgeVariables, int[][][] edgeUsedVariables, int[][] openReads) {
+        this.method = method;
+        this.path = path;
+        this.hash = hash;
+        this.simulated = simulated;
+        this.opStackHeights = opStackHeights;
+        this.edgeReaders = edgeReaders;
+        this.edgeVariables = edgeVariables;
+        this.edgeUsedVariables = edgeUsedVariables;
+        this.openReads = openReads;
+    }
+
+    public ReadMethod getMethod() {
+        return this.method;
+    }
+
+    /**
+     * @return the indexes of the instructions on the path, in backward order
+     */
+    public int[] getPath() {
+        return this.path;
+    }
+
+    public int getPathHash() {
+        return this.hash;
+    }
+
+    public int size() {
+        return this.path.length;
+    }
+
+    /**
+     * @return whether the instance at the given position has to be simulated, since it accesses
+     *         variables outside of the frame
+     */
+    public boolean isSimulated(int position) {
+        return this.simulated[position];
+    }
+
+    /**
+     * @return the operand stack height after the (backward) simulation of the given position
+     */
+    public int getOpStackHeight(int position) {
+        return this.opStackHeights[position];
+    }
+
+    /**
+     * @return the number of data dependences on the instance at the given position
+     */
+    public int getNumDependences(int position) {
+        return this.edgeReaders[position].length;
+    }
+
+    /**
+     * @return the position of the reading instance of the given data dependence
+     */
+    public int getReader(int position, int dependence) {
+        return this.edgeReaders[position][dependence];
+    }
+
+    public Variable getVariable(int position, int dependence, SimulationEnvironment simEnv, int stackDepth) {
+        return decode(this.edgeVariables[position][dependence], simEnv, stackDepth);
+    }
+
+    /**
+     * @param dynInfo the result of the simulation of the instance, or <code>null</code> if it was
+     *                not simulated
+     * @return the variables used to compute the variable of the given data dependence
+     */
+    public Collection<? extends Variable> getUsedVariables(int position, int dependence,
+            SimulationEnvironment simEnv, int stackDepth, Variable variable, DynamicInformation dynInfo) {
+        int[] used = this.edgeUsedVariables[position][dependence];
+        if (used == null)
+            return dynInfo.getUsedVariables(variable);
+        if (used.length == 0)
+            return DynamicInformation.EMPTY_VARIABLE_SET;
+        if (used.length == 1)
+            return Collections.singleton(decode(used[0], simEnv, stackDepth));
+        List<Variable> vars = new ArrayList<Variable>(used.length);
+        for (int code: used)
+            vars.add(decode(code, simEnv, stackDepth));
+        return vars;
+    }
+
+    public int getNumOpenReads(int position) {
+        return this.openReads[position].length;
+    }
+
+    public Variable getOpenRead(int position, int read, SimulationEnvironment simEnv, int stackDepth) {
+        return decode(this.openReads[position][read], simEnv, stackDepth);
+    }
+
+    /**
+     * Returns a view of the given dynamic information without the local variables and stack
+     * entries of the given frame, which are handled by the transfer function.
+     */
+    public static DynamicInformation withoutFrameVariables(DynamicInformation dynInfo, long frame) {
+        return new NonFrameVariableUsage(dynInfo, frame);
+    }
+
+    private static Variable decode(int code, SimulationEnvironment simEnv, int stackDepth) {
+        return (code & 1) == 0 ? simEnv.getOpStackEntry(stackDepth, code >> 1)
+            : simEnv.getLocalVariable(stackDepth, code >> 1);
+    }
+
+    /**
+     * @return the code of the variable if it is a local variable or (non-negative) stack entry of
+     *         the given frame, or -1 otherwise
+     */
+    static int encode(Variable var, long frame) {
+        if (var instanceof StackEntry) {
+            StackEntry entry = (StackEntry) var;
+            return entry.getFrame() == frame && entry.getIndex() >= 0 ? entry.getIndex() << 1 : -1;
+        }
+        if (var instanceof LocalVariable) {
+            LocalVariable local = (LocalVariable) var;
+            return local.getFrame() == frame ? (local.getVarIndex() << 1) | 1 : -1;
+        }
+        return -1;
+    }
+
+    static boolean isFrameVariable(Variable var, long frame) {
+        if (var instanceof StackEntry)
+            return ((StackEntry) var).getFrame() == frame;
+        if (var instanceof LocalVariable)
+            return ((LocalVariable) var).getFrame() == frame;
+        return false;
+    }
+
+    /**
+     * Records the accesses to the frame's variables of each instance while the frame is
+     * simulated, and computes the data dependences between them.
+     */
+    static class Builder {
+
+        private final ReadMethod method;
+        private final int[] path;
+        private final int hash;
+        private final long frame;
+
+        private final boolean[] simulated;
+        private final int[] opStackHeights;
+        private final int[][] used;
+        private final int[][] defined;
+        private final int[][][] definedFrom;
+        // false if a variable of the frame cannot be encoded
+        private boolean memoizable = true;
+
+        Builder(ReadMethod method, int[] path, int hash, long frame) {
+            this.method = method;
+            this.path = path;
+            this.hash = hash;
+            this.frame = frame;
+            this.simulated = new boolean[path.length];
+            this.opStackHeights = new int[path.length];
+            this.used = new int[path.length][];
+            this.defined = new int[path.length][];
+            this.definedFrom = new int[path.length][][];
+        }
+
+        public int size() {
+            return this.path.length;
+        }
+
+        public long getFrame() {
+            return this.frame;
+        }
+
+        public void record(int position, DynamicInformation dynInfo, int opStackHeight) {
+            this.opStackHeights[position] = opStackHeight;
+            boolean outside = dynInfo.isCatchBlock() || !dynInfo.getCreatedObjects().isEmpty();
+
+            Collection<? extends Variable> usedVars = dynInfo.getUsedVariables();
+            int[] usedCodes = new int[usedVars.size()];
+            int numUsed = 0;
+            for (Variable var: usedVars) {
+                int code = encode(var, this.frame);
+                if (code != -1)
+                    usedCodes[numUsed++] = code;
+                else if (isFrameVariable(var, this.frame))
+                    this.memoizable = false;
+                else
+                    outside = true;
+            }
+            this.used[position] = numUsed == 0 ? NO_VARIABLES : Arrays.copyOf(usedCodes, numUsed);
+
+            Collection<? extends Variable> definedVars = dynInfo.getDefinedVariables();
+            int[] definedCodes = new int[definedVars.size()];
+            int[][] from = new int[definedVars.size()][];
+            int numDefined = 0;
+            for (Variable var: definedVars) {
+                int code = encode(var, this.frame);
+                if (code == -1) {
+                    if (isFrameVariable(var, this.frame))
+                        this.memoizable = false;
+                    else
+                        outside = true;
+                    continue;
+                }
+                definedCodes[numDefined] = code;
+                Collection<? extends Variable> fromVars = dynInfo.getUsedVariables(var);
+                int[] fromCodes = new int[fromVars.size()];
+                int numFrom = 0;
+                for (Variable fromVar: fromVars) {
+                    int fromCode = encode(fromVar, this.frame);
+                    if (fromCode == -1) {
+                        fromCodes = null;
+                        break;
+                    }
+                    fromCodes[numFrom++] = fromCode;
+                }
+                from[numDefined++] = fromCodes;
+            }
+            this.defined[position] = numDefined == 0 ? NO_VARIABLES : Arrays.copyOf(definedCodes, numDefined);
+            this.definedFrom[position] = Arrays.copyOf(from, numDefined);
+            this.simulated[position] = outside;
+        }
+
+        /**
+         * @return the transfer function, or <code>null</code> if the frame cannot be memoized
+         */
+        public FrameTransfer build() {
+            if (!this.memoizable)
+                return null;
+            int n = this.path.length;
+            // the same traversal as in the DependencesExtractor, on the encoded variables
+            Map<Integer, List<Integer>> lastReaders = new HashMap<Integer, List<Integer>>();
+            int[][] edgeReaders = new int[n][];
+            int[][] edgeVariables = new int[n][];
+            int[][][] edgeUsedVariables = new int[n][][];
+            List<int[]> edges = new ArrayList<int[]>();
+            for (int pos = 0; pos < n; ++pos) {
+                edges.clear();
+                for (int d = 0; d < this.defined[pos].length; ++d) {
+                    List<Integer> readers = lastReaders.remove(this.defined[pos][d]);
+                    if (readers != null)
+                        for (Integer reader: readers)
+                            edges.add(new int[] { reader.intValue(), d });
+                }
+                edgeReaders[pos] = new int[edges.size()];
+                edgeVariables[pos] = new int[edges.size()];
+                edgeUsedVariables[pos] = new int[edges.size()][];
+                for (int i = 0; i < edges.size(); ++i) {
+                    int[] edge = edges.get(i);
+                    edgeReaders[pos][i] = edge[0];
+                    edgeVariables[pos][i] = this.defined[pos][edge[1]];
+                    edgeUsedVariables[pos][i] = this.definedFrom[pos][edge[1]];
+                }
+                for (int code: this.used[pos]) {
+                    List<Integer> readers = lastReaders.get(code);
+                    if (readers == null)
+                        lastReaders.put(code, readers = new ArrayList<Integer>(2));
+                    readers.add(pos);
+                }
+            }
+
+            List<List<Integer>> open = new ArrayList<List<Integer>>(n);
+            for (int pos = 0; pos < n; ++pos)
+                open.add(null);
+            for (Map.Entry<Integer, List<Integer>> e: lastReaders.entrySet()) {
+                for (Integer reader: e.getValue()) {
+                    List<Integer> reads = open.get(reader.intValue());
+                    if (reads == null)
+                        open.set(reader.intValue(), reads = new ArrayList<Integer>(2));
+                    reads.add(e.getKey());
+                }
+            }
+            int[][] openReads = new int[n][];
+            for (int pos = 0; pos < n; ++pos) {
+                List<Integer> reads = open.get(pos);
+                if (reads == null) {
+                    openReads[pos] = NO_VARIABLES;
+                    continue;
+                }
+                openReads[pos] = new int[reads.size()];
+                for (int i = 0; i < reads.size(); ++i)
+                    openReads[pos][i] = reads.get(i).intValue();
+            }
+
+            return new FrameTransfer(this.method, this.path, this.hash, this.simulated, this.opStackHeights,
+                edgeReaders, edgeVariables, edgeUsedVariables, openReads);
+        }
+
+    }
+
+    /**
+     * Hides the local variables and stack entries of one frame.
+     */
+    private static class NonFrameVariableUsage implements DynamicInformation {
+
+        private final DynamicInformation dynInfo;
+        private final long frame;
+
+        public NonFrameVariableUsage(DynamicInformation dynInfo, long frame) {
+            this.dynInfo = dynInfo;
+            this.frame = frame;
+        }
+
+        @Override
+        public Collection<? extends Variable> getUsedVariables() {
+            return filter(this.dynInfo.getUsedVariables());
+        }
+
+        @Override
+        public Collection<? extends Variable> getDefinedVariables() {
+            return filter(this.dynInfo.getDefinedVariables());
+        }
+
+        @Override
+        public Collection<? extends Variable> getUsedVariables(Variable definedVariable) {
+            return this.dynInfo.getUsedVariables(definedVariable);
+        }
+
+        @Override
+        public Map<Long, Collection<? extends Variable>> getCreatedObjects() {
+            return this.dynInfo.getCreatedObjects();
+        }
+
+        @Override
+        public boolean isCatchBlock() {
+            return this.dynInfo.isCatchBlock();
+        }
+
+        private Collection<? extends Variable> filter(Collection<? extends Variable> vars) {
+            boolean hasFrameVariables = false;
+            for (Variable var: vars)
+                hasFrameVariables |= isFrameVariable(var, this.frame);
+            if (!hasFrameVariables)
+                return vars;
+            List<Variable> filtered = new ArrayList<Variable>(vars.size());
+            for (Variable var: vars)
+                if (!isFrameVariable(var, this.frame))
+                    filtered.add(var);
+            return filtered;
+        }
+
+    }
+
+}
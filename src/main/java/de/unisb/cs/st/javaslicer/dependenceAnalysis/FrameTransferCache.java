@@ -0,0 +1,110 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.dependenceAnalysis
+ *    Class:     FrameTransferCache
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/dependenceAnalysis/FrameTransferCache.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.dependenceAnalysis;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.metrics.SlicingMetrics;
+import de.unisb.cs.st.javaslicer.metrics.SlicingMetrics.Counter;
+
+/**
+ * A bounded cache of {@link FrameTransfer}s, keyed by the method and the hash of the
+ * instruction path through the frame. The least recently used transfer function is evicted
+ * when the cache is full.
+ *
+ * Paths with the same hash are compared completely, so a hash collision only costs a miss.
+ */
+class FrameTransferCache {
+
+    private static class Key {
+
+        private final ReadMethod method;
+        private final int[] path;
+        private final int hash;
+
+        public Key(ReadMethod method, int[] path, int hash) {
+            this.method = method;
+            this.path = path;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.method.hashCode() + this.hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Key))
+                return false;
+            Key other = (Key) obj;
+            return this.hash == other.hash && this.method == other.method
+                && Arrays.equals(this.path, other.path);
+        }
+
+    }
+
+    private final Map<Key, FrameTransfer> transfers;
+
+    public FrameTransferCache(final int capacity, final SlicingMetrics metrics) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive");
+        final Counter evictions = metrics == null ? null
+            : metrics.getCounter(DependencesExtractor.FRAME_TRANSFER_COUNTERS, "evictions");
+        this.transfers = new LinkedHashMap<Key, FrameTransfer>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, FrameTransfer> eldest) {
+                if (size() <= capacity)
+                    return false;
+                if (evictions != null)
+                    evictions.increment();
+                return true;
+            }
+
+        };
+    }
+
+    /**
+     * @return the transfer function of the given path, or <code>null</code> if it is not cached
+     */
+    public FrameTransfer get(ReadMethod method, int[] path, int hash) {
+        return this.transfers.get(new Key(method, path, hash));
+    }
+
+    public void put(FrameTransfer transfer) {
+        this.transfers.put(new Key(transfer.getMethod(), transfer.getPath(), transfer.getPathHash()), transfer);
+    }
+
+    public int size() {
+        return this.transfers.size();
+    }
+
+}
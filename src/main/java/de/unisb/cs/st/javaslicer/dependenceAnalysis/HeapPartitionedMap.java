@@ -0,0 +1,226 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.dependenceAnalysis
+ *    Class:     HeapPartitionedMap
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/dependenceAnalysis/HeapPartitionedMap.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.dependenceAnalysis;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.hammacher.util.maps.IntegerMap;
+import de.hammacher.util.maps.LongMap;
+import de.unisb.cs.st.javaslicer.variables.ArrayElement;
+import de.unisb.cs.st.javaslicer.variables.ObjectField;
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+/**
+ * A map from {@link Variable}s to values, in which the object fields and array elements
+ * are partitioned by the object (or array) they belong to. Each object has its own map
+ * from field ids resp. array indexes to values, which only holds the entries that were
+ * actually stored, so a huge array only costs as much as the number of accessed elements.
+ *
+ * All entries of one object can be removed at once by {@link #removeObject}, which
+ * is what happens when the backward traversal reaches the allocation of the object.
+ *
+ * All other variables are stored in a separate map given to the constructor.
+ *
+ * @param <V> the type of the values
+ */
+public class HeapPartitionedMap<V> extends AbstractMap<Variable, V> {
+
+    private final LongMap<IntegerMap<V>> objectFields = new LongMap<IntegerMap<V>>();
+    private final LongMap<IntegerMap<V>> arrayElements = new LongMap<IntegerMap<V>>();
+    private int heapEntries = 0;
+
+    private final Map<Variable, V> otherMap;
+
+    public HeapPartitionedMap(Map<Variable, V> otherMap) {
+        this.otherMap = otherMap;
+    }
+
+    /**
+     * Removes all fields resp. elements of the object or array with the given id.
+     *
+     * @return the removed entries (in no particular order)
+     */
+    public List<Entry<Variable, V>> removeObject(long objectId) {
+        IntegerMap<V> fields = this.objectFields.remove(objectId);
+        IntegerMap<V> elements = this.arrayElements.remove(objectId);
+        if (fields == null && elements == null)
+            return Collections.emptyList();
+        List<Entry<Variable, V>> entries = new ArrayList<Entry<Variable, V>>(
+            (fields == null ? 0 : fields.size()) + (elements == null ? 0 : elements.size()));
+        if (fields != null)
+            addObjectEntries(objectId, fields, false, entries);
+        if (elements != null)
+            addObjectEntries(objectId, elements, true, entries);
+        this.heapEntries -= entries.size();
+        return entries;
+    }
+
+    /**
+     * Removes all fields resp. elements of the object or array with the given id.
+     *
+     * @return the number of removed entries
+     */
+    public int dropObject(long objectId) {
+        IntegerMap<V> fields = this.objectFields.remove(objectId);
+        IntegerMap<V> elements = this.arrayElements.remove(objectId);
+        int dropped = (fields == null ? 0 : fields.size()) + (elements == null ? 0 : elements.size());
+        this.heapEntries -= dropped;
+        return dropped;
+    }
+
+    private void addObjectEntries(long objectId, IntegerMap<V> partition, boolean array,
+            List<Entry<Variable, V>> entries) {
+        for (Entry<Integer, V> e: partition.entrySet()) {
+            int key = e.getKey().intValue();
+            entries.add(new SimpleImmutableEntry<Variable, V>(
+                array ? new ArrayElement(objectId, key) : new ObjectField(objectId, key), e.getValue()));
+        }
+    }
+
+    private IntegerMap<V> getPartition(Object key, boolean create) {
+        LongMap<IntegerMap<V>> partitions;
+        long objectId;
+        if (key instanceof ObjectField) {
+            partitions = this.objectFields;
+            objectId = ((ObjectField) key).getObjectId();
+        } else {
+            partitions = this.arrayElements;
+            objectId = ((ArrayElement) key).getArrayId();
+        }
+        IntegerMap<V> partition = partitions.get(objectId);
+        if (partition == null && create)
+            partitions.put(objectId, partition = new IntegerMap<V>(4));
+        return partition;
+    }
+
+    private static int getPartitionKey(Object key) {
+        return key instanceof ObjectField
+            ? ((ObjectField) key).getFieldId()
+            : ((ArrayElement) key).getArrayIndex();
+    }
+
+    private static boolean isHeapVariable(Object key) {
+        return key instanceof ObjectField || key instanceof ArrayElement;
+    }
+
+    @Override
+    public int size() {
+        return this.heapEntries + this.otherMap.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.heapEntries == 0 && this.otherMap.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (isHeapVariable(key)) {
+            IntegerMap<V> partition = getPartition(key, false);
+            return partition != null && partition.containsKey(getPartitionKey(key));
+        }
+        return this.otherMap.containsKey(key);
+    }
+
+    @Override
+    public V get(Object key) {
+        if (isHeapVariable(key)) {
+            IntegerMap<V> partition = getPartition(key, false);
+            return partition == null ? null : partition.get(getPartitionKey(key));
+        }
+        return this.otherMap.get(key);
+    }
+
+    @Override
+    public V put(Variable key, V value) {
+        if (isHeapVariable(key)) {
+            V old = getPartition(key, true).put(getPartitionKey(key), value);
+            if (old == null)
+                ++this.heapEntries;
+            return old;
+        }
+        return this.otherMap.put(key, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (isHeapVariable(key)) {
+            IntegerMap<V> partition = getPartition(key, false);
+            if (partition == null)
+                return null;
+            V old = partition.remove(getPartitionKey(key));
+            if (old != null) {
+                --this.heapEntries;
+                if (partition.isEmpty()) {
+                    if (key instanceof ObjectField)
+                        this.objectFields.remove(((ObjectField) key).getObjectId());
+                    else
+                        this.arrayElements.remove(((ArrayElement) key).getArrayId());
+                }
+            }
+            return old;
+        }
+        return this.otherMap.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        this.objectFields.clear();
+        this.arrayElements.clear();
+        this.heapEntries = 0;
+        this.otherMap.clear();
+    }
+
+    /**
+     * Returns a snapshot of all entries. The heap entries are recreated, so this
+     * should only be used rarely (e.g. at the end of a traversal).
+     */
+    @Override
+    public Set<Entry<Variable, V>> entrySet() {
+        final List<Entry<Variable, V>> entries = new ArrayList<Entry<Variable, V>>(size());
+        for (Entry<Long, IntegerMap<V>> e: this.objectFields.entrySet())
+            addObjectEntries(e.getKey().longValue(), e.getValue(), false, entries);
+        for (Entry<Long, IntegerMap<V>> e: this.arrayElements.entrySet())
+            addObjectEntries(e.getKey().longValue(), e.getValue(), true, entries);
+        entries.addAll(this.otherMap.entrySet());
+        return new AbstractSet<Entry<Variable, V>>() {
+            @Override
+            public Iterator<Entry<Variable, V>> iterator() {
+                return Collections.unmodifiableList(entries).iterator();
+            }
+
+            @Override
+            public int size() {
+                return entries.size();
+            }
+        };
+    }
+
+}
@@ -0,0 +1,232 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.dependenceAnalysis
+ *    Class:     LastReadersMap
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/dependenceAnalysis/LastReadersMap.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.dependenceAnalysis;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import de.unisb.cs.st.javaslicer.variables.StackEntry;
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+/**
+ * The lastReaders map of the {@link DependencesExtractor}, mapping each variable to the
+ * instruction instances which read its current value.
+ *
+ * Most data dependences go through operand stack entries, and a stack entry is nearly
+ * always read by exactly one instruction instance. So for the stack entries of the frames
+ * on the stack, the reader itself is stored in the frame's stack slot array; a list is
+ * only created once a second reader is added. {@link #addReader} and
+ * {@link #removeReaders} resolve these entries without hashing and without allocating
+ * any objects.
+ *
+ * If reader coalescing is used (see {@link #addReader(Variable, Object, ReaderEquivalence)}),
+ * the readers of variables which are not stored in a stack slot are kept in a
+ * {@link CoalescedReaders} list, where each entry stands for a group of equivalent readers.
+ *
+ * The instance type must not implement {@link List}.
+ *
+ * @param <I> the type of the instruction instances
+ */
+public class LastReadersMap<I> extends FrameStackMap<List<I>> {
+
+    private static class SingleReader<I> extends AbstractList<I> {
+
+        protected I reader;
+
+        public SingleReader() {
+            // nothing
+        }
+
+        @Override
+        public I get(int index) {
+            if (index != 0)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: 1");
+            return this.reader;
+        }
+
+        @Override
+        public int size() {
+            return 1;
+        }
+
+    }
+
+    /**
+     * A list of readers in which each entry is the representative of a number of equivalent
+     * readers of the same instruction.
+     */
+    static class CoalescedReaders<I> extends ArrayList<I> {
+
+        private static final long serialVersionUID = 1L;
+
+        private int[] counts = new int[4];
+
+        public CoalescedReaders() {
+            super(4);
+        }
+
+        @Override
+        public boolean add(I reader) {
+            if (size() == this.counts.length)
+                this.counts = Arrays.copyOf(this.counts, 2*size());
+            this.counts[size()] = 1;
+            return super.add(reader);
+        }
+
+        /**
+         * @return the number of readers represented by the entry at the given index
+         */
+        public int getCount(int index) {
+            return this.counts[index];
+        }
+
+    }
+
+    /**
+     * The number of most recently added representatives which are compared to a new reader.
+     */
+    private static final int COALESCING_WINDOW = 8;
+
+    private final SingleReader<I> singleReader = new SingleReader<I>();
+
+    public LastReadersMap(Map<Variable, List<I>> globalMap) {
+        super(globalMap);
+    }
+
+    /**
+     * Adds a reader of the current value of the given variable.
+     */
+    @SuppressWarnings("unchecked")
+    public void addReader(Variable var, I reader) {
+        if (var instanceof StackEntry) {
+            StackEntry entry = (StackEntry) var;
+            int depth;
+            if (entry.getIndex() >= 0 && (depth = findDepth(entry.getFrame())) != 0) {
+                Object old = setStackSlot(depth, entry.getIndex(), reader);
+                if (old != null) {
+                    List<I> readers;
+                    if (old instanceof List<?>) {
+                        readers = (List<I>) old;
+                    } else {
+                        readers = new ArrayList<I>(4);
+                        readers.add((I) old);
+                    }
+                    readers.add(reader);
+                    setStackSlot(depth, entry.getIndex(), readers);
+                }
+                return;
+            }
+        }
+        List<I> readers = get(var);
+        if (readers == null) {
+            readers = new ArrayList<I>(4);
+            put(var, readers);
+        }
+        readers.add(reader);
+    }
+
+    /**
+     * Adds a reader of the current value of the given variable, coalescing it with an equivalent
+     * reader which has been added recently. The readers of stack entries of the frames on the
+     * stack are never coalesced.
+     *
+     * @return <code>true</code> if the reader has been coalesced with an earlier one
+     */
+    public boolean addReader(Variable var, I reader, ReaderEquivalence<? super I> equivalence) {
+        return addReader(var, reader, equivalence, COALESCING_WINDOW);
+    }
+
+    /**
+     * Adds a reader of a summary variable of the heap abstraction, merging it with any
+     * equivalent reader of this variable. The readers of a summary variable are not removed
+     * when it is written, so the new reader is compared to all representatives, not only
+     * to the recent ones.
+     *
+     * @return <code>true</code> if the reader has been merged with an earlier one
+     */
+    public boolean addSummaryReader(Variable var, I reader, ReaderEquivalence<? super I> equivalence) {
+        return addReader(var, reader, equivalence, Integer.MAX_VALUE);
+    }
+
+    private boolean addReader(Variable var, I reader, ReaderEquivalence<? super I> equivalence, int window) {
+        if (var instanceof StackEntry) {
+            StackEntry entry = (StackEntry) var;
+            if (entry.getIndex() >= 0 && findDepth(entry.getFrame()) != 0) {
+                addReader(var, reader);
+                return false;
+            }
+        }
+        List<I> readers = get(var);
+        if (readers == null) {
+            readers = new CoalescedReaders<I>();
+            put(var, readers);
+        } else if (readers instanceof CoalescedReaders<?>) {
+            CoalescedReaders<I> coalesced = (CoalescedReaders<I>) readers;
+            for (int i = coalesced.size()-1, end = Math.max(0, coalesced.size()-window); i >= end; --i) {
+                if (equivalence.isEquivalentReader(reader, coalesced.get(i))) {
+                    ++coalesced.counts[i];
+                    return true;
+                }
+            }
+        }
+        readers.add(reader);
+        return false;
+    }
+
+    /**
+     * Removes all readers of the given variable.
+     *
+     * If the variable had exactly one reader, the returned list is a view which is
+     * reused by the next call to this method.
+     *
+     * @return the readers of the given variable, or <code>null</code> if there are none
+     */
+    @SuppressWarnings("unchecked")
+    public List<I> removeReaders(Variable var) {
+        if (var instanceof StackEntry) {
+            StackEntry entry = (StackEntry) var;
+            int depth;
+            if (entry.getIndex() >= 0 && (depth = findDepth(entry.getFrame())) != 0) {
+                Object content = removeStackSlot(depth, entry.getIndex());
+                if (content == null || content instanceof List<?>)
+                    return (List<I>) content;
+                this.singleReader.reader = (I) content;
+                return this.singleReader;
+            }
+        }
+        return remove(var);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected List<I> fromStackSlot(Object content) {
+        if (content == null || content instanceof List<?>)
+            return (List<I>) content;
+        return Collections.singletonList((I) content);
+    }
+
+}
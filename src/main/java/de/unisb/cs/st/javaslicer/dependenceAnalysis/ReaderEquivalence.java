@@ -0,0 +1,57 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.dependenceAnalysis
+ *    Class:     ReaderEquivalence
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/dependenceAnalysis/ReaderEquivalence.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.dependenceAnalysis;
+
+/**
+ * Decides which readers of a variable may be coalesced by the {@link DependencesExtractor}
+ * (see {@link DependencesExtractor#setReaderCoalescing(ReaderEquivalence)}).
+ *
+ * Two readers are equivalent if all registered visitors handle a data dependence of one of
+ * them exactly like a data dependence of the other one. The coalesced readers are then
+ * reported by one call to
+ * {@link CoalescingDependencesVisitor#visitDataDependences(Object, int, Object, java.util.Collection, de.unisb.cs.st.javaslicer.variables.Variable, DataDependenceType)}
+ * with the first reader as representative.
+ *
+ * @param <InstanceType> the type of the instruction instances
+ */
+public interface ReaderEquivalence<InstanceType> {
+
+    /**
+     * The name of the counter group of the coalesced readers in the
+     * {@link de.unisb.cs.st.javaslicer.metrics.SlicingMetrics}.
+     */
+    String COUNTERS = "reader coalescing";
+
+    /**
+     * Gets called when <code>reader</code> is added to the readers of a variable which already
+     * has the reader <code>representative</code> of the same instruction.
+     *
+     * The result must not change when the visitors process later instances, i.e. it may only
+     * depend on information which is final once the reader has been visited.
+     *
+     * @return whether the data dependences of <code>reader</code> may be reported as data
+     *         dependences of <code>representative</code>
+     */
+    boolean isEquivalentReader(InstanceType reader, InstanceType representative);
+
+}
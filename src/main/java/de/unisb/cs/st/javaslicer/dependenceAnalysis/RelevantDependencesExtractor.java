@@ -0,0 +1,498 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.dependenceAnalysis
+ *    Class:     RelevantDependencesExtractor
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/dependenceAnalysis/RelevantDependencesExtractor.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.dependenceAnalysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.AbstractInstructionInstanceFactory;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstanceFactory;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionType;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.common.progress.ProgressMonitor;
+import de.unisb.cs.st.javaslicer.controlflowanalysis.MayModifyAnalysis;
+import de.unisb.cs.st.javaslicer.controlflowanalysis.MayModifySummary;
+import de.unisb.cs.st.javaslicer.controlflowanalysis.ModRefSummary;
+import de.unisb.cs.st.javaslicer.metrics.SlicingMetrics;
+import de.unisb.cs.st.javaslicer.metrics.SlicingMetrics.Counter;
+import de.unisb.cs.st.javaslicer.traceResult.ThreadId;
+import de.unisb.cs.st.javaslicer.traceSource.TraceSource;
+import de.unisb.cs.st.javaslicer.variables.ArrayElement;
+import de.unisb.cs.st.javaslicer.variables.LocalVariable;
+import de.unisb.cs.st.javaslicer.variables.ObjectField;
+import de.unisb.cs.st.javaslicer.variables.StackEntry;
+import de.unisb.cs.st.javaslicer.variables.StaticField;
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+/**
+ * Drives {@link DependencesVisitor2}s for relevant slicing.
+ *
+ * The dynamic dependences are extracted by a {@link DependencesExtractor}, whose callbacks are
+ * passed on to the visitors. Additionally, for each instance of a conditional branch which is not
+ * on the slice of a visitor, the visitor is asked whether the branch potentially influences the
+ * slice (see {@link DependencesVisitor2} for the protocol).
+ * This is the case if a different outcome of the branch might have written a variable which is
+ * read later by an instance on the slice, and which is not written between the branch and the read.
+ *
+ * The variables which a branch may write are taken from cached per-method {@link MayModifySummary
+ * summaries}. For each visitor, the pending reads of the instances on its slice are counted per
+ * local variable index, field id and array type, so that most branch instances are dismissed by
+ * testing a few bits, without looking at the readers.
+ *
+ * @param <InstanceType> the type of the instruction instances
+ */
+public class RelevantDependencesExtractor<InstanceType extends InstructionInstance> {
+
+    /**
+     * The name of the counter group of the potential dependences in the {@link SlicingMetrics}.
+     */
+    public static final String COUNTERS = "potential dependences";
+
+    private final DependencesExtractor<InstanceType> extractor;
+    private final MayModifyAnalysis mayModifyAnalysis;
+    private final List<VisitorBridge> bridges = new ArrayList<VisitorBridge>(1);
+    private SlicingMetrics metrics = null;
+    private Counter potentialDependenceQueries = null;
+    private Counter potentialDependences = null;
+
+    /**
+     * Constructs a {@link RelevantDependencesExtractor} for the given trace source, using the
+     * default {@link AbstractInstructionInstanceFactory}.
+     */
+    public static RelevantDependencesExtractor<InstructionInstance> forTrace(TraceSource trace) {
+        return new RelevantDependencesExtractor<InstructionInstance>(trace, new AbstractInstructionInstanceFactory());
+    }
+
+    /**
+     * @return a new {@link RelevantDependencesExtractor} for the given trace source, using the given instance factory
+     */
+    public static <InstanceType extends InstructionInstance> RelevantDependencesExtractor<InstanceType> forTrace(
+            TraceSource trace, InstructionInstanceFactory<? extends InstanceType> instanceFactory) {
+        return new RelevantDependencesExtractor<InstanceType>(trace, instanceFactory);
+    }
+
+    private RelevantDependencesExtractor(TraceSource trace, InstructionInstanceFactory<? extends InstanceType> instanceFactory) {
+        this.extractor = DependencesExtractor.forTrace(trace, instanceFactory);
+        this.mayModifyAnalysis = new MayModifyAnalysis(trace.getReadClasses());
+    }
+
+    /**
+     * Registers a {@link DependencesVisitor2}.
+     * This method should only be called before {@link #processBackwardTrace(ThreadId)}.
+     *
+     * The read after write dependences, control dependences, instruction executions, pending
+     * reads and method entries and leaves are always reported, since they are needed to find
+     * the potential dependences.
+     *
+     * @param visitor the visitor to register
+     * @param capabilities additional capabilities of the visitor
+     */
+    public void registerVisitor(DependencesVisitor2<InstanceType> visitor, VisitorCapability... capabilities) {
+        VisitorBridge bridge = new VisitorBridge(visitor);
+        this.bridges.add(bridge);
+        this.extractor.registerVisitor(bridge, VisitorCapability.DATA_DEPENDENCES_READ_AFTER_WRITE,
+            VisitorCapability.CONTROL_DEPENDENCES, VisitorCapability.INSTRUCTION_EXECUTIONS,
+            VisitorCapability.PENDING_DATA_DEPENDENCES_READ_AFTER_WRITE, VisitorCapability.METHOD_ENTRY_LEAVE);
+        if (capabilities.length > 0)
+            this.extractor.registerVisitor(bridge, capabilities);
+    }
+
+    public void processBackwardTrace(ThreadId threadId) throws InterruptedException {
+        processBackwardTrace(threadId, false);
+    }
+
+    /**
+     * Goes backwards through the execution trace of the given thread and reports the dependences
+     * and the potential dependences to the registered visitors.
+     *
+     * @param threadId the thread whose trace is traversed
+     * @param multithreaded use an extra thread to read the trace (see
+     *                      {@link DependencesExtractor#processBackwardTrace(ThreadId, boolean)})
+     */
+    public void processBackwardTrace(ThreadId threadId, boolean multithreaded) throws InterruptedException {
+        for (VisitorBridge bridge: this.bridges)
+            bridge.reset();
+        this.extractor.processBackwardTrace(threadId, multithreaded);
+    }
+
+    public void addProgressMonitor(ProgressMonitor progressMonitor) {
+        this.extractor.addProgressMonitor(progressMonitor);
+    }
+
+    /**
+     * Sets the metrics object that is updated during the traversal (<code>null</code> to disable).
+     */
+    public void setMetrics(SlicingMetrics metrics) {
+        this.metrics = metrics;
+        this.potentialDependenceQueries = metrics == null ? null : metrics.getCounter(COUNTERS, "queries");
+        this.potentialDependences = metrics == null ? null : metrics.getCounter(COUNTERS, "branches");
+        this.extractor.setMetrics(metrics);
+        this.mayModifyAnalysis.setMetrics(metrics);
+    }
+
+    public SlicingMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Stops the traversal after the current instance (see {@link DependencesExtractor#stopTraversal()}).
+     */
+    public void stopTraversal() {
+        this.extractor.stopTraversal();
+    }
+
+    /**
+     * Passes the callbacks of the {@link DependencesExtractor} on to one {@link DependencesVisitor2},
+     * keeping track of the pending reads of the instances on its slice.
+     */
+    private class VisitorBridge extends DependencesVisitorAdapter<InstanceType> {
+
+        private final DependencesVisitor2<InstanceType> visitor;
+
+        // the instance which is currently processed, whether it is on the slice,
+        // its frame (if known), and the variables it reads
+        private InstanceType current;
+        private boolean currentOnSlice;
+        private long currentFrame;
+        private final List<Variable> currentReads = new ArrayList<Variable>(4);
+
+        // the last processed instance of each stack depth
+        private Object[] lastInstances;
+
+        // the pending reads of the instances on the slice: local variables per stack depth,
+        // and the heap locations
+        private Map<Variable, List<InstanceType>>[] localReaders;
+        private final Map<Variable, List<InstanceType>> heapReaders = new HashMap<Variable, List<InstanceType>>();
+        // the number of these reads per field id and array type (reads of arrays of unknown type
+        // are counted separately)
+        private int[] liveFields;
+        private final int[] liveArrayTypes = new int[ModRefSummary.NUM_ARRAY_TYPES];
+        private int liveUnknownArrays;
+
+        public VisitorBridge(DependencesVisitor2<InstanceType> visitor) {
+            this.visitor = visitor;
+            reset();
+        }
+
+        @SuppressWarnings("unchecked")
+        public void reset() {
+            this.current = null;
+            this.currentOnSlice = false;
+            this.currentFrame = -1;
+            this.currentReads.clear();
+            this.lastInstances = new Object[8];
+            this.localReaders = (Map<Variable, List<InstanceType>>[]) new Map<?, ?>[8];
+            this.heapReaders.clear();
+            this.liveFields = new int[16];
+            Arrays.fill(this.liveArrayTypes, 0);
+            this.liveUnknownArrays = 0;
+        }
+
+        @Override
+        public void visitInstructionExecution(InstanceType instance) throws InterruptedException {
+            finishInstance();
+            this.current = instance;
+            this.currentFrame = -1;
+            this.currentOnSlice = this.visitor.visitInstructionExecution(instance);
+            if (instance.getInstruction().getType() == InstructionType.METHODINVOCATION)
+                this.currentOnSlice |= this.visitor.visitMethodInvoke(instance);
+        }
+
+        @Override
+        public void visitControlDependence(InstanceType from, InstanceType to) throws InterruptedException {
+            if (this.visitor.visitControlDependence(from, to) && to == this.current)
+                this.currentOnSlice = true;
+        }
+
+        @Override
+        public void visitDataDependence(InstanceType from, InstanceType to, Collection<? extends Variable> fromVars,
+                Variable toVar, DataDependenceType type) throws InterruptedException {
+            if (this.visitor.visitDataDependence(from, to, fromVars, toVar, type) && to == this.current)
+                this.currentOnSlice = true;
+        }
+
+        @Override
+        public void visitPendingDataDependence(InstanceType from, Variable var, DataDependenceType type)
+                throws InterruptedException {
+            this.visitor.visitPendingDataDependence(from, var, type);
+            if (type != DataDependenceType.READ_AFTER_WRITE || from != this.current)
+                return;
+            // the reads of an instance are reported after all its dependences
+            this.currentReads.add(var);
+            if (this.currentFrame == -1) {
+                if (var instanceof StackEntry)
+                    this.currentFrame = ((StackEntry) var).getFrame();
+                else if (var instanceof LocalVariable)
+                    this.currentFrame = ((LocalVariable) var).getFrame();
+            }
+            if (this.currentOnSlice)
+                addLiveRead(from, var);
+        }
+
+        @Override
+        public void discardPendingDataDependence(InstanceType from, Variable var, DataDependenceType type)
+                throws InterruptedException {
+            this.visitor.discardPendingDataDependence(from, var, type);
+            if (type == DataDependenceType.READ_AFTER_WRITE)
+                removeLiveRead(from, var);
+        }
+
+        @Override
+        public void visitPendingControlDependence(InstanceType from) throws InterruptedException {
+            this.visitor.visitPendingControlDependence(from);
+        }
+
+        @Override
+        public void visitMethodEntry(ReadMethod method, int stackDepth) throws InterruptedException {
+            finishInstance();
+            if (stackDepth < this.lastInstances.length)
+                this.lastInstances[stackDepth] = null;
+            if (stackDepth < this.localReaders.length)
+                this.localReaders[stackDepth] = null;
+            this.visitor.visitMethodEntry(method, stackDepth);
+        }
+
+        @Override
+        public void visitMethodLeave(ReadMethod method, int stackDepth) throws InterruptedException {
+            finishInstance();
+            if (stackDepth < this.lastInstances.length)
+                this.lastInstances[stackDepth] = null;
+            this.visitor.visitMethodLeave(method, stackDepth);
+        }
+
+        @Override
+        public void visitUntracedMethodCall(InstanceType instrInstance) throws InterruptedException {
+            this.visitor.visitUntracedMethodCall(instrInstance);
+        }
+
+        @Override
+        public void visitObjectCreation(long objectId, InstanceType instrInstance) throws InterruptedException {
+            this.visitor.visitObjectCreation(objectId, instrInstance);
+        }
+
+        @Override
+        public void visitEnd(long numInstances) throws InterruptedException {
+            finishInstance();
+            this.visitor.visitEnd(numInstances);
+        }
+
+        @Override
+        public void interrupted() throws InterruptedException {
+            this.visitor.interrupted();
+        }
+
+        // called when all callbacks of the current instance have been made
+        private void finishInstance() throws InterruptedException {
+            InstanceType instance = this.current;
+            if (instance == null)
+                return;
+            this.current = null;
+            int stackDepth = instance.getStackDepth();
+            if (stackDepth >= this.lastInstances.length)
+                this.lastInstances = Arrays.copyOf(this.lastInstances, Math.max(2*this.lastInstances.length, stackDepth+1));
+            @SuppressWarnings("unchecked")
+            InstanceType successor = (InstanceType) this.lastInstances[stackDepth];
+            this.lastInstances[stackDepth] = instance;
+            if (!this.currentOnSlice && MayModifyAnalysis.isConditionalBranch(instance.getInstruction())) {
+                MayModifySummary summary = RelevantDependencesExtractor.this.mayModifyAnalysis.getSummary(instance.getInstruction());
+                if (summary != null)
+                    checkPotentialDependence(instance, successor, summary);
+            }
+            this.currentReads.clear();
+        }
+
+        private void checkPotentialDependence(InstanceType branch, InstanceType successor, MayModifySummary summary)
+                throws InterruptedException {
+            Counter queries = RelevantDependencesExtractor.this.potentialDependenceQueries;
+            long frame = this.currentFrame;
+            Map<Variable, List<InstanceType>> readers = null;
+            boolean potential = this.visitor.visitCanModifyInteresting(branch, frame, successor, summary);
+            if (!potential && mayModifyLiveReads(branch.getStackDepth(), summary)) {
+                readers = getModifiedReaders(branch, frame, summary);
+                if (!readers.isEmpty()) {
+                    if (queries != null)
+                        queries.increment();
+                    potential = this.visitor.visitCanModify(branch, frame, successor, readers.entrySet(), summary);
+                }
+            }
+            if (!potential || !this.visitor.visitSpecialAddBranch(branch))
+                return;
+            Counter potentialDependences0 = RelevantDependencesExtractor.this.potentialDependences;
+            if (potentialDependences0 != null)
+                potentialDependences0.increment();
+            // the branch is on the slice now, so its own reads are live
+            for (Variable var: this.currentReads)
+                addLiveRead(branch, var);
+            if (readers != null)
+                for (List<InstanceType> varReaders: readers.values())
+                    for (InstanceType reader: varReaders)
+                        this.visitor.visitCanReachEvent(branch, reader);
+        }
+
+        // whether the branch may write any variable with a pending read on the slice (by the counts only)
+        private boolean mayModifyLiveReads(int stackDepth, MayModifySummary summary) {
+            if (stackDepth < this.localReaders.length && this.localReaders[stackDepth] != null
+                    && !summary.getWrittenLocalVariables().isEmpty())
+                return true;
+            if (this.heapReaders.isEmpty() || !summary.mayWriteHeap())
+                return false;
+            ModRefSummary heapEffects = summary.getHeapEffects();
+            if (heapEffects.callsUntracedMethods())
+                return true;
+            int[] liveFields0 = this.liveFields;
+            BitSet writtenFields = heapEffects.getWrittenFields();
+            for (int fieldId = writtenFields.nextSetBit(0); fieldId >= 0 && fieldId < liveFields0.length;
+                    fieldId = writtenFields.nextSetBit(fieldId+1))
+                if (liveFields0[fieldId] > 0)
+                    return true;
+            int arrayTypes = heapEffects.getWrittenArrayTypes();
+            if (arrayTypes != 0 && this.liveUnknownArrays > 0)
+                return true;
+            for (int type = 0; type < ModRefSummary.NUM_ARRAY_TYPES; ++type)
+                if ((arrayTypes & (1 << type)) != 0 && this.liveArrayTypes[type] > 0)
+                    return true;
+            return false;
+        }
+
+        private Map<Variable, List<InstanceType>> getModifiedReaders(InstanceType branch, long frame,
+                MayModifySummary summary) throws InterruptedException {
+            Map<Variable, List<InstanceType>> readers = new LinkedHashMap<Variable, List<InstanceType>>();
+            int stackDepth = branch.getStackDepth();
+            if (stackDepth < this.localReaders.length && this.localReaders[stackDepth] != null) {
+                for (Entry<Variable, List<InstanceType>> e: this.localReaders[stackDepth].entrySet()) {
+                    LocalVariable var = (LocalVariable) e.getKey();
+                    if ((frame == -1 || var.getFrame() == frame) && summary.mayWriteLocalVariable(var.getVarIndex()))
+                        addModifiedReaders(branch, summary, var, e.getValue(), readers);
+                }
+            }
+            if (summary.mayWriteHeap()) {
+                for (Entry<Variable, List<InstanceType>> e: this.heapReaders.entrySet()) {
+                    Variable var = e.getKey();
+                    List<InstanceType> varReaders = e.getValue();
+                    int arrayType = var instanceof ArrayElement
+                        ? ModRefSummary.getArrayType(varReaders.get(0).getInstruction()) : -1;
+                    if (summary.mayWrite(var, arrayType))
+                        addModifiedReaders(branch, summary, var, varReaders, readers);
+                }
+            }
+            return readers;
+        }
+
+        private void addModifiedReaders(InstanceType branch, MayModifySummary summary, Variable var,
+                List<InstanceType> varReaders, Map<Variable, List<InstanceType>> readers) throws InterruptedException {
+            List<InstanceType> modifiedReaders = varReaders;
+            for (int i = 0; i < varReaders.size(); ++i) {
+                InstanceType reader = varReaders.get(i);
+                // a reader which a different outcome of the branch would have bypassed
+                boolean bypassed = reader.getStackDepth() == branch.getStackDepth()
+                    && summary.controls(reader.getInstruction()) && !this.visitor.CanByPassing(reader, branch);
+                if (bypassed && modifiedReaders == varReaders)
+                    modifiedReaders = new ArrayList<InstanceType>(varReaders.subList(0, i));
+                else if (!bypassed && modifiedReaders != varReaders)
+                    modifiedReaders.add(reader);
+            }
+            if (!modifiedReaders.isEmpty())
+                readers.put(var, modifiedReaders);
+        }
+
+        private void addLiveRead(InstanceType reader, Variable var) {
+            List<InstanceType> varReaders;
+            if (var instanceof LocalVariable) {
+                int stackDepth = reader.getStackDepth();
+                if (stackDepth >= this.localReaders.length)
+                    this.localReaders = Arrays.copyOf(this.localReaders, Math.max(2*this.localReaders.length, stackDepth+1));
+                Map<Variable, List<InstanceType>> frameReaders = this.localReaders[stackDepth];
+                if (frameReaders == null)
+                    this.localReaders[stackDepth] = frameReaders = new HashMap<Variable, List<InstanceType>>(4);
+                varReaders = frameReaders.get(var);
+                if (varReaders == null)
+                    frameReaders.put(var, varReaders = new ArrayList<InstanceType>(2));
+            } else if (var instanceof ObjectField || var instanceof StaticField || var instanceof ArrayElement) {
+                varReaders = this.heapReaders.get(var);
+                if (varReaders == null)
+                    this.heapReaders.put(var, varReaders = new ArrayList<InstanceType>(2));
+                updateHeapCounts(reader, var, 1);
+            } else {
+                // stack entries are never written by the instructions controlled by a branch
+                return;
+            }
+            varReaders.add(reader);
+        }
+
+        private void removeLiveRead(InstanceType reader, Variable var) {
+            if (var instanceof LocalVariable) {
+                int stackDepth = reader.getStackDepth();
+                if (stackDepth >= this.localReaders.length || this.localReaders[stackDepth] == null)
+                    return;
+                Map<Variable, List<InstanceType>> frameReaders = this.localReaders[stackDepth];
+                if (removeReader(frameReaders, var, reader) && frameReaders.isEmpty())
+                    this.localReaders[stackDepth] = null;
+            } else if (var instanceof ObjectField || var instanceof StaticField || var instanceof ArrayElement) {
+                if (removeReader(this.heapReaders, var, reader))
+                    updateHeapCounts(reader, var, -1);
+            }
+        }
+
+        private boolean removeReader(Map<Variable, List<InstanceType>> readers, Variable var, InstanceType reader) {
+            List<InstanceType> varReaders = readers.get(var);
+            if (varReaders == null)
+                return false;
+            // readers are usually discarded in the order in which they were added
+            for (int i = varReaders.size()-1; i >= 0; --i) {
+                if (varReaders.get(i) == reader) {
+                    varReaders.remove(i);
+                    if (varReaders.isEmpty())
+                        readers.remove(var);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void updateHeapCounts(InstanceType reader, Variable var, int delta) {
+            int fieldId = var instanceof ObjectField ? ((ObjectField) var).getFieldId()
+                : var instanceof StaticField ? ((StaticField) var).getFieldId() : -1;
+            if (fieldId >= 0) {
+                if (fieldId >= this.liveFields.length)
+                    this.liveFields = Arrays.copyOf(this.liveFields, Math.max(2*this.liveFields.length, fieldId+1));
+                this.liveFields[fieldId] += delta;
+                return;
+            }
+            int arrayType = ModRefSummary.getArrayType(reader.getInstruction());
+            if (arrayType == -1)
+                this.liveUnknownArrays += delta;
+            else
+                this.liveArrayTypes[arrayType] += delta;
+        }
+
+    }
+
+}
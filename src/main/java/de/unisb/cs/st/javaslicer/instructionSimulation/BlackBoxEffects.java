@@ -0,0 +1,142 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.instructionSimulation
+ *    Class:     BlackBoxEffects
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/instructionSimulation/BlackBoxEffects.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.instructionSimulation;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.ArrayInstruction.ArrayInstrInstanceInfo;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.FieldInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.FieldInstruction.FieldInstrInstanceInfo;
+import de.unisb.cs.st.javaslicer.variables.FieldTable;
+import de.unisb.cs.st.javaslicer.variables.StaticField;
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+/**
+ * Collects the heap locations accessed by the instances of a frame which is not simulated
+ * (a black box), including all frames called from it.
+ *
+ * The instances have to be added in backward order. A read of a location which has been
+ * written before in the same frame is not visible to the caller, so only the reads of
+ * locations which are not written before are kept.
+ */
+public class BlackBoxEffects {
+
+    private final Simulator<?> simulator;
+    private final Set<Variable> readVariables = new HashSet<Variable>();
+    private final Set<Variable> writtenVariables = new HashSet<Variable>();
+    private long instances = 0;
+
+    /**
+     * @param simulator the simulator of the calling frames, which determines the representation
+     *                  of the heap locations (see {@link Simulator#setHeapAbstraction})
+     */
+    public BlackBoxEffects(Simulator<?> simulator) {
+        this.simulator = simulator;
+    }
+
+    public void addInstance(InstructionInstance instance) {
+        ++this.instances;
+        switch (instance.getInstruction().getType()) {
+        case FIELD:
+            FieldInstruction fieldInstr = (FieldInstruction) instance.getInstruction();
+            FieldInstrInstanceInfo fieldInfo = (FieldInstrInstanceInfo) instance.getAdditionalInfo();
+            switch (fieldInstr.getOpcode()) {
+            case GETFIELD:
+                // the object id is 0 if the instruction threw a NullPointerException
+                if (fieldInfo.getObjectId() != 0)
+                    this.readVariables.add(this.simulator.getObjectField(fieldInfo.getObjectId(),
+                        FieldTable.getInstanceFieldId(fieldInstr.getFieldName())));
+                break;
+            case PUTFIELD:
+                if (fieldInfo.getObjectId() != 0)
+                    write(this.simulator.getObjectField(fieldInfo.getObjectId(),
+                        FieldTable.getInstanceFieldId(fieldInstr.getFieldName())));
+                break;
+            case GETSTATIC:
+                this.readVariables.add(new StaticField(fieldInstr.getOwnerInternalClassName(), fieldInstr.getFieldName()));
+                break;
+            case PUTSTATIC:
+                write(new StaticField(fieldInstr.getOwnerInternalClassName(), fieldInstr.getFieldName()));
+                break;
+            default:
+                assert false;
+            }
+            break;
+        case ARRAY:
+            ArrayInstrInstanceInfo arrayInfo = (ArrayInstrInstanceInfo) instance.getAdditionalInfo();
+            Variable element = this.simulator.getArrayElement(arrayInfo.getArrayId(), arrayInfo.getArrayIndex(),
+                instance.getInstruction().getOpcode());
+            if (instance.getInstruction().getOpcode() < IASTORE)
+                this.readVariables.add(element);
+            else
+                write(element);
+            break;
+        default:
+            break;
+        }
+    }
+
+    private void write(Variable var) {
+        if (!this.simulator.getHeapAbstraction().isSummary(var))
+            this.readVariables.remove(var);
+        this.writtenVariables.add(var);
+    }
+
+    /**
+     * @return the heap locations which may have been read by the frame before writing them
+     */
+    public Set<Variable> getReadVariables() {
+        return this.readVariables;
+    }
+
+    /**
+     * @return the heap locations which have been written by the frame
+     */
+    public Set<Variable> getWrittenVariables() {
+        return this.writtenVariables;
+    }
+
+    /**
+     * @return the number of instances which have been added
+     */
+    public long getInstances() {
+        return this.instances;
+    }
+
+    /**
+     * Returns the dynamic information of the given instance of the calling frame, extended by
+     * the summary of the frame: the written heap locations are defined, and everything defined
+     * depends on the variables used by the instance (i.e. the receiver and the parameters of
+     * an invocation) and on the heap locations read by the frame.
+     */
+    public DynamicInformation apply(DynamicInformation dynInfo) {
+        if (this.readVariables.isEmpty() && this.writtenVariables.isEmpty())
+            return dynInfo;
+        return new BlackBoxVariableUsages(dynInfo, this.readVariables, this.writtenVariables);
+    }
+
+}
@@ -0,0 +1,103 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.instructionSimulation
+ *    Class:     BlackBoxVariableUsages
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/instructionSimulation/BlackBoxVariableUsages.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.instructionSimulation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+/**
+ * The dynamic information of an instance which called a black box, extended by the heap
+ * locations read and written by the black box (see {@link BlackBoxEffects}).
+ */
+public class BlackBoxVariableUsages implements DynamicInformation {
+
+    private final DynamicInformation dynInfo;
+    private final Set<Variable> readVariables;
+    private final Set<Variable> writtenVariables;
+    private Collection<Variable> usedVariables;
+    private Collection<Variable> definedVariables;
+
+    public BlackBoxVariableUsages(DynamicInformation dynInfo, Set<Variable> readVariables,
+            Set<Variable> writtenVariables) {
+        this.dynInfo = dynInfo;
+        this.readVariables = readVariables;
+        this.writtenVariables = writtenVariables;
+    }
+
+    @Override
+    public Collection<? extends Variable> getUsedVariables() {
+        if (this.usedVariables == null)
+            this.usedVariables = union(this.dynInfo.getUsedVariables(), this.readVariables);
+        return this.usedVariables;
+    }
+
+    @Override
+    public Collection<? extends Variable> getDefinedVariables() {
+        if (this.definedVariables == null) {
+            List<Variable> defined = new ArrayList<Variable>(this.writtenVariables);
+            for (Variable var: this.dynInfo.getDefinedVariables())
+                if (!this.writtenVariables.contains(var))
+                    defined.add(var);
+            this.definedVariables = defined;
+        }
+        return this.definedVariables;
+    }
+
+    @Override
+    public Collection<? extends Variable> getUsedVariables(Variable definedVariable) {
+        if (this.dynInfo.getDefinedVariables().contains(definedVariable))
+            return union(this.dynInfo.getUsedVariables(definedVariable), this.readVariables);
+        return getUsedVariables();
+    }
+
+    @Override
+    public Map<Long, Collection<? extends Variable>> getCreatedObjects() {
+        return this.dynInfo.getCreatedObjects();
+    }
+
+    @Override
+    public boolean isCatchBlock() {
+        return this.dynInfo.isCatchBlock();
+    }
+
+    private static Collection<Variable> union(Collection<? extends Variable> vars, Set<Variable> moreVars) {
+        List<Variable> union = new ArrayList<Variable>(vars.size() + moreVars.size());
+        union.addAll(vars);
+        for (Variable var: moreVars)
+            if (!vars.contains(var))
+                union.add(var);
+        return union;
+    }
+
+    @Override
+    public String toString() {
+        return "used:    "+getUsedVariables()+System.getProperty("line.separator")
+            +"defined: "+getDefinedVariables();
+    }
+
+}
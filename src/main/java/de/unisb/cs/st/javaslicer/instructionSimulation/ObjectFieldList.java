@@ -31,23 +31,26 @@ import de.unisb.cs.st.javaslicer.variables.ObjectField;
 public class ObjectFieldList extends AbstractList<ObjectField> {
 
     private final long objectId;
-    private final String[] fieldNames;
+    private final int[] fieldIds;
 
-    public ObjectFieldList(long objId, String[] fieldNames) {
+    /**
+     * @param fieldIds the ids of all fields of the object (see {@link de.unisb.cs.st.javaslicer.variables.FieldTable})
+     */
+    public ObjectFieldList(long objId, int[] fieldIds) {
         this.objectId = objId;
-        this.fieldNames = fieldNames;
+        this.fieldIds = fieldIds;
     }
 
     @Override
     public ObjectField get(int index) {
-        if (index < 0 || index >= this.fieldNames.length)
+        if (index < 0 || index >= this.fieldIds.length)
             throw new NoSuchElementException();
-        return new ObjectField(this.objectId, this.fieldNames[index]);
+        return new ObjectField(this.objectId, this.fieldIds[index]);
     }
 
     @Override
     public int size() {
-        return this.fieldNames.length;
+        return this.fieldIds.length;
     }
 
 }
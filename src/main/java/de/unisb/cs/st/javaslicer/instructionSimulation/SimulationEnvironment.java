@@ -73,7 +73,7 @@ public class SimulationEnvironment {
 			@Override
 			// hasnext判定依据的是posStackEntry, 而posStackEntry的改变依赖与next函数
 			public boolean hasNext() {
-				return this.posStackEntries == this.stackEntries.length;
+				return this.posStackEntries != this.stackEntries.length;
 			}
 
 			// pos返回的是数组中下一个非空的位置！
@@ -27,20 +27,25 @@ import static org.objectweb.asm.Opcodes.*;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
 import org.objectweb.asm.Opcodes;
 
 import de.hammacher.util.IntHolder;
+import de.hammacher.util.maps.IntegerMap;
 import de.hammacher.util.maps.LongMap;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.AbstractInstructionInstanceFactory;
 import de.unisb.cs.st.javaslicer.common.classRepresentation.Field;
 import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
 import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
 import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionType;
 import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadClass;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
 import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.ArrayInstruction.ArrayInstrInstanceInfo;
 import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.FieldInstruction;
 import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.FieldInstruction.FieldInstrInstanceInfo;
@@ -55,8 +60,18 @@ import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.NewArra
 import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.TypeInstruction;
 import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.TypeInstruction.TypeInstrInstanceInfo;
 import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.VarInstruction;
+import de.unisb.cs.st.javaslicer.controlflowanalysis.StackHeightAnalysis;
+import de.unisb.cs.st.javaslicer.metrics.Diagnostics;
+import de.unisb.cs.st.javaslicer.metrics.Diagnostics.Category;
+import de.unisb.cs.st.javaslicer.metrics.Diagnostics.Level;
+import de.unisb.cs.st.javaslicer.metrics.SlicingMetrics;
+import de.unisb.cs.st.javaslicer.traceResult.ThreadId;
 import de.unisb.cs.st.javaslicer.traceResult.TraceResult;
+import de.unisb.cs.st.javaslicer.traceSource.TraceResultSource;
+import de.unisb.cs.st.javaslicer.traceSource.TraceSource;
 import de.unisb.cs.st.javaslicer.variables.ArrayElement;
+import de.unisb.cs.st.javaslicer.variables.FieldTable;
+import de.unisb.cs.st.javaslicer.variables.HeapAbstraction;
 import de.unisb.cs.st.javaslicer.variables.LocalVariable;
 import de.unisb.cs.st.javaslicer.variables.ObjectField;
 import de.unisb.cs.st.javaslicer.variables.StackEntry;
@@ -65,23 +80,121 @@ import de.unisb.cs.st.javaslicer.variables.Variable;
 
 public class Simulator<InstanceType extends InstructionInstance> {
 
-    // list of all fields corresponding to a class
-    private final HashMap<String, String[]> fieldsCache = new HashMap<String, String[]>();
+    // stack heights after each instruction of a method, completing normally (at 2*i) or by an
+    // exception (at 2*i+1), where i is the index relative to the first instruction of the method,
+    // as computed by the StackHeightAnalysis; keyed by the index of the first instruction
+    private final IntegerMap<int[]> exitHeights = new IntegerMap<int[]>();
+    // the method whose exit heights were looked up last, and these heights
+    private ReadMethod exitHeightsMethod = null;
+    private int[] methodExitHeights = null;
+    private boolean staticStackHeights = true;
+
+    // list of the ids of all fields corresponding to a class
+    private final HashMap<String, int[]> fieldLayouts = new HashMap<String, int[]>();
+
+    // field layouts of NEW instructions and field ids of field instructions, indexed by the instruction index
+    private int[][] newInstrLayouts = new int[0][];
+    private int[] fieldInstrIds = new int[0];
 
     // mapping from array identifier to the maximum element that has been accessed in that array
     private final LongMap<IntHolder> maxArrayElem = new LongMap<IntHolder>();
 
-    private final TraceResult traceResult;
+    private HeapAbstraction heapAbstraction = HeapAbstraction.OBJECTS;
+    private boolean usesBaseObjects = true;
+    private boolean usesIndexes = true;
+    private boolean usesConditions = true;
+    // mapping from object identifier to the id of its allocation site, computed on first use
+    private LongMap<Long> allocationSites = null;
+    // mapping from the identifier of the first object of each allocation site to the id of the site,
+    // for the sites whose objects are all allocated by one thread
+    private LongMap<Long> firstAllocations = null;
+
+    private final TraceSource traceSource;
+
+    private SlicingMetrics metrics = null;
 
     
     public Simulator(TraceResult traceResult) {
-        this.traceResult = traceResult;
+        this(new TraceResultSource(traceResult));
+    }
+
+    public Simulator(TraceSource traceSource) {
+        this.traceSource = traceSource;
+    }
+
+    /**
+     * Sets whether the operand stack height before the simulation of each instruction is
+     * taken from a static {@link StackHeightAnalysis} of its method (the default), or only
+     * tracked dynamically.
+     *
+     * The static heights keep the stack entries precise after catch blocks and when a frame
+     * was left with a non-empty stack. Instructions without a static height (unreachable code,
+     * or methods with inconsistent heights) fall back to the dynamic tracking.
+     */
+    public void setStaticStackHeights(boolean staticStackHeights) {
+        this.staticStackHeights = staticStackHeights;
+    }
+
+    /**
+     * Sets the metrics object which is informed about the field layout cache and the
+     * number of tracked arrays (<code>null</code> to disable).
+     */
+    public void setMetrics(SlicingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets how heap locations are represented (default: {@link HeapAbstraction#OBJECTS}).
+     * Must be set before the first instruction is simulated.
+     */
+    public void setHeapAbstraction(HeapAbstraction heapAbstraction) {
+        if (heapAbstraction == null)
+            throw new NullPointerException();
+        this.heapAbstraction = heapAbstraction;
+    }
+
+    public HeapAbstraction getHeapAbstraction() {
+        return this.heapAbstraction;
+    }
+
+    /**
+     * Sets the roles of the variables which are reported as used by the simulated instructions
+     * (default: all roles). Variables with other roles are still accounted for on the operand
+     * stack, but they are not contained in the used variables of the {@link DynamicInformation},
+     * so no data dependences are found for them. E.g. a thin slice only needs the
+     * {@link VariableRole#VALUE} uses.
+     *
+     * @param roles the reported roles, must contain {@link VariableRole#VALUE}
+     */
+    public void setUsedVariableRoles(Set<VariableRole> roles) {
+        if (!roles.contains(VariableRole.VALUE))
+            throw new IllegalArgumentException("the value role cannot be omitted");
+        this.usesBaseObjects = roles.contains(VariableRole.BASE_OBJECT);
+        this.usesIndexes = roles.contains(VariableRole.INDEX);
+        this.usesConditions = roles.contains(VariableRole.CONDITION);
+    }
+
+    public Set<VariableRole> getUsedVariableRoles() {
+        Set<VariableRole> roles = EnumSet.of(VariableRole.VALUE);
+        if (this.usesBaseObjects)
+            roles.add(VariableRole.BASE_OBJECT);
+        if (this.usesIndexes)
+            roles.add(VariableRole.INDEX);
+        if (this.usesConditions)
+            roles.add(VariableRole.CONDITION);
+        return roles;
     }
    
 
     // 返回一条指令在切片过程中的动态信息
     public DynamicInformation simulateInstruction(InstructionInstance inst,
             SimulationEnvironment simulationEnvironment) {
+        if (this.staticStackHeights) {
+            int stackDepth = inst.getStackDepth();
+            int exitHeight = getExitStackHeight(inst.getInstruction(), simulationEnvironment.throwsException[stackDepth]);
+            if (exitHeight != StackHeightAnalysis.UNREACHABLE)
+                simulationEnvironment.opStack[stackDepth] = exitHeight;
+        }
         switch (inst.getInstruction().getType()) {
         case ARRAY:
             return simulateArrayInstruction(inst, simulationEnvironment);
@@ -119,7 +232,10 @@ public class Simulator<InstanceType extends InstructionInstance> {
             return new SimpleVariableUsage(Collections.<Variable>emptySet(), simulationEnvironment.getOpStackEntry(inst.getStackDepth(), stackOffset));
         case LOOKUPSWITCH:
         case TABLESWITCH:
-            return new SimpleVariableUsage(simulationEnvironment.getOpStackEntry(inst.getStackDepth(), simulationEnvironment.getAndIncOpStack(inst.getStackDepth())),
+            int switchOffset = simulationEnvironment.getAndIncOpStack(inst.getStackDepth());
+            if (!this.usesConditions)
+                return DynamicInformation.EMPTY;
+            return new SimpleVariableUsage(simulationEnvironment.getOpStackEntry(inst.getStackDepth(), switchOffset),
                     DynamicInformation.EMPTY_VARIABLE_SET);
         case METHODINVOCATION:
             return simulateMethodInsn(inst, simulationEnvironment);
@@ -139,6 +255,40 @@ public class Simulator<InstanceType extends InstructionInstance> {
         }
     }
 
+    private int getExitStackHeight(Instruction instr, boolean throwsException) {
+        ReadMethod method = instr.getMethod();
+        int[] heights = this.methodExitHeights;
+        // consecutive instances are mostly in the same method
+        if (method != this.exitHeightsMethod) {
+            heights = this.exitHeights.get(method.getInstructionNumberStart());
+            if (heights == null)
+                this.exitHeights.put(method.getInstructionNumberStart(), heights = computeExitStackHeights(method));
+            this.exitHeightsMethod = method;
+            this.methodExitHeights = heights;
+        }
+        return heights[2*(instr.getIndex() - method.getInstructionNumberStart()) + (throwsException ? 1 : 0)];
+    }
+
+    private static int[] computeExitStackHeights(ReadMethod method) {
+        int start = method.getInstructionNumberStart();
+        int[] heights = new int[2*(method.getInstructionNumberEnd() - start)];
+        int[] entryHeights = StackHeightAnalysis.computeEntryHeights(method);
+        for (Instruction instr: method.getInstructions()) {
+            int pos = 2*(instr.getIndex() - start);
+            int entryHeight = entryHeights == null ? StackHeightAnalysis.UNREACHABLE : entryHeights[instr.getIndex() - start];
+            if (entryHeight == StackHeightAnalysis.UNREACHABLE) {
+                heights[pos] = heights[pos+1] = StackHeightAnalysis.UNREACHABLE;
+                continue;
+            }
+            int[] readWrite = StackHeightAnalysis.getStackEffect(instr);
+            heights[pos] = entryHeight - readWrite[0] + readWrite[1];
+            // GETFIELD and method invocations do not write their result if they throw an exception
+            heights[pos+1] = instr.getOpcode() == GETFIELD || instr.getType() == InstructionType.METHODINVOCATION
+                ? entryHeight - readWrite[0] : heights[pos];
+        }
+        return heights;
+    }
+
     private DynamicInformation simulateMultiANewArrayInsn(InstructionInstance inst,
             SimulationEnvironment simulationEnvironment) {
         assert inst.getInstruction().getType() == InstructionType.MULTIANEWARRAY;
@@ -146,9 +296,7 @@ public class Simulator<InstanceType extends InstructionInstance> {
 
         LongMap<Collection<? extends Variable>> createdObjects = new LongMap<Collection<? extends Variable>>();
         for (long createdObj: info.getNewObjectIdentifiers()) {
-            IntHolder h = this.maxArrayElem.remove(createdObj);
-            createdObjects.put(createdObj, new ArrayElementsList(
-                    h == null ? 0 : (h.get()+1), createdObj));
+            createdObjects.put(createdObj, getAllElements(createdObj));
         }
 
         return stackManipulation(simulationEnvironment, inst.getStackDepth(),
@@ -160,14 +308,12 @@ public class Simulator<InstanceType extends InstructionInstance> {
             SimulationEnvironment simulationEnvironment) {
         assert inst.getInstruction().getType() == InstructionType.NEWARRAY;
         NewArrayInstrInstanceInfo info = (NewArrayInstrInstanceInfo) inst.getAdditionalInfo();
-        IntHolder h = this.maxArrayElem.remove(info.getNewObjectIdentifier());
         StackEntry stackEntry = simulationEnvironment.getOpStackEntry(inst.getStackDepth(),
         	simulationEnvironment.getOpStack(inst.getStackDepth()) - 1);
         Collection<Variable> stackEntryColl = Collections.singleton((Variable)stackEntry);
         Map<Long, Collection<? extends Variable>> createdObjects =
             Collections.<Long, Collection<? extends Variable>>singletonMap(info.getNewObjectIdentifier(),
-                new ArrayElementsList(h == null ? 0 : (h.get()+1),
-                                          info.getNewObjectIdentifier()));
+                getAllElements(info.getNewObjectIdentifier()));
         return new SimpleVariableUsage(stackEntryColl, stackEntryColl, createdObjects);
     }
 
@@ -181,15 +327,13 @@ public class Simulator<InstanceType extends InstructionInstance> {
             return new SimpleVariableUsage(DynamicInformation.EMPTY_VARIABLE_SET,
             	Collections.<Variable>singleton(simEnv.getOpStackEntry(stackDepth, simEnv.decAndGetOpStack(stackDepth))),
                 Collections.<Long, Collection<? extends Variable>>singletonMap(info.getNewObjectIdentifier(),
-                    getAllFields(((TypeInstruction)inst.getInstruction()).getJavaClassName(),
-                        info.getNewObjectIdentifier())));
+                    getAllFields((TypeInstruction)inst.getInstruction(), info.getNewObjectIdentifier())));
         case Opcodes.ANEWARRAY:
             int stackSize = simEnv.getOpStack(stackDepth)-1;
-            IntHolder h = this.maxArrayElem.remove(info.getNewObjectIdentifier());
             Collection<Variable> stackEntryColl = Collections.<Variable>singleton(simEnv.getOpStackEntry(stackDepth, stackSize));
             return new SimpleVariableUsage(stackEntryColl, stackEntryColl,
                 Collections.<Long, Collection<? extends Variable>>singletonMap(info.getNewObjectIdentifier(),
-                    new ArrayElementsList(h == null ? 0 : (h.get()+1), info.getNewObjectIdentifier())));
+                    getAllElements(info.getNewObjectIdentifier())));
         case Opcodes.CHECKCAST:
             return new SimpleVariableUsage(simEnv.getOpStackEntry(stackDepth, simEnv.getOpStack(stackDepth)-1), DynamicInformation.EMPTY_VARIABLE_SET);
         case Opcodes.INSTANCEOF:
@@ -200,13 +344,57 @@ public class Simulator<InstanceType extends InstructionInstance> {
         }
     }
 
-    private Collection<ObjectField> getAllFields(String className, long objId) {
-        String[] cachedFields = this.fieldsCache.get(className);
-        if (cachedFields == null) {
+    /**
+     * @return the variables of all elements of a new array which may have been accessed
+     */
+    private Collection<ArrayElement> getAllElements(long arrayId) {
+        if (!this.heapAbstraction.tracksArrayElements()) {
+            Long site;
+            if (this.heapAbstraction == HeapAbstraction.ARRAYS)
+                return Collections.singleton(new ArrayElement(arrayId, 0));
+            if (this.heapAbstraction == HeapAbstraction.ALLOCATION_SITES && (site = getCompletedSite(arrayId)) != null)
+                return Collections.singleton(new ArrayElement(site.longValue(), 0));
+            return Collections.emptySet();
+        }
+        IntHolder h = this.maxArrayElem.remove(arrayId);
+        return new ArrayElementsList(h == null ? 0 : (h.get()+1), arrayId);
+    }
+
+    private Collection<ObjectField> getAllFields(TypeInstruction newInstr, long objId) {
+        // the abstract objects are shared with other objects, so their fields stay alive
+        // until the first object of an allocation site is created
+        if (!this.heapAbstraction.tracksObjects()) {
+            Long site = this.heapAbstraction == HeapAbstraction.ALLOCATION_SITES ? getCompletedSite(objId) : null;
+            if (site == null)
+                return Collections.emptySet();
+            objId = site.longValue();
+        }
+        int index = newInstr.getIndex();
+        int[] layout = index < this.newInstrLayouts.length ? this.newInstrLayouts[index] : null;
+        if (layout == null) {
+            layout = getFieldLayout(newInstr.getJavaClassName());
+            if (index >= this.newInstrLayouts.length)
+                this.newInstrLayouts = Arrays.copyOf(this.newInstrLayouts, Math.max(2*this.newInstrLayouts.length, index+1));
+            this.newInstrLayouts[index] = layout;
+        } else if (this.metrics != null) {
+            this.metrics.fieldLayoutCacheHit();
+        }
+        return new ObjectFieldList(objId, layout);
+    }
+
+    private int[] getFieldLayout(String className) {
+        int[] layout = this.fieldLayouts.get(className);
+        if (this.metrics != null) {
+            if (layout == null)
+                this.metrics.fieldLayoutCacheMiss();
+            else
+                this.metrics.fieldLayoutCacheHit();
+        }
+        if (layout == null) {
             HashSet<String> allFields = new HashSet<String>();
             String tmpClassName = className;
             while (tmpClassName != null) {
-                ReadClass clazz = this.traceResult.findReadClass(tmpClassName);
+                ReadClass clazz = this.traceSource.findReadClass(tmpClassName);
                 if (clazz == null) {
                     //assert "java.lang.Object".equals(tmpClassName);
                     break;
@@ -215,10 +403,137 @@ public class Simulator<InstanceType extends InstructionInstance> {
                     allFields.add(field.getName());
                 tmpClassName = clazz.getSuperClassName();
             }
-            cachedFields = allFields.toArray(new String[allFields.size()]);
-            this.fieldsCache.put(className, cachedFields);
+            layout = new int[allFields.size()];
+            int i = 0;
+            for (String fieldName: allFields)
+                layout[i++] = FieldTable.getInstanceFieldId(fieldName);
+            this.fieldLayouts.put(className, layout);
+        }
+        return layout;
+    }
+
+    /**
+     * @return the variable representing the given field of the given object under the
+     *         current {@link HeapAbstraction}
+     */
+    public Variable getObjectField(long objectId, int fieldId) {
+        switch (this.heapAbstraction) {
+        case FIELDS:
+            return new ObjectField(HeapAbstraction.ALL_OBJECTS, fieldId);
+        case ALLOCATION_SITES:
+            return new ObjectField(getAllocationSite(objectId), fieldId);
+        default:
+            return new ObjectField(objectId, fieldId);
+        }
+    }
+
+    /**
+     * @param opcode the opcode of the array load or store instruction
+     * @return the variable representing the given array element under the current
+     *         {@link HeapAbstraction}
+     */
+    public Variable getArrayElement(long arrayId, int arrayIndex, int opcode) {
+        switch (this.heapAbstraction) {
+        case FIELDS:
+            // one element per element type (the order of the opcodes is the same for loads and stores)
+            return new ArrayElement(HeapAbstraction.ALL_OBJECTS, opcode < IASTORE ? opcode - IALOAD : opcode - IASTORE);
+        case ARRAYS:
+            return new ArrayElement(arrayId, 0);
+        case ALLOCATION_SITES:
+            return new ArrayElement(getAllocationSite(arrayId), 0);
+        default:
+            return new ArrayElement(arrayId, arrayIndex);
         }
-        return new ObjectFieldList(objId, cachedFields);
+    }
+
+    private long getAllocationSite(long objectId) {
+        if (this.allocationSites == null)
+            computeAllocationSites();
+        Long site = this.allocationSites.get(objectId);
+        return site == null ? HeapAbstraction.ALL_OBJECTS : site.longValue();
+    }
+
+    /**
+     * Before the first object of an allocation site is created, no location represented by the
+     * variables of this site exists, so these variables are dead when traversing backwards.
+     *
+     * @return the id of the allocation site whose first object is the given one, or
+     *         <code>null</code> if there is no such site
+     */
+    private Long getCompletedSite(long objectId) {
+        if (this.firstAllocations == null)
+            computeAllocationSites();
+        return this.firstAllocations.get(objectId);
+    }
+
+    /**
+     * Traverses the traces of all threads once, maps each object allocated by a traced
+     * instruction to the id of its allocation site, and finds the first object of each
+     * site which is only used by one thread.
+     */
+    private void computeAllocationSites() {
+        LongMap<Long> sites = new LongMap<Long>();
+        // the first object of each site, or ALL_OBJECTS if several threads allocate objects of the site
+        LongMap<Long> firstObjects = new LongMap<Long>();
+        for (ThreadId threadId: this.traceSource.getThreads()) {
+            Iterator<InstructionInstance> it = this.traceSource.getBackwardIterator(threadId,
+                new AbstractInstructionInstanceFactory());
+            // traversing backwards, the last object of each site is the first one allocated
+            LongMap<Long> threadFirstObjects = new LongMap<Long>();
+            while (it.hasNext()) {
+                InstructionInstance inst = it.next();
+                Instruction instr = inst.getInstruction();
+                Long site = Long.valueOf(HeapAbstraction.getAllocationSiteId(instr.getIndex()));
+                switch (instr.getType()) {
+                case TYPE:
+                    if (instr.getOpcode() == NEW || instr.getOpcode() == ANEWARRAY)
+                        addAllocation(((TypeInstrInstanceInfo) inst.getAdditionalInfo()).getNewObjectIdentifier(),
+                            site, sites, threadFirstObjects);
+                    break;
+                case NEWARRAY:
+                    addAllocation(((NewArrayInstrInstanceInfo) inst.getAdditionalInfo()).getNewObjectIdentifier(),
+                        site, sites, threadFirstObjects);
+                    break;
+                case MULTIANEWARRAY:
+                    for (long objectId: ((MultiANewArrayInstrInstanceInfo) inst.getAdditionalInfo()).getNewObjectIdentifiers())
+                        addAllocation(objectId, site, sites, threadFirstObjects);
+                    break;
+                default:
+                    break;
+                }
+            }
+            for (Map.Entry<Long, Long> e: threadFirstObjects.entrySet())
+                firstObjects.put(e.getKey(), firstObjects.containsKey(e.getKey())
+                    ? Long.valueOf(HeapAbstraction.ALL_OBJECTS) : e.getValue());
+        }
+        LongMap<Long> firstAllocations0 = new LongMap<Long>();
+        for (Map.Entry<Long, Long> e: firstObjects.entrySet())
+            if (e.getValue().longValue() != HeapAbstraction.ALL_OBJECTS)
+                firstAllocations0.put(e.getValue(), e.getKey());
+        if (Diagnostics.ENABLED)
+            Diagnostics.log(Category.SIMULATION, Level.INFO, "allocation sites of %d objects computed, %d of %d sites are thread-local",
+                sites.size(), firstAllocations0.size(), firstObjects.size());
+        this.allocationSites = sites;
+        this.firstAllocations = firstAllocations0;
+    }
+
+    private static void addAllocation(long objectId, Long site, LongMap<Long> sites, LongMap<Long> firstObjects) {
+        sites.put(objectId, site);
+        firstObjects.put(site, Long.valueOf(objectId));
+    }
+
+    private int getFieldId(FieldInstruction instruction) {
+        int index = instruction.getIndex();
+        int fieldId = index < this.fieldInstrIds.length ? this.fieldInstrIds[index] : 0;
+        if (fieldId == 0) {
+            fieldId = instruction.getOpcode() == GETSTATIC || instruction.getOpcode() == PUTSTATIC
+                ? FieldTable.getStaticFieldId(instruction.getOwnerInternalClassName(), instruction.getFieldName())
+                : FieldTable.getInstanceFieldId(instruction.getFieldName());
+            if (index >= this.fieldInstrIds.length)
+                this.fieldInstrIds = Arrays.copyOf(this.fieldInstrIds, Math.max(2*this.fieldInstrIds.length, index+1));
+            this.fieldInstrIds[index] = fieldId;
+        }
+        return fieldId;
     }
 
     private DynamicInformation simulateJumpInsn(JumpInstruction inst, int stackDepth, SimulationEnvironment simulationEnvironment) {
@@ -229,7 +544,10 @@ public class Simulator<InstanceType extends InstructionInstance> {
         case IFNULL: case IFNONNULL:
             // read 1 stack entry and compare it to zero / null
         	// 因为仅仅一个操作数， 读的话offset是先获取再加！
-            return new ReadSingleValueVariableUsage(simulationEnvironment.getOpStackEntry(stackDepth, simulationEnvironment.getAndIncOpStack(stackDepth)));
+            int conditionOffset = simulationEnvironment.getAndIncOpStack(stackDepth);
+            if (!this.usesConditions)
+                return DynamicInformation.EMPTY;
+            return new ReadSingleValueVariableUsage(simulationEnvironment.getOpStackEntry(stackDepth, conditionOffset));
 
          // 此时读取2个栈顶两个元素大小，用SimpleVariableUseage！
         case IF_ICMPEQ: case IF_ICMPNE: case IF_ICMPLT: case IF_ICMPGE:
@@ -237,7 +555,10 @@ public class Simulator<InstanceType extends InstructionInstance> {
             // read two stack entries and compare them
         	// 定义变量集合为空，使用变量集合为栈定的两个元素！
         	// 2个操作数,opStack+2
-            return new SimpleVariableUsage(simulationEnvironment.getOpStackEntries(stackDepth, simulationEnvironment.getAndAddOpStack(stackDepth, 2), 2),
+            conditionOffset = simulationEnvironment.getAndAddOpStack(stackDepth, 2);
+            if (!this.usesConditions)
+                return DynamicInformation.EMPTY;
+            return new SimpleVariableUsage(simulationEnvironment.getOpStackEntries(stackDepth, conditionOffset, 2),
                 DynamicInformation.EMPTY_VARIABLE_SET);
             
         // GOTO 的动态信息为空！
@@ -262,11 +583,15 @@ public class Simulator<InstanceType extends InstructionInstance> {
         ArrayInstrInstanceInfo arrInfo = (ArrayInstrInstanceInfo) inst.getAdditionalInfo();
         long arrayId = arrInfo.getArrayId();
         int arrayIndex = arrInfo.getArrayIndex();
-        IntHolder h = this.maxArrayElem.get(arrayId);
-        if (h == null)
-            this.maxArrayElem.put(arrayId, h = new IntHolder(arrayIndex));
-        else if (arrayIndex > h.get())
-            h.set(arrayIndex);
+        if (this.heapAbstraction.tracksArrayElements()) {
+            IntHolder h = this.maxArrayElem.get(arrayId);
+            if (h == null) {
+                this.maxArrayElem.put(arrayId, h = new IntHolder(arrayIndex));
+                if (this.metrics != null)
+                    this.metrics.trackedArrays(this.maxArrayElem.size());
+            } else if (arrayIndex > h.get())
+                h.set(arrayIndex);
+        }
 
         int stackDepth = inst.getStackDepth();
 
@@ -275,34 +600,50 @@ public class Simulator<InstanceType extends InstructionInstance> {
             // read 2, write 1
             int stackOffset = simulationEnvironment.getAndIncOpStack(stackDepth)-1;
             Variable lowerVar = simulationEnvironment.getOpStackEntry(stackDepth, stackOffset);
-            ArrayElement arrayElem = new ArrayElement(arrayId, arrayIndex);
-            return new SimpleVariableUsage(Arrays.asList(lowerVar, simulationEnvironment.getOpStackEntry(stackDepth, stackOffset+1),
+            Variable arrayElem = getArrayElement(arrayId, arrayIndex, inst.getInstruction().getOpcode());
+            return new SimpleVariableUsage(arrayAccess(lowerVar, simulationEnvironment.getOpStackEntry(stackDepth, stackOffset+1),
                     arrayElem), lowerVar);
         case LALOAD: case DALOAD:
             // read 2, write 2 (but we only trace the lower written value)
             stackOffset = simulationEnvironment.getOpStack(stackDepth)-2;
-            arrayElem = new ArrayElement(arrayId, arrayIndex);
+            arrayElem = getArrayElement(arrayId, arrayIndex, inst.getInstruction().getOpcode());
             lowerVar = simulationEnvironment.getOpStackEntry(stackDepth, stackOffset);
-            return new SimpleVariableUsage(Arrays.asList(lowerVar, simulationEnvironment.getOpStackEntry(stackDepth, stackOffset+1),
+            return new SimpleVariableUsage(arrayAccess(lowerVar, simulationEnvironment.getOpStackEntry(stackDepth, stackOffset+1),
                     arrayElem), lowerVar);
         case IASTORE: case FASTORE: case AASTORE: case BASTORE: case CASTORE: case SASTORE:
             // read 3, write 0
             stackOffset = simulationEnvironment.getAndAddOpStack(stackDepth, 3);
-            arrayElem = new ArrayElement(arrayId, arrayIndex);
-            return new SimpleVariableUsage(simulationEnvironment.getOpStackEntries(stackDepth, stackOffset, 3),
-                    arrayElem);
+            arrayElem = getArrayElement(arrayId, arrayIndex, inst.getInstruction().getOpcode());
+            return new SimpleVariableUsage(arrayAccess(simulationEnvironment.getOpStackEntry(stackDepth, stackOffset),
+                    simulationEnvironment.getOpStackEntry(stackDepth, stackOffset+1),
+                    simulationEnvironment.getOpStackEntry(stackDepth, stackOffset+2)), arrayElem);
         case LASTORE: case DASTORE:
             // read 4 (but we only trace the lower 3), write 0
             stackOffset = simulationEnvironment.getAndAddOpStack(stackDepth, 4);
-            arrayElem = new ArrayElement(arrayId, arrayIndex);
-            return new SimpleVariableUsage(simulationEnvironment.getOpStackEntries(stackDepth, stackOffset, 3),
-                    arrayElem);
+            arrayElem = getArrayElement(arrayId, arrayIndex, inst.getInstruction().getOpcode());
+            return new SimpleVariableUsage(arrayAccess(simulationEnvironment.getOpStackEntry(stackDepth, stackOffset),
+                    simulationEnvironment.getOpStackEntry(stackDepth, stackOffset+1),
+                    simulationEnvironment.getOpStackEntry(stackDepth, stackOffset+2)), arrayElem);
         default:
             assert false;
             return null;
         }
     }
 
+    /**
+     * @return the variables used by an array instruction: the array reference, the index, and
+     *         the value (the element for loads, the stored stack entry for stores)
+     */
+    private Collection<Variable> arrayAccess(Variable arrayRef, Variable index, Variable value) {
+        if (this.usesBaseObjects && this.usesIndexes)
+            return Arrays.asList(arrayRef, index, value);
+        if (this.usesBaseObjects)
+            return Arrays.asList(arrayRef, value);
+        if (this.usesIndexes)
+            return Arrays.asList(index, value);
+        return Collections.singleton(value);
+    }
+
     private DynamicInformation simulateMethodInsn(InstructionInstance inst,
             SimulationEnvironment simEnv) {
     	MethodInvocationInstruction instr = (MethodInvocationInstruction)inst.getInstruction();
@@ -354,16 +695,17 @@ public class Simulator<InstanceType extends InstructionInstance> {
                 	: simulationEnvironment.getOpStack(stackDepth)-1;
             lowerVar = simulationEnvironment.getOpStackEntry(stackDepth, stackOffset);
             if (simulationEnvironment.throwsException[stackDepth]) {
-            	return new ReadSingleValueVariableUsage(lowerVar);
+            	return this.usesBaseObjects ? new ReadSingleValueVariableUsage(lowerVar) : DynamicInformation.EMPTY;
             }
-            return new SimpleVariableUsage(Arrays.asList(lowerVar,
-                    new ObjectField(info.getObjectId(), instruction.getFieldName())), lowerVar);
+            Variable field = getObjectField(info.getObjectId(), getFieldId(instruction));
+            return new SimpleVariableUsage(this.usesBaseObjects ? Arrays.asList(lowerVar, field)
+                    : Collections.singleton(field), lowerVar);
         case GETSTATIC:
             // read 0, write 1 or 2 (we only trace the lower one of 2)
             stackOffset = instruction.isLongValue()
                 ? simulationEnvironment.subAndGetOpStack(stackDepth, 2)
                 : simulationEnvironment.decAndGetOpStack(stackDepth);
-            return new SimpleVariableUsage(new StaticField(instruction.getOwnerInternalClassName(), instruction.getFieldName()),
+            return new SimpleVariableUsage(new StaticField(getFieldId(instruction)),
                     simulationEnvironment.getOpStackEntry(stackDepth, stackOffset));
         case PUTFIELD:
             // read 2 or 3 (only trace 2), write 0
@@ -372,17 +714,21 @@ public class Simulator<InstanceType extends InstructionInstance> {
         	assert ((info.getObjectId() == 0) == (simulationEnvironment.throwsException[stackDepth]));
             if (simulationEnvironment.throwsException[stackDepth]) {
             	// on an exception, we only read the object reference
-            	return new ReadSingleValueVariableUsage(simulationEnvironment.getOpStackEntry(stackDepth, stackOffset));
+            	return this.usesBaseObjects
+            	    ? new ReadSingleValueVariableUsage(simulationEnvironment.getOpStackEntry(stackDepth, stackOffset))
+            	    : DynamicInformation.EMPTY;
             }
-            return new SimpleVariableUsage(simulationEnvironment.getOpStackEntries(stackDepth, stackOffset, 2),
-            	new ObjectField(info.getObjectId(), instruction.getFieldName()));
+            return new SimpleVariableUsage(this.usesBaseObjects
+                    ? simulationEnvironment.getOpStackEntries(stackDepth, stackOffset, 2)
+                    : Collections.singleton(simulationEnvironment.getOpStackEntry(stackDepth, stackOffset+1)),
+            	getObjectField(info.getObjectId(), getFieldId(instruction)));
         case PUTSTATIC:
             // read 1 or 2 (only trace 1), write 0
             stackOffset = instruction.isLongValue()
                 ? simulationEnvironment.getAndAddOpStack(stackDepth, 2)
                 : simulationEnvironment.getAndIncOpStack(stackDepth);
             return new SimpleVariableUsage(simulationEnvironment.getOpStackEntry(stackDepth, stackOffset),
-                    new StaticField(instruction.getOwnerInternalClassName(), instruction.getFieldName()));
+                    new StaticField(getFieldId(instruction)));
         default:
             assert false;
             return null;
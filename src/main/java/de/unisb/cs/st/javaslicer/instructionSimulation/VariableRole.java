@@ -0,0 +1,57 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.instructionSimulation
+ *    Class:     VariableRole
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/instructionSimulation/VariableRole.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.instructionSimulation;
+
+/**
+ * The role of a variable used by an instruction, as tagged by the {@link Simulator}.
+ *
+ * A thin slice only follows the {@link #VALUE} uses, i.e. the flow of the values themselves,
+ * but not the computation of the references and indexes which select a heap location, nor
+ * the conditions which decide whether an instruction is executed.
+ *
+ * @see Simulator#setUsedVariableRoles(java.util.Set)
+ */
+public enum VariableRole {
+
+    /**
+     * A value which is copied or computed into the defined variables, e.g. the field read by a
+     * GETFIELD, the value stored by a PUTFIELD, or the operands of an arithmetic instruction.
+     */
+    VALUE,
+
+    /**
+     * The reference to the object or array which is accessed by a field or array instruction.
+     */
+    BASE_OBJECT,
+
+    /**
+     * The index of the element accessed by an array instruction.
+     */
+    INDEX,
+
+    /**
+     * An operand of a conditional jump or switch instruction.
+     */
+    CONDITION;
+
+}
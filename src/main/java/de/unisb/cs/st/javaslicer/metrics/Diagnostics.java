@@ -0,0 +1,220 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.metrics
+ *    Class:     Diagnostics
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/metrics/Diagnostics.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.metrics;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Structured diagnostic output of the slicing core.
+ *
+ * Tracing is configured once, when this class is initialized, by the system
+ * property <code>javaslicer.diagnostics</code>. Its value is a comma separated list
+ * of <i>category[=level]</i> entries, where the category may also be <code>all</code>
+ * and the level defaults to {@link Level#DEBUG}, e.g.
+ * <code>-Djavaslicer.diagnostics=traversal=trace,criteria</code>.
+ *
+ * If the property is not set, {@link #ENABLED} is <code>false</code>. Since that
+ * flag is a compile time constant for the JIT, callers should always guard their
+ * calls by it, so that disabled tracing costs nothing (not even the varargs array):
+ * <pre>
+ *   if (Diagnostics.ENABLED)
+ *       Diagnostics.log(Category.TRAVERSAL, Level.TRACE, "instance %s", instance);
+ * </pre>
+ *
+ * Events are printed to <code>System.err</code>, unless
+ * <code>javaslicer.diagnostics.print=false</code>. Additionally, the last
+ * <i>n</i> events can be kept in memory by setting
+ * <code>javaslicer.diagnostics.buffer=n</code> (see {@link #getRecentEvents()}).
+ */
+public final class Diagnostics {
+
+    public static enum Category {
+        /** the backward traversal in the DependencesExtractor */
+        TRAVERSAL,
+        /** visitor registration and dispatch */
+        VISITORS,
+        /** parsing and matching of slicing criteria */
+        CRITERIA,
+        /** instruction simulation */
+        SIMULATION,
+    }
+
+    public static enum Level {
+        OFF, WARN, INFO, DEBUG, TRACE,
+    }
+
+    public static class Event {
+
+        private final long timeMillis;
+        private final String threadName;
+        private final Category category;
+        private final Level level;
+        private final String message;
+
+        public Event(long timeMillis, String threadName, Category category, Level level, String message) {
+            this.timeMillis = timeMillis;
+            this.threadName = threadName;
+            this.category = category;
+            this.level = level;
+            this.message = message;
+        }
+
+        public long getTimeMillis() {
+            return this.timeMillis;
+        }
+
+        public String getThreadName() {
+            return this.threadName;
+        }
+
+        public Category getCategory() {
+            return this.category;
+        }
+
+        public Level getLevel() {
+            return this.level;
+        }
+
+        public String getMessage() {
+            return this.message;
+        }
+
+        @Override
+        public String toString() {
+            return String.format((Locale)null, "[javaslicer %tT.%<tL %s %s/%s] %s",
+                this.timeMillis, this.threadName, this.category, this.level, this.message);
+        }
+    }
+
+    public static final String PROPERTY = "javaslicer.diagnostics";
+    public static final String PRINT_PROPERTY = PROPERTY + ".print";
+    public static final String BUFFER_PROPERTY = PROPERTY + ".buffer";
+
+    private static final Level[] levels = parseLevels(System.getProperty(PROPERTY));
+
+    /**
+     * <code>true</code> iff any category is enabled.
+     */
+    public static final boolean ENABLED = isAnyEnabled(levels);
+
+    private static final PrintStream out = ENABLED
+        && !"false".equalsIgnoreCase(System.getProperty(PRINT_PROPERTY)) ? System.err : null;
+
+    private static final Event[] ringBuffer = ENABLED
+        ? new Event[Math.max(0, Integer.getInteger(BUFFER_PROPERTY, 0).intValue())] : new Event[0];
+    private static long eventCount = 0;
+
+    private Diagnostics() {
+        // utility class
+    }
+
+    static Level[] parseLevels(String spec) {
+        Level[] result = new Level[Category.values().length];
+        Arrays.fill(result, Level.OFF);
+        if (spec == null)
+            return result;
+        for (String entry: spec.split(",")) {
+            entry = entry.trim();
+            if (entry.length() == 0)
+                continue;
+            int eqPos = entry.indexOf('=');
+            String catName = eqPos == -1 ? entry : entry.substring(0, eqPos).trim();
+            Level level = Level.DEBUG;
+            try {
+                if (eqPos != -1)
+                    level = Level.valueOf(entry.substring(eqPos+1).trim().toUpperCase(Locale.ENGLISH));
+                if ("all".equalsIgnoreCase(catName))
+                    Arrays.fill(result, level);
+                else
+                    result[Category.valueOf(catName.toUpperCase(Locale.ENGLISH)).ordinal()] = level;
+            } catch (IllegalArgumentException e) {
+                System.err.println("Ignoring illegal entry in " + PROPERTY + ": " + entry);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isAnyEnabled(Level[] levels) {
+        for (Level level: levels)
+            if (level != Level.OFF)
+                return true;
+        return false;
+    }
+
+    public static boolean isEnabled(Category category, Level level) {
+        return ENABLED && level != Level.OFF && levels[category.ordinal()].compareTo(level) >= 0;
+    }
+
+    /**
+     * Logs an event if the given category is enabled for the given level.
+     *
+     * @param category the category of the event
+     * @param level the level of the event
+     * @param format a format string (see {@link String#format(String, Object...)})
+     * @param args the arguments referenced by the format string
+     */
+    public static void log(Category category, Level level, String format, Object... args) {
+        if (!isEnabled(category, level))
+            return;
+        String message = args.length == 0 ? format : String.format((Locale)null, format, args);
+        Event event = new Event(System.currentTimeMillis(), Thread.currentThread().getName(),
+            category, level, message);
+        if (ringBuffer.length != 0) {
+            synchronized (ringBuffer) {
+                ringBuffer[(int) (eventCount++ % ringBuffer.length)] = event;
+            }
+        }
+        if (out != null)
+            out.println(event);
+    }
+
+    /**
+     * @return the events kept in the in-memory ring buffer, oldest first
+     *         (empty if the buffer is disabled)
+     */
+    public static List<Event> getRecentEvents() {
+        if (ringBuffer.length == 0)
+            return Collections.emptyList();
+        synchronized (ringBuffer) {
+            int size = (int) Math.min(eventCount, ringBuffer.length);
+            List<Event> events = new ArrayList<Event>(size);
+            for (long i = eventCount - size; i < eventCount; ++i)
+                events.add(ringBuffer[(int) (i % ringBuffer.length)]);
+            return events;
+        }
+    }
+
+    /**
+     * Prints the events kept in the in-memory ring buffer, e.g. after a slicing run failed.
+     */
+    public static void dumpRecentEvents(PrintStream stream) {
+        for (Event event: getRecentEvents())
+            stream.println(event);
+    }
+
+}
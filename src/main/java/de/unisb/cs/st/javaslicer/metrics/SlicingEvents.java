@@ -0,0 +1,214 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.metrics
+ *    Class:     SlicingEvents
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/metrics/SlicingEvents.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+
+/**
+ * JDK Flight Recorder events emitted by the slicing core.
+ *
+ * The events are only created if the running JVM ships the <code>jdk.jfr</code>
+ * API (see {@link #AVAILABLE}); on older JVMs, the slicer works as before.
+ * All event classes must only be touched after checking that flag.
+ */
+public final class SlicingEvents {
+
+    /**
+     * <code>true</code> iff the JVM supports JFR events.
+     */
+    public static final boolean AVAILABLE = isAvailable();
+
+    /**
+     * The number of instances between two {@link TraversalProgress} events (a power of two).
+     */
+    public static final int PROGRESS_INTERVAL = 1 << 20;
+
+    private static final String CATEGORY = "JavaSlicer";
+
+    private SlicingEvents() {
+        // utility class
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    public static String getMethodName(ReadMethod method) {
+        return method.getReadClass().getName() + "." + method.getName() + method.getDesc();
+    }
+
+    @Name("de.unisb.cs.st.javaslicer.TraceLoad")
+    @Label("Trace Load")
+    @Category(CATEGORY)
+    @Description("Reading the trace file (class and thread information)")
+    public static class TraceLoad extends Event {
+        @Label("Trace File")
+        public String traceFile;
+        @Label("Threads")
+        public int threads;
+        @Label("Classes")
+        public int classes;
+    }
+
+    @Name("de.unisb.cs.st.javaslicer.ControlDependences")
+    @Label("Control Dependence Computation")
+    @Category(CATEGORY)
+    @Description("Computation of the control dependences of one method")
+    @StackTrace(false)
+    public static class ControlDependences extends Event {
+        @Label("Method")
+        public String method;
+        @Label("Instructions")
+        public int instructions;
+        @Label("Reachability Iterations")
+        public long reachabilityIterations;
+    }
+
+    @Name("de.unisb.cs.st.javaslicer.TraversalProgress")
+    @Label("Traversal Progress")
+    @Category(CATEGORY)
+    @Description("Checkpoint during the backward traversal, emitted every " + PROGRESS_INTERVAL + " instances")
+    @StackTrace(false)
+    public static class TraversalProgress extends Event {
+        @Label("Processed Instances")
+        public long instances;
+        @Label("Percentage Done")
+        public double percentageDone;
+        @Label("Stack Depth")
+        public int stackDepth;
+        @Label("Live Variables")
+        @Description("Size of the lastReaders map (Slicer) or the set of interesting variables (DirectSlicer)")
+        public int liveVariables;
+    }
+
+    @Name("de.unisb.cs.st.javaslicer.FrameCleanup")
+    @Label("Frame Cleanup")
+    @Category(CATEGORY)
+    @Description("Removal of the variables of a left stack frame from the dependence maps")
+    @Threshold("100 us")
+    @StackTrace(false)
+    public static class FrameCleanup extends Event {
+        @Label("Method")
+        public String method;
+        @Label("Variables")
+        public int variables;
+    }
+
+    @Name("de.unisb.cs.st.javaslicer.SliceCompleted")
+    @Label("Slice Completed")
+    @Category(CATEGORY)
+    @Description("Computation of one dynamic slice")
+    public static class SliceCompleted extends Event {
+        @Label("Slicer")
+        public String slicer;
+        @Label("Thread")
+        public String thread;
+        @Label("Criterion")
+        public String criterion;
+        @Label("Processed Instances")
+        public long instances;
+        @Label("Slice Size")
+        public long sliceSize;
+    }
+
+    @Name("de.unisb.cs.st.javaslicer.MethodSimulation")
+    @Label("Method Simulation Time")
+    @Category(CATEGORY)
+    @Description("Cumulative simulation time of the instances of one method, emitted at the end of a traversal")
+    @StackTrace(false)
+    public static class MethodSimulation extends Event {
+        @Label("Method")
+        public String method;
+        @Label("Instances")
+        public long instances;
+        @Label("Simulation Time")
+        @Timespan(Timespan.NANOSECONDS)
+        public long simulationTime;
+    }
+
+    /**
+     * Accumulates the simulation time per method during one traversal, and emits
+     * one {@link MethodSimulation} event per method in {@link #commit()}.
+     */
+    public static class SimulationTimes {
+
+        private final Map<ReadMethod, long[]> times = new HashMap<ReadMethod, long[]>();
+        private ReadMethod lastMethod = null;
+        private long[] lastTimes = null;
+
+        /**
+         * @return a new SimulationTimes object if the {@link MethodSimulation} event is
+         *         enabled in a running recording, <code>null</code> otherwise
+         */
+        public static SimulationTimes createIfEnabled() {
+            if (!AVAILABLE || !EventType.getEventType(MethodSimulation.class).isEnabled())
+                return null;
+            return new SimulationTimes();
+        }
+
+        public void add(ReadMethod method, long nanos) {
+            if (method != this.lastMethod) {
+                this.lastTimes = this.times.get(method);
+                if (this.lastTimes == null)
+                    this.times.put(method, this.lastTimes = new long[2]);
+                this.lastMethod = method;
+            }
+            ++this.lastTimes[0];
+            this.lastTimes[1] += nanos;
+        }
+
+        public void commit() {
+            for (Entry<ReadMethod, long[]> e: this.times.entrySet()) {
+                MethodSimulation event = new MethodSimulation();
+                event.method = getMethodName(e.getKey());
+                event.instances = e.getValue()[0];
+                event.simulationTime = e.getValue()[1];
+                event.commit();
+            }
+            this.times.clear();
+            this.lastMethod = null;
+            this.lastTimes = null;
+        }
+    }
+
+}
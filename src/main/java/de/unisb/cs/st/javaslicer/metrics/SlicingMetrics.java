@@ -0,0 +1,453 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.metrics
+ *    Class:     SlicingMetrics
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/metrics/SlicingMetrics.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.metrics;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Collects performance counters of one slicing run.
+ *
+ * The {@link de.unisb.cs.st.javaslicer.dependenceAnalysis.DependencesExtractor},
+ * the {@link de.unisb.cs.st.javaslicer.instructionSimulation.Simulator}, the
+ * {@link de.unisb.cs.st.javaslicer.controlflowanalysis.ControlFlowAnalyser} and
+ * both slicers accept an (optional) metrics object. If none is set, they only
+ * pay for one null check per instruction.
+ *
+ * Counters of optional features (like frame skipping or the static slice filter)
+ * are kept in named groups, see {@link #getCounter(String, String)}.
+ *
+ * The counters are updated by the slicing thread without synchronization, so
+ * values read over JMX while a run is in progress may be slightly out of date.
+ */
+public class SlicingMetrics implements SlicingMetricsMBean {
+
+    /**
+     * The phases that the time of the main loop is split into.
+     * Visitor calls that are made while computing control or data dependences
+     * are accounted to the respective dependence phase.
+     */
+    public static enum Phase {
+        /** iterating the trace (or waiting for the iterator thread) */
+        TRACE_READING("trace reading"),
+        /** stack frame handling and instruction simulation */
+        SIMULATION("simulation"),
+        /** control dependence computation */
+        CONTROL_DEPENDENCES("control dependences"),
+        /** maintenance of the lastReaders / lastWriter maps */
+        DATA_DEPENDENCES("data dependences"),
+        /** visitInstructionExecution calls */
+        VISITORS("visitors");
+
+        private final String description;
+
+        private Phase(String description) {
+            this.description = description;
+        }
+
+        @Override
+        public String toString() {
+            return this.description;
+        }
+    }
+
+    /**
+     * A counter of an optional feature, see {@link SlicingMetrics#getCounter(String, String)}.
+     */
+    public static final class Counter {
+
+        private long value = 0;
+
+        Counter() {
+            // only created by SlicingMetrics
+        }
+
+        public void increment() {
+            ++this.value;
+        }
+
+        public void add(long delta) {
+            this.value += delta;
+        }
+
+        public void set(long newValue) {
+            this.value = newValue;
+        }
+
+        public long get() {
+            return this.value;
+        }
+
+    }
+
+    public static final String OBJECT_NAME_PREFIX = "de.unisb.cs.st.javaslicer:type=SlicingMetrics";
+
+    private static final AtomicInteger nextId = new AtomicInteger(0);
+
+    private final long[] phaseNanos = new long[Phase.values().length];
+
+    private long startNanos = -1;
+    private long endNanos = -1;
+
+    private long processedInstances = 0;
+    private int maxStackDepth = 0;
+    private int peakLastReadersSize = -1;
+    private int peakLastWriterSize = -1;
+    private int peakInterestingVariables = -1;
+
+    private long cdCacheHits = 0;
+    private long cdCacheMisses = 0;
+    private long analysedMethods = 0;
+    private long controlFlowAnalysisNanos = 0;
+    private long reachabilityIterations = 0;
+
+    private long fieldLayoutCacheHits = 0;
+    private long fieldLayoutCacheMisses = 0;
+    private int peakTrackedArrays = 0;
+
+    private final Map<String, Map<String, Counter>> counterGroups = new LinkedHashMap<String, Map<String, Counter>>();
+
+    private long sliceInstances = -1;
+    private long sliceInstructions = -1;
+
+    private ObjectName objectName = null;
+
+    public void start() {
+        this.startNanos = System.nanoTime();
+        this.endNanos = -1;
+    }
+
+    public void end() {
+        this.endNanos = System.nanoTime();
+    }
+
+    /**
+     * Accounts the time since <code>since</code> to the given phase.
+     *
+     * @param phase the phase that the time is accounted to
+     * @param since the value returned by the last call to this method (or {@link System#nanoTime()})
+     * @return the current time, to be passed to the next call
+     */
+    public long lap(Phase phase, long since) {
+        long now = System.nanoTime();
+        this.phaseNanos[phase.ordinal()] += now - since;
+        return now;
+    }
+
+    public void instanceProcessed(int stackDepth) {
+        ++this.processedInstances;
+        if (stackDepth > this.maxStackDepth)
+            this.maxStackDepth = stackDepth;
+    }
+
+    public void dependenceMapSizes(int lastReadersSize, int lastWriterSize) {
+        if (lastReadersSize > this.peakLastReadersSize)
+            this.peakLastReadersSize = lastReadersSize;
+        if (lastWriterSize > this.peakLastWriterSize)
+            this.peakLastWriterSize = lastWriterSize;
+    }
+
+    public void interestingVariables(int size) {
+        if (size > this.peakInterestingVariables)
+            this.peakInterestingVariables = size;
+    }
+
+    public void controlDependenceCacheHit() {
+        ++this.cdCacheHits;
+    }
+
+    public void controlDependenceCacheMiss() {
+        ++this.cdCacheMisses;
+    }
+
+    public void methodAnalysed(long nanos, long iterations) {
+        ++this.analysedMethods;
+        this.controlFlowAnalysisNanos += nanos;
+        this.reachabilityIterations += iterations;
+    }
+
+    public void fieldLayoutCacheHit() {
+        ++this.fieldLayoutCacheHits;
+    }
+
+    public void fieldLayoutCacheMiss() {
+        ++this.fieldLayoutCacheMisses;
+    }
+
+    public void trackedArrays(int size) {
+        if (size > this.peakTrackedArrays)
+            this.peakTrackedArrays = size;
+    }
+
+    /**
+     * Returns the counter with the given name in the given group, registering it on first use.
+     *
+     * Optional features of the slicers keep their own counters here, so that they are reported
+     * (and exported over JMX) without extending this class. Features should only ask for their
+     * counters if they are enabled, so that the report only contains the features in use.
+     *
+     * @param group the name of the feature that the counter belongs to
+     * @param name the name of the counter within its group
+     * @return the counter; the same object is returned for all calls with the same names
+     */
+    public synchronized Counter getCounter(String group, String name) {
+        Map<String, Counter> counters = this.counterGroups.get(group);
+        if (counters == null) {
+            counters = new LinkedHashMap<String, Counter>();
+            this.counterGroups.put(group, counters);
+        }
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            counter = new Counter();
+            counters.put(name, counter);
+        }
+        return counter;
+    }
+
+    /**
+     * @return the value of the given counter, or <code>-1</code> if it was never registered
+     */
+    public synchronized long getCounterValue(String group, String name) {
+        Map<String, Counter> counters = this.counterGroups.get(group);
+        Counter counter = counters == null ? null : counters.get(name);
+        return counter == null ? -1 : counter.get();
+    }
+
+    private synchronized Map<String, Map<String, Counter>> getCounterGroups() {
+        Map<String, Map<String, Counter>> copy = new LinkedHashMap<String, Map<String, Counter>>();
+        for (Entry<String, Map<String, Counter>> group: this.counterGroups.entrySet())
+            copy.put(group.getKey(), new LinkedHashMap<String, Counter>(group.getValue()));
+        return copy;
+    }
+
+    public void setSliceInstances(long sliceInstances) {
+        this.sliceInstances = sliceInstances;
+    }
+
+    public void setSliceInstructions(long sliceInstructions) {
+        this.sliceInstructions = sliceInstructions;
+    }
+
+    @Override
+    public long getProcessedInstances() {
+        return this.processedInstances;
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        if (this.startNanos == -1)
+            return 0;
+        long end = this.endNanos == -1 ? System.nanoTime() : this.endNanos;
+        return (end - this.startNanos) / 1000000;
+    }
+
+    @Override
+    public double getInstancesPerSecond() {
+        if (this.startNanos == -1)
+            return 0;
+        long end = this.endNanos == -1 ? System.nanoTime() : this.endNanos;
+        return end == this.startNanos ? 0 : 1e9 * this.processedInstances / (end - this.startNanos);
+    }
+
+    public long getPhaseMillis(Phase phase) {
+        return this.phaseNanos[phase.ordinal()] / 1000000;
+    }
+
+    @Override
+    public long getTraceReadingMillis() {
+        return getPhaseMillis(Phase.TRACE_READING);
+    }
+
+    @Override
+    public long getSimulationMillis() {
+        return getPhaseMillis(Phase.SIMULATION);
+    }
+
+    @Override
+    public long getControlDependencesMillis() {
+        return getPhaseMillis(Phase.CONTROL_DEPENDENCES);
+    }
+
+    @Override
+    public long getDataDependencesMillis() {
+        return getPhaseMillis(Phase.DATA_DEPENDENCES);
+    }
+
+    @Override
+    public long getVisitorsMillis() {
+        return getPhaseMillis(Phase.VISITORS);
+    }
+
+    @Override
+    public int getMaxStackDepth() {
+        return this.maxStackDepth;
+    }
+
+    @Override
+    public int getPeakLastReadersSize() {
+        return this.peakLastReadersSize;
+    }
+
+    @Override
+    public int getPeakLastWriterSize() {
+        return this.peakLastWriterSize;
+    }
+
+    @Override
+    public int getPeakInterestingVariables() {
+        return this.peakInterestingVariables;
+    }
+
+    @Override
+    public long getControlDependenceCacheHits() {
+        return this.cdCacheHits;
+    }
+
+    @Override
+    public long getControlDependenceCacheMisses() {
+        return this.cdCacheMisses;
+    }
+
+    @Override
+    public long getAnalysedMethods() {
+        return this.analysedMethods;
+    }
+
+    @Override
+    public long getControlFlowAnalysisMillis() {
+        return this.controlFlowAnalysisNanos / 1000000;
+    }
+
+    @Override
+    public long getReachabilityIterations() {
+        return this.reachabilityIterations;
+    }
+
+    @Override
+    public long getFieldLayoutCacheHits() {
+        return this.fieldLayoutCacheHits;
+    }
+
+    @Override
+    public long getFieldLayoutCacheMisses() {
+        return this.fieldLayoutCacheMisses;
+    }
+
+    @Override
+    public int getPeakTrackedArrays() {
+        return this.peakTrackedArrays;
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new LinkedHashMap<String, Long>();
+        for (Entry<String, Map<String, Counter>> group: getCounterGroups().entrySet())
+            for (Entry<String, Counter> counter: group.getValue().entrySet())
+                values.put(group.getKey() + "." + counter.getKey(), counter.getValue().get());
+        return values;
+    }
+
+    @Override
+    public long getSliceInstances() {
+        return this.sliceInstances;
+    }
+
+    @Override
+    public long getSliceInstructions() {
+        return this.sliceInstructions;
+    }
+
+    /**
+     * Registers this object with the platform MBean server.
+     *
+     * @return the name under which this object was registered
+     * @throws JMException if the registration failed
+     */
+    public synchronized ObjectName registerMBean() throws JMException {
+        if (this.objectName == null) {
+            ObjectName name = new ObjectName(OBJECT_NAME_PREFIX + ",id=" + nextId.getAndIncrement());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            this.objectName = name;
+        }
+        return this.objectName;
+    }
+
+    public synchronized void unregisterMBean() throws JMException {
+        if (this.objectName != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(this.objectName))
+                server.unregisterMBean(this.objectName);
+            this.objectName = null;
+        }
+    }
+
+    public void printReport(PrintStream out) {
+        long elapsedMillis = getElapsedMillis();
+        out.println("Slicing statistics:");
+        out.format((Locale)null, "  processed instances:          %,d (%,.0f per second)%n",
+            this.processedInstances, getInstancesPerSecond());
+        out.format((Locale)null, "  elapsed time:                 %,d ms%n", elapsedMillis);
+        for (Phase phase: Phase.values()) {
+            long millis = getPhaseMillis(phase);
+            out.format((Locale)null, "    %-26s %,d ms (%.1f%%)%n", phase + ":", millis,
+                elapsedMillis == 0 ? 0. : 100. * millis / elapsedMillis);
+        }
+        out.format((Locale)null, "  max stack depth:              %,d%n", this.maxStackDepth);
+        printOptional(out, "  peak lastReaders size:        %,d%n", this.peakLastReadersSize);
+        printOptional(out, "  peak lastWriter size:         %,d%n", this.peakLastWriterSize);
+        printOptional(out, "  peak interesting variables:   %,d%n", this.peakInterestingVariables);
+        out.format((Locale)null, "  control dependence cache:     %,d hits, %,d misses%n",
+            this.cdCacheHits, this.cdCacheMisses);
+        out.format((Locale)null, "  control flow analysis:        %,d methods, %,d ms, %,d reachability iterations%n",
+            this.analysedMethods, getControlFlowAnalysisMillis(), this.reachabilityIterations);
+        out.format((Locale)null, "  field layout cache:           %,d hits, %,d misses%n",
+            this.fieldLayoutCacheHits, this.fieldLayoutCacheMisses);
+        out.format((Locale)null, "  peak tracked arrays:          %,d%n", this.peakTrackedArrays);
+        for (Entry<String, Map<String, Counter>> group: getCounterGroups().entrySet()) {
+            StringBuilder counters = new StringBuilder();
+            for (Entry<String, Counter> counter: group.getValue().entrySet()) {
+                if (counters.length() != 0)
+                    counters.append(", ");
+                counters.append(String.format((Locale)null, "%,d %s", counter.getValue().get(), counter.getKey()));
+            }
+            out.format((Locale)null, "  %-29s %s%n", group.getKey() + ":", counters);
+        }
+        printOptional(out, "  slice instances:              %,d%n", this.sliceInstances);
+        printOptional(out, "  slice instructions:           %,d%n", this.sliceInstructions);
+    }
+
+    private static void printOptional(PrintStream out, String format, long value) {
+        if (value != -1)
+            out.format((Locale)null, format, value);
+    }
+
+}
@@ -0,0 +1,84 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.metrics
+ *    Class:     SlicingMetricsMBean
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/metrics/SlicingMetricsMBean.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX view of a {@link SlicingMetrics} object.
+ *
+ * All times are given in milliseconds. Values that are not collected by the
+ * current slicer are reported as <code>-1</code>.
+ */
+public interface SlicingMetricsMBean {
+
+    long getProcessedInstances();
+
+    long getElapsedMillis();
+
+    double getInstancesPerSecond();
+
+    long getTraceReadingMillis();
+
+    long getSimulationMillis();
+
+    long getControlDependencesMillis();
+
+    long getDataDependencesMillis();
+
+    long getVisitorsMillis();
+
+    int getMaxStackDepth();
+
+    int getPeakLastReadersSize();
+
+    int getPeakLastWriterSize();
+
+    int getPeakInterestingVariables();
+
+    long getControlDependenceCacheHits();
+
+    long getControlDependenceCacheMisses();
+
+    long getAnalysedMethods();
+
+    long getControlFlowAnalysisMillis();
+
+    long getReachabilityIterations();
+
+    long getFieldLayoutCacheHits();
+
+    long getFieldLayoutCacheMisses();
+
+    int getPeakTrackedArrays();
+
+    /**
+     * @return the counters of the optional features, keyed by "group.counter"
+     */
+    Map<String, Long> getCounters();
+
+    long getSliceInstances();
+
+    long getSliceInstructions();
+
+}
@@ -0,0 +1,220 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.offheap
+ *    Class:     OffHeapConfiguration
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/offheap/OffHeapConfiguration.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.offheap;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+/**
+ * Decides where the per-variable state of a slicing run (the lastReaders / lastWriter
+ * maps of the {@link de.unisb.cs.st.javaslicer.dependenceAnalysis.DependencesExtractor}
+ * and the interesting variables of the {@link de.unisb.cs.st.javaslicer.slicing.DirectSlicer})
+ * is stored.
+ *
+ * In the default {@link Mode#AUTO} mode, the state starts in ordinary hash maps and
+ * is moved to {@link OffHeapVariableMap}s / {@link OffHeapVariableSet}s as soon as its
+ * estimated heap consumption exceeds the heap budget.
+ *
+ * The defaults are read from the system properties <code>javaslicer.offheap</code>
+ * (<code>auto</code>, <code>heap</code> or <code>offheap</code>),
+ * <code>javaslicer.offheap.budget</code> (in bytes, with optional suffix k, m or g;
+ * default: a quarter of the maximum heap size) and <code>javaslicer.offheap.dir</code>
+ * (if set, the tables are stored in memory-mapped temporary files in that directory
+ * instead of direct buffers).
+ */
+public class OffHeapConfiguration {
+
+    public static enum Mode {
+        /** always keep the state on the heap */
+        HEAP,
+        /** always store the state off-heap */
+        OFF_HEAP,
+        /** move the state off-heap once it exceeds the heap budget */
+        AUTO,
+    }
+
+    /**
+     * The estimated number of heap bytes per entry of a {@link HashMap} or {@link HashSet}
+     * with {@link Variable} keys: the entry object, the table slot and the key object.
+     */
+    public static final int ESTIMATED_HEAP_BYTES_PER_ENTRY = 72;
+
+    public static final String MODE_PROPERTY = "javaslicer.offheap";
+    public static final String BUDGET_PROPERTY = "javaslicer.offheap.budget";
+    public static final String DIRECTORY_PROPERTY = "javaslicer.offheap.dir";
+
+    private Mode mode = Mode.AUTO;
+    private long heapBudget = Runtime.getRuntime().maxMemory() / 4;
+    private File directory = null;
+
+    public static OffHeapConfiguration fromSystemProperties() {
+        OffHeapConfiguration config = new OffHeapConfiguration();
+        String mode = System.getProperty(MODE_PROPERTY);
+        if (mode != null)
+            config.setMode(parseMode(mode));
+        String budget = System.getProperty(BUDGET_PROPERTY);
+        if (budget != null)
+            config.setHeapBudget(parseSize(budget));
+        String dir = System.getProperty(DIRECTORY_PROPERTY);
+        if (dir != null)
+            config.setDirectory(new File(dir));
+        return config;
+    }
+
+    public static Mode parseMode(String mode) throws IllegalArgumentException {
+        String m = mode.trim().toLowerCase(Locale.ENGLISH);
+        if ("heap".equals(m))
+            return Mode.HEAP;
+        if ("offheap".equals(m) || "off_heap".equals(m))
+            return Mode.OFF_HEAP;
+        if ("auto".equals(m))
+            return Mode.AUTO;
+        throw new IllegalArgumentException("Illegal off-heap mode: " + mode);
+    }
+
+    public static long parseSize(String size) throws IllegalArgumentException {
+        String s = size.trim().toLowerCase(Locale.ENGLISH);
+        long factor = 1;
+        if (s.endsWith("k"))
+            factor = 1L << 10;
+        else if (s.endsWith("m"))
+            factor = 1L << 20;
+        else if (s.endsWith("g"))
+            factor = 1L << 30;
+        if (factor != 1)
+            s = s.substring(0, s.length()-1).trim();
+        try {
+            return factor * Long.parseLong(s);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Illegal size: " + size);
+        }
+    }
+
+    public Mode getMode() {
+        return this.mode;
+    }
+
+    public OffHeapConfiguration setMode(Mode mode) {
+        this.mode = mode;
+        return this;
+    }
+
+    public long getHeapBudget() {
+        return this.heapBudget;
+    }
+
+    public OffHeapConfiguration setHeapBudget(long heapBudget) {
+        if (heapBudget < 0)
+            throw new IllegalArgumentException("heap budget must be non-negative");
+        this.heapBudget = heapBudget;
+        return this;
+    }
+
+    public File getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * @param directory the directory for memory-mapped storage files, or <code>null</code>
+     *                  to use direct buffers
+     */
+    public OffHeapConfiguration setDirectory(File directory) {
+        this.directory = directory;
+        return this;
+    }
+
+    /**
+     * @return the total number of entries of all state collections above which they should
+     *         be moved off-heap ({@link Long#MAX_VALUE} if the mode is not {@link Mode#AUTO},
+     *         since the collections created by {@link #newMap} and {@link #newSet} are
+     *         already stored in the right place then)
+     */
+    public long getEntryThreshold() {
+        if (this.mode != Mode.AUTO)
+            return Long.MAX_VALUE;
+        return this.heapBudget / ESTIMATED_HEAP_BYTES_PER_ENTRY;
+    }
+
+    public <V> Map<Variable, V> newMap(VariableEncoder encoder) {
+        if (this.mode == Mode.OFF_HEAP)
+            return new OffHeapVariableMap<V>(encoder, this.directory);
+        return new HashMap<Variable, V>();
+    }
+
+    public Set<Variable> newSet(VariableEncoder encoder) {
+        if (this.mode == Mode.OFF_HEAP)
+            return new OffHeapVariableSet(encoder, this.directory);
+        return new HashSet<Variable>();
+    }
+
+    /**
+     * Moves the content of the given map into a new off-heap map, and clears the given map.
+     * If it is already stored off-heap, it is returned unchanged.
+     */
+    public <V> Map<Variable, V> moveOffHeap(Map<Variable, V> map, VariableEncoder encoder) {
+        if (map instanceof OffHeapVariableMap<?>)
+            return map;
+        OffHeapVariableMap<V> offHeapMap = new OffHeapVariableMap<V>(encoder, this.directory, map.size());
+        offHeapMap.putAll(map);
+        map.clear();
+        return offHeapMap;
+    }
+
+    /**
+     * Moves the content of the given set into a new off-heap set, and clears the given set.
+     * If it is already stored off-heap, it is returned unchanged.
+     */
+    public Set<Variable> moveOffHeap(Set<Variable> set, VariableEncoder encoder) {
+        if (set instanceof OffHeapVariableSet)
+            return set;
+        OffHeapVariableSet offHeapSet = new OffHeapVariableSet(encoder, this.directory, set.size());
+        offHeapSet.addAll(set);
+        set.clear();
+        return offHeapSet;
+    }
+
+    /**
+     * @return whether the given collection is stored off-heap
+     */
+    public static boolean isOffHeap(Object collection) {
+        return collection instanceof OffHeapVariableMap<?> || collection instanceof OffHeapVariableSet;
+    }
+
+    /**
+     * Shrinks the storage of the given collection if it is stored off-heap and most of
+     * its entries have been removed.
+     */
+    public static void compact(Object collection) {
+        if (collection instanceof OffHeapVariableMap<?>)
+            ((OffHeapVariableMap<?>) collection).compact();
+        else if (collection instanceof OffHeapVariableSet)
+            ((OffHeapVariableSet) collection).compact();
+    }
+
+}
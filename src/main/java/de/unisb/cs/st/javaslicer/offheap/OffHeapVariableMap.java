@@ -0,0 +1,217 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.offheap
+ *    Class:     OffHeapVariableMap
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/offheap/OffHeapVariableMap.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.offheap;
+
+import java.io.File;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+/**
+ * A map from {@link Variable}s to arbitrary values, whose keys are stored outside
+ * of the Java heap (see {@link OffHeapVariableTable}).
+ *
+ * Only the keys leave the heap: the values stay in an on-heap <code>Object[]</code>
+ * parallel to the off-heap slots. For the maps of the dependence extraction, whose
+ * values are instruction instances and reader lists, this is most of the state, so
+ * the saving is bounded by the size of the variables themselves.
+ * The keys returned by {@link #entrySet()} are new objects, equal to the ones
+ * that were inserted. Iterators do not support removal.
+ *
+ * @param <V> the type of the values
+ */
+public class OffHeapVariableMap<V> extends AbstractMap<Variable, V> {
+
+    private class Table extends OffHeapVariableTable {
+
+        private Object[] newValues;
+
+        public Table(VariableEncoder encoder, File directory, int expectedSize) {
+            super(encoder, directory, expectedSize);
+        }
+
+        @Override
+        protected void moved(int fromSlot, int toSlot) {
+            OffHeapVariableMap.this.values[toSlot] = OffHeapVariableMap.this.values[fromSlot];
+        }
+
+        @Override
+        protected void cleared(int slot) {
+            OffHeapVariableMap.this.values[slot] = null;
+        }
+
+        @Override
+        protected void beginResize(int newCapacity) {
+            this.newValues = new Object[newCapacity];
+        }
+
+        @Override
+        protected void relocated(int oldSlot, int newSlot) {
+            this.newValues[newSlot] = OffHeapVariableMap.this.values[oldSlot];
+        }
+
+        @Override
+        protected void endResize() {
+            OffHeapVariableMap.this.values = this.newValues;
+            this.newValues = null;
+        }
+    }
+
+    private final Table table;
+    private Object[] values;
+
+    public OffHeapVariableMap(VariableEncoder encoder, File directory) {
+        this(encoder, directory, 0);
+    }
+
+    public OffHeapVariableMap(VariableEncoder encoder, File directory, int expectedSize) {
+        this.table = new Table(encoder, directory, expectedSize);
+        this.values = new Object[this.table.getCapacity()];
+    }
+
+    @Override
+    public int size() {
+        return this.table.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.table.size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Variable && this.table.find((Variable) key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (!(key instanceof Variable))
+            return null;
+        int slot = this.table.find((Variable) key);
+        return slot < 0 ? null : (V) this.values[slot];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(Variable key, V value) {
+        int slot = this.table.insert(key);
+        if (slot < 0) {
+            this.values[~slot] = value;
+            return null;
+        }
+        V old = (V) this.values[slot];
+        this.values[slot] = value;
+        return old;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        if (!(key instanceof Variable))
+            return null;
+        int slot = this.table.find((Variable) key);
+        if (slot < 0)
+            return null;
+        V old = (V) this.values[slot];
+        this.table.removeAt(slot);
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        this.table.clear();
+    }
+
+    /**
+     * Shrinks the off-heap storage if most of the entries have been removed.
+     */
+    public void compact() {
+        this.table.compact();
+    }
+
+    public long getOffHeapBytes() {
+        return this.table.getOffHeapBytes();
+    }
+
+    @Override
+    public Set<Entry<Variable, V>> entrySet() {
+        return new AbstractSet<Entry<Variable, V>>() {
+
+            @Override
+            public Iterator<Entry<Variable, V>> iterator() {
+                return new Iterator<Entry<Variable, V>>() {
+
+                    private int nextSlot = findNext(0);
+
+                    private int findNext(int from) {
+                        int capacity = OffHeapVariableMap.this.table.getCapacity();
+                        for (int slot = from; slot < capacity; ++slot)
+                            if (OffHeapVariableMap.this.table.isOccupied(slot))
+                                return slot;
+                        return -1;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return this.nextSlot != -1;
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Entry<Variable, V> next() {
+                        if (this.nextSlot == -1)
+                            throw new NoSuchElementException();
+                        int slot = this.nextSlot;
+                        this.nextSlot = findNext(slot + 1);
+                        return new SimpleImmutableEntry<Variable, V>(
+                            OffHeapVariableMap.this.table.getVariable(slot),
+                            (V) OffHeapVariableMap.this.values[slot]);
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+
+                };
+            }
+
+            @Override
+            public int size() {
+                return OffHeapVariableMap.this.table.size();
+            }
+
+            @Override
+            public void clear() {
+                OffHeapVariableMap.this.clear();
+            }
+        };
+    }
+
+}
@@ -0,0 +1,134 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.offheap
+ *    Class:     OffHeapVariableSet
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/offheap/OffHeapVariableSet.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.offheap;
+
+import java.io.File;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+/**
+ * A set of {@link Variable}s which is stored completely outside of the Java heap
+ * (see {@link OffHeapVariableTable}).
+ *
+ * The elements returned by the iterator are new objects, equal to the ones that
+ * were inserted. Iterators do not support removal.
+ */
+public class OffHeapVariableSet extends AbstractSet<Variable> {
+
+    private final OffHeapVariableTable table;
+
+    public OffHeapVariableSet(VariableEncoder encoder, File directory) {
+        this(encoder, directory, 0);
+    }
+
+    public OffHeapVariableSet(VariableEncoder encoder, File directory, int expectedSize) {
+        this.table = new OffHeapVariableTable(encoder, directory, expectedSize);
+    }
+
+    @Override
+    public int size() {
+        return this.table.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.table.size() == 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Variable && this.table.find((Variable) o) >= 0;
+    }
+
+    @Override
+    public boolean add(Variable var) {
+        return this.table.insert(var) < 0;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Variable))
+            return false;
+        int slot = this.table.find((Variable) o);
+        if (slot < 0)
+            return false;
+        this.table.removeAt(slot);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        this.table.clear();
+    }
+
+    /**
+     * Shrinks the off-heap storage if most of the elements have been removed.
+     */
+    public void compact() {
+        this.table.compact();
+    }
+
+    public long getOffHeapBytes() {
+        return this.table.getOffHeapBytes();
+    }
+
+    @Override
+    public Iterator<Variable> iterator() {
+        return new Iterator<Variable>() {
+
+            private int nextSlot = findNext(0);
+
+            private int findNext(int from) {
+                int capacity = OffHeapVariableSet.this.table.getCapacity();
+                for (int slot = from; slot < capacity; ++slot)
+                    if (OffHeapVariableSet.this.table.isOccupied(slot))
+                        return slot;
+                return -1;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return this.nextSlot != -1;
+            }
+
+            @Override
+            public Variable next() {
+                if (this.nextSlot == -1)
+                    throw new NoSuchElementException();
+                int slot = this.nextSlot;
+                this.nextSlot = findNext(slot + 1);
+                return OffHeapVariableSet.this.table.getVariable(slot);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+        };
+    }
+
+}
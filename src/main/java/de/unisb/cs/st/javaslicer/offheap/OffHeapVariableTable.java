@@ -0,0 +1,301 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.offheap
+ *    Class:     OffHeapVariableTable
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/offheap/OffHeapVariableTable.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.offheap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel.MapMode;
+
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+/**
+ * An open addressing hash table (linear probing) of encoded {@link Variable}s, stored
+ * outside of the Java heap.
+ *
+ * Each slot takes 16 bytes (see {@link VariableEncoder}). The slots are stored in pages
+ * of direct buffers or memory-mapped temporary files, so that tables larger than 2GB
+ * are possible. Removal uses backward shifting instead of tombstones, so the table
+ * never needs to be cleaned up. Subclasses get informed when entries move to another
+ * slot, so that they can store additional data per slot.
+ *
+ * Instances are not thread-safe.
+ */
+public class OffHeapVariableTable {
+
+    private static final int SLOT_BYTES = 16;
+    private static final int PAGE_SLOTS_BITS = 20;
+    private static final int PAGE_SLOTS = 1 << PAGE_SLOTS_BITS;
+
+    protected static final int MIN_CAPACITY = 64;
+    protected static final int MAX_CAPACITY = 1 << 30;
+
+    private final VariableEncoder encoder;
+    private final File directory;
+    private final long[] key = new long[2];
+
+    private ByteBuffer[] pages;
+    private int capacity;
+    private int mask;
+    private int size = 0;
+
+    /**
+     * @param encoder the encoder for the variables (may be shared between several tables)
+     * @param directory the directory to store memory-mapped files in, or <code>null</code>
+     *                  to use direct buffers
+     * @param expectedSize the number of entries the table should be able to hold without resizing
+     */
+    public OffHeapVariableTable(VariableEncoder encoder, File directory, int expectedSize) {
+        this.encoder = encoder;
+        this.directory = directory;
+        allocate(capacityFor(expectedSize));
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long needed = 4L * expectedSize / 3 + 1;
+        if (needed > MAX_CAPACITY)
+            return MAX_CAPACITY;
+        return Math.max(MIN_CAPACITY, Integer.highestOneBit((int) needed - 1) << 1);
+    }
+
+    private void allocate(int newCapacity) {
+        this.capacity = newCapacity;
+        this.mask = newCapacity - 1;
+        int numPages = (newCapacity + PAGE_SLOTS - 1) >>> PAGE_SLOTS_BITS;
+        this.pages = new ByteBuffer[numPages];
+        for (int i = 0; i < numPages; ++i)
+            this.pages[i] = allocatePage(SLOT_BYTES * Math.min(newCapacity, PAGE_SLOTS));
+    }
+
+    private ByteBuffer allocatePage(int bytes) {
+        if (this.directory == null)
+            return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+        try {
+            File file = File.createTempFile("javaslicer-state", ".bin", this.directory);
+            try {
+                RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                try {
+                    // the new file content is all zero, i.e. all slots are empty
+                    raf.setLength(bytes);
+                    return raf.getChannel().map(MapMode.READ_WRITE, 0, bytes).order(ByteOrder.nativeOrder());
+                } finally {
+                    raf.close();
+                }
+            } finally {
+                // the mapping stays valid until the buffer is garbage collected
+                if (!file.delete())
+                    file.deleteOnExit();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create off-heap storage file in " + this.directory, e);
+        }
+    }
+
+    private static int hash(long key0, long key1) {
+        long h = key0 * 0x9E3779B97F4A7C15L ^ key1;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private long key0(int slot) {
+        return this.pages[slot >>> PAGE_SLOTS_BITS].getLong((slot & (PAGE_SLOTS-1)) * SLOT_BYTES);
+    }
+
+    private long key1(int slot) {
+        return this.pages[slot >>> PAGE_SLOTS_BITS].getLong((slot & (PAGE_SLOTS-1)) * SLOT_BYTES + 8);
+    }
+
+    private void setKey(int slot, long key0, long key1) {
+        ByteBuffer page = this.pages[slot >>> PAGE_SLOTS_BITS];
+        int offset = (slot & (PAGE_SLOTS-1)) * SLOT_BYTES;
+        page.putLong(offset, key0);
+        page.putLong(offset + 8, key1);
+    }
+
+    private int findSlot(long key0, long key1) {
+        int slot = hash(key0, key1) & this.mask;
+        while (true) {
+            long k1 = key1(slot);
+            if (k1 == 0)
+                return ~slot;
+            if (k1 == key1 && key0(slot) == key0)
+                return slot;
+            slot = (slot + 1) & this.mask;
+        }
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * @return the number of bytes used outside of the heap
+     */
+    public long getOffHeapBytes() {
+        return (long) SLOT_BYTES * this.capacity;
+    }
+
+    /**
+     * @return the slot of the given variable, or a negative value if it is not contained
+     */
+    public int find(Variable var) {
+        this.encoder.encode(var, this.key);
+        int slot = findSlot(this.key[0], this.key[1]);
+        return slot < 0 ? -1 : slot;
+    }
+
+    /**
+     * Inserts the given variable if it is not contained yet.
+     *
+     * @return the slot of the variable if it was already contained, or the bitwise
+     *         complement of the slot it was inserted into
+     */
+    public int insert(Variable var) {
+        if (this.size >= (this.capacity >>> 2) * 3)
+            resize(this.capacity << 1);
+        this.encoder.encode(var, this.key);
+        int slot = findSlot(this.key[0], this.key[1]);
+        if (slot < 0) {
+            setKey(~slot, this.key[0], this.key[1]);
+            ++this.size;
+        }
+        return slot;
+    }
+
+    /**
+     * Removes the entry in the given slot, moving following entries backwards
+     * (reported via {@link #moved(int, int)}).
+     */
+    public void removeAt(int slot) {
+        int hole = slot;
+        int next = (hole + 1) & this.mask;
+        while (true) {
+            long k1 = key1(next);
+            if (k1 == 0)
+                break;
+            long k0 = key0(next);
+            int home = hash(k0, k1) & this.mask;
+            // the entry can be moved into the hole iff its home slot is not cyclically in (hole, next]
+            if (((next - home) & this.mask) >= ((next - hole) & this.mask)) {
+                setKey(hole, k0, k1);
+                moved(next, hole);
+                hole = next;
+            }
+            next = (next + 1) & this.mask;
+        }
+        setKey(hole, 0, 0);
+        cleared(hole);
+        --this.size;
+    }
+
+    /**
+     * @return the variable stored in the given slot (a new, equal object)
+     */
+    public Variable getVariable(int slot) {
+        return this.encoder.decode(key0(slot), key1(slot));
+    }
+
+    public boolean isOccupied(int slot) {
+        return key1(slot) != 0;
+    }
+
+    /**
+     * Shrinks the table if it is filled by less than an eighth.
+     */
+    public void compact() {
+        if (this.capacity > MIN_CAPACITY && this.size < (this.capacity >>> 3))
+            resize(capacityFor(2 * this.size));
+    }
+
+    public void clear() {
+        beginResize(MIN_CAPACITY);
+        allocate(MIN_CAPACITY);
+        this.size = 0;
+        endResize();
+    }
+
+    private void resize(int newCapacity) {
+        if (newCapacity == this.capacity)
+            return;
+        if (newCapacity > MAX_CAPACITY)
+            throw new IllegalStateException("Off-heap variable table is full");
+        ByteBuffer[] oldPages = this.pages;
+        int oldCapacity = this.capacity;
+        beginResize(newCapacity);
+        allocate(newCapacity);
+        for (int oldSlot = 0; oldSlot < oldCapacity; ++oldSlot) {
+            ByteBuffer page = oldPages[oldSlot >>> PAGE_SLOTS_BITS];
+            int offset = (oldSlot & (PAGE_SLOTS-1)) * SLOT_BYTES;
+            long k1 = page.getLong(offset + 8);
+            if (k1 == 0)
+                continue;
+            long k0 = page.getLong(offset);
+            int slot = ~findSlot(k0, k1);
+            assert slot >= 0;
+            setKey(slot, k0, k1);
+            relocated(oldSlot, slot);
+        }
+        endResize();
+    }
+
+    /**
+     * Called when an entry has moved from one slot to another during removal.
+     */
+    protected void moved(int fromSlot, int toSlot) {
+        // hook for subclasses
+    }
+
+    /**
+     * Called when a slot has been freed.
+     */
+    protected void cleared(int slot) {
+        // hook for subclasses
+    }
+
+    /**
+     * Called before the table is reallocated with the given capacity.
+     * All entries are then reported via {@link #relocated(int, int)},
+     * followed by a call to {@link #endResize()}.
+     */
+    protected void beginResize(int newCapacity) {
+        // hook for subclasses
+    }
+
+    protected void relocated(int oldSlot, int newSlot) {
+        // hook for subclasses
+    }
+
+    protected void endResize() {
+        // hook for subclasses
+    }
+
+}
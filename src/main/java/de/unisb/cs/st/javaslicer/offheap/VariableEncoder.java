@@ -0,0 +1,128 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.offheap
+ *    Class:     VariableEncoder
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/offheap/VariableEncoder.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.offheap;
+
+import de.hammacher.util.maps.LongMap;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.variables.ArrayElement;
+import de.unisb.cs.st.javaslicer.variables.FieldTable;
+import de.unisb.cs.st.javaslicer.variables.LocalVariable;
+import de.unisb.cs.st.javaslicer.variables.ObjectField;
+import de.unisb.cs.st.javaslicer.variables.StackEntry;
+import de.unisb.cs.st.javaslicer.variables.StaticField;
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+/**
+ * Encodes {@link Variable}s into two longs and back.
+ *
+ * The first long holds the frame, object or array id (0 for static fields), the second
+ * one holds the kind of the variable in the upper 4 bits and the index (local variable
+ * index, stack index, array index or the id of the field in the {@link FieldTable}) in
+ * the lower 32 bits. Since the kind is never 0, the second long of a valid key is never 0.
+ *
+ * Like {@link LocalVariable#equals(Object)}, the key of a local variable only consists of
+ * its frame and index. The method of a decoded local variable is the one of the first
+ * local variable encoded for its frame; these methods are kept in a table on the heap
+ * until the frame is released (see {@link #releaseFrame(long)}), so the table only grows
+ * with the number of live frames.
+ */
+public class VariableEncoder {
+
+    private static final int KIND_LOCAL = 1;
+    private static final int KIND_STACK = 2;
+    private static final int KIND_FIELD = 3;
+    private static final int KIND_ARRAY = 4;
+    private static final int KIND_STATIC = 5;
+
+    // the method of each frame whose local variables have been encoded
+    private final LongMap<ReadMethod> frameMethods = new LongMap<ReadMethod>();
+
+    /**
+     * Encodes the given variable into <code>key[0]</code> and <code>key[1]</code>.
+     *
+     * @throws IllegalArgumentException if the variable is of an unknown type
+     */
+    public void encode(Variable var, long[] key) {
+        if (var instanceof LocalVariable) {
+            LocalVariable local = (LocalVariable) var;
+            key[0] = local.getFrame();
+            key[1] = pack(KIND_LOCAL, local.getVarIndex());
+            if (local.getMethod() != null && !this.frameMethods.containsKey(local.getFrame()))
+                this.frameMethods.put(local.getFrame(), local.getMethod());
+        } else if (var instanceof StackEntry) {
+            StackEntry entry = (StackEntry) var;
+            key[0] = entry.getFrame();
+            key[1] = pack(KIND_STACK, entry.getIndex());
+        } else if (var instanceof ObjectField) {
+            ObjectField field = (ObjectField) var;
+            key[0] = field.getObjectId();
+            key[1] = pack(KIND_FIELD, field.getFieldId());
+        } else if (var instanceof ArrayElement) {
+            ArrayElement elem = (ArrayElement) var;
+            key[0] = elem.getArrayId();
+            key[1] = pack(KIND_ARRAY, elem.getArrayIndex());
+        } else if (var instanceof StaticField) {
+            StaticField field = (StaticField) var;
+            key[0] = 0;
+            key[1] = pack(KIND_STATIC, field.getFieldId());
+        } else {
+            throw new IllegalArgumentException("Cannot encode variables of type " + var.getClass().getName());
+        }
+    }
+
+    /**
+     * Creates a new {@link Variable} object which is equal to the one that was encoded
+     * into the two given longs.
+     */
+    public Variable decode(long key0, long key1) {
+        int kind = (int) (key1 >>> 60);
+        int index = (int) key1;
+        switch (kind) {
+        case KIND_LOCAL:
+            return new LocalVariable(key0, index, this.frameMethods.get(key0));
+        case KIND_STACK:
+            return new StackEntry(key0, index);
+        case KIND_FIELD:
+            return new ObjectField(key0, index);
+        case KIND_ARRAY:
+            return new ArrayElement(key0, index);
+        case KIND_STATIC:
+            return new StaticField(index);
+        default:
+            throw new IllegalArgumentException("Illegal variable key: " + key0 + "/" + key1);
+        }
+    }
+
+    /**
+     * Forgets the method of the given frame. Must only be called once no local variable
+     * of the frame is stored in a map or set using this encoder any more.
+     */
+    public void releaseFrame(long frame) {
+        this.frameMethods.remove(frame);
+    }
+
+    private static long pack(int kind, int index) {
+        return ((long) kind << 60) | (index & 0xffffffffL);
+    }
+
+}
@@ -0,0 +1,130 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.slicing
+ *    Class:     CompiledSlicingCriteria
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/slicing/CompiledSlicingCriteria.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.slicing;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.slicing.StaticSlicingCriterion.StaticSlicingCriterionInstance;
+
+/**
+ * The instances of a list of slicing criteria for one slicing run, together with a
+ * table over the (global) instruction indexes which contains all instructions that
+ * may match any of the criteria.
+ *
+ * For each instance of the trace, {@link #mayMatch(InstructionInstance)} has to be
+ * called first; only if it returns <code>true</code>, the criteria have to be checked
+ * individually (which also does the occurrence counting).
+ * If one of the criteria is not a {@link StaticSlicingCriterion}, no table is built
+ * and every instance has to be checked against all criteria.
+ */
+public class CompiledSlicingCriteria {
+
+    private final List<SlicingCriterionInstance> instances;
+    // null if not all criteria are static
+    private final BitSet candidates;
+    private final StaticSlicingCriterion.RunClock clock;
+
+    public CompiledSlicingCriteria(List<SlicingCriterion> criteria) {
+        if (criteria.isEmpty())
+            this.instances = Collections.emptyList();
+        else if (criteria.size() == 1)
+            this.instances = Collections.singletonList(criteria.get(0).getInstance());
+        else {
+            List<SlicingCriterionInstance> list = new ArrayList<SlicingCriterionInstance>(criteria.size());
+            for (SlicingCriterion crit : criteria)
+                list.add(crit.getInstance());
+            this.instances = list;
+        }
+
+        BitSet table = new BitSet();
+        for (SlicingCriterionInstance inst: this.instances) {
+            if (!(inst instanceof StaticSlicingCriterionInstance)) {
+                table = null;
+                break;
+            }
+            ((StaticSlicingCriterionInstance) inst).addMatchingInstructions(table);
+        }
+        this.candidates = table;
+        this.clock = new StaticSlicingCriterion.RunClock();
+        if (table != null)
+            for (SlicingCriterionInstance inst: this.instances)
+                ((StaticSlicingCriterionInstance) inst).setSharedClock(this.clock);
+    }
+
+    public List<SlicingCriterionInstance> getInstances() {
+        return this.instances;
+    }
+
+    /**
+     * Checks whether the given instance can match any of the criteria.
+     * This method must be called for every visited instance, in trace order.
+     *
+     * @param instance the current instance of the trace
+     * @return <code>false</code> if none of the criteria matches the instance,
+     *         <code>true</code> if the criteria have to be checked
+     */
+    public boolean mayMatch(InstructionInstance instance) {
+        if (this.candidates == null)
+            return true;
+        if (this.candidates.isEmpty())
+            return false;
+        int stackDepth = instance.getStackDepth();
+        if (stackDepth <= 0)
+            return false;
+        this.clock.tick(stackDepth);
+        return this.candidates.get(instance.getInstruction().getIndex());
+    }
+
+    /**
+     * Checks whether any of the criteria may match an instance of an instruction of the given method.
+     *
+     * @param method the method
+     * @return <code>false</code> if no instruction of the method can match any of the criteria
+     */
+    public boolean mayMatchIn(ReadMethod method) {
+        if (this.candidates == null)
+            return true;
+        int next = this.candidates.nextSetBit(method.getInstructionNumberStart());
+        return next >= 0 && next < method.getInstructionNumberEnd();
+    }
+
+    /**
+     * @return <code>true</code> if none of the criteria can match any further instance,
+     *         i.e. all of them are static criteria with an occurrence number that was
+     *         already reached
+     */
+    public boolean isExhausted() {
+        if (this.candidates == null)
+            return false;
+        for (SlicingCriterionInstance inst: this.instances)
+            if (!((StaticSlicingCriterionInstance) inst).isExhausted())
+                return false;
+        return true;
+    }
+
+}
@@ -28,6 +28,7 @@ import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -37,6 +38,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
 
+import javax.management.JMException;
+
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.GnuParser;
@@ -47,6 +50,7 @@ import org.apache.commons.cli.ParseException;
 import org.objectweb.asm.Opcodes;
 
 import de.hammacher.util.maps.IntegerMap;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.AbstractInstructionInstanceFactory;
 import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
 import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
 import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionType;
@@ -55,12 +59,26 @@ import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.LabelMa
 import de.unisb.cs.st.javaslicer.common.progress.ConsoleProgressMonitor;
 import de.unisb.cs.st.javaslicer.common.progress.ProgressMonitor;
 import de.unisb.cs.st.javaslicer.controlflowanalysis.ControlFlowAnalyser;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.BlackBoxScope;
+import de.unisb.cs.st.javaslicer.instructionSimulation.BlackBoxEffects;
 import de.unisb.cs.st.javaslicer.instructionSimulation.DynamicInformation;
 import de.unisb.cs.st.javaslicer.instructionSimulation.SimulationEnvironment;
 import de.unisb.cs.st.javaslicer.instructionSimulation.Simulator;
-import de.unisb.cs.st.javaslicer.traceResult.BackwardTraceIterator;
+import de.unisb.cs.st.javaslicer.metrics.Diagnostics;
+import de.unisb.cs.st.javaslicer.metrics.Diagnostics.Category;
+import de.unisb.cs.st.javaslicer.metrics.Diagnostics.Level;
+import de.unisb.cs.st.javaslicer.metrics.SlicingEvents;
+import de.unisb.cs.st.javaslicer.metrics.SlicingMetrics;
+import de.unisb.cs.st.javaslicer.metrics.SlicingMetrics.Counter;
+import de.unisb.cs.st.javaslicer.metrics.SlicingMetrics.Phase;
+import de.unisb.cs.st.javaslicer.offheap.OffHeapConfiguration;
+import de.unisb.cs.st.javaslicer.offheap.VariableEncoder;
 import de.unisb.cs.st.javaslicer.traceResult.ThreadId;
 import de.unisb.cs.st.javaslicer.traceResult.TraceResult;
+import de.unisb.cs.st.javaslicer.traceSource.BackwardInstanceIterator;
+import de.unisb.cs.st.javaslicer.traceSource.TraceResultSource;
+import de.unisb.cs.st.javaslicer.traceSource.TraceSource;
+import de.unisb.cs.st.javaslicer.variables.HeapAbstraction;
 import de.unisb.cs.st.javaslicer.variables.LocalVariable;
 import de.unisb.cs.st.javaslicer.variables.StackEntry;
 import de.unisb.cs.st.javaslicer.variables.Variable;
@@ -79,11 +97,18 @@ import de.unisb.cs.st.javaslicer.variables.Variable;
  */
 public class DirectSlicer implements Opcodes {
 
-    private final TraceResult trace;
+    private final TraceSource trace;
     private final Simulator<InstructionInstance> simulator;
     private final List<ProgressMonitor> progressMonitors = new ArrayList<ProgressMonitor>(1);
+    private SlicingMetrics metrics = null;
+    private OffHeapConfiguration offHeapConfiguration = OffHeapConfiguration.fromSystemProperties();
+    private BlackBoxScope blackBoxScope = null;
 
     public DirectSlicer(TraceResult trace) {
+        this(new TraceResultSource(trace));
+    }
+
+    public DirectSlicer(TraceSource trace) {
         this.trace = trace;
         this.simulator = new Simulator<InstructionInstance>(trace);
     }
@@ -125,7 +150,7 @@ public class DirectSlicer implements Opcodes {
 
         TraceResult trace;
         try {
-            trace = TraceResult.readFrom(traceFile);
+            trace = Slicer.readTrace(traceFile);
         } catch (IOException e) {
             System.err.format("Could not read the trace file \"%s\": %s%n", traceFile, e);
             System.exit(-1);
@@ -168,6 +193,27 @@ public class DirectSlicer implements Opcodes {
         DirectSlicer slicer = new DirectSlicer(trace);
         if (cmdLine.hasOption("--progress"))
             slicer.addProgressMonitor(new ConsoleProgressMonitor());
+        if (cmdLine.hasOption("black-box"))
+            slicer.setBlackBoxScope(BlackBoxScope.parse(cmdLine.getOptionValue("black-box")));
+        if (cmdLine.hasOption("heap")) {
+            try {
+                slicer.setHeapAbstraction(HeapAbstraction.parse(cmdLine.getOptionValue("heap")));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Illegal heap abstraction: " + cmdLine.getOptionValue("heap"));
+                System.exit(-1);
+                return;
+            }
+        }
+        SlicingMetrics metrics = null;
+        if (cmdLine.hasOption("stats")) {
+            metrics = new SlicingMetrics();
+            slicer.setMetrics(metrics);
+            try {
+                metrics.registerMBean();
+            } catch (JMException e) {
+                System.err.println("Could not register the statistics MBean: " + e);
+            }
+        }
         Set<Instruction> slice = slicer.getDynamicSlice(tracing, sc);
         long endTime = System.nanoTime();
 
@@ -184,18 +230,81 @@ public class DirectSlicer implements Opcodes {
         }
         System.out.format((Locale)null, "%nSlice consists of %d bytecode instructions.%n", sliceList.size());
         System.out.format((Locale)null, "Computation took %.2f seconds.%n", 1e-9*(endTime-startTime));
+        if (metrics != null) {
+            System.out.println();
+            metrics.printReport(System.out);
+        }
+    }
+
+    private static void evictFrame(Set<Variable> interestingVariables, VariableEncoder variableEncoder,
+            SimulationEnvironment simEnv, int stackDepth) {
+        variableEncoder.releaseFrame(simEnv.frames[stackDepth]);
+        if (interestingVariables.isEmpty())
+            return;
+        for (Variable var: simEnv.getAllVariables(stackDepth))
+            interestingVariables.remove(var);
+        OffHeapConfiguration.compact(interestingVariables);
     }
 
     private void addProgressMonitor(ProgressMonitor progressMonitor) {
         this.progressMonitors.add(progressMonitor);
     }
 
+    /**
+     * Sets the metrics object that is updated while slicing (<code>null</code> to disable).
+     */
+    public void setMetrics(SlicingMetrics metrics) {
+        this.metrics = metrics;
+        this.simulator.setMetrics(metrics);
+    }
+
+    /**
+     * Sets where the set of interesting variables is stored.
+     * The default is read from the system properties (see {@link OffHeapConfiguration}).
+     */
+    public void setOffHeapConfiguration(OffHeapConfiguration offHeapConfiguration) {
+        this.offHeapConfiguration = offHeapConfiguration;
+    }
+
+    /**
+     * Sets the packages and classes whose frames are treated as black boxes
+     * (<code>null</code>, the default, to simulate all frames).
+     * See {@link de.unisb.cs.st.javaslicer.dependenceAnalysis.DependencesExtractor#setBlackBoxScope(BlackBoxScope)}
+     * for the summary which replaces these frames.
+     */
+    public void setBlackBoxScope(BlackBoxScope blackBoxScope) {
+        this.blackBoxScope = blackBoxScope == null || blackBoxScope.isEmpty() ? null : blackBoxScope;
+    }
+
+    /**
+     * Sets the representation of the heap locations (default: {@link HeapAbstraction#OBJECTS}).
+     * See {@link Simulator#setHeapAbstraction(HeapAbstraction)}.
+     */
+    public void setHeapAbstraction(HeapAbstraction heapAbstraction) {
+        this.simulator.setHeapAbstraction(heapAbstraction);
+    }
+
+    private static boolean isReturnInstruction(Instruction instruction) {
+        switch (instruction.getOpcode()) {
+        case IRETURN: case LRETURN: case FRETURN:
+        case DRETURN: case ARETURN: case RETURN:
+            return true;
+        default:
+            return false;
+        }
+    }
+
     public Set<Instruction> getDynamicSlice(ThreadId threadId, List<SlicingCriterion> sc) {
-        BackwardTraceIterator<InstructionInstance> backwardInsnItr = this.trace.getBackwardIterator(threadId, null);
+        BackwardInstanceIterator<InstructionInstance> backwardInsnItr =
+            this.trace.getBackwardIterator(threadId, new AbstractInstructionInstanceFactory());
 
         IntegerMap<Set<Instruction>> controlDependences = new IntegerMap<Set<Instruction>>();
 
-        Set<Variable> interestingVariables = new HashSet<Variable>();
+        // moved off-heap once it exceeds the heap budget
+        OffHeapConfiguration offHeapConfig = this.offHeapConfiguration;
+        VariableEncoder variableEncoder = new VariableEncoder();
+        long offHeapThreshold = offHeapConfig.getEntryThreshold();
+        Set<Variable> interestingVariables = offHeapConfig.newSet(variableEncoder);
         Set<Instruction> dynamicSlice = new HashSet<Instruction>();
 
         long nextFrameNr = 0;
@@ -244,30 +353,91 @@ public class DirectSlicer implements Opcodes {
 		SimulationEnvironment simEnv = new SimulationEnvironment(frames, opStack, minOpStack,
 			cachedStackEntries, cachedLocalVariables, throwsException, lastInstruction, method, interruptedControlFlow);
 
-        List<SlicingCriterionInstance> slicingCriteria;
-        if (sc.isEmpty())
-            slicingCriteria = Collections.emptyList();
-        else if (sc.size() == 1)
-            slicingCriteria = Collections.singletonList(sc.get(0).getInstance());
-        else {
-            slicingCriteria = new ArrayList<SlicingCriterionInstance>(sc.size());
-            for (SlicingCriterion crit : sc)
-                slicingCriteria.add(crit.getInstance());
-        }
+        CompiledSlicingCriteria compiledCriteria = new CompiledSlicingCriteria(sc);
+        List<SlicingCriterionInstance> slicingCriteria = compiledCriteria.getInstances();
 
+        final SlicingMetrics metrics = this.metrics;
+        final BlackBoxScope blackBoxScope0 = this.blackBoxScope;
+        final Counter blackBoxFrames = metrics == null || blackBoxScope0 == null ? null
+            : metrics.getCounter(BlackBoxScope.COUNTERS, "frames");
+        final Counter blackBoxInstances = blackBoxFrames == null ? null
+            : metrics.getCounter(BlackBoxScope.COUNTERS, "instances");
+        final HeapAbstraction heapAbstraction = this.simulator.getHeapAbstraction();
         for (ProgressMonitor mon : this.progressMonitors)
             mon.start(backwardInsnItr);
+        if (metrics != null)
+            metrics.start();
+        SlicingEvents.SliceCompleted completedEvent = null;
+        if (SlicingEvents.AVAILABLE) {
+            completedEvent = new SlicingEvents.SliceCompleted();
+            completedEvent.begin();
+        }
+        SlicingEvents.SimulationTimes simulationTimes = SlicingEvents.SimulationTimes.createIfEnabled();
+        long numInstances = 0;
         try {
             @SuppressWarnings("unchecked")
             Set<Variable>[] matchedCriterionVariables = (Set<Variable>[]) new Set<?>[8];
 
-            while (backwardInsnItr.hasNext()) {
-                InstructionInstance instance = backwardInsnItr.next();
+            // the first instance of the calling frame after a black box frame
+            InstructionInstance pushedBack = null;
+            // the summary of the black box frame which has been consumed before the current instance
+            BlackBoxEffects blackBoxEffects = null;
+
+            long lapTime = metrics == null ? 0 : System.nanoTime();
+            while (pushedBack != null || backwardInsnItr.hasNext()) {
+                InstructionInstance instance = pushedBack != null ? pushedBack : backwardInsnItr.next();
+                pushedBack = null;
                 Instruction instruction = instance.getInstruction();
+                if (metrics != null) {
+                    lapTime = metrics.lap(Phase.TRACE_READING, lapTime);
+                    metrics.instanceProcessed(instance.getStackDepth());
+                }
+                if (SlicingEvents.AVAILABLE && (numInstances & (SlicingEvents.PROGRESS_INTERVAL-1)) == 0) {
+                    SlicingEvents.TraversalProgress progressEvent = new SlicingEvents.TraversalProgress();
+                    if (progressEvent.shouldCommit()) {
+                        progressEvent.instances = instance.getInstanceNr();
+                        progressEvent.percentageDone = backwardInsnItr.getPercentageDone();
+                        progressEvent.stackDepth = stackDepth;
+                        progressEvent.liveVariables = interestingVariables.size();
+                        progressEvent.commit();
+                    }
+                }
+                ++numInstances;
 
                 int newStackDepth = instance.getStackDepth();
                 assert newStackDepth > 0;
 
+                if (blackBoxScope0 != null && stackDepth > 0 && newStackDepth == stackDepth+1
+                        && isReturnInstruction(instruction) && atCatchBlockStart[stackDepth] == null
+                        && !throwsException[stackDepth] && blackBoxScope0.contains(instruction.getMethod())) {
+                    // consume the whole frame, until the entry of the method
+                    ReadMethod blackBoxMethod = instruction.getMethod();
+                    boolean entered = instruction == blackBoxMethod.getMethodEntryLabel();
+                    blackBoxEffects = new BlackBoxEffects(this.simulator);
+                    blackBoxEffects.addInstance(instance);
+                    while (backwardInsnItr.hasNext()) {
+                        InstructionInstance next = backwardInsnItr.next();
+                        int depth = next.getStackDepth();
+                        if (depth <= stackDepth || (depth == newStackDepth
+                                && (entered || next.getInstruction().getMethod() != blackBoxMethod))) {
+                            pushedBack = next;
+                            break;
+                        }
+                        if (metrics != null)
+                            metrics.instanceProcessed(depth);
+                        ++numInstances;
+                        if (depth == newStackDepth && next.getInstruction() == blackBoxMethod.getMethodEntryLabel())
+                            entered = true;
+                        blackBoxEffects.addInstance(next);
+                    }
+                    if (metrics != null) {
+                        blackBoxFrames.increment();
+                        blackBoxInstances.add(blackBoxEffects.getInstances());
+                        lapTime = metrics.lap(Phase.TRACE_READING, lapTime);
+                    }
+                    continue;
+                }
+
                 simEnv.removedMethod = null;
                 boolean reenter = false;
                 if (newStackDepth != stackDepth || (reenter = finished[stackDepth] || method[stackDepth] != instruction.getMethod())) {
@@ -298,6 +468,8 @@ public class DirectSlicer implements Opcodes {
                 			simEnv = new SimulationEnvironment(frames, opStack, minOpStack,
                 				cachedStackEntries, cachedLocalVariables, throwsException, lastInstruction, method, interruptedControlFlow);
                         }
+                        if (reenter && OffHeapConfiguration.isOffHeap(interestingVariables))
+                            evictFrame(interestingVariables, variableEncoder, simEnv, newStackDepth);
                         frames[newStackDepth] = nextFrameNr++;
                         method[newStackDepth] = instruction.getMethod();
 
@@ -334,7 +506,16 @@ public class DirectSlicer implements Opcodes {
                     finished[stackDepth] = true;
                 lastInstruction[stackDepth] = instruction;
 
+                long simulationStart = simulationTimes == null ? 0 : System.nanoTime();
                 DynamicInformation dynInfo = this.simulator.simulateInstruction(instance, simEnv);
+                if (simulationTimes != null)
+                    simulationTimes.add(instruction.getMethod(), System.nanoTime() - simulationStart);
+                if (blackBoxEffects != null) {
+                    dynInfo = blackBoxEffects.apply(dynInfo);
+                    blackBoxEffects = null;
+                }
+                if (metrics != null)
+                    lapTime = metrics.lap(Phase.SIMULATION, lapTime);
 
                 if (simEnv.removedMethod != null &&
                         !interestingInstructions[stackDepth+1].isEmpty()) {
@@ -346,26 +527,31 @@ public class DirectSlicer implements Opcodes {
 
                 if (matchedCriterionVariables.length <= stackDepth)
                 	matchedCriterionVariables = Arrays.copyOf(matchedCriterionVariables, 2*Math.max(stackDepth, matchedCriterionVariables.length));
-                for (SlicingCriterionInstance crit : slicingCriteria) {
-                    if (crit.matches(instance)) {
-                        if (matchedCriterionVariables[stackDepth] == null)
-                            matchedCriterionVariables[stackDepth] = new HashSet<Variable>();
-                        if (crit.matchAllData()) {
-                            matchedCriterionVariables[stackDepth].removeAll(dynInfo.getDefinedVariables());
-                            matchedCriterionVariables[stackDepth].addAll(dynInfo.getUsedVariables());
-                            dynamicSlice.add(instruction);
-                            interestingInstructions[stackDepth].add(instance.getInstruction());
-                        } else if (crit.hasLocalVariables()) {
-                            for (de.unisb.cs.st.javaslicer.common.classRepresentation.LocalVariable var : crit.getLocalVariables())
-                                interestingVariables.add(simEnv.getLocalVariable(stackDepth, var.getIndex()));
-                        } else {
-                            interestingInstructions[stackDepth].add(instance.getInstruction());
-                            dynamicSlice.add(instruction);
+                if (compiledCriteria.mayMatch(instance)) {
+                    for (SlicingCriterionInstance crit : slicingCriteria) {
+                        if (crit.matches(instance)) {
+                            if (matchedCriterionVariables[stackDepth] == null)
+                                matchedCriterionVariables[stackDepth] = new HashSet<Variable>();
+                            if (crit.matchAllData()) {
+                                matchedCriterionVariables[stackDepth].removeAll(dynInfo.getDefinedVariables());
+                                matchedCriterionVariables[stackDepth].addAll(dynInfo.getUsedVariables());
+                                dynamicSlice.add(instruction);
+                                interestingInstructions[stackDepth].add(instance.getInstruction());
+                            } else if (crit.hasLocalVariables()) {
+                                for (de.unisb.cs.st.javaslicer.common.classRepresentation.LocalVariable var : crit.getLocalVariables())
+                                    interestingVariables.add(simEnv.getLocalVariable(stackDepth, var.getIndex()));
+                            } else {
+                                interestingInstructions[stackDepth].add(instance.getInstruction());
+                                dynamicSlice.add(instruction);
+                            }
+                        } else if (matchedCriterionVariables[stackDepth] != null) {
+                            interestingVariables.addAll(matchedCriterionVariables[stackDepth]);
+                            matchedCriterionVariables[stackDepth] = null;
                         }
-                    } else if (matchedCriterionVariables[stackDepth] != null) {
-                        interestingVariables.addAll(matchedCriterionVariables[stackDepth]);
-                        matchedCriterionVariables[stackDepth] = null;
                     }
+                } else if (matchedCriterionVariables[stackDepth] != null) {
+                    interestingVariables.addAll(matchedCriterionVariables[stackDepth]);
+                    matchedCriterionVariables[stackDepth] = null;
                 }
 
                 boolean isExceptionsThrowingInstance = throwsException[stackDepth] &&
@@ -374,9 +560,13 @@ public class DirectSlicer implements Opcodes {
                 if (!interestingInstructions[stackDepth].isEmpty() || isExceptionsThrowingInstance) {
                     Set<Instruction> instrControlDependences = controlDependences.get(instruction.getIndex());
                     if (instrControlDependences == null) {
+                        if (metrics != null)
+                            metrics.controlDependenceCacheMiss();
                         computeControlDependences(instruction.getMethod(), controlDependences);
                         instrControlDependences = controlDependences.get(instruction.getIndex());
                         assert instrControlDependences != null;
+                    } else if (metrics != null) {
+                        metrics.controlDependenceCacheHit();
                     }
                     // get all interesting instructions, that are dependent on the current one
                     Set<Instruction> dependantInterestingInstructions = intersect(instrControlDependences,
@@ -416,13 +606,17 @@ public class DirectSlicer implements Opcodes {
                         interestingVariables.addAll(dynInfo.getUsedVariables());
                     }
                 }
+                if (metrics != null)
+                    lapTime = metrics.lap(Phase.CONTROL_DEPENDENCES, lapTime);
 
                 if (!interestingVariables.isEmpty()) {
                     for (Variable definedVariable: dynInfo.getDefinedVariables()) {
                         if (interestingVariables.contains(definedVariable)) {
                             interestingInstructions[stackDepth].add(instruction);
                             dynamicSlice.add(instruction);
-                            interestingVariables.remove(definedVariable);
+                            // writes to summary variables of the heap abstraction are weak updates
+                            if (!heapAbstraction.isSummary(definedVariable))
+                                interestingVariables.remove(definedVariable);
                             interestingVariables.addAll(dynInfo.getUsedVariables(definedVariable));
                         }
                     }
@@ -435,10 +629,40 @@ public class DirectSlicer implements Opcodes {
                     atCatchBlockStart[stackDepth] = null;
                 }
 
+                // the variables of left frames and of created objects cannot be defined any more; on
+                // the heap they are simply never looked up again, off-heap they are removed to keep
+                // the table (and the frames of the encoder) small. Summary variables of the heap
+                // abstraction are only weakly updated, so they are always removed once their array
+                // resp. the first object of their allocation site is created.
+                boolean offHeap = OffHeapConfiguration.isOffHeap(interestingVariables);
+                if (offHeap && simEnv.removedMethod != null)
+                    evictFrame(interestingVariables, variableEncoder, simEnv, stackDepth+1);
+                if ((offHeap || heapAbstraction != HeapAbstraction.OBJECTS) && !interestingVariables.isEmpty()) {
+                    for (Collection<? extends Variable> objectVariables: dynInfo.getCreatedObjects().values())
+                        for (Variable var: objectVariables)
+                            interestingVariables.remove(var);
+                }
+
+                if (interestingVariables.size() > offHeapThreshold) {
+                    if (Diagnostics.ENABLED)
+                        Diagnostics.log(Category.TRAVERSAL, Level.INFO, "moving %d interesting variables off-heap",
+                            interestingVariables.size());
+                    interestingVariables = offHeapConfig.moveOffHeap(interestingVariables, variableEncoder);
+                    offHeapThreshold = Long.MAX_VALUE;
+                }
+
+                if (metrics != null) {
+                    metrics.interestingVariables(interestingVariables.size());
+                    lapTime = metrics.lap(Phase.DATA_DEPENDENCES, lapTime);
+                }
             }
         } finally {
             for (ProgressMonitor mon : this.progressMonitors)
                 mon.end();
+            if (metrics != null)
+                metrics.end();
+            if (simulationTimes != null)
+                simulationTimes.commit();
         }
 
         for (Iterator<Instruction> it = dynamicSlice.iterator(); it.hasNext(); ) {
@@ -446,12 +670,22 @@ public class DirectSlicer implements Opcodes {
         	if (instr.getType() == InstructionType.LABEL || instr.getOpcode() == Opcodes.GOTO)
         		it.remove();
         }
+        if (metrics != null)
+            metrics.setSliceInstructions(dynamicSlice.size());
+        if (completedEvent != null && completedEvent.shouldCommit()) {
+            completedEvent.slicer = DirectSlicer.class.getSimpleName();
+            completedEvent.thread = threadId.getThreadName();
+            completedEvent.criterion = sc.toString();
+            completedEvent.instances = numInstances;
+            completedEvent.sliceSize = dynamicSlice.size();
+            completedEvent.commit();
+        }
 
         return dynamicSlice;
     }
 
     private void computeControlDependences(ReadMethod method, IntegerMap<Set<Instruction>> controlDependences) {
-        Map<Instruction, Set<Instruction>> deps = ControlFlowAnalyser.getInstance().getInvControlDependences(method);
+        Map<Instruction, Set<Instruction>> deps = ControlFlowAnalyser.getInstance().getInvControlDependences(method, this.metrics);
         for (Entry<Instruction, Set<Instruction>> entry: deps.entrySet()) {
             int index = entry.getKey().getIndex();
             assert !controlDependences.containsKey(index);
@@ -497,6 +731,15 @@ public class DirectSlicer implements Opcodes {
             withDescription("show progress while computing the dynamic slice").withLongOpt("progress").create('p'));
         options.addOption(OptionBuilder.isRequired(false).hasArg(false).
             withDescription("print this help and exit").withLongOpt("help").create('h'));
+        options.addOption(OptionBuilder.isRequired(false).hasArg(false).
+            withDescription("print performance statistics after slicing (also exported via JMX while slicing)").withLongOpt("stats").create('s'));
+        options.addOption(OptionBuilder.isRequired(false).hasArg(true).withArgName("patterns").
+            withDescription("comma separated packages (e.g. java.*) and classes whose frames are not simulated, " +
+                "but replaced by a conservative summary").withLongOpt("black-box").create('b'));
+        options.addOption(OptionBuilder.isRequired(false).hasArg(true).withArgName("abstraction").
+            withDescription("representation of the heap: objects (precise, default), fields, arrays or " +
+                "allocation-sites; all but objects merge heap locations and may enlarge the slice").
+            withLongOpt("heap").create('a'));
         return options;
     }
 
@@ -0,0 +1,593 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.slicing
+ *    Class:     ForwardSlicer
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/slicing/ForwardSlicer.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.slicing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.objectweb.asm.Opcodes;
+
+import de.hammacher.util.maps.IntegerMap;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.AbstractInstructionInstance;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstanceFactory;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstanceInfo;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionType;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.AbstractInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.MethodInvocationInstruction;
+import de.unisb.cs.st.javaslicer.common.progress.ProgressMonitor;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DataDependenceType;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DependencesExtractor;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DependencesVisitorAdapter;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.VisitorCapability;
+import de.unisb.cs.st.javaslicer.traceResult.ThreadId;
+import de.unisb.cs.st.javaslicer.traceResult.TraceResult;
+import de.unisb.cs.st.javaslicer.traceSource.TraceResultSource;
+import de.unisb.cs.st.javaslicer.traceSource.TraceSource;
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+/**
+ * A slicer which computes the dynamic slices of all instruction instances at once, by
+ * forward computation: the slice of each instance (and of each value it writes) is
+ * computed from the slices of the values it reads and of the instances it is control
+ * dependent on, in execution order.
+ *
+ * Trace files can only be read backwards, so {@link #process(ThreadId, List)} first
+ * records the def/use relations which the {@link DependencesExtractor} determines in
+ * its backward traversal (which in turn takes them from the simulator), and then makes
+ * one forward pass over the recorded relations.
+ *
+ * The slices are sets of instructions (like the ones of the {@link DirectSlicer}).
+ * Since most of them are equal or differ only slightly, they are stored as immutable,
+ * hash-consed {@link SliceSet}s: equal slices are represented by the same object, and
+ * the unions computed in the forward pass are cached.
+ *
+ * The slices follow the same dependences as the {@link Slicer}: a value written by an
+ * instance only depends on the values that were used to compute it, and a control
+ * dependence on a method invocation from inside the called method does not make all
+ * arguments of the invocation relevant. So for criteria without local variables,
+ * {@link #getDynamicSlice()} contains exactly the instructions of the instances that a
+ * {@link SliceInstructionsCollector} collects from the {@link Slicer}.
+ */
+public class ForwardSlicer {
+
+    private static class ForwardInstance extends AbstractInstructionInstance {
+
+        // the position of this instance in the backward traversal
+        int index = -1;
+
+        public ForwardInstance(AbstractInstruction instr, long occurenceNumber,
+                int stackDepth, long instanceNr,
+                InstructionInstanceInfo additionalInfo) {
+            super(instr, occurenceNumber, stackDepth, instanceNr, additionalInfo);
+        }
+
+    }
+
+    private static class ForwardInstanceFactory implements InstructionInstanceFactory<ForwardInstance> {
+
+        public static final ForwardInstanceFactory instance = new ForwardInstanceFactory();
+
+        @Override
+        public ForwardInstance createInstructionInstance(
+                AbstractInstruction instruction, long occurenceNumber,
+                int stackDepth, long instanceNr,
+                InstructionInstanceInfo additionalInfo) {
+            return new ForwardInstance(instruction, occurenceNumber, stackDepth, instanceNr, additionalInfo);
+        }
+
+    }
+
+    /**
+     * An immutable set of instructions (given by their index), stored as a compressed
+     * bitmap which only contains the non-zero 64-bit words.
+     *
+     * Instances are hash-consed per {@link ForwardSlicer}, so two slices of the same
+     * slicer are equal iff they are the same object.
+     */
+    public static final class SliceSet {
+
+        final int[] wordIndexes;
+        final long[] words;
+        private final int hash;
+        int id = -1;
+
+        SliceSet(int[] wordIndexes, long[] words) {
+            this.wordIndexes = wordIndexes;
+            this.words = words;
+            this.hash = 31 * Arrays.hashCode(wordIndexes) + Arrays.hashCode(words);
+        }
+
+        /**
+         * @param instructionIndex the index of an instruction (see {@link Instruction#getIndex()})
+         * @return whether the instruction is contained in this slice
+         */
+        public boolean contains(int instructionIndex) {
+            int pos = Arrays.binarySearch(this.wordIndexes, instructionIndex >>> 6);
+            return pos >= 0 && (this.words[pos] & (1L << instructionIndex)) != 0;
+        }
+
+        public int size() {
+            int size = 0;
+            for (long word: this.words)
+                size += Long.bitCount(word);
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return this.words.length == 0;
+        }
+
+        /**
+         * @return the indexes of all instructions in this slice, in ascending order
+         */
+        public int[] getInstructionIndexes() {
+            int[] indexes = new int[size()];
+            int pos = 0;
+            for (int i = 0; i < this.words.length; ++i) {
+                long word = this.words[i];
+                while (word != 0) {
+                    indexes[pos++] = (this.wordIndexes[i] << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return indexes;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof SliceSet))
+                return false;
+            SliceSet other = (SliceSet) obj;
+            return this.hash == other.hash && Arrays.equals(this.wordIndexes, other.wordIndexes)
+                && Arrays.equals(this.words, other.words);
+        }
+
+        @Override
+        public String toString() {
+            return "slice of " + size() + " instructions";
+        }
+
+    }
+
+    /**
+     * Creates the hash-consed {@link SliceSet}s, and caches the operations on them.
+     */
+    private static class SliceSetTable {
+
+        // the caches are cleared when they grow beyond this size
+        private static final int MAX_CACHE_SIZE = 1 << 20;
+
+        final SliceSet empty;
+        private final Map<SliceSet, SliceSet> sets = new HashMap<SliceSet, SliceSet>();
+        private final Map<Long, SliceSet> unions = new HashMap<Long, SliceSet>();
+        private final Map<Long, SliceSet> additions = new HashMap<Long, SliceSet>();
+
+        public SliceSetTable() {
+            this.empty = intern(new SliceSet(new int[0], new long[0]));
+        }
+
+        private SliceSet intern(SliceSet set) {
+            SliceSet existing = this.sets.get(set);
+            if (existing != null)
+                return existing;
+            set.id = this.sets.size();
+            this.sets.put(set, set);
+            return set;
+        }
+
+        public int size() {
+            return this.sets.size();
+        }
+
+        public SliceSet with(SliceSet set, int instructionIndex) {
+            if (set.contains(instructionIndex))
+                return set;
+            Long key = Long.valueOf(((long) set.id << 32) | instructionIndex);
+            SliceSet result = this.additions.get(key);
+            if (result == null) {
+                result = union(set, intern(new SliceSet(new int[] { instructionIndex >>> 6 },
+                    new long[] { 1L << instructionIndex })));
+                if (this.additions.size() >= MAX_CACHE_SIZE)
+                    this.additions.clear();
+                this.additions.put(key, result);
+            }
+            return result;
+        }
+
+        public SliceSet union(SliceSet a, SliceSet b) {
+            if (a == b || b.isEmpty())
+                return a;
+            if (a.isEmpty())
+                return b;
+            Long key = a.id < b.id
+                ? Long.valueOf(((long) a.id << 32) | b.id)
+                : Long.valueOf(((long) b.id << 32) | a.id);
+            SliceSet result = this.unions.get(key);
+            if (result == null) {
+                result = intern(merge(a, b));
+                if (this.unions.size() >= MAX_CACHE_SIZE)
+                    this.unions.clear();
+                this.unions.put(key, result);
+            }
+            return result;
+        }
+
+        private static SliceSet merge(SliceSet a, SliceSet b) {
+            int[] indexes = new int[a.wordIndexes.length + b.wordIndexes.length];
+            long[] words = new long[indexes.length];
+            int i = 0;
+            int j = 0;
+            int n = 0;
+            while (i < a.wordIndexes.length || j < b.wordIndexes.length) {
+                if (j == b.wordIndexes.length || (i < a.wordIndexes.length && a.wordIndexes[i] < b.wordIndexes[j])) {
+                    indexes[n] = a.wordIndexes[i];
+                    words[n++] = a.words[i++];
+                } else if (i == a.wordIndexes.length || b.wordIndexes[j] < a.wordIndexes[i]) {
+                    indexes[n] = b.wordIndexes[j];
+                    words[n++] = b.words[j++];
+                } else {
+                    indexes[n] = a.wordIndexes[i];
+                    words[n++] = a.words[i++] | b.words[j++];
+                }
+            }
+            return new SliceSet(Arrays.copyOf(indexes, n), Arrays.copyOf(words, n));
+        }
+
+    }
+
+    private final TraceSource trace;
+    private final List<ProgressMonitor> progressMonitors = new ArrayList<ProgressMonitor>(1);
+    private final SliceSetTable table = new SliceSetTable();
+    private final IntegerMap<Instruction> instructions = new IntegerMap<Instruction>();
+
+    // the recorded trace; instances are identified by their position in the backward traversal
+    private int numInstances = 0;
+    private long[] instanceNrs = new long[16];
+    private int[] instructionIndexes = new int[16];
+    // linked lists of the values that an instance reads, and of the instances it is control dependent on
+    private int[] readHead = new int[16];
+    private int[] ctrlHead = new int[16];
+    // linked list of the values that an instance writes (and that are read later)
+    private int[] defHead = new int[16];
+
+    // values written by an instance: the variable, and the variables used to compute it
+    private int numDefs = 0;
+    private Variable[] defVariable = new Variable[16];
+    private Variable[][] defUsedVariables = new Variable[16][];
+    private int[] defNext = new int[16];
+
+    private int numReads = 0;
+    private int[] readDef = new int[16];
+    private int[] readNext = new int[16];
+
+    private int numCtrl = 0;
+    private int[] ctrlTo = new int[16];
+    private int[] ctrlNext = new int[16];
+
+    // the instances matching the slicing criterion, and whether all their data is interesting
+    private int numCriterionInstances = 0;
+    private int[] criterionInstances = new int[4];
+    private boolean[] criterionAllData = new boolean[4];
+
+    // the result of the forward pass
+    private SliceSet[] fullSlices;
+    private SliceSet[] controlSlices;
+    private SliceSet[] defSlices;
+
+    public ForwardSlicer(TraceResult trace) {
+        this(new TraceResultSource(trace));
+    }
+
+    public ForwardSlicer(TraceSource trace) {
+        this.trace = trace;
+    }
+
+    public void addProgressMonitor(ProgressMonitor progressMonitor) {
+        this.progressMonitors.add(progressMonitor);
+    }
+
+    /**
+     * Computes the slices of all instruction instances of the given thread.
+     *
+     * @param threadId the thread to process
+     * @param sc the slicing criteria whose slice is returned by {@link #getDynamicSlice()}
+     *           (criteria with local variables are not supported)
+     * @throws InterruptedException if the traversal was interrupted
+     * @throws IllegalArgumentException if a criterion with local variables matches an instance
+     */
+    public void process(ThreadId threadId, List<SlicingCriterion> sc) throws InterruptedException {
+        if (this.fullSlices != null)
+            throw new IllegalStateException("the slices have already been computed");
+        record(threadId, new CompiledSlicingCriteria(sc));
+        computeSlices();
+    }
+
+    private void record(ThreadId threadId, final CompiledSlicingCriteria slicingCriteria) throws InterruptedException {
+        DependencesExtractor<ForwardInstance> depExtractor =
+            DependencesExtractor.forTrace(this.trace, ForwardInstanceFactory.instance);
+        for (ProgressMonitor mon : this.progressMonitors)
+            depExtractor.addProgressMonitor(mon);
+        final List<SlicingCriterionInstance> slicingCritInst = slicingCriteria.getInstances();
+
+        depExtractor.registerVisitor(new DependencesVisitorAdapter<ForwardInstance>() {
+
+            @Override
+            public void visitInstructionExecution(ForwardInstance instance) {
+                int index = addInstance(instance);
+                if (slicingCriteria.mayMatch(instance)) {
+                    for (SlicingCriterionInstance crit : slicingCritInst) {
+                        if (crit.matches(instance)) {
+                            if (!crit.matchAllData() && crit.hasLocalVariables())
+                                throw new IllegalArgumentException(
+                                    "criteria with local variables are not supported: " + crit);
+                            addCriterionInstance(index, crit.matchAllData());
+                        }
+                    }
+                }
+            }
+
+            @Override
+            public void visitDataDependence(ForwardInstance from, ForwardInstance to,
+                    Collection<? extends Variable> fromVars, Variable toVar, DataDependenceType type) {
+                assert type == DataDependenceType.READ_AFTER_WRITE;
+                addDataDependence(from.index, to.index, fromVars, toVar);
+            }
+
+            @Override
+            public void visitControlDependence(ForwardInstance from, ForwardInstance to) {
+                addControlDependence(from.index, to.index);
+            }
+
+        }, VisitorCapability.INSTRUCTION_EXECUTIONS, VisitorCapability.DATA_DEPENDENCES_READ_AFTER_WRITE,
+            VisitorCapability.CONTROL_DEPENDENCES);
+
+        depExtractor.processBackwardTrace(threadId);
+    }
+
+    int addInstance(ForwardInstance instance) {
+        int index = this.numInstances++;
+        if (index == this.instanceNrs.length) {
+            int newSize = 2 * index;
+            this.instanceNrs = Arrays.copyOf(this.instanceNrs, newSize);
+            this.instructionIndexes = Arrays.copyOf(this.instructionIndexes, newSize);
+            this.readHead = Arrays.copyOf(this.readHead, newSize);
+            this.ctrlHead = Arrays.copyOf(this.ctrlHead, newSize);
+            this.defHead = Arrays.copyOf(this.defHead, newSize);
+        }
+        instance.index = index;
+        Instruction instruction = instance.getInstruction();
+        // the backward iterators number the instances in ascending order
+        assert index == 0 || instance.getInstanceNr() > this.instanceNrs[index - 1];
+        this.instanceNrs[index] = instance.getInstanceNr();
+        this.instructionIndexes[index] = instruction.getIndex();
+        this.readHead[index] = -1;
+        this.ctrlHead[index] = -1;
+        this.defHead[index] = -1;
+        if (this.instructions.get(instruction.getIndex()) == null)
+            this.instructions.put(instruction.getIndex(), instruction);
+        return index;
+    }
+
+    void addCriterionInstance(int index, boolean allData) {
+        if (this.numCriterionInstances == this.criterionInstances.length) {
+            this.criterionInstances = Arrays.copyOf(this.criterionInstances, 2 * this.numCriterionInstances);
+            this.criterionAllData = Arrays.copyOf(this.criterionAllData, 2 * this.numCriterionInstances);
+        }
+        this.criterionInstances[this.numCriterionInstances] = index;
+        this.criterionAllData[this.numCriterionInstances++] = allData;
+    }
+
+    void addDataDependence(int from, int to, Collection<? extends Variable> fromVars, Variable toVar) {
+        int def = this.defHead[to];
+        while (def != -1 && !this.defVariable[def].equals(toVar))
+            def = this.defNext[def];
+        if (def == -1) {
+            def = this.numDefs++;
+            if (def == this.defVariable.length) {
+                this.defVariable = Arrays.copyOf(this.defVariable, 2 * def);
+                this.defUsedVariables = Arrays.copyOf(this.defUsedVariables, 2 * def);
+                this.defNext = Arrays.copyOf(this.defNext, 2 * def);
+            }
+            this.defVariable[def] = toVar;
+            this.defUsedVariables[def] = fromVars.toArray(new Variable[fromVars.size()]);
+            this.defNext[def] = this.defHead[to];
+            this.defHead[to] = def;
+        }
+
+        int read = this.numReads++;
+        if (read == this.readDef.length) {
+            this.readDef = Arrays.copyOf(this.readDef, 2 * read);
+            this.readNext = Arrays.copyOf(this.readNext, 2 * read);
+        }
+        this.readDef[read] = def;
+        this.readNext[read] = this.readHead[from];
+        this.readHead[from] = read;
+    }
+
+    void addControlDependence(int from, int to) {
+        int ctrl = this.numCtrl++;
+        if (ctrl == this.ctrlTo.length) {
+            this.ctrlTo = Arrays.copyOf(this.ctrlTo, 2 * ctrl);
+            this.ctrlNext = Arrays.copyOf(this.ctrlNext, 2 * ctrl);
+        }
+        this.ctrlTo[ctrl] = to;
+        this.ctrlNext[ctrl] = this.ctrlHead[from];
+        this.ctrlHead[from] = ctrl;
+    }
+
+    /**
+     * The forward pass: computes the slices of all instances and written values in
+     * execution order, i.e. in the reverse order of the backward traversal.
+     */
+    private void computeSlices() {
+        SliceSetTable table0 = this.table;
+        this.fullSlices = new SliceSet[this.numInstances];
+        this.controlSlices = new SliceSet[this.numInstances];
+        this.defSlices = new SliceSet[this.numDefs];
+        for (int index = this.numInstances - 1; index >= 0; --index) {
+            Instruction instruction = this.instructions.get(this.instructionIndexes[index]);
+            ReadMethod method = instruction.getMethod();
+
+            SliceSet controlSlice = table0.empty;
+            for (int ctrl = this.ctrlHead[index]; ctrl != -1; ctrl = this.ctrlNext[ctrl]) {
+                int to = this.ctrlTo[ctrl];
+                // like in the Slicer, the arguments of an invocation are not all relevant for
+                // the instructions of the called method
+                SliceSet controller = invokes(this.instructionIndexes[to], method)
+                    ? this.controlSlices[to] : this.fullSlices[to];
+                controlSlice = table0.union(controlSlice, controller);
+            }
+            // labels and GOTOs are never reported as part of a slice
+            if (instruction.getType() != InstructionType.LABEL && instruction.getOpcode() != Opcodes.GOTO)
+                controlSlice = table0.with(controlSlice, instruction.getIndex());
+            this.controlSlices[index] = controlSlice;
+
+            SliceSet fullSlice = controlSlice;
+            for (int read = this.readHead[index]; read != -1; read = this.readNext[read])
+                fullSlice = table0.union(fullSlice, this.defSlices[this.readDef[read]]);
+            this.fullSlices[index] = fullSlice;
+
+            for (int def = this.defHead[index]; def != -1; def = this.defNext[def]) {
+                SliceSet defSlice = controlSlice;
+                for (Variable used: this.defUsedVariables[def])
+                    for (int read = this.readHead[index]; read != -1; read = this.readNext[read])
+                        if (this.defVariable[this.readDef[read]].equals(used))
+                            defSlice = table0.union(defSlice, this.defSlices[this.readDef[read]]);
+                this.defSlices[def] = defSlice;
+            }
+        }
+    }
+
+    private boolean invokes(int instructionIndex, ReadMethod method) {
+        Instruction instruction = this.instructions.get(instructionIndex);
+        if (instruction.getType() != InstructionType.METHODINVOCATION)
+            return false;
+        MethodInvocationInstruction mtdInv = (MethodInvocationInstruction) instruction;
+        return mtdInv.getInvokedMethodName().equals(method.getName())
+            && mtdInv.getInvokedMethodDesc().equals(method.getDesc());
+    }
+
+    private int getIndex(long instanceNr) {
+        if (this.fullSlices == null)
+            throw new IllegalStateException("process() has not been called");
+        int index = Arrays.binarySearch(this.instanceNrs, 0, this.numInstances, instanceNr);
+        if (index < 0)
+            throw new IllegalArgumentException("no instance with number " + instanceNr);
+        return index;
+    }
+
+    /**
+     * @return the number of instruction instances of the processed thread
+     */
+    public long getNumInstances() {
+        return this.numInstances;
+    }
+
+    /**
+     * @return the number of distinct slices that have been computed
+     */
+    public int getNumDistinctSlices() {
+        return this.table.size();
+    }
+
+    /**
+     * Returns the dynamic slice of an instance, i.e. all instructions which influenced
+     * its execution and any of the values it read.
+     *
+     * @param instanceNr the number of the instance (see {@link InstructionInstance#getInstanceNr()})
+     * @return the slice of the instance
+     */
+    public SliceSet getSlice(long instanceNr) {
+        return this.fullSlices[getIndex(instanceNr)];
+    }
+
+    /**
+     * Returns the dynamic slice of the value of a variable that was read by an instance,
+     * i.e. all instructions which influenced that value.
+     *
+     * @param instanceNr the number of the reading instance
+     * @param variable the variable that was read
+     * @return the slice of the value, or <code>null</code> if the instance did not read
+     *         a value written by another traced instruction instance from this variable
+     */
+    public SliceSet getSlice(long instanceNr, Variable variable) {
+        int index = getIndex(instanceNr);
+        SliceSet slice = null;
+        for (int read = this.readHead[index]; read != -1; read = this.readNext[read])
+            if (this.defVariable[this.readDef[read]].equals(variable))
+                slice = slice == null ? this.defSlices[this.readDef[read]]
+                    : this.table.union(slice, this.defSlices[this.readDef[read]]);
+        return slice;
+    }
+
+    /**
+     * @return the union of the slices of all instances which matched the slicing criteria
+     */
+    public SliceSet getCriterionSlice() {
+        if (this.fullSlices == null)
+            throw new IllegalStateException("process() has not been called");
+        SliceSet slice = this.table.empty;
+        for (int i = 0; i < this.numCriterionInstances; ++i) {
+            int index = this.criterionInstances[i];
+            slice = this.table.union(slice, this.criterionAllData[i]
+                ? this.fullSlices[index] : this.controlSlices[index]);
+        }
+        return slice;
+    }
+
+    /**
+     * @return the instructions in the dynamic slice of the slicing criteria
+     */
+    public Set<Instruction> getDynamicSlice() {
+        return getInstructions(getCriterionSlice());
+    }
+
+    /**
+     * @param slice a slice computed by this slicer
+     * @return the instructions contained in the slice
+     */
+    public Set<Instruction> getInstructions(SliceSet slice) {
+        int[] indexes = slice.getInstructionIndexes();
+        Set<Instruction> instrs = new HashSet<Instruction>(indexes.length * 4 / 3 + 1);
+        for (int index: indexes)
+            instrs.add(this.instructions.get(index));
+        return instrs;
+    }
+
+}
@@ -0,0 +1,355 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.slicing
+ *    Class:     RelevantSlicer
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/slicing/RelevantSlicer.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.slicing;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.objectweb.asm.Opcodes;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.AbstractInstructionInstance;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstanceFactory;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstanceInfo;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionType;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.LocalVariable;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.AbstractInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.IIncInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.MethodInvocationInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.VarInstruction;
+import de.unisb.cs.st.javaslicer.common.progress.ProgressMonitor;
+import de.unisb.cs.st.javaslicer.controlflowanalysis.MayModifySummary;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DataDependenceType;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DependencesVisitorAdapter2;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.RelevantDependencesExtractor;
+import de.unisb.cs.st.javaslicer.metrics.SlicingMetrics;
+import de.unisb.cs.st.javaslicer.traceResult.ThreadId;
+import de.unisb.cs.st.javaslicer.traceResult.TraceResult;
+import de.unisb.cs.st.javaslicer.traceSource.TraceResultSource;
+import de.unisb.cs.st.javaslicer.traceSource.TraceSource;
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+/**
+ * A relevant slicer, built on top of the {@link RelevantDependencesExtractor}.
+ *
+ * The relevant slice contains the dynamic slice (as computed by the {@link Slicer}), and
+ * additionally the instances of conditional branches on which the slice potentially depends:
+ * branches whose other outcome might have written a variable that is read by the slice.
+ * Those branches are followed like the instances on the dynamic slice.
+ *
+ * Like the {@link DirectSlicer}, it yields the slice as a set of bytecode instructions.
+ */
+public class RelevantSlicer {
+
+    private static class RelevantSlicerInstance extends AbstractInstructionInstance {
+
+        public boolean onSlice = false;
+
+        // the variables whose dependences are followed
+        public boolean allDataInteresting = false;
+        public Set<Variable> interestingVariables = null;
+
+        public RelevantSlicerInstance(AbstractInstruction instr, long occurenceNumber,
+                int stackDepth, long instanceNr, InstructionInstanceInfo additionalInfo) {
+            super(instr, occurenceNumber, stackDepth, instanceNr, additionalInfo);
+        }
+
+        public boolean isInteresting(Variable var) {
+            return this.allDataInteresting
+                || (this.interestingVariables != null && this.interestingVariables.contains(var));
+        }
+
+    }
+
+    private static class RelevantSlicerInstanceFactory implements InstructionInstanceFactory<RelevantSlicerInstance> {
+
+        public static final RelevantSlicerInstanceFactory instance = new RelevantSlicerInstanceFactory();
+
+        @Override
+        public RelevantSlicerInstance createInstructionInstance(AbstractInstruction instruction,
+                long occurenceNumber, int stackDepth, long instanceNr, InstructionInstanceInfo additionalInfo) {
+            return new RelevantSlicerInstance(instruction, occurenceNumber, stackDepth, instanceNr, additionalInfo);
+        }
+
+    }
+
+    private final TraceSource trace;
+    private final List<ProgressMonitor> progressMonitors = new ArrayList<ProgressMonitor>(1);
+    private SlicingMetrics metrics = null;
+
+    public RelevantSlicer(TraceResult trace) {
+        this(new TraceResultSource(trace));
+    }
+
+    public RelevantSlicer(TraceSource trace) {
+        this.trace = trace;
+    }
+
+    public void addProgressMonitor(ProgressMonitor progressMonitor) {
+        this.progressMonitors.add(progressMonitor);
+    }
+
+    /**
+     * Sets the metrics object that is updated while slicing (<code>null</code> to disable).
+     */
+    public void setMetrics(SlicingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Computes the relevant slice of the given thread.
+     *
+     * @return the instructions of the relevant slice (without labels and GOTOs)
+     */
+    public Set<Instruction> getDynamicSlice(ThreadId threadId, final List<SlicingCriterion> sc)
+            throws InterruptedException {
+        RelevantDependencesExtractor<RelevantSlicerInstance> depExtractor =
+            RelevantDependencesExtractor.forTrace(this.trace, RelevantSlicerInstanceFactory.instance);
+        for (ProgressMonitor mon : this.progressMonitors)
+            depExtractor.addProgressMonitor(mon);
+        final SlicingMetrics metrics0 = this.metrics;
+        depExtractor.setMetrics(metrics0);
+
+        final Set<Instruction> dynamicSlice = new HashSet<Instruction>();
+
+        depExtractor.registerVisitor(new DependencesVisitorAdapter2<RelevantSlicerInstance>() {
+
+            private final CompiledSlicingCriteria slicingCriteria = new CompiledSlicingCriteria(sc);
+            private final List<SlicingCriterionInstance> slicingCritInst = this.slicingCriteria.getInstances();
+            // the interesting local variables of the frames, indexed by stack depth
+            private BitSet[] interestingLocalVariables = new BitSet[0];
+            private ReadMethod enteredMethod = null;
+            private long numSliceInstances = 0;
+
+            @Override
+            public boolean visitInstructionExecution(RelevantSlicerInstance instance) {
+                int stackDepth = instance.getStackDepth();
+                Instruction instruction = instance.getInstruction();
+                if (this.slicingCriteria.mayMatch(instance)) {
+                    for (SlicingCriterionInstance crit : this.slicingCritInst) {
+                        if (!crit.matches(instance))
+                            continue;
+                        instance.allDataInteresting = crit.matchAllData();
+                        if (!instance.allDataInteresting && crit.hasLocalVariables()) {
+                            BitSet locals = getInterestingLocalVariables(stackDepth, true);
+                            for (LocalVariable var : crit.getLocalVariables())
+                                locals.set(var.getIndex());
+                        } else {
+                            putOnSlice(instance);
+                        }
+                    }
+                }
+                BitSet locals = getInterestingLocalVariables(stackDepth, false);
+                if (locals != null) {
+                    int varIndex = -1;
+                    if (instruction.getType() == InstructionType.VAR) {
+                        switch (instruction.getOpcode()) {
+                            case Opcodes.ISTORE:
+                            case Opcodes.ASTORE:
+                            case Opcodes.LSTORE:
+                            case Opcodes.FSTORE:
+                            case Opcodes.DSTORE:
+                                varIndex = ((VarInstruction) instruction).getLocalVarIndex();
+                                break;
+                            default:
+                                break;
+                        }
+                    } else if (instruction.getType() == InstructionType.IINC) {
+                        varIndex = ((IIncInstruction) instruction).getLocalVarIndex();
+                    }
+                    if (varIndex != -1 && locals.get(varIndex)) {
+                        locals.clear(varIndex);
+                        putOnSlice(instance);
+                        // and we want to know where the data comes from...
+                        instance.allDataInteresting = true;
+                    }
+                }
+                if (instruction.getType() != InstructionType.METHODINVOCATION)
+                    this.enteredMethod = null;
+                return instance.onSlice;
+            }
+
+            @Override
+            public boolean visitMethodInvoke(RelevantSlicerInstance instance) {
+                ReadMethod entered = this.enteredMethod;
+                this.enteredMethod = null;
+                BitSet locals = getInterestingLocalVariables(instance.getStackDepth(), false);
+                if (entered == null || locals == null)
+                    return instance.onSlice;
+                MethodInvocationInstruction mtdInvInsn = (MethodInvocationInstruction) instance.getInstruction();
+                if (!entered.getName().equals(mtdInvInsn.getInvokedMethodName())
+                        || !entered.getDesc().equals(mtdInvInsn.getInvokedMethodDesc()))
+                    return instance.onSlice;
+                int paramCount = mtdInvInsn.getOpcode() == Opcodes.INVOKESTATIC ? 0 : 1;
+                for (int param = mtdInvInsn.getParameterCount()-1; param >= 0; --param)
+                    paramCount += mtdInvInsn.parameterIsLong(param) ? 2 : 1;
+                int firstParam = locals.nextSetBit(0);
+                if (firstParam != -1 && firstParam < paramCount) {
+                    locals.clear(0, paramCount);
+                    putOnSlice(instance);
+                    instance.allDataInteresting = true;
+                }
+                return instance.onSlice;
+            }
+
+            @Override
+            public boolean visitControlDependence(RelevantSlicerInstance from, RelevantSlicerInstance to) {
+                if (from.onSlice) {
+                    // track why "to" took its decision, except if it is the invocation of
+                    // the method containing "from"
+                    boolean calledMethodDependence = false;
+                    if (to.getInstruction().getType() == InstructionType.METHODINVOCATION) {
+                        MethodInvocationInstruction mtdInv = (MethodInvocationInstruction) to.getInstruction();
+                        ReadMethod calledMethod = from.getInstruction().getMethod();
+                        calledMethodDependence = mtdInv.getInvokedMethodName().equals(calledMethod.getName())
+                            && mtdInv.getInvokedMethodDesc().equals(calledMethod.getDesc());
+                    }
+                    if (!calledMethodDependence)
+                        to.allDataInteresting = true;
+                    putOnSlice(to);
+                }
+                return to.onSlice;
+            }
+
+            @Override
+            public boolean visitDataDependence(RelevantSlicerInstance from, RelevantSlicerInstance to,
+                    Collection<? extends Variable> fromVars, Variable toVar, DataDependenceType type) {
+                assert type == DataDependenceType.READ_AFTER_WRITE;
+                if (from.onSlice && from.isInteresting(toVar)) {
+                    if (!to.allDataInteresting && !fromVars.isEmpty()) {
+                        if (to.interestingVariables == null)
+                            to.interestingVariables = new HashSet<Variable>(fromVars);
+                        else
+                            to.interestingVariables.addAll(fromVars);
+                    }
+                    putOnSlice(to);
+                }
+                return to.onSlice;
+            }
+
+            @Override
+            public boolean visitCanModifyInteresting(RelevantSlicerInstance instance, long frame,
+                    RelevantSlicerInstance instance2, MayModifySummary summary) {
+                BitSet locals = getInterestingLocalVariables(instance.getStackDepth(), false);
+                return locals != null && locals.intersects(summary.getWrittenLocalVariables());
+            }
+
+            @Override
+            public boolean visitCanModify(RelevantSlicerInstance instance, long frame,
+                    RelevantSlicerInstance instance2, Set<Entry<Variable, List<RelevantSlicerInstance>>> map1,
+                    MayModifySummary summary) {
+                for (Entry<Variable, List<RelevantSlicerInstance>> e : map1)
+                    for (RelevantSlicerInstance reader : e.getValue())
+                        if (reader.isInteresting(e.getKey()))
+                            return true;
+                return false;
+            }
+
+            @Override
+            public boolean visitSpecialAddBranch(RelevantSlicerInstance instance) {
+                // we want to know why the branch took its decision
+                instance.allDataInteresting = true;
+                putOnSlice(instance);
+                return true;
+            }
+
+            @Override
+            public boolean CanByPassing(RelevantSlicerInstance source, RelevantSlicerInstance steplocation) {
+                // the reader already has a control dependence on the branch
+                return false;
+            }
+
+            @Override
+            public boolean visitCanReachEvent(RelevantSlicerInstance instance, RelevantSlicerInstance instance2) {
+                return instance2.onSlice;
+            }
+
+            @Override
+            public void visitMethodLeave(ReadMethod method, int stackDepth) {
+                if (this.interestingLocalVariables.length > stackDepth)
+                    this.interestingLocalVariables[stackDepth] = null;
+            }
+
+            @Override
+            public void visitMethodEntry(ReadMethod method, int stackDepth) {
+                if (this.interestingLocalVariables.length > stackDepth
+                        && this.interestingLocalVariables[stackDepth] != null) {
+                    this.enteredMethod = method;
+                    this.interestingLocalVariables[stackDepth] = null;
+                }
+            }
+
+            @Override
+            public void visitEnd(long numInstances) {
+                if (metrics0 != null)
+                    metrics0.setSliceInstances(this.numSliceInstances);
+            }
+
+            private BitSet getInterestingLocalVariables(int stackDepth, boolean create) {
+                if (this.interestingLocalVariables.length <= stackDepth) {
+                    if (!create)
+                        return null;
+                    BitSet[] newInterestingLocalVariables =
+                        new BitSet[Math.max(stackDepth+1, this.interestingLocalVariables.length*3/2)];
+                    System.arraycopy(this.interestingLocalVariables, 0, newInterestingLocalVariables, 0,
+                        this.interestingLocalVariables.length);
+                    this.interestingLocalVariables = newInterestingLocalVariables;
+                }
+                BitSet locals = this.interestingLocalVariables[stackDepth];
+                if (locals == null) {
+                    if (create)
+                        this.interestingLocalVariables[stackDepth] = locals = new BitSet();
+                } else if (locals.isEmpty() && !create) {
+                    this.interestingLocalVariables[stackDepth] = locals = null;
+                }
+                return locals;
+            }
+
+            // labels and gotos are only used to pass on control dependences, they are not counted
+            private void putOnSlice(RelevantSlicerInstance instance) {
+                if (!instance.onSlice) {
+                    instance.onSlice = true;
+                    Instruction insn = instance.getInstruction();
+                    if (insn.getType() != InstructionType.LABEL && insn.getOpcode() != Opcodes.GOTO) {
+                        ++this.numSliceInstances;
+                        dynamicSlice.add(insn);
+                    }
+                }
+            }
+
+        });
+
+        depExtractor.processBackwardTrace(threadId);
+
+        if (this.metrics != null)
+            this.metrics.setSliceInstructions(dynamicSlice.size());
+        return dynamicSlice;
+    }
+
+}
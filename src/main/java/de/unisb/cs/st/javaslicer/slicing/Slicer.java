@@ -30,14 +30,20 @@ import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
+import javax.management.JMException;
+
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.GnuParser;
@@ -57,18 +63,43 @@ import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionType;
 import de.unisb.cs.st.javaslicer.common.classRepresentation.LocalVariable;
 import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
 import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.AbstractInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.LabelMarker;
 import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.MethodInvocationInstruction;
 import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.VarInstruction;
 import de.unisb.cs.st.javaslicer.common.progress.ConsoleProgressMonitor;
 import de.unisb.cs.st.javaslicer.common.progress.ProgressMonitor;
+import de.unisb.cs.st.javaslicer.controlflowanalysis.ControlFlowAnalyser;
+import de.unisb.cs.st.javaslicer.controlflowanalysis.ModRefAnalysis;
+import de.unisb.cs.st.javaslicer.controlflowanalysis.ModRefSummary;
+import de.unisb.cs.st.javaslicer.controlflowanalysis.StaticDependenceGraph;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.BlackBoxScope;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.CoalescingDependencesVisitor;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.CompactedDependenceGraph;
 import de.unisb.cs.st.javaslicer.dependenceAnalysis.DataDependenceType;
 import de.unisb.cs.st.javaslicer.dependenceAnalysis.DependencesExtractor;
 import de.unisb.cs.st.javaslicer.dependenceAnalysis.DependencesVisitorAdapter;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.FrameFilter;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.ReaderEquivalence;
 import de.unisb.cs.st.javaslicer.dependenceAnalysis.VisitorCapability;
+import de.unisb.cs.st.javaslicer.instructionSimulation.VariableRole;
+import de.unisb.cs.st.javaslicer.metrics.Diagnostics;
+import de.unisb.cs.st.javaslicer.metrics.Diagnostics.Category;
+import de.unisb.cs.st.javaslicer.metrics.Diagnostics.Level;
+import de.unisb.cs.st.javaslicer.metrics.SlicingEvents;
+import de.unisb.cs.st.javaslicer.metrics.SlicingMetrics;
+import de.unisb.cs.st.javaslicer.offheap.OffHeapConfiguration;
+import de.unisb.cs.st.javaslicer.slicing.StaticSlicingCriterion.StaticSlicingCriterionInstance;
 import de.unisb.cs.st.javaslicer.traceResult.PrintUniqueUntracedMethods;
 import de.unisb.cs.st.javaslicer.traceResult.ThreadId;
 import de.unisb.cs.st.javaslicer.traceResult.TraceResult;
 import de.unisb.cs.st.javaslicer.traceResult.UntracedCallVisitor;
+import de.unisb.cs.st.javaslicer.traceSource.TraceResultSource;
+import de.unisb.cs.st.javaslicer.traceSource.TraceSource;
+import de.unisb.cs.st.javaslicer.variables.ArrayElement;
+import de.unisb.cs.st.javaslicer.variables.HeapAbstraction;
+import de.unisb.cs.st.javaslicer.variables.ObjectField;
+import de.unisb.cs.st.javaslicer.variables.StackEntry;
+import de.unisb.cs.st.javaslicer.variables.StaticField;
 import de.unisb.cs.st.javaslicer.variables.Variable;
 
 /**
@@ -97,6 +128,14 @@ public class Slicer {
 
         public int criterionDistance;
 
+        // only maintained if the slice is bounded by a maximum distance:
+        public int pendingReads = 0;
+        public boolean controlResolved = false;
+        public boolean inFrontier = false;
+
+        // only maintained if frames are skipped: whether the reads of this instance are live
+        public boolean liveReads = false;
+
         public SlicerInstance(AbstractInstruction instr, long occurenceNumber,
                 int stackDepth, long instanceNr,
                 InstructionInstanceInfo additionalInfo) {
@@ -104,6 +143,28 @@ public class Slicer {
             this.criterionDistance = Integer.MAX_VALUE;
         }
 
+        /**
+         * @return whether every data dependence which is followed for the given instance is
+         *         also followed for this one
+         */
+        public boolean followsDataDependencesOf(SlicerInstance other) {
+            if (this.allDataInteresting)
+                return true;
+            if (other.allDataInteresting
+                    || (other.interestingVariable != null && !isInterestingVariable(other.interestingVariable)))
+                return false;
+            if (other.moreInterestingVariables != null)
+                for (Variable var: other.moreInterestingVariables)
+                    if (!isInterestingVariable(var))
+                        return false;
+            return true;
+        }
+
+        private boolean isInterestingVariable(Variable var) {
+            return var.equals(this.interestingVariable)
+                || (this.moreInterestingVariables != null && this.moreInterestingVariables.contains(var));
+        }
+
     }
 
     //slice instance extends Abstract instruction instance , which implements Instruction instance
@@ -120,15 +181,56 @@ public class Slicer {
         }
 
     }
+
+    /**
+     * The visitor of the slicing dependences. Readers are only coalesced if they are not on
+     * the slice (see {@link #setReaderCoalescing(boolean)}), and the data dependences of such
+     * readers are ignored, so one call for the representative of a group is enough. Readers
+     * of summary variables are also merged into a representative on the slice which follows
+     * the same data dependences and whose distance to the criterion is not larger (see
+     * {@link #setHeapAbstraction(HeapAbstraction)}).
+     */
+    private static abstract class SliceDependencesVisitor extends DependencesVisitorAdapter<SlicerInstance>
+            implements CoalescingDependencesVisitor<SlicerInstance> {
+
+        @Override
+        public void visitDataDependences(SlicerInstance representative, int count, SlicerInstance to,
+                Collection<? extends Variable> fromVars, Variable toVar, DataDependenceType type)
+                throws InterruptedException {
+            visitDataDependence(representative, to, fromVars, toVar, type);
+        }
+
+    }
  // array list is dynamic array
-    private  final TraceResult trace;
+    /**
+     * The maximum size of the static slice used for filtering. Larger static slices
+     * typically span the library code and filter (almost) nothing, while computing them
+     * takes seconds.
+     */
+    private static final int MAX_STATIC_SLICE_SIZE = 10000;
+
+    private  final TraceSource trace;
     private final List<ProgressMonitor> progressMonitors = new ArrayList<ProgressMonitor>(1); 
     private final List<SliceVisitor> sliceVisitors = new ArrayList<SliceVisitor>(1); // 在遍历动态切片的轨迹中的数据和控制依赖时来收集指令实例！
     private  List<UntracedCallVisitor> untracedCallVisitors = new ArrayList<UntracedCallVisitor>(1);
+    private SlicingMetrics metrics = null;
+    private OffHeapConfiguration offHeapConfiguration = null;
+    private int maxDistance = Integer.MAX_VALUE;
+    private boolean frameSkipping = false;
+    private int frameTransferCacheSize = 0;
+    private boolean staticSliceFiltering = false;
+    private BlackBoxScope blackBoxScope = null;
+    private HeapAbstraction heapAbstraction = HeapAbstraction.OBJECTS;
+    private boolean thinSlicing = false;
+    private boolean readerCoalescing = false;
 
  
     
     public Slicer(TraceResult trace) {
+        this(new TraceResultSource(trace));
+    }
+
+    public Slicer(TraceSource trace) {
         this.trace = trace;
     }
 
@@ -170,7 +272,7 @@ public class Slicer {
 
         TraceResult trace;
         try {
-            trace = TraceResult.readFrom(traceFile);
+            trace = readTrace(traceFile);
         } catch (IOException e) {
             System.err.format("Could not read the trace file \"%s\": %s%n", traceFile, e);
             System.exit(-1);
@@ -178,9 +280,14 @@ public class Slicer {
         }
 
         List<SlicingCriterion> sc = null;  // a list contains the instruction's info corresponds to the slicing criterion
+        // with a compacted dependence graph, several slices can be computed at once
+        boolean compacted = cmdLine.hasOption("compacted");
+        List<List<SlicingCriterion>> criteria = new ArrayList<List<SlicingCriterion>>();
         //slicingCriterionString get from additionalArgs[1]
         try {
-            sc = StaticSlicingCriterion.parseAll(slicingCriterionString, trace.getReadClasses());
+            for (String criterion: compacted ? slicingCriterionString.split(";") : new String[] { slicingCriterionString })
+                criteria.add(StaticSlicingCriterion.parseAll(criterion, trace.getReadClasses()));
+            sc = criteria.get(0);
         } catch (IllegalArgumentException e) {
             System.err.println("Error parsing slicing criterion: " + e.getMessage());
             System.exit(-1);
@@ -224,7 +331,94 @@ public class Slicer {
         }
 
         boolean warnUntracedMethods = cmdLine.hasOption("warn-untraced"); // give some warns when encounters untraced functions
+
+        if (cmdLine.hasOption("max-distance")) {
+            try {
+                slicer.setMaxDistance(Integer.parseInt(cmdLine.getOptionValue("max-distance")));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Illegal maximum distance: " + cmdLine.getOptionValue("max-distance"));
+                System.exit(-1);
+                return;
+            }
+        }
+
+        if (cmdLine.hasOption("skip-frames"))
+            slicer.setFrameSkipping(true);
+
+        if (cmdLine.hasOption("memoize-frames")) {
+            try {
+                slicer.setFrameTransferCacheSize(Integer.parseInt(cmdLine.getOptionValue("memoize-frames")));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Illegal cache size: " + cmdLine.getOptionValue("memoize-frames"));
+                System.exit(-1);
+                return;
+            }
+        }
+
+        if (cmdLine.hasOption("static-filter"))
+            slicer.setStaticSliceFiltering(true);
+
+        if (cmdLine.hasOption("black-box"))
+            slicer.setBlackBoxScope(BlackBoxScope.parse(cmdLine.getOptionValue("black-box")));
+
+        if (cmdLine.hasOption("thin"))
+            slicer.setThinSlicing(true);
+
+        if (cmdLine.hasOption("coalesce-readers"))
+            slicer.setReaderCoalescing(true);
+
+        if (cmdLine.hasOption("heap")) {
+            try {
+                slicer.setHeapAbstraction(HeapAbstraction.parse(cmdLine.getOptionValue("heap")));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Illegal heap abstraction: " + cmdLine.getOptionValue("heap"));
+                System.exit(-1);
+                return;
+            }
+        }
+
+        SlicingMetrics metrics = null;
+        if (cmdLine.hasOption("stats")) {
+            metrics = new SlicingMetrics();
+            slicer.setMetrics(metrics);
+            try {
+                metrics.registerMBean();
+            } catch (JMException e) {
+                System.err.println("Could not register the statistics MBean: " + e);
+            }
+        }
   
+        if (compacted) {
+            List<CompactedDependenceGraph.Slice> slices;
+            try {
+                slices = slicer.computeSlices(tracing, criteria);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Error computing the slices: " + e.getMessage());
+                System.exit(-1);
+                return;
+            }
+            long endTime = System.nanoTime();
+            for (int i = 0; i < slices.size(); ++i) {
+                Instruction[] sliceArray = slices.get(i).getInstructions().toArray(new Instruction[0]);
+                Arrays.sort(sliceArray);
+                System.out.println("The dynamic slice for criterion " + criteria.get(i) + ":");
+                for (Instruction insn: sliceArray) {
+                    System.out.format((Locale)null, "%s.%s:%d %s%n",
+                            insn.getMethod().getReadClass().getName(),
+                            insn.getMethod().getName(),
+                            insn.getLineNumber(),
+                            insn.toString());
+                }
+                System.out.format((Locale)null, "%nSlice consists of %d bytecode instructions.%n%n", sliceArray.length);
+            }
+            System.out.format((Locale)null, "Computation took %.2f seconds.%n", 1e-9*(endTime-startTime));
+            if (metrics != null) {
+                System.out.println();
+                metrics.printReport(System.out);
+            }
+            return;
+        }
+
         //sliceInstructionCollector implements the interface slice visitor, which travel the dependence graph
         SliceInstructionsCollector collector = new SliceInstructionsCollector();   // the collector is used to collect the instructions in the dependence graph according to the slice criterion. 
         slicer.addSliceVisitor(collector); 
@@ -237,7 +431,10 @@ public class Slicer {
         Set<InstructionInstance> slice = collector.getDynamicSlice(); // return the slice result from the collector
         long endTime = System.nanoTime();
 
-        Instruction[] sliceArray = slice.toArray(new Instruction[slice.size()]); // convert the set to array
+        Set<Instruction> sliceInstructions = new HashSet<Instruction>();
+        for (InstructionInstance inst: slice)
+            sliceInstructions.add(inst.getInstruction());
+        Instruction[] sliceArray = sliceInstructions.toArray(new Instruction[sliceInstructions.size()]); // convert the set to array
         Arrays.sort(sliceArray);  // in order to ensure the sequence of dynamic execution
 
         // show the slicing result
@@ -251,6 +448,26 @@ public class Slicer {
         }
         System.out.format((Locale)null, "%nSlice consists of %d bytecode instructions.%n", sliceArray.length);
         System.out.format((Locale)null, "Computation took %.2f seconds.%n", 1e-9*(endTime-startTime));
+        if (metrics != null) {
+            System.out.println();
+            metrics.printReport(System.out);
+        }
+    }
+
+    static TraceResult readTrace(File traceFile) throws IOException {
+        SlicingEvents.TraceLoad event = null;
+        if (SlicingEvents.AVAILABLE) {
+            event = new SlicingEvents.TraceLoad();
+            event.begin();
+        }
+        TraceResult trace = TraceResult.readFrom(traceFile);
+        if (event != null && event.shouldCommit()) {
+            event.traceFile = traceFile.getPath();
+            event.threads = trace.getThreads().size();
+            event.classes = trace.getReadClasses().size();
+            event.commit();
+        }
+        return trace;
     }
 
     public void addProgressMonitor(ProgressMonitor progressMonitor) {
@@ -266,6 +483,184 @@ public class Slicer {
         this.untracedCallVisitors.add(untracedCallVisitor);
     }
 
+    /**
+     * Sets the metrics object that is updated while slicing (<code>null</code> to disable).
+     */
+    public void setMetrics(SlicingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets where the dependence state is stored (<code>null</code> for the default of
+     * the {@link DependencesExtractor}).
+     */
+    public void setOffHeapConfiguration(OffHeapConfiguration offHeapConfiguration) {
+        this.offHeapConfiguration = offHeapConfiguration;
+    }
+
+    /**
+     * Bounds the slice to the instances within the given distance (number of dependences)
+     * from an instance matching the slicing criterion.
+     *
+     * Dependences are not followed beyond this distance. Additionally, the traversal
+     * stops as soon as all criteria are exhausted (i.e. they have an occurrence number
+     * which was already seen), and no instance within the bound can receive further
+     * dependences (it has no pending reads, and its control dependences are resolved
+     * or cannot occur anymore).
+     *
+     * @param maxDistance the maximum distance (default: {@link Integer#MAX_VALUE}, i.e. unbounded)
+     */
+    public void setMaxDistance(int maxDistance) {
+        if (maxDistance < 0)
+            throw new IllegalArgumentException("maximum distance must be non-negative");
+        this.maxDistance = maxDistance;
+    }
+
+    public int getMaxDistance() {
+        return this.maxDistance;
+    }
+
+    /**
+     * Enables or disables the skipping of irrelevant frames.
+     *
+     * If enabled, the frame of a called method is not simulated if the method (including all
+     * methods it may call, see {@link ModRefSummary}) cannot write any field, static field or
+     * array element read by an instance on the slice and not written since, its return value
+     * is not read by an instance on the slice, and it cannot contain an instance matching a
+     * slicing criterion. The result is the same slice.
+     * The number of skipped instances is reported to the {@link SlicingMetrics}.
+     *
+     * The summaries are computed anew for each traversal, and since virtual calls may reach
+     * every traced method with the same signature, this takes some 20ms even for small traces
+     * of a few hundred classes. Skipping only pays off on longer traces with many frames of
+     * unrelated methods.
+     *
+     * @param frameSkipping whether to skip irrelevant frames (default: <code>false</code>)
+     */
+    public void setFrameSkipping(boolean frameSkipping) {
+        this.frameSkipping = frameSkipping;
+    }
+
+    public boolean isFrameSkipping() {
+        return this.frameSkipping;
+    }
+
+    /**
+     * Sets the number of memoized transfer functions of frames (see
+     * {@link DependencesExtractor#setFrameTransferCacheSize(int)}). Repeated executions of
+     * short methods along the same path are then not simulated instruction by instruction.
+     * The memoization is not used for bounded slices or together with frame skipping, which
+     * need to track the pending reads of each instance.
+     *
+     * @param frameTransferCacheSize the maximum number of cached transfer functions, or 0 to
+     *                               disable the memoization (the default)
+     */
+    public void setFrameTransferCacheSize(int frameTransferCacheSize) {
+        if (frameTransferCacheSize < 0)
+            throw new IllegalArgumentException("cache size must not be negative");
+        this.frameTransferCacheSize = frameTransferCacheSize;
+    }
+
+    public int getFrameTransferCacheSize() {
+        return this.frameTransferCacheSize;
+    }
+
+    /**
+     * Enables or disables the filtering by a static slice.
+     *
+     * If enabled, a static slice for the slicing criteria is computed on the
+     * {@link StaticDependenceGraph} of the traced classes before the traversal, and the
+     * instances of instructions which are not on the static slice are not simulated (see
+     * {@link DependencesExtractor#setRelevantInstructions(BitSet)}). The result is the same slice.
+     * No static slice is computed if a criterion is not a {@link StaticSlicingCriterion}, or
+     * only tracks some local variables, and the filter is not used if the static slice
+     * contains more than 10000 instructions.
+     * The size of the static slice and the number of filtered instances are reported to the
+     * {@link SlicingMetrics}.
+     *
+     * @param staticSliceFiltering whether to filter by a static slice (default: <code>false</code>)
+     */
+    public void setStaticSliceFiltering(boolean staticSliceFiltering) {
+        this.staticSliceFiltering = staticSliceFiltering;
+    }
+
+    public boolean isStaticSliceFiltering() {
+        return this.staticSliceFiltering;
+    }
+
+    /**
+     * Sets the packages and classes whose frames are treated as black boxes (see
+     * {@link DependencesExtractor#setBlackBoxScope(BlackBoxScope)}), e.g. the JDK.
+     *
+     * The instructions of these frames are never on the slice; the invocation in the calling
+     * frame gets a conservative summary of the frame instead, and is reported to the
+     * {@link UntracedCallVisitor}s. Instances matching a slicing criterion within a black box
+     * frame are ignored. The filtering by a static slice is disabled, since the static slice
+     * does not reflect these summaries.
+     *
+     * @param blackBoxScope the black box scope, or <code>null</code> (the default) to simulate all frames
+     */
+    public void setBlackBoxScope(BlackBoxScope blackBoxScope) {
+        this.blackBoxScope = blackBoxScope;
+    }
+
+    public BlackBoxScope getBlackBoxScope() {
+        return this.blackBoxScope;
+    }
+
+    /**
+     * Sets the representation of the heap locations (see
+     * {@link DependencesExtractor#setHeapAbstraction(HeapAbstraction)}).
+     *
+     * All abstractions except {@link HeapAbstraction#OBJECTS} (the default) bound the number
+     * of tracked heap variables on very large traces, at the price of a possibly larger slice.
+     * The readers of a merged variable are merged as well if the slice does not change by it
+     * (see {@link DependencesExtractor#setSummaryReaderMerging(ReaderEquivalence)}); the
+     * {@link SliceVisitor}s then only see the slice dependences of the remaining readers.
+     */
+    public void setHeapAbstraction(HeapAbstraction heapAbstraction) {
+        if (heapAbstraction == null)
+            throw new NullPointerException("heapAbstraction");
+        this.heapAbstraction = heapAbstraction;
+    }
+
+    public HeapAbstraction getHeapAbstraction() {
+        return this.heapAbstraction;
+    }
+
+    /**
+     * Enables or disables thin slicing (default: disabled).
+     *
+     * A thin slice only contains the producers of the values at the slicing criterion: it
+     * follows the data dependences over the {@link VariableRole#VALUE} uses, but not over the
+     * base references and indexes of heap accesses, nor any control dependences.
+     * The traversal then registers no visitor for control dependences, and the variables
+     * with other roles are never tracked.
+     */
+    public void setThinSlicing(boolean thinSlicing) {
+        this.thinSlicing = thinSlicing;
+    }
+
+    public boolean isThinSlicing() {
+        return this.thinSlicing;
+    }
+
+    /**
+     * Enables or disables the coalescing of readers (default: disabled).
+     *
+     * If enabled, the repeated reads of a variable by the same instruction are kept as one
+     * entry until the variable is written, as long as none of the readers is on the slice
+     * (see {@link DependencesExtractor#setReaderCoalescing(ReaderEquivalence)}). This bounds
+     * the state of variables which are read in hot loops, and does not change the slice.
+     */
+    public void setReaderCoalescing(boolean readerCoalescing) {
+        this.readerCoalescing = readerCoalescing;
+    }
+
+    public boolean isReaderCoalescing() {
+        return this.readerCoalescing;
+    }
+
   
     
     
@@ -274,11 +669,69 @@ public class Slicer {
     
     //DependencesExtractor extracts the iterates backwards the trace, extract the dependence information
     //Visitor visit the edge in the result dependence information of DependenceExtractor
-    public void process(ThreadId threadId, final List<SlicingCriterion> sc, boolean multithreaded) throws InterruptedException {
+    public void process(final ThreadId threadId, final List<SlicingCriterion> sc, boolean multithreaded) throws InterruptedException {
+        final SlicingEvents.SliceCompleted completedEvent;
+        if (SlicingEvents.AVAILABLE) {
+            completedEvent = new SlicingEvents.SliceCompleted();
+            completedEvent.begin();
+        } else {
+            completedEvent = null;
+        }
     	// 获取特定线程产生指令序列的DependenceExtractor, 它的方法中包含了切片的所有信息和切片的处理过程！
-        DependencesExtractor<SlicerInstance> depExtractor = DependencesExtractor.forTrace(this.trace, SlicerInstanceFactory.instance); //trace is type of TraceResult!
+        final DependencesExtractor<SlicerInstance> depExtractor = DependencesExtractor.forTrace(this.trace, SlicerInstanceFactory.instance);
         for (ProgressMonitor mon : this.progressMonitors)
             depExtractor.addProgressMonitor(mon); // ProcessMonitor用来对切片进度进行估计，依赖于labelsCrossed 的 数目
+        final SlicingMetrics metrics0 = this.metrics;
+        depExtractor.setMetrics(metrics0);
+        if (this.offHeapConfiguration != null)
+            depExtractor.setOffHeapConfiguration(this.offHeapConfiguration);
+        depExtractor.setFrameTransferCacheSize(this.frameTransferCacheSize);
+        depExtractor.setBlackBoxScope(this.blackBoxScope);
+        depExtractor.setHeapAbstraction(this.heapAbstraction);
+        final boolean thinSlicing0 = this.thinSlicing;
+        if (thinSlicing0)
+            depExtractor.setUsedVariableRoles(EnumSet.of(VariableRole.VALUE));
+        // the dependences of readers which are not on the slice are ignored, and whether an instance
+        // is on the slice is decided before its reads are registered
+        if (this.readerCoalescing) {
+            depExtractor.setReaderCoalescing(new ReaderEquivalence<SlicerInstance>() {
+                @Override
+                public boolean isEquivalentReader(SlicerInstance reader, SlicerInstance representative) {
+                    return !reader.onDynamicSlice && !representative.onDynamicSlice;
+                }
+            });
+        }
+        // the readers of summary variables are never removed; a reader is merged into one which
+        // puts the same instances on the slice with at most the same distance
+        if (this.heapAbstraction != HeapAbstraction.OBJECTS) {
+            depExtractor.setSummaryReaderMerging(new ReaderEquivalence<SlicerInstance>() {
+                @Override
+                public boolean isEquivalentReader(SlicerInstance reader, SlicerInstance representative) {
+                    return !reader.onDynamicSlice || (representative.onDynamicSlice
+                        && representative.criterionDistance <= reader.criterionDistance
+                        && representative.followsDataDependencesOf(reader));
+                }
+            });
+        }
+        if (this.staticSliceFiltering && this.blackBoxScope == null) {
+            BitSet criterionInstructions = getCriterionInstructions(sc);
+            if (criterionInstructions != null) {
+                BitSet staticSlice = new StaticDependenceGraph(this.trace.getReadClasses()).computeSlice(
+                    criterionInstructions, MAX_STATIC_SLICE_SIZE);
+                if (staticSlice == null) {
+                    if (Diagnostics.ENABLED)
+                        Diagnostics.log(Category.CRITERIA, Level.INFO,
+                            "static slice exceeds %d instructions, not filtering", MAX_STATIC_SLICE_SIZE);
+                } else {
+                    if (Diagnostics.ENABLED)
+                        Diagnostics.log(Category.CRITERIA, Level.INFO, "static slice contains %d instructions",
+                            staticSlice.cardinality());
+                    depExtractor.setRelevantInstructions(staticSlice);
+                    if (metrics0 != null)
+                        metrics0.getCounter(StaticDependenceGraph.COUNTERS, "instructions").set(staticSlice.cardinality());
+                }
+            }
+        }
 
         // 下面定义了在切片过程中，我们感兴趣的边的访问！
         VisitorCapability[] capabilities = { VisitorCapability.CONTROL_DEPENDENCES, VisitorCapability.DATA_DEPENDENCES_READ_AFTER_WRITE, VisitorCapability.INSTRUCTION_EXECUTIONS,
@@ -286,6 +739,21 @@ public class Slicer {
         
         if (this.untracedCallVisitors.size() > 0)
         	capabilities[capabilities.length-1] = VisitorCapability.UNTRACED_METHOD_CALLS;
+        if (thinSlicing0) {
+            // a thin slice does not follow any control dependences
+            List<VisitorCapability> thinCapabilities = new ArrayList<VisitorCapability>(Arrays.asList(capabilities));
+            thinCapabilities.removeAll(Collections.singleton(VisitorCapability.CONTROL_DEPENDENCES));
+            capabilities = thinCapabilities.toArray(new VisitorCapability[thinCapabilities.size()]);
+        }
+        final int maxDistance0 = this.maxDistance;
+        final boolean bounded = maxDistance0 != Integer.MAX_VALUE;
+        final ModRefAnalysis modRefAnalysis = this.frameSkipping ? new ModRefAnalysis(this.trace.getReadClasses()) : null;
+        if (bounded || modRefAnalysis != null) {
+            // pending reads are needed to find out when the frontier of the bounded slice is empty,
+            // and which variables read by the slice are still live
+            capabilities = Arrays.copyOf(capabilities, capabilities.length+1);
+            capabilities[capabilities.length-1] = VisitorCapability.PENDING_DATA_DEPENDENCES_READ_AFTER_WRITE;
+        }
        //sliceVisitor which get informed about all nodes their dependences in dynamic slicing 
         final List<SliceVisitor> sliceVisitors0 = Slicer.this.sliceVisitors; 
         final List<UntracedCallVisitor> untracedCallVisitors0 = Slicer.this.untracedCallVisitors;
@@ -296,9 +764,10 @@ public class Slicer {
         
         // --------------------------------------------------------REGISTER VISITOR-----------------------------------------------------------------
         //后面访问边的时候，是depExtractor.DependenceVisitorAdapter访问的！  
-        depExtractor.registerVisitor(new DependencesVisitorAdapter<SlicerInstance>() {
+        depExtractor.registerVisitor(new SliceDependencesVisitor() {
         	// 这里大部分是第一个参数的定义，即DependenceVisitorAdapter的定义，包括各种依赖关系visit的动作
-            private final List<SlicingCriterionInstance> slicingCritInst = instantiateSlicingCriteria(sc);
+            private final CompiledSlicingCriteria slicingCriteria = instantiateSlicingCriteria(sc);
+            private final List<SlicingCriterionInstance> slicingCritInst = this.slicingCriteria.getInstances();
             @SuppressWarnings("unchecked")
            // InterestingLocalVariables表示再在切片过程中维持的LiveVariable集合，即感兴趣的变量集合！
             // 数组的下表对应于Stackdepth
@@ -314,26 +783,42 @@ public class Slicer {
 
             private ReadMethod enteredMethod; // 当前正在处理的方法
 
-            // the number of sliceCriterions may be zero, 1 or many
-            private List<SlicingCriterionInstance> instantiateSlicingCriteria(List<SlicingCriterion> criteria) {
-            	System.out.println("entered ---------------------\n");
-                if (criteria.isEmpty())
-                    return Collections.emptyList();
-                else if (criteria.size() == 1)
-                {  System.out.println("instance of cri:  ");
-                    System.out.println(criteria.get(0).getInstance().toString());
-                    System.out.println(criteria.get(0).getInstance().getOccurenceNumber());
-                	return Collections.singletonList(criteria.get(0).getInstance()); // getintance 就是new一个返回
-                }
-                else {
-                    List<SlicingCriterionInstance> instances = new ArrayList<SlicingCriterionInstance>(criteria.size());
-                    System.out.println("size of criteria:------------------------------------------  ");
-                    System.out.print(criteria.size());
-                    for (SlicingCriterion crit : criteria)
-                        instances.add(crit.getInstance());
-                    return instances;
+            private long numInstances = 0;
+            private long numSliceInstances = 0;
+
+            // the number of instances on the (bounded) slice which can still receive dependences
+            private long frontierSize = 0;
+            // instructions which are control dependent on another instruction of their method
+            private final BitSet controlledInstructions = new BitSet();
+            private final Set<ReadMethod> analysedMethods = new HashSet<ReadMethod>();
+
+            // the variables read by instances on the slice which are not written yet (only
+            // maintained if frames are skipped): fields by their id, array elements by the type
+            // of the array, and stack entries
+            private int[] liveFields = new int[16];
+            private long liveObjectFields = 0;
+            private final int[] liveArrayElements = new int[ModRefSummary.NUM_ARRAY_TYPES];
+            private final Map<Variable, Integer> liveStackEntries = new HashMap<Variable, Integer>();
+            private final Map<ReadMethod, Boolean> mayContainCriterion = new HashMap<ReadMethod, Boolean>();
+
+            {
+                if (modRefAnalysis != null) {
+                    depExtractor.setFrameFilter(new FrameFilter() {
+                        @Override
+                        public boolean canSkipFrame(ReadMethod method, int stackDepth, Variable returnValue) {
+                            return isIrrelevantFrame(method, returnValue);
+                        }
+                    });
                 }
             }
+
+            // the number of sliceCriterions may be zero, 1 or many
+            private CompiledSlicingCriteria instantiateSlicingCriteria(List<SlicingCriterion> criteria) {
+                if (Diagnostics.ENABLED)
+                    Diagnostics.log(Category.CRITERIA, Level.DEBUG, "instantiating %d slicing criteria: %s",
+                        criteria.size(), criteria);
+                return new CompiledSlicingCriteria(criteria);
+            }
      
             
             // the meaning of critOccurenceNumber?
@@ -342,7 +827,16 @@ public class Slicer {
             @Override
             //----------------检查一条轨迹中的指令需要的动作！关键是先判定该指令是否对应于切片实例！
             public void visitInstructionExecution(SlicerInstance instance) {
+                ++this.numInstances;
                 int stackDepth = instance.getStackDepth();
+                if (bounded && this.frontierSize == 0 && canStop()) {
+                    // all earlier instances were processed completely, and nothing can
+                    // be added to the slice anymore
+                    if (Diagnostics.ENABLED)
+                        Diagnostics.log(Category.TRAVERSAL, Level.INFO, "bounded slice complete after %d instances",
+                            this.numInstances);
+                    depExtractor.stopTraversal();
+                }
                 
                 if (this.critOccurenceNumbers.length <= stackDepth) {
                     long[] newCritOccurenceNumbers = new long[2*Math.max(this.critOccurenceNumbers.length, stackDepth)];
@@ -351,44 +845,47 @@ public class Slicer {
                     this.critOccurenceNumbers = newCritOccurenceNumbers;
                 }
                 Instruction instruction = instance.getInstruction();
-                for (SlicingCriterionInstance crit : this.slicingCritInst) {
-                    if (crit.matches(instance)) { // 当前指令对应于一条切片的标准
-                    	System.out.print("matched !!-----------------\n");
-                    	System.out.println(instance.getInstruction().getLineNumber());
-                    	System.out.print("line----index");
-                    	System.out.println(instance.getInstruction().getIndex());
-                        this.critOccurenceNumbers[stackDepth] = crit.getOccurenceNumber(); // how to do if there are two Criterions in the same stack Depth?
-                        assert this.critOccurenceNumbers[stackDepth] > 0;
-                        // for each criterion, there are three cases:
-                        //  - track all data read by the instruction
-                        //  - track a given set of local variables
-                        //  - track the control dependences of this instruction
-                        // in the second case, the instruction itself is not added to the dynamic slice
-                        instance.allDataInteresting = crit.matchAllData();
-                        if (!instance.allDataInteresting && crit.hasLocalVariables()) { // 第二种情况
-                            if (this.interestingLocalVariables.length <= stackDepth) {  // local interesting variable why compare to stack Length?
-                                @SuppressWarnings("unchecked")
-                                IntegerMap<Object>[] newInterestingLocalVariables =
-                                        (IntegerMap<Object>[]) new IntegerMap<?>[Math.max(stackDepth+1, this.interestingLocalVariables.length*3/2)];
-                                System.arraycopy(this.interestingLocalVariables, 0, newInterestingLocalVariables, 0, this.interestingLocalVariables.length);
-                                this.interestingLocalVariables = newInterestingLocalVariables;
+                if (this.slicingCriteria.mayMatch(instance)) {
+                    for (SlicingCriterionInstance crit : this.slicingCritInst) {
+                        if (crit.matches(instance)) { // 当前指令对应于一条切片的标准
+                            if (Diagnostics.ENABLED)
+                                Diagnostics.log(Category.CRITERIA, Level.DEBUG, "criterion %s matched %s (line %d, index %d)",
+                                    crit, instance, instruction.getLineNumber(), instruction.getIndex());
+                            this.critOccurenceNumbers[stackDepth] = crit.getOccurenceNumber(); // how to do if there are two Criterions in the same stack Depth?
+                            assert this.critOccurenceNumbers[stackDepth] > 0;
+                            // for each criterion, there are three cases:
+                            //  - track all data read by the instruction
+                            //  - track a given set of local variables
+                            //  - track the control dependences of this instruction
+                            // in the second case, the instruction itself is not added to the dynamic slice
+                            instance.allDataInteresting = crit.matchAllData();
+                            if (!instance.allDataInteresting && crit.hasLocalVariables()) { // 第二种情况
+                                if (this.interestingLocalVariables.length <= stackDepth) {  // local interesting variable why compare to stack Length?
+                                    @SuppressWarnings("unchecked")
+                                    IntegerMap<Object>[] newInterestingLocalVariables =
+                                            (IntegerMap<Object>[]) new IntegerMap<?>[Math.max(stackDepth+1, this.interestingLocalVariables.length*3/2)];
+                                    System.arraycopy(this.interestingLocalVariables, 0, newInterestingLocalVariables, 0, this.interestingLocalVariables.length);
+                                    this.interestingLocalVariables = newInterestingLocalVariables;
+                                }
+                                List<LocalVariable> localVariables = crit.getLocalVariables();
+                                if (this.interestingLocalVariables[stackDepth] == null)
+                                    this.interestingLocalVariables[stackDepth] = new IntegerMap<Object>(localVariables.size()*4/3+1);
+                                for (LocalVariable i : localVariables)
+                                	// 为何此时i.getIndex对应的Object是null?-------------------------------
+                                    this.interestingLocalVariables[stackDepth].put(i.getIndex(), null); 
+                            } else {  // 第一种或者第三种情况
+                                if (instruction.getType() != InstructionType.LABEL)  //第一种或者第三种情况(排除LABEL)需要将实例加入到切片结果中！
+                                    for (SliceVisitor vis : this.sliceVisitorsArray) 
+                                        vis.visitMatchedInstance(instance);   // sliceVisitorr来收集切片实例！
+                                putOnDynamicSlice(instance);  // not the second case, need to put into the slice
+                                instance.criterionDistance = 0;   // because instance match the Criterion, so set it to 0
                             }
-                            List<LocalVariable> localVariables = crit.getLocalVariables();
-                            if (this.interestingLocalVariables[stackDepth] == null)
-                                this.interestingLocalVariables[stackDepth] = new IntegerMap<Object>(localVariables.size()*4/3+1);
-                            for (LocalVariable i : localVariables)
-                            	// 为何此时i.getIndex对应的Object是null?-------------------------------
-                                this.interestingLocalVariables[stackDepth].put(i.getIndex(), null); 
-                        } else {  // 第一种或者第三种情况
-                            if (instruction.getType() != InstructionType.LABEL)  //第一种或者第三种情况(排除LABEL)需要将实例加入到切片结果中！
-                                for (SliceVisitor vis : this.sliceVisitorsArray) 
-                                    vis.visitMatchedInstance(instance);   // sliceVisitorr来收集切片实例！
-                            instance.onDynamicSlice = true;  // not the second case, need to put into the slice
-                            instance.criterionDistance = 0;   // because instance match the Criterion, so set it to 0
+                        } else if (this.critOccurenceNumbers[stackDepth] != 0) {
+                            this.critOccurenceNumbers[stackDepth] = 0;
                         }
-                    } else if (this.critOccurenceNumbers[stackDepth] != 0) {
-                        this.critOccurenceNumbers[stackDepth] = 0;
                     }
+                } else if (this.critOccurenceNumbers[stackDepth] != 0) {
+                    this.critOccurenceNumbers[stackDepth] = 0;
                 }
                //约束条件表明当前判定的是数据依赖关系的判定！
                 if (this.interestingLocalVariables.length > stackDepth &&
@@ -406,7 +903,7 @@ public class Slicer {
                                     this.interestingLocalVariables[stackDepth] = null;
                                 for (SliceVisitor vis : this.sliceVisitorsArray)  // sliceVisitor收集切片实例
                                     vis.visitMatchedInstance(instance); 
-                                instance.onDynamicSlice = true;
+                                putOnDynamicSlice(instance);
                                 // and we want to know where the data comes from...
                                 instance.allDataInteresting = true;
                                 instance.criterionDistance = 0;
@@ -432,7 +929,7 @@ public class Slicer {
                                             if (this.interestingLocalVariables[stackDepth].isEmpty())
                                                 this.interestingLocalVariables[stackDepth] = null;  //因为InterestingLocalVariables 初始数组大小为0,是由于上一一步的MatchCri才加入内容的。
                                             localVarsMatched = true;
-                                            instance.onDynamicSlice = true;
+                                            putOnDynamicSlice(instance);
                                             // and we want to know where the data comes from...
                                             // TODO
                                             instance.allDataInteresting = true;
@@ -459,6 +956,10 @@ public class Slicer {
             // A 是B 的 predecessor 表示B控制A的执行，B再程序里面可能有多个后继，但是为什么label要设置呢？。
             public void visitControlDependence(SlicerInstance from,
                     SlicerInstance to) {
+                if (bounded && !from.controlResolved && !isCatchBlockLabel(from.getInstruction())) {
+                    from.controlResolved = true;
+                    updateFrontier(from);
+                }
                 if (from.onDynamicSlice) { 
                     Instruction insn = to.getInstruction();
                     // labelMarker 和 Goto L1类型的指令才有predecessors!!????
@@ -488,15 +989,147 @@ public class Slicer {
                     	if (distance < to.criterionDistance)
                     		to.criterionDistance = distance;
                     }
-                    to.onDynamicSlice = true;
+                    if (to.criterionDistance <= maxDistance0)
+                        putOnDynamicSlice(to);
                 }
             }
 
+			// labels and gotos are only used to pass on control dependences, they are not counted
+			private void putOnDynamicSlice(SlicerInstance instance) {
+			    if (!instance.onDynamicSlice) {
+			        instance.onDynamicSlice = true;
+			        Instruction insn = instance.getInstruction();
+			        if (insn.getType() != InstructionType.LABEL && insn.getOpcode() != Opcodes.GOTO)
+			            ++this.numSliceInstances;
+			    }
+			    if (bounded)
+			        updateFrontier(instance);
+			}
+
+			private void updateFrontier(SlicerInstance instance) {
+			    boolean open = instance.onDynamicSlice && instance.criterionDistance < maxDistance0
+			        && (instance.pendingReads > 0
+			            || (!thinSlicing0 && !instance.controlResolved && mayBeControlled(instance)));
+			    if (open != instance.inFrontier) {
+			        instance.inFrontier = open;
+			        if (open)
+			            ++this.frontierSize;
+			        else
+			            --this.frontierSize;
+			    }
+			}
+
+			// whether the instance can still get a control dependence (if it has not got one yet)
+			private boolean mayBeControlled(SlicerInstance instance) {
+			    Instruction insn = instance.getInstruction();
+			    // the method invocation in the calling frame, or the instruction throwing to a catch block
+			    if (instance.getStackDepth() > 1 || isCatchBlockLabel(insn))
+			        return true;
+			    ReadMethod method = insn.getMethod();
+			    if (this.analysedMethods.add(method))
+			        for (Set<Instruction> dependants: ControlFlowAnalyser.getInstance().getInvControlDependences(method).values())
+			            for (Instruction dependant: dependants)
+			                this.controlledInstructions.set(dependant.getIndex());
+			    return this.controlledInstructions.get(insn.getIndex());
+			}
+
+			private boolean isCatchBlockLabel(Instruction insn) {
+			    return insn.getType() == InstructionType.LABEL && ((LabelMarker)insn).isCatchBlock();
+			}
+
+			private boolean isIrrelevantFrame(ReadMethod method, Variable returnValue) {
+			    if (returnValue != null && this.liveStackEntries.containsKey(returnValue))
+			        return false;
+			    ModRefSummary summary = modRefAnalysis.getSummary(method);
+			    if (summary.callsUntracedMethods())
+			        return false;
+			    if (!this.slicingCriteria.isExhausted()) {
+			        Boolean mayContain = this.mayContainCriterion.get(method);
+			        if (mayContain == null) {
+			            mayContain = Boolean.FALSE;
+			            for (ReadMethod reachable: summary.getReachableMethods())
+			                if (this.slicingCriteria.mayMatchIn(reachable))
+			                    mayContain = Boolean.TRUE;
+			            this.mayContainCriterion.put(method, mayContain);
+			        }
+			        if (mayContain.booleanValue())
+			            return false;
+			    }
+			    if (summary.allocatesUntracedObjects() && this.liveObjectFields > 0)
+			        return false;
+			    if (intersectsLiveFields(summary.getWrittenFields()) || intersectsLiveFields(summary.getAllocatedFields()))
+			        return false;
+			    int arrayTypes = summary.getWrittenArrayTypes() | summary.getAllocatedArrayTypes();
+			    for (int type = 0; type < ModRefSummary.NUM_ARRAY_TYPES; ++type)
+			        if ((arrayTypes & (1 << type)) != 0 && this.liveArrayElements[type] > 0)
+			            return false;
+			    return true;
+			}
+
+			private boolean intersectsLiveFields(BitSet fields) {
+			    for (int fieldId = fields.nextSetBit(0); fieldId >= 0 && fieldId < this.liveFields.length;
+			            fieldId = fields.nextSetBit(fieldId+1))
+			        if (this.liveFields[fieldId] > 0)
+			            return true;
+			    return false;
+			}
+
+			private void updateLiveVariables(SlicerInstance reader, Variable var, int delta) {
+			    if (var instanceof ObjectField) {
+			        addLiveField(((ObjectField) var).getFieldId(), delta);
+			        this.liveObjectFields += delta;
+			    } else if (var instanceof StaticField) {
+			        addLiveField(((StaticField) var).getFieldId(), delta);
+			    } else if (var instanceof ArrayElement) {
+			        int type = ModRefSummary.getArrayType(reader.getInstruction());
+			        for (int t = 0; t < ModRefSummary.NUM_ARRAY_TYPES; ++t)
+			            if (type == -1 || type == t)
+			                this.liveArrayElements[t] += delta;
+			    } else if (var instanceof StackEntry) {
+			        Integer count = this.liveStackEntries.get(var);
+			        int newCount = (count == null ? 0 : count.intValue()) + delta;
+			        if (newCount == 0)
+			            this.liveStackEntries.remove(var);
+			        else
+			            this.liveStackEntries.put(var, newCount);
+			    }
+			}
+
+			private void addLiveField(int fieldId, int delta) {
+			    if (fieldId >= this.liveFields.length)
+			        this.liveFields = Arrays.copyOf(this.liveFields, Math.max(2*this.liveFields.length, fieldId+1));
+			    this.liveFields[fieldId] += delta;
+			}
+
+			private boolean canStop() {
+			    if (this.enteredMethod != null || !this.slicingCriteria.isExhausted())
+			        return false;
+			    for (IntegerMap<Object> locals: this.interestingLocalVariables)
+			        if (locals != null)
+			            return false;
+			    return true;
+			}
+
+			@Override
+			public void visitEnd(long numInstances) {
+			    if (metrics0 != null)
+			        metrics0.setSliceInstances(this.numSliceInstances);
+			    if (completedEvent != null && completedEvent.shouldCommit()) {
+			        completedEvent.slicer = Slicer.class.getSimpleName();
+			        completedEvent.thread = threadId.getThreadName();
+			        completedEvent.criterion = sc.toString();
+			        completedEvent.instances = this.numInstances;
+			        completedEvent.sliceSize = this.numSliceInstances;
+			        completedEvent.commit();
+			    }
+			}
+
 			private void delegateControlSliceDependence(SlicerInstance from,
 					SlicerInstance to, int distance) {
 
-				for (SliceVisitor vis : this.sliceVisitorsArray)    //收集控制依赖相关的切片实例！
-				    vis.visitSliceDependence(from, to, null, distance);  
+				if (distance <= maxDistance0)
+				    for (SliceVisitor vis : this.sliceVisitorsArray)    //收集控制依赖相关的切片实例！
+				        vis.visitSliceDependence(from, to, null, distance);
 
                 // since "to" controls the execution of "from", we want to track all data dependences of "to"
                 // to find out why it took this decision
@@ -541,8 +1174,9 @@ public class Slicer {
                     int distance = from.criterionDistance+1;
                 	if (distance < to.criterionDistance)
                 		to.criterionDistance = distance;
-                    for (SliceVisitor vis : this.sliceVisitorsArray)    // 收集数据相关的切片实例！
-                        vis.visitSliceDependence(from, to, toVar, distance);  
+                    if (distance <= maxDistance0)
+                        for (SliceVisitor vis : this.sliceVisitorsArray)    // 收集数据相关的切片实例！
+                            vis.visitSliceDependence(from, to, toVar, distance);
                     if (!fromVars.isEmpty()) {  
                     	// interesting 和 moreinteresing 记录了一条指令中涉及到切片的敏感数据依赖！
                     	// 数据相关事，关于敏感变量的划分，第一个定位interestingVariable, 剩余的定位more interestingVariable!
@@ -561,7 +1195,8 @@ public class Slicer {
                                 to.moreInterestingVariables.add(varIt.next());
                         }
                     }
-                    to.onDynamicSlice = true;
+                    if (to.criterionDistance <= maxDistance0)
+                        putOnDynamicSlice(to);
                 }
             }
            
@@ -586,6 +1221,26 @@ public class Slicer {
                 }
             }
 
+            @Override
+            public void visitPendingDataDependence(SlicerInstance from, Variable var, DataDependenceType type) {
+                ++from.pendingReads;
+                updateFrontier(from);
+                if (modRefAnalysis != null) {
+                    // all reads of an instance are registered together, after it got all its dependences
+                    from.liveReads = from.onDynamicSlice;
+                    if (from.liveReads)
+                        updateLiveVariables(from, var, 1);
+                }
+            }
+
+            @Override
+            public void discardPendingDataDependence(SlicerInstance from, Variable var, DataDependenceType type) {
+                --from.pendingReads;
+                updateFrontier(from);
+                if (from.liveReads)
+                    updateLiveVariables(from, var, -1);
+            }
+
             @Override
             public void visitUntracedMethodCall(SlicerInstance instrInstance)
                     throws InterruptedException {
@@ -598,6 +1253,88 @@ public class Slicer {
         depExtractor.processBackwardTrace(threadId, multithreaded);
     }
 
+    /**
+     * Computes the dynamic slices of several lists of slicing criteria with a single traversal
+     * of the trace. All dependences of the thread are recorded in a
+     * {@link CompactedDependenceGraph}, together with the instances matching each list of
+     * criteria, and each slice is then computed by a search on the graph instead of another
+     * traversal.
+     *
+     * All dependences of an instance in the slice are followed, so each criterion has to match
+     * all data (<code>&lt;loc&gt;:*</code>). The slice then contains all instances which the
+     * criterion instances transitively depend on, including labels; this is a superset of the
+     * slice of {@link #process(ThreadId, List, boolean)}, which only follows the dependences on
+     * the interesting variables of each instance. The other options of this slicer do not
+     * apply, and the {@link SliceVisitor}s are not informed.
+     *
+     * @param threadId the thread whose slices are computed
+     * @param criteria the lists of criteria, one per slice
+     * @return the slice of each list of criteria, in the same order
+     * @throws IllegalArgumentException if one of the criteria does not match all data
+     * @throws InterruptedException if the traversal was interrupted
+     */
+    public List<CompactedDependenceGraph.Slice> computeSlices(ThreadId threadId,
+            List<List<SlicingCriterion>> criteria) throws InterruptedException {
+        final CompiledSlicingCriteria[] compiledCriteria = new CompiledSlicingCriteria[criteria.size()];
+        final List<List<InstructionInstance>> criterionInstances = new ArrayList<List<InstructionInstance>>(criteria.size());
+        for (int i = 0; i < compiledCriteria.length; ++i) {
+            compiledCriteria[i] = new CompiledSlicingCriteria(criteria.get(i));
+            for (SlicingCriterionInstance crit: compiledCriteria[i].getInstances())
+                if (!crit.matchAllData())
+                    throw new IllegalArgumentException("The criterion " + crit + " does not match all data");
+            criterionInstances.add(new ArrayList<InstructionInstance>());
+        }
+
+        DependencesExtractor<InstructionInstance> depExtractor = DependencesExtractor.forTrace(this.trace);
+        for (ProgressMonitor mon : this.progressMonitors)
+            depExtractor.addProgressMonitor(mon);
+        depExtractor.setMetrics(this.metrics);
+        if (this.offHeapConfiguration != null)
+            depExtractor.setOffHeapConfiguration(this.offHeapConfiguration);
+        CompactedDependenceGraph graph = new CompactedDependenceGraph();
+        graph.registerAt(depExtractor);
+        depExtractor.registerVisitor(new DependencesVisitorAdapter<InstructionInstance>() {
+            @Override
+            public void visitInstructionExecution(InstructionInstance instance) {
+                for (int i = 0; i < compiledCriteria.length; ++i) {
+                    if (compiledCriteria[i].mayMatch(instance)) {
+                        for (SlicingCriterionInstance crit: compiledCriteria[i].getInstances()) {
+                            if (crit.matches(instance)) {
+                                criterionInstances.get(i).add(instance);
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+        }, VisitorCapability.INSTRUCTION_EXECUTIONS);
+        depExtractor.processBackwardTrace(threadId);
+
+        if (Diagnostics.ENABLED)
+            Diagnostics.log(Category.TRAVERSAL, Level.INFO, "compacted %d dependences to %d runs on %d edges",
+                graph.getNumDependences(), graph.getNumRuns(), graph.getNumEdges());
+        List<CompactedDependenceGraph.Slice> slices = new ArrayList<CompactedDependenceGraph.Slice>(criteria.size());
+        for (List<InstructionInstance> instances: criterionInstances)
+            slices.add(graph.computeSlice(instances));
+        return slices;
+    }
+
+    /**
+     * Returns the instructions which may match the given criteria, or <code>null</code> if they
+     * are not known statically. A criterion which only tracks some local variables is matched
+     * by stores to these variables in any frame at the same stack depth, so it is not supported.
+     */
+    private static BitSet getCriterionInstructions(List<SlicingCriterion> criteria) {
+        BitSet instructions = new BitSet();
+        for (SlicingCriterion crit: criteria) {
+            SlicingCriterionInstance inst = crit.getInstance();
+            if (!(inst instanceof StaticSlicingCriterionInstance) || (!inst.matchAllData() && inst.hasLocalVariables()))
+                return null;
+            ((StaticSlicingCriterionInstance) inst).addMatchingInstructions(instructions);
+        }
+        return instructions;
+    }
+
     @SuppressWarnings("static-access")
     private static Options createOptions() {
         Options options = new Options();
@@ -612,6 +1349,37 @@ public class Slicer {
             withLongOpt("multithreaded").create('m'));
         options.addOption(OptionBuilder.isRequired(false).hasArg(false).
             withDescription("warn once for each method which is called but not traced").withLongOpt("warn-untraced").create('u'));
+        options.addOption(OptionBuilder.isRequired(false).hasArg(false).
+            withDescription("print performance statistics after slicing (also exported via JMX while slicing)").withLongOpt("stats").create('s'));
+        options.addOption(OptionBuilder.isRequired(false).hasArg(true).withArgName("k").
+            withDescription("only follow dependences up to distance k from the slicing criterion, and stop the traversal " +
+                "as soon as nothing within this distance can be added anymore").withLongOpt("max-distance").create('d'));
+        options.addOption(OptionBuilder.isRequired(false).hasArg(false).
+            withDescription("do not simulate the frames of called methods which cannot write anything the slice depends on").
+            withLongOpt("skip-frames").create('f'));
+        options.addOption(OptionBuilder.isRequired(false).hasArg(true).withArgName("n").
+            withDescription("memoize the dependences within the frames of up to n different paths through " +
+                "short methods which call no other traced method").withLongOpt("memoize-frames").create('c'));
+        options.addOption(OptionBuilder.isRequired(false).hasArg(false).
+            withDescription("compute a static slice first, and do not simulate instructions which are not on it").
+            withLongOpt("static-filter").create('g'));
+        options.addOption(OptionBuilder.isRequired(false).hasArg(true).withArgName("patterns").
+            withDescription("comma separated packages (e.g. java.*) and classes whose frames are not simulated, " +
+                "but replaced by a conservative summary").withLongOpt("black-box").create('b'));
+        options.addOption(OptionBuilder.isRequired(false).hasArg(true).withArgName("abstraction").
+            withDescription("representation of the heap: objects (precise, default), fields, arrays or " +
+                "allocation-sites; all but objects merge heap locations and may enlarge the slice").
+            withLongOpt("heap").create('a'));
+        options.addOption(OptionBuilder.isRequired(false).hasArg(false).
+            withDescription("compute a thin slice, which only contains the producers of the values, but no " +
+                "base pointer or index computations and no control dependences").withLongOpt("thin").create('n'));
+        options.addOption(OptionBuilder.isRequired(false).hasArg(false).
+            withDescription("merge the repeated reads of a variable by one instruction which are not on the slice").
+            withLongOpt("coalesce-readers").create('r'));
+        options.addOption(OptionBuilder.isRequired(false).hasArg(false).
+            withDescription("record all dependences in a compacted graph once, and compute the slice of each ';' separated " +
+                "list of criteria on it; the criteria have to match all data (<loc>:*), the other options are ignored").
+            withLongOpt("compacted").create('o'));
         return options;
     }
 
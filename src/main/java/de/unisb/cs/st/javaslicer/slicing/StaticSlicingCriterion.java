@@ -24,6 +24,7 @@ package de.unisb.cs.st.javaslicer.slicing;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -35,6 +36,9 @@ import de.unisb.cs.st.javaslicer.common.classRepresentation.LocalVariable;
 import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadClass;
 import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
 import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.AbstractInstruction;
+import de.unisb.cs.st.javaslicer.metrics.Diagnostics;
+import de.unisb.cs.st.javaslicer.metrics.Diagnostics.Category;
+import de.unisb.cs.st.javaslicer.metrics.Diagnostics.Level;
 import de.unisb.cs.st.javaslicer.traceResult.TraceResult;
 
 /**
@@ -46,54 +50,105 @@ import de.unisb.cs.st.javaslicer.traceResult.TraceResult;
  */
 public class StaticSlicingCriterion implements SlicingCriterion {
 
+    /**
+     * Stamps the instances of the trace per stack depth, such that a criterion instance
+     * can find out whether the previous instance in the same frame was one that it matched
+     * (i.e. whether it is still in a run of matching instructions).
+     *
+     * It is either owned by a single {@link StaticSlicingCriterionInstance}, or shared
+     * by all criteria in a {@link CompiledSlicingCriteria} table.
+     */
+    static final class RunClock {
+
+        private long[] stamps = new long[8];
+        private int stackDepth = 0;
+        private long stamp = 0;
+        private long previousStamp = 0;
+
+        /**
+         * Must be called once for each instance of the trace (with stack depth &gt; 0).
+         */
+        void tick(int instrStackDepth) {
+            ++this.stamp;
+            if (instrStackDepth >= this.stamps.length)
+                this.stamps = Arrays.copyOf(this.stamps, Math.max(2*this.stamps.length, instrStackDepth+1));
+            // a new frame: no run continues there
+            while (this.stackDepth < instrStackDepth)
+                this.stamps[++this.stackDepth] = this.stamp;
+            this.stackDepth = instrStackDepth;
+            this.previousStamp = this.stamps[instrStackDepth];
+            this.stamps[instrStackDepth] = this.stamp;
+        }
+
+    }
+
     public class StaticSlicingCriterionInstance implements SlicingCriterionInstance {
 
         private long seenOccurences = 0; // 表示切片标准实例的第几次出现时我才感兴趣！
-        private boolean[] beingInRun = new boolean[1];
-        private int stackDepth = 0; // 只有实例才有这个属性！
+        // the stamp of the last matched instance, per stack depth
+        private long[] runStamps = new long[1];
+        private RunClock clock = new RunClock();
+        private boolean ownClock = true;
+
+        /**
+         * Lets this instance use the given (shared) clock, which is ticked by the caller
+         * before calling {@link #matches(InstructionInstance)}.
+         */
+        void setSharedClock(RunClock sharedClock) {
+            this.clock = sharedClock;
+            this.ownClock = false;
+        }
+
+        /**
+         * Sets the bits of all instructions (by their index) that statically match this criterion.
+         */
+        void addMatchingInstructions(BitSet instructions) {
+            Integer lineNumber = StaticSlicingCriterion.this.lineNumber;
+            for (AbstractInstruction instr: StaticSlicingCriterion.this.method.getInstructions())
+                if (lineNumber == null || instr.getLineNumber() == lineNumber.intValue())
+                    instructions.set(instr.getIndex());
+        }
+
+        /**
+         * @return whether this criterion has an occurrence number which was already reached
+         */
+        boolean isExhausted() {
+            return StaticSlicingCriterion.this.occurence != null
+                && this.seenOccurences == StaticSlicingCriterion.this.occurence.longValue();
+        }
 
         /* (non-Javadoc)
 		 * @see de.unisb.cs.st.javaslicer.slicing.SlicingCriterionInstance#matches(de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance)
 		 */
         @Override
-		public boolean matches(InstructionInstance instructionInstance) {	
+		public boolean matches(InstructionInstance instructionInstance) {
             int instrStackDepth = instructionInstance.getStackDepth();
             if(instrStackDepth<=0){
             	return false;
             }
-            // 修改this.Depth使得它与判定实例的stackDepth一样
-            if (this.stackDepth != instrStackDepth) {
-                if (instrStackDepth > this.beingInRun.length) {
-                    boolean[] newArr = new boolean[Math.max(2*this.beingInRun.length, instrStackDepth)];
-                    System.arraycopy(this.beingInRun, 0, newArr, 0, this.beingInRun.length);
-                    this.beingInRun = newArr;
-                }
-                while (this.stackDepth < instrStackDepth) {
-                    this.beingInRun[this.stackDepth++] = false;
-                }
-                this.stackDepth = instrStackDepth;
-            }
-            // 判定是否匹配，有Occurrence的时候要检查Occurrence   
-            // 检查行号和方法是否匹配！    
-            if ((StaticSlicingCriterion.this.occurence != null &&  
+            if (this.ownClock)
+                this.clock.tick(instrStackDepth);
+            // 判定是否匹配，有Occurrence的时候要检查Occurrence
+            // 检查行号和方法是否匹配！
+            if ((StaticSlicingCriterion.this.occurence != null &&
                     this.seenOccurences == StaticSlicingCriterion.this.occurence.longValue())
                 || instructionInstance.getInstruction().getMethod() != StaticSlicingCriterion.this.method
                 || (StaticSlicingCriterion.this.lineNumber != null && instructionInstance.getInstruction().getLineNumber() != StaticSlicingCriterion.this.lineNumber)) {
-                // 当不匹配的时候,修该上次表示还没在运行   	
-            	if (this.beingInRun[instrStackDepth-1]) {
-                    this.beingInRun[instrStackDepth-1] = false;
-                }
                 return false;
             }
 
-            if (this.beingInRun[instrStackDepth-1])
+            if (instrStackDepth > this.runStamps.length)
+                this.runStamps = Arrays.copyOf(this.runStamps, Math.max(2*this.runStamps.length, instrStackDepth));
+            if (this.runStamps[instrStackDepth-1] == this.clock.previousStamp) {
+                this.runStamps[instrStackDepth-1] = this.clock.stamp;
                 return true; // we want to see *all* instruction from that line
+            }
 
             // yeah, we have a new occurence!
             long newOccurenceNumber = ++this.seenOccurences;
             if (StaticSlicingCriterion.this.occurence == null ||
                     newOccurenceNumber == StaticSlicingCriterion.this.occurence.longValue()) {
-                this.beingInRun[instrStackDepth-1] = true;
+                this.runStamps[instrStackDepth-1] = this.clock.stamp;
                 return true;
             }
             return false;
@@ -144,28 +199,6 @@ public class StaticSlicingCriterion implements SlicingCriterion {
     public StaticSlicingCriterion(ReadMethod method, Integer lineNumber,
             Long occurence, List<LocalVariable> variables, boolean criterionMatchesAllData) {
         this.method = method;
-        System.out.println("StaticSlicingCriterion method  :");
-        System.out.println(method.toString());
-        System.out.println("\n");
-        System.out.println("StaticSlicingCriterion lineNumber  :");
-        System.out.print(lineNumber);
-        System.out.println("\n");
-        System.out.println("StaticSlicingCriterion Occurrence  :");
-        System.out.print(occurence);
-        System.out.println("\n");
-        System.out.println("StaticSlicingCriterion mathedAllData  :");
-        System.out.print(criterionMatchesAllData);
-        System.out.println("\n");
-        for(int a=0;a<variables.size();a++)
-        	{
-        	System.out.println("StaticSlicingCriterion var  :");
-        	System.out.println(variables.get(a).toString()); 
-        	System.out.println("\n");
-        	}
-        
-        
-        
-        
         this.lineNumber = lineNumber;
         this.occurence = occurence;
         if (variables == null || variables.isEmpty())
@@ -175,6 +208,8 @@ public class StaticSlicingCriterion implements SlicingCriterion {
         else
             this.variables = Collections.unmodifiableList(new ArrayList<LocalVariable>(variables));
         this.matchAllData = criterionMatchesAllData;
+        if (Diagnostics.ENABLED)
+            Diagnostics.log(Category.CRITERIA, Level.DEBUG, "created slicing criterion %s", this);
     }
 
     @Override
@@ -229,9 +264,8 @@ public class StaticSlicingCriterion implements SlicingCriterion {
     // 根据输入的切片标准字符串java.lang.String.indexOf:1768:{target,max}，初始化生成静态切片标准！
     public static StaticSlicingCriterion parse(String string, List<ReadClass> readClasses) throws IllegalArgumentException {
         Matcher matcher = slicingCriterionPattern.matcher(string);
-        System.out.println("the Pattern String for parsing :");
-        System.out.println(string);
-        System.out.println("\n");
+        if (Diagnostics.ENABLED)
+            Diagnostics.log(Category.CRITERIA, Level.DEBUG, "parsing slicing criterion %s", string);
         if (!matcher.matches())
             throw new IllegalArgumentException("Slicing criterion could not be parsed: " + string);
 
@@ -0,0 +1,47 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.traceSource
+ *    Class:     BackwardInstanceIterator
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/traceSource/BackwardInstanceIterator.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.traceSource;
+
+import java.util.Iterator;
+import java.util.List;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.common.progress.ProgressInformationProvider;
+
+/**
+ * Iterates backwards through the instruction instances of one thread, as returned
+ * by {@link TraceSource#getBackwardIterator}.
+ *
+ * Instance numbers start at 0 for the last executed instruction, occurrence numbers
+ * count the instances of each instruction from the end of the trace.
+ */
+public interface BackwardInstanceIterator<InstanceType extends InstructionInstance>
+        extends Iterator<InstanceType>, ProgressInformationProvider {
+
+    /**
+     * @return the methods that were on the stack when the trace ended, outermost first
+     */
+    List<ReadMethod> getInitialStackMethods();
+
+}
@@ -0,0 +1,911 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.traceSource
+ *    Class:     SyntheticTraceSource
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/traceSource/SyntheticTraceSource.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.traceSource;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Field;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstanceFactory;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstanceInfo;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.LocalVariable;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadClass;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.TryCatchBlock;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.AbstractInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.ArrayInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.ArrayInstruction.ArrayInstrInstanceInfo;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.FieldInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.FieldInstruction.FieldInstrInstanceInfo;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.IIncInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.IntPush;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.JumpInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.LabelMarker;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.MethodInvocationInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.NewArrayInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.NewArrayInstruction.NewArrayInstrInstanceInfo;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.SimpleInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.TypeInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.TypeInstruction.TypeInstrInstanceInfo;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.VarInstruction;
+import de.unisb.cs.st.javaslicer.traceResult.ThreadId;
+
+/**
+ * A {@link TraceSource} that generates the trace of a small synthetic program on the
+ * fly, without reading any trace file.
+ *
+ * The program is a loop in <code>synthetic.Program.run(int)</code>, whose body calls
+ * one kernel per kind of workload:
+ * <ul>
+ *   <li>a recursion of configurable depth,</li>
+ *   <li>two loops writing and reading all elements of a new array,</li>
+ *   <li>a loop allocating a linked list of <code>synthetic.Node</code> objects, and a loop traversing it,</li>
+ *   <li>a chain of nested calls to distinct methods, the last one updating a static field,</li>
+ *   <li>a call that throws an exception every n-th iteration, which is caught in the loop.</li>
+ * </ul>
+ * Each kind can be scaled or disabled by the {@link Configuration}. The number of loop
+ * iterations is chosen such that the trace contains (at least) the requested number of
+ * instances. Each iteration is generated on demand, so the memory needed does not
+ * depend on the length of the trace.
+ *
+ * The program is traced as if it was executed by a single thread called "main".
+ * Note that the instructions of the program get global instruction indexes just like
+ * the instructions of a trace file, so a synthetic trace source should not be
+ * created while a trace file is being read.
+ */
+public class SyntheticTraceSource implements TraceSource {
+
+    public static final String PROGRAM_CLASS_NAME = "synthetic.Program";
+    public static final String NODE_CLASS_NAME = "synthetic.Node";
+
+    private static final String PROGRAM_INTERNAL_NAME = "synthetic/Program";
+    private static final String NODE_INTERNAL_NAME = "synthetic/Node";
+    private static final String NODE_DESC = "L" + NODE_INTERNAL_NAME + ";";
+    private static final String EXCEPTION_INTERNAL_NAME = "java/lang/IllegalStateException";
+
+    /**
+     * The parameters of a {@link SyntheticTraceSource}.
+     * Setting a kernel parameter to 0 removes the corresponding kernel from the program.
+     */
+    public static class Configuration {
+
+        private long numInstances = 1000000;
+        private int recursionDepth = 20;
+        private int arrayLength = 32;
+        private int numObjects = 16;
+        private int chainLength = 10;
+        private int exceptionPeriod = 8;
+
+        public long getNumInstances() {
+            return this.numInstances;
+        }
+
+        /**
+         * @param numInstances the minimum number of instruction instances of the trace
+         */
+        public Configuration setNumInstances(long numInstances) {
+            if (numInstances < 1)
+                throw new IllegalArgumentException("numInstances must be positive");
+            this.numInstances = numInstances;
+            return this;
+        }
+
+        public int getRecursionDepth() {
+            return this.recursionDepth;
+        }
+
+        /**
+         * @param recursionDepth the number of recursive calls in each iteration
+         */
+        public Configuration setRecursionDepth(int recursionDepth) {
+            this.recursionDepth = checkKernelParameter("recursionDepth", recursionDepth);
+            return this;
+        }
+
+        public int getArrayLength() {
+            return this.arrayLength;
+        }
+
+        /**
+         * @param arrayLength the length of the array that is allocated, written and read in each iteration
+         */
+        public Configuration setArrayLength(int arrayLength) {
+            this.arrayLength = checkKernelParameter("arrayLength", arrayLength);
+            return this;
+        }
+
+        public int getNumObjects() {
+            return this.numObjects;
+        }
+
+        /**
+         * @param numObjects the number of objects allocated in each iteration
+         */
+        public Configuration setNumObjects(int numObjects) {
+            this.numObjects = checkKernelParameter("numObjects", numObjects);
+            return this;
+        }
+
+        public int getChainLength() {
+            return this.chainLength;
+        }
+
+        /**
+         * @param chainLength the number of distinct methods in the chain of nested calls
+         */
+        public Configuration setChainLength(int chainLength) {
+            this.chainLength = checkKernelParameter("chainLength", chainLength);
+            return this;
+        }
+
+        public int getExceptionPeriod() {
+            return this.exceptionPeriod;
+        }
+
+        /**
+         * @param exceptionPeriod an exception is thrown in every iteration whose index is a
+         *                        multiple of this period
+         */
+        public Configuration setExceptionPeriod(int exceptionPeriod) {
+            this.exceptionPeriod = checkKernelParameter("exceptionPeriod", exceptionPeriod);
+            return this;
+        }
+
+        private static int checkKernelParameter(String name, int value) {
+            if (value < 0 || value > Short.MAX_VALUE)
+                throw new IllegalArgumentException(name + " must be in [0, " + Short.MAX_VALUE + "]");
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "instances=" + this.numInstances + ", recursionDepth=" + this.recursionDepth
+                + ", arrayLength=" + this.arrayLength + ", numObjects=" + this.numObjects
+                + ", chainLength=" + this.chainLength + ", exceptionPeriod=" + this.exceptionPeriod;
+        }
+
+    }
+
+    private final Configuration configuration;
+    private final ThreadId thread = new ThreadId(1, "main");
+    private final List<ReadClass> readClasses;
+    private final Map<String, ReadMethod> programMethods = new HashMap<String, ReadMethod>();
+    private final ReadMethod runMethod;
+    private final int loopHeadPc;
+
+    private final int instructionNumberStart;
+    private final int instructionNumberEnd;
+
+    /** number of allocations per iteration, used to give each allocated object a unique id */
+    private final long objectIdStride;
+    private final long numIterations;
+    private final long numInstances;
+
+    public SyntheticTraceSource(Configuration configuration) {
+        this.configuration = configuration;
+        LabelMarker loopHead;
+        ReadClass programClass;
+        ReadClass nodeClass;
+        synchronized (SyntheticTraceSource.class) {
+            this.instructionNumberStart = AbstractInstruction.getNextIndex();
+            nodeClass = createNodeClass();
+            programClass = new ReadClass(PROGRAM_INTERNAL_NAME, AbstractInstruction.getNextIndex(),
+                ACC_PUBLIC, "Program.java", new ArrayList<Field>(), "java.lang.Object");
+            programClass.getFields().add(new Field("result", "I", ACC_STATIC, programClass));
+            programClass.getFields().add(new Field("counter", "I", ACC_STATIC, programClass));
+            loopHead = createRunMethod(programClass);
+            if (configuration.getRecursionDepth() > 0)
+                createRecurseMethod(programClass);
+            if (configuration.getArrayLength() > 0)
+                createArraysMethod(programClass);
+            if (configuration.getNumObjects() > 0)
+                createObjectsMethod(programClass);
+            for (int i = 0; i < configuration.getChainLength(); ++i)
+                createChainMethod(programClass, i, i == configuration.getChainLength() - 1);
+            if (configuration.getExceptionPeriod() > 0)
+                createMayThrowMethod(programClass);
+            this.instructionNumberEnd = AbstractInstruction.getNextIndex();
+            programClass.setInstructionNumberEnd(this.instructionNumberEnd);
+            // the slicing criteria expect the classes and methods to be sorted by name
+            Collections.sort(programClass.getMethods());
+            programClass.ready();
+        }
+        for (ReadMethod m: programClass.getMethods())
+            this.programMethods.put(m.getName() + m.getDesc(), m);
+        this.runMethod = this.programMethods.get("run(I)V");
+        this.loopHeadPc = loopHead.getIndex() - this.runMethod.getInstructionNumberStart();
+        List<ReadClass> classes = Arrays.asList(programClass, nodeClass);
+        Collections.sort(classes);
+        this.readClasses = Collections.unmodifiableList(classes);
+
+        // measure the iterations: iteration 0 throws an exception (if exceptions are enabled),
+        // iteration 1 does not (unless every iteration throws)
+        Generator probe = new Generator(Long.MAX_VALUE, 1);
+        int prologueSize = probe.generate(-1);
+        int throwingSize = probe.generate(0);
+        long allocations = probe.allocations;
+        int normalSize = probe.generate(1);
+        this.objectIdStride = Math.max(1, Math.max(allocations, probe.allocations));
+        // in a program with zero iterations, "iteration" 0 is the code after the loop
+        int epilogueSize = new Generator(0, 1).generate(0);
+
+        long fixed = prologueSize + epilogueSize;
+        long low = 1, high = Math.max(1, configuration.getNumInstances());
+        while (low < high) {
+            long mid = low + (high - low) / 2;
+            if (getNumInstances(mid, fixed, normalSize, throwingSize) >= configuration.getNumInstances())
+                high = mid;
+            else
+                low = mid + 1;
+        }
+        this.numIterations = low;
+        this.numInstances = getNumInstances(low, fixed, normalSize, throwingSize);
+    }
+
+    private long getNumInstances(long iterations, long fixed, long normalSize, long throwingSize) {
+        int period = this.configuration.getExceptionPeriod();
+        long throwing = period == 0 ? 0 : (iterations + period - 1) / period;
+        return fixed + (iterations - throwing) * normalSize + throwing * throwingSize;
+    }
+
+    public Configuration getConfiguration() {
+        return this.configuration;
+    }
+
+    /**
+     * @return the number of instruction instances of the generated trace
+     */
+    public long getNumInstances() {
+        return this.numInstances;
+    }
+
+    /**
+     * @return the number of iterations of the main loop of the synthetic program
+     */
+    public long getNumIterations() {
+        return this.numIterations;
+    }
+
+    public ThreadId getThread() {
+        return this.thread;
+    }
+
+    @Override
+    public List<ThreadId> getThreads() {
+        return Collections.singletonList(this.thread);
+    }
+
+    @Override
+    public ThreadId getThreadId(long javaThreadId) {
+        return javaThreadId == this.thread.getJavaThreadId() ? this.thread : null;
+    }
+
+    @Override
+    public List<ReadClass> getReadClasses() {
+        return this.readClasses;
+    }
+
+    @Override
+    public ReadClass findReadClass(String javaClassName) {
+        for (ReadClass readClass: this.readClasses)
+            if (readClass.getName().equals(javaClassName))
+                return readClass;
+        return null;
+    }
+
+    @Override
+    public <InstanceType extends InstructionInstance> BackwardInstanceIterator<InstanceType> getBackwardIterator(
+            ThreadId threadId, InstructionInstanceFactory<? extends InstanceType> instanceFactory) {
+        if (!this.thread.equals(threadId))
+            return null;
+        return new SyntheticBackwardIterator<InstanceType>(instanceFactory);
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // construction of the synthetic program
+
+    private static ReadClass createNodeClass() {
+        int start = AbstractInstruction.getNextIndex();
+        ReadClass nodeClass = new ReadClass(NODE_INTERNAL_NAME, start, ACC_PUBLIC, "Node.java",
+            new ArrayList<Field>(), "java.lang.Object");
+        nodeClass.getFields().add(new Field("value", "I", ACC_PUBLIC, nodeClass));
+        nodeClass.getFields().add(new Field("next", NODE_DESC, ACC_PUBLIC, nodeClass));
+        nodeClass.setInstructionNumberEnd(start);
+        nodeClass.ready();
+        return nodeClass;
+    }
+
+    /**
+     * Creates <code>run(int n)</code>, and returns the label at the head of its loop.
+     */
+    private LabelMarker createRunMethod(ReadClass programClass) {
+        MethodBuilder b = new MethodBuilder(programClass, "run", "(I)V", 10);
+        b.line(11).insn(ICONST_0).var(ISTORE, 2);
+        b.line(12).insn(ICONST_0).var(ISTORE, 1);
+        LabelMarker head = b.label();
+        JumpInstruction exitLoop = b.line(13).var(ILOAD, 1).var(ILOAD, 0).jump(IF_ICMPGE, null);
+        if (this.configuration.getRecursionDepth() > 0)
+            b.line(14).var(ILOAD, 2).push(this.configuration.getRecursionDepth())
+                .invoke(INVOKESTATIC, PROGRAM_INTERNAL_NAME, "recurse", "(II)I").var(ISTORE, 2);
+        if (this.configuration.getArrayLength() > 0)
+            b.line(15).var(ILOAD, 2).push(this.configuration.getArrayLength())
+                .invoke(INVOKESTATIC, PROGRAM_INTERNAL_NAME, "arrays", "(II)I").var(ISTORE, 2);
+        if (this.configuration.getNumObjects() > 0)
+            b.line(16).var(ILOAD, 2).push(this.configuration.getNumObjects())
+                .invoke(INVOKESTATIC, PROGRAM_INTERNAL_NAME, "objects", "(II)I").var(ISTORE, 2);
+        if (this.configuration.getChainLength() > 0)
+            b.line(17).var(ILOAD, 2)
+                .invoke(INVOKESTATIC, PROGRAM_INTERNAL_NAME, "chain0", "(I)I").var(ISTORE, 2);
+        if (this.configuration.getExceptionPeriod() > 0) {
+            LabelMarker tryStart = b.label();
+            b.line(19).var(ILOAD, 2).var(ILOAD, 1)
+                .invoke(INVOKESTATIC, PROGRAM_INTERNAL_NAME, "mayThrow", "(II)I").var(ISTORE, 2);
+            LabelMarker tryEnd = b.label();
+            JumpInstruction skipHandler = b.jump(GOTO, null);
+            LabelMarker handler = b.catchLabel();
+            b.line(20).var(ASTORE, 3);
+            b.line(21).iinc(2, -1);
+            skipHandler.setLabel(b.label());
+            b.method.addTryCatchBlock(new TryCatchBlock(tryStart, tryEnd, handler, EXCEPTION_INTERNAL_NAME));
+        }
+        b.line(13).iinc(1, 1).jump(GOTO, head);
+        exitLoop.setLabel(b.label());
+        b.line(23).var(ILOAD, 2).field(PUTSTATIC, PROGRAM_INTERNAL_NAME, "result", "I");
+        b.line(24).insn(RETURN);
+        b.finish(new LocalVariable(0, "n", "I"), new LocalVariable(1, "i", "I"),
+            new LocalVariable(2, "acc", "I"), new LocalVariable(3, "e", "L" + EXCEPTION_INTERNAL_NAME + ";"));
+        return head;
+    }
+
+    /**
+     * <code>int recurse(int acc, int depth)</code>
+     */
+    private static void createRecurseMethod(ReadClass programClass) {
+        MethodBuilder b = new MethodBuilder(programClass, "recurse", "(II)I", 30);
+        JumpInstruction toRecursion = b.line(31).var(ILOAD, 1).jump(IFGT, null);
+        b.line(32).var(ILOAD, 0).insn(IRETURN);
+        toRecursion.setLabel(b.label());
+        b.line(33).var(ILOAD, 0).insn(ICONST_1).insn(IADD).var(ILOAD, 1).insn(ICONST_1).insn(ISUB)
+            .invoke(INVOKESTATIC, PROGRAM_INTERNAL_NAME, "recurse", "(II)I").insn(IRETURN);
+        b.finish(new LocalVariable(0, "acc", "I"), new LocalVariable(1, "depth", "I"));
+    }
+
+    /**
+     * <code>int arrays(int acc, int length)</code>
+     */
+    private static void createArraysMethod(ReadClass programClass) {
+        MethodBuilder b = new MethodBuilder(programClass, "arrays", "(II)I", 40);
+        b.line(41).var(ILOAD, 1).newArray(T_INT).var(ASTORE, 2);
+        b.line(42).insn(ICONST_0).var(ISTORE, 3);
+        LabelMarker writeHead = b.label();
+        JumpInstruction endWrite = b.var(ILOAD, 3).var(ILOAD, 1).jump(IF_ICMPGE, null);
+        b.line(43).var(ALOAD, 2).var(ILOAD, 3).var(ILOAD, 0).var(ILOAD, 3).insn(IADD).array(IASTORE);
+        b.line(42).iinc(3, 1).jump(GOTO, writeHead);
+        endWrite.setLabel(b.label());
+        b.line(44).insn(ICONST_0).var(ISTORE, 4);
+        b.line(45).insn(ICONST_0).var(ISTORE, 3);
+        LabelMarker readHead = b.label();
+        JumpInstruction endRead = b.var(ILOAD, 3).var(ILOAD, 1).jump(IF_ICMPGE, null);
+        b.line(46).var(ILOAD, 4).var(ALOAD, 2).var(ILOAD, 3).array(IALOAD).insn(IADD).var(ISTORE, 4);
+        b.line(45).iinc(3, 1).jump(GOTO, readHead);
+        endRead.setLabel(b.label());
+        b.line(47).var(ILOAD, 4).insn(IRETURN);
+        b.finish(new LocalVariable(0, "acc", "I"), new LocalVariable(1, "length", "I"),
+            new LocalVariable(2, "array", "[I"), new LocalVariable(3, "k", "I"), new LocalVariable(4, "sum", "I"));
+    }
+
+    /**
+     * <code>int objects(int acc, int count)</code>
+     */
+    private static void createObjectsMethod(ReadClass programClass) {
+        MethodBuilder b = new MethodBuilder(programClass, "objects", "(II)I", 50);
+        b.line(51).insn(ACONST_NULL).var(ASTORE, 2);
+        b.line(52).insn(ICONST_0).var(ISTORE, 3);
+        LabelMarker allocHead = b.label();
+        JumpInstruction endAlloc = b.var(ILOAD, 3).var(ILOAD, 1).jump(IF_ICMPGE, null);
+        b.line(53).type(NEW, NODE_INTERNAL_NAME).insn(DUP)
+            .invoke(INVOKESPECIAL, NODE_INTERNAL_NAME, "<init>", "()V").var(ASTORE, 4);
+        b.line(54).var(ALOAD, 4).var(ILOAD, 0).var(ILOAD, 3).insn(IADD).field(PUTFIELD, NODE_INTERNAL_NAME, "value", "I");
+        b.line(55).var(ALOAD, 4).var(ALOAD, 2).field(PUTFIELD, NODE_INTERNAL_NAME, "next", NODE_DESC);
+        b.line(56).var(ALOAD, 4).var(ASTORE, 2);
+        b.line(52).iinc(3, 1).jump(GOTO, allocHead);
+        endAlloc.setLabel(b.label());
+        b.line(57).insn(ICONST_0).var(ISTORE, 3);
+        LabelMarker sumHead = b.label();
+        JumpInstruction endSum = b.line(58).var(ALOAD, 2).jump(IFNULL, null);
+        b.line(59).var(ILOAD, 3).var(ALOAD, 2).field(GETFIELD, NODE_INTERNAL_NAME, "value", "I").insn(IADD).var(ISTORE, 3);
+        b.line(60).var(ALOAD, 2).field(GETFIELD, NODE_INTERNAL_NAME, "next", NODE_DESC).var(ASTORE, 2);
+        b.jump(GOTO, sumHead);
+        endSum.setLabel(b.label());
+        b.line(61).var(ILOAD, 3).insn(IRETURN);
+        b.finish(new LocalVariable(0, "acc", "I"), new LocalVariable(1, "count", "I"),
+            new LocalVariable(2, "list", NODE_DESC), new LocalVariable(3, "k", "I"), new LocalVariable(4, "node", NODE_DESC));
+    }
+
+    /**
+     * <code>int chain&lt;i&gt;(int acc)</code>, calling the next method of the chain, or
+     * adding to the static counter if it is the last one.
+     */
+    private static void createChainMethod(ReadClass programClass, int i, boolean last) {
+        MethodBuilder b = new MethodBuilder(programClass, "chain" + i, "(I)I", 70);
+        if (last) {
+            b.line(71).field(GETSTATIC, PROGRAM_INTERNAL_NAME, "counter", "I").var(ILOAD, 0).insn(IADD)
+                .insn(DUP).field(PUTSTATIC, PROGRAM_INTERNAL_NAME, "counter", "I").insn(IRETURN);
+        } else {
+            b.line(72).var(ILOAD, 0).insn(ICONST_1).insn(IADD)
+                .invoke(INVOKESTATIC, PROGRAM_INTERNAL_NAME, "chain" + (i+1), "(I)I").insn(IRETURN);
+        }
+        b.finish(new LocalVariable(0, "acc", "I"));
+    }
+
+    /**
+     * <code>int mayThrow(int acc, int i)</code>, throwing an exception if <code>i</code> is a
+     * multiple of the exception period.
+     */
+    private void createMayThrowMethod(ReadClass programClass) {
+        MethodBuilder b = new MethodBuilder(programClass, "mayThrow", "(II)I", 80);
+        JumpInstruction noException = b.line(81).var(ILOAD, 1).push(this.configuration.getExceptionPeriod())
+            .insn(IREM).jump(IFNE, null);
+        b.line(82).type(NEW, EXCEPTION_INTERNAL_NAME).insn(DUP)
+            .invoke(INVOKESPECIAL, EXCEPTION_INTERNAL_NAME, "<init>", "()V").insn(ATHROW);
+        noException.setLabel(b.label());
+        b.line(83).var(ILOAD, 0).insn(ICONST_1).insn(IADD).insn(IRETURN);
+        b.finish(new LocalVariable(0, "acc", "I"), new LocalVariable(1, "i", "I"));
+    }
+
+    /**
+     * Appends instructions to a new static method. The instructions get their
+     * indexes in the order in which they are appended, so jumps to labels which are
+     * not placed yet are created without a target, which is set later.
+     */
+    private static class MethodBuilder {
+
+        protected final ReadMethod method;
+        private int line;
+        private int nextLabelNr = 0;
+
+        public MethodBuilder(ReadClass readClass, String name, String desc, int line) {
+            this.method = new ReadMethod(readClass, ACC_STATIC, name, desc, AbstractInstruction.getNextIndex());
+            this.line = line;
+            LabelMarker entryLabel = new LabelMarker(this.method, 0, line, true, false, this.nextLabelNr++);
+            this.method.addInstruction(entryLabel);
+            this.method.setMethodEntryLabel(entryLabel);
+            readClass.addMethod(this.method);
+        }
+
+        public MethodBuilder line(int newLine) {
+            this.line = newLine;
+            return this;
+        }
+
+        public LabelMarker label() {
+            LabelMarker label = new LabelMarker(this.method, 0, this.line, false, false, this.nextLabelNr++);
+            this.method.addInstruction(label);
+            return label;
+        }
+
+        public LabelMarker catchLabel() {
+            LabelMarker label = new LabelMarker(this.method, 0, this.line, false, true, this.nextLabelNr++);
+            this.method.addInstruction(label);
+            return label;
+        }
+
+        public MethodBuilder insn(int opcode) {
+            this.method.addInstruction(new SimpleInstruction(this.method, opcode, this.line));
+            return this;
+        }
+
+        public MethodBuilder var(int opcode, int localVarIndex) {
+            this.method.addInstruction(new VarInstruction(this.method, opcode, this.line, localVarIndex));
+            return this;
+        }
+
+        public MethodBuilder push(int value) {
+            this.method.addInstruction(new IntPush(this.method, SIPUSH, value, this.line));
+            return this;
+        }
+
+        public MethodBuilder iinc(int localVarIndex, int increment) {
+            this.method.addInstruction(new IIncInstruction(this.method, localVarIndex, increment, this.line));
+            return this;
+        }
+
+        public JumpInstruction jump(int opcode, LabelMarker target) {
+            JumpInstruction jump = new JumpInstruction(this.method, opcode, this.line, target);
+            this.method.addInstruction(jump);
+            return jump;
+        }
+
+        public MethodBuilder field(int opcode, String owner, String name, String desc) {
+            boolean isStatic = opcode == GETSTATIC || opcode == PUTSTATIC;
+            this.method.addInstruction(new FieldInstruction(this.method, opcode, this.line, owner, name, desc,
+                isStatic ? -1 : 0));
+            return this;
+        }
+
+        public MethodBuilder array(int opcode) {
+            this.method.addInstruction(new ArrayInstruction(this.method, opcode, this.line, 0, 0));
+            return this;
+        }
+
+        public MethodBuilder newArray(int elemType) {
+            this.method.addInstruction(new NewArrayInstruction(this.method, this.line, elemType, 0));
+            return this;
+        }
+
+        public MethodBuilder type(int opcode, String internalClassName) {
+            this.method.addInstruction(new TypeInstruction(this.method, opcode, this.line, internalClassName, 0));
+            return this;
+        }
+
+        public MethodBuilder invoke(int opcode, String owner, String name, String desc) {
+            this.method.addInstruction(new MethodInvocationInstruction(this.method, opcode, this.line, owner, name, desc));
+            return this;
+        }
+
+        public void finish(LocalVariable... localVariables) {
+            LabelMarker abnormalTermination = new LabelMarker(this.method, 0, this.line, true, false, this.nextLabelNr++);
+            this.method.addInstruction(abnormalTermination);
+            this.method.setAbnormalTerminationLabel(abnormalTermination);
+            this.method.setInstructionNumberEnd(AbstractInstruction.getNextIndex());
+            this.method.setLocalVariables(localVariables);
+            this.method.ready();
+        }
+
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // execution of the synthetic program
+
+    private static class Frame {
+        protected ReadMethod method;
+        protected int pc;
+        protected final long[] locals = new long[8];
+        protected final long[] stack = new long[8];
+        protected int stackHeight;
+
+        protected void push(long value) {
+            this.stack[this.stackHeight++] = value;
+        }
+
+        protected long pop() {
+            return this.stack[--this.stackHeight];
+        }
+    }
+
+    /**
+     * Executes single iterations of the synthetic program and records the executed
+     * instructions in forward order.
+     */
+    private class Generator {
+
+        protected AbstractInstruction[] instructions = new AbstractInstruction[256];
+        protected int[] stackDepths = new int[256];
+        protected InstructionInstanceInfo[] infos = new InstructionInstanceInfo[256];
+        protected int size;
+        protected long allocations;
+
+        private final long iterations;
+        private final long idStride;
+        private Frame[] frames = new Frame[8];
+        private final Map<Long, long[]> heap = new HashMap<Long, long[]>();
+        private final long[] staticFields = new long[2];
+
+        public Generator(long iterations, long idStride) {
+            this.iterations = iterations;
+            this.idStride = idStride;
+        }
+
+        /**
+         * Records the instructions executed in one iteration of the main loop, starting at
+         * the loop head. Iteration -1 denotes the code before the loop, iteration
+         * {@link #iterations} the last evaluation of the loop condition and the code after the loop.
+         *
+         * @return the number of recorded instructions
+         */
+        public int generate(long iteration) {
+            this.size = 0;
+            this.allocations = 0;
+            this.heap.clear();
+            int depth = 1;
+            Frame frame = getFrame(depth, SyntheticTraceSource.this.runMethod);
+            frame.locals[0] = this.iterations;
+            if (iteration >= 0) {
+                frame.pc = SyntheticTraceSource.this.loopHeadPc;
+                frame.locals[1] = iteration;
+            }
+            boolean stopAtLoopHead = iteration < this.iterations;
+            while (true) {
+                if (depth == 1 && frame.pc == SyntheticTraceSource.this.loopHeadPc && this.size > 0 && stopAtLoopHead)
+                    return this.size;
+                AbstractInstruction instr = frame.method.getInstructions().get(frame.pc++);
+                InstructionInstanceInfo info = null;
+                switch (instr.getType()) {
+                case LABEL:
+                    break;
+                case VAR:
+                    int var = ((VarInstruction)instr).getLocalVarIndex();
+                    if (instr.getOpcode() == ILOAD || instr.getOpcode() == ALOAD)
+                        frame.push(frame.locals[var]);
+                    else
+                        frame.locals[var] = frame.pop();
+                    break;
+                case INT:
+                    frame.push(((IntPush)instr).getOperand());
+                    break;
+                case IINC:
+                    IIncInstruction iinc = (IIncInstruction) instr;
+                    frame.locals[iinc.getLocalVarIndex()] += iinc.getIncrement();
+                    break;
+                case JUMP:
+                    if (jumps(instr.getOpcode(), frame))
+                        frame.pc = ((JumpInstruction)instr).getLabel().getIndex() - frame.method.getInstructionNumberStart();
+                    break;
+                case ARRAY:
+                    if (instr.getOpcode() == IASTORE) {
+                        long value = frame.pop();
+                        int index = (int) frame.pop();
+                        long arrayId = frame.pop();
+                        this.heap.get(arrayId)[index] = value;
+                        info = new ArrayInstrInstanceInfo(arrayId, index);
+                    } else {
+                        int index = (int) frame.pop();
+                        long arrayId = frame.pop();
+                        frame.push(this.heap.get(arrayId)[index]);
+                        info = new ArrayInstrInstanceInfo(arrayId, index);
+                    }
+                    break;
+                case NEWARRAY:
+                    long arrayId = allocate(iteration, (int) frame.pop());
+                    frame.push(arrayId);
+                    info = new NewArrayInstrInstanceInfo(arrayId);
+                    break;
+                case TYPE:
+                    long objectId = allocate(iteration, 2);
+                    frame.push(objectId);
+                    info = new TypeInstrInstanceInfo(objectId);
+                    break;
+                case FIELD:
+                    info = executeFieldInstruction((FieldInstruction) instr, frame);
+                    break;
+                case METHODINVOCATION:
+                    MethodInvocationInstruction invoke = (MethodInvocationInstruction) instr;
+                    ReadMethod callee = PROGRAM_INTERNAL_NAME.equals(invoke.getInvokedInternalClassName())
+                        ? SyntheticTraceSource.this.programMethods.get(invoke.getInvokedMethodName() + invoke.getInvokedMethodDesc())
+                        : null;
+                    int numParams = invoke.getParameterCount() + (invoke.getOpcode() == INVOKESTATIC ? 0 : 1);
+                    record(instr, depth, null);
+                    if (callee == null) {
+                        // not traced (only constructors of objects without fields)
+                        frame.stackHeight -= numParams;
+                    } else {
+                        Frame calleeFrame = getFrame(depth + 1, callee);
+                        for (int i = numParams - 1; i >= 0; --i)
+                            calleeFrame.locals[i] = frame.pop();
+                        frame = calleeFrame;
+                        ++depth;
+                    }
+                    continue;
+                case SIMPLE:
+                    switch (instr.getOpcode()) {
+                    case ACONST_NULL: case ICONST_0: case ICONST_1:
+                        frame.push(instr.getOpcode() == ACONST_NULL ? 0 : instr.getOpcode() - ICONST_0);
+                        break;
+                    case DUP:
+                        long top = frame.pop();
+                        frame.push(top);
+                        frame.push(top);
+                        break;
+                    case IADD: case ISUB: case IREM:
+                        long b = frame.pop();
+                        long a = frame.pop();
+                        frame.push(instr.getOpcode() == IADD ? a + b : instr.getOpcode() == ISUB ? a - b : a % b);
+                        break;
+                    case IRETURN: case RETURN:
+                        record(instr, depth, null);
+                        if (depth == 1)
+                            return this.size;
+                        boolean hasValue = instr.getOpcode() == IRETURN;
+                        long returned = hasValue ? frame.pop() : 0;
+                        frame = this.frames[--depth];
+                        if (hasValue)
+                            frame.push(returned);
+                        continue;
+                    case ATHROW:
+                        record(instr, depth, null);
+                        long exception = frame.pop();
+                        int throwingPc = frame.pc - 1;
+                        while (!jumpToHandler(frame, throwingPc, exception)) {
+                            record(frame.method.getAbnormalTerminationLabel(), depth, null);
+                            if (depth == 1)
+                                throw new IllegalStateException("uncaught exception in synthetic program");
+                            frame = this.frames[--depth];
+                            throwingPc = frame.pc - 1;
+                        }
+                        continue;
+                    default:
+                        throw new IllegalStateException("unexpected instruction " + instr);
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("unexpected instruction " + instr);
+                }
+                record(instr, depth, info);
+            }
+        }
+
+        private boolean jumps(int opcode, Frame frame) {
+            switch (opcode) {
+            case GOTO:
+                return true;
+            case IFGT:
+                return frame.pop() > 0;
+            case IFNE:
+                return frame.pop() != 0;
+            case IFNULL:
+                return frame.pop() == 0;
+            case IF_ICMPGE:
+                long b = frame.pop();
+                return frame.pop() >= b;
+            default:
+                throw new IllegalStateException("unexpected jump opcode " + opcode);
+            }
+        }
+
+        private InstructionInstanceInfo executeFieldInstruction(FieldInstruction instr, Frame frame) {
+            int slot = "next".equals(instr.getFieldName()) || "counter".equals(instr.getFieldName()) ? 1 : 0;
+            switch (instr.getOpcode()) {
+            case GETSTATIC:
+                frame.push(this.staticFields[slot]);
+                return new FieldInstrInstanceInfo(-1);
+            case PUTSTATIC:
+                this.staticFields[slot] = frame.pop();
+                return new FieldInstrInstanceInfo(-1);
+            case GETFIELD:
+                long objectId = frame.pop();
+                frame.push(this.heap.get(objectId)[slot]);
+                return new FieldInstrInstanceInfo(objectId);
+            case PUTFIELD:
+                long value = frame.pop();
+                objectId = frame.pop();
+                this.heap.get(objectId)[slot] = value;
+                return new FieldInstrInstanceInfo(objectId);
+            default:
+                throw new IllegalStateException("unexpected field instruction " + instr);
+            }
+        }
+
+        private boolean jumpToHandler(Frame frame, int throwingPc, long exception) {
+            int throwingIndex = frame.method.getInstructionNumberStart() + throwingPc;
+            for (TryCatchBlock tcb: frame.method.getTryCatchBlocks()) {
+                if (tcb.getStart().getIndex() <= throwingIndex && throwingIndex < tcb.getEnd().getIndex()) {
+                    frame.pc = tcb.getHandler().getIndex() - frame.method.getInstructionNumberStart();
+                    frame.stackHeight = 0;
+                    frame.push(exception);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private long allocate(long iteration, int length) {
+            // object ids must be unique over the whole trace and must not be 0 (null)
+            long id = 1 + (iteration + 1) * this.idStride + this.allocations++;
+            this.heap.put(id, new long[length]);
+            return id;
+        }
+
+        private Frame getFrame(int depth, ReadMethod method) {
+            if (depth >= this.frames.length)
+                this.frames = Arrays.copyOf(this.frames, 2 * this.frames.length);
+            Frame frame = this.frames[depth];
+            if (frame == null)
+                frame = this.frames[depth] = new Frame();
+            frame.method = method;
+            frame.pc = 0;
+            frame.stackHeight = 0;
+            Arrays.fill(frame.locals, 0);
+            return frame;
+        }
+
+        private void record(AbstractInstruction instr, int stackDepth, InstructionInstanceInfo info) {
+            if (this.size == this.instructions.length) {
+                int newLength = 2 * this.size;
+                this.instructions = Arrays.copyOf(this.instructions, newLength);
+                this.stackDepths = Arrays.copyOf(this.stackDepths, newLength);
+                this.infos = Arrays.copyOf(this.infos, newLength);
+            }
+            this.instructions[this.size] = instr;
+            this.stackDepths[this.size] = stackDepth;
+            this.infos[this.size] = info;
+            ++this.size;
+        }
+
+    }
+
+    private class SyntheticBackwardIterator<InstanceType extends InstructionInstance>
+            implements BackwardInstanceIterator<InstanceType> {
+
+        private final InstructionInstanceFactory<? extends InstanceType> instanceFactory;
+        private final Generator generator;
+        private final long[] occurrences;
+        /** the iteration stored in the generator; the prologue is iteration -1 */
+        private long iteration;
+        private int pos;
+        private long instanceNr = 0;
+
+        public SyntheticBackwardIterator(InstructionInstanceFactory<? extends InstanceType> instanceFactory) {
+            this.instanceFactory = instanceFactory;
+            this.generator = new Generator(SyntheticTraceSource.this.numIterations,
+                SyntheticTraceSource.this.objectIdStride);
+            this.occurrences = new long[SyntheticTraceSource.this.instructionNumberEnd
+                - SyntheticTraceSource.this.instructionNumberStart];
+            this.iteration = SyntheticTraceSource.this.numIterations;
+            this.pos = this.generator.generate(this.iteration) - 1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.pos >= 0;
+        }
+
+        @Override
+        public InstanceType next() {
+            if (this.pos < 0)
+                throw new NoSuchElementException();
+            Generator gen = this.generator;
+            AbstractInstruction instr = gen.instructions[this.pos];
+            long occurrence = this.occurrences[instr.getIndex() - SyntheticTraceSource.this.instructionNumberStart]++;
+            InstanceType instance = this.instanceFactory.createInstructionInstance(instr, occurrence,
+                gen.stackDepths[this.pos], this.instanceNr++, gen.infos[this.pos]);
+            if (--this.pos < 0 && this.iteration >= 0)
+                this.pos = gen.generate(--this.iteration) - 1;
+            return instance;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public double getPercentageDone() {
+            return 100. * this.instanceNr / SyntheticTraceSource.this.numInstances;
+        }
+
+        @Override
+        public List<ReadMethod> getInitialStackMethods() {
+            return Collections.emptyList();
+        }
+
+    }
+
+}
@@ -0,0 +1,115 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.traceSource
+ *    Class:     TraceResultSource
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/traceSource/TraceResultSource.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.traceSource;
+
+import java.util.List;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstanceFactory;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadClass;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.traceResult.BackwardTraceIterator;
+import de.unisb.cs.st.javaslicer.traceResult.ThreadId;
+import de.unisb.cs.st.javaslicer.traceResult.TraceResult;
+
+/**
+ * A {@link TraceSource} backed by a trace file that has been read into a {@link TraceResult}.
+ */
+public class TraceResultSource implements TraceSource {
+
+    private final TraceResult traceResult;
+
+    public TraceResultSource(TraceResult traceResult) {
+        if (traceResult == null)
+            throw new NullPointerException("traceResult");
+        this.traceResult = traceResult;
+    }
+
+    public TraceResult getTraceResult() {
+        return this.traceResult;
+    }
+
+    @Override
+    public List<ThreadId> getThreads() {
+        return this.traceResult.getThreads();
+    }
+
+    @Override
+    public ThreadId getThreadId(long javaThreadId) {
+        return this.traceResult.getThreadId(javaThreadId);
+    }
+
+    @Override
+    public List<ReadClass> getReadClasses() {
+        return this.traceResult.getReadClasses();
+    }
+
+    @Override
+    public ReadClass findReadClass(String javaClassName) {
+        return this.traceResult.findReadClass(javaClassName);
+    }
+
+    @Override
+    public <InstanceType extends InstructionInstance> BackwardInstanceIterator<InstanceType> getBackwardIterator(
+            ThreadId threadId, InstructionInstanceFactory<? extends InstanceType> instanceFactory) {
+        BackwardTraceIterator<InstanceType> it = this.traceResult.getBackwardIterator(threadId, null, instanceFactory);
+        return it == null ? null : new IteratorAdapter<InstanceType>(it);
+    }
+
+    private static class IteratorAdapter<InstanceType extends InstructionInstance>
+            implements BackwardInstanceIterator<InstanceType> {
+
+        private final BackwardTraceIterator<InstanceType> it;
+
+        public IteratorAdapter(BackwardTraceIterator<InstanceType> it) {
+            this.it = it;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.it.hasNext();
+        }
+
+        @Override
+        public InstanceType next() {
+            return this.it.next();
+        }
+
+        @Override
+        public void remove() {
+            this.it.remove();
+        }
+
+        @Override
+        public double getPercentageDone() {
+            return this.it.getPercentageDone();
+        }
+
+        @Override
+        public List<ReadMethod> getInitialStackMethods() {
+            return this.it.getInitialStackMethods();
+        }
+
+    }
+
+}
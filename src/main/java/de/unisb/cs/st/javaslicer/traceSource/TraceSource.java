@@ -0,0 +1,75 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.traceSource
+ *    Class:     TraceSource
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/traceSource/TraceSource.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.traceSource;
+
+import java.util.List;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstanceFactory;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadClass;
+import de.unisb.cs.st.javaslicer.traceResult.ThreadId;
+import de.unisb.cs.st.javaslicer.traceResult.TraceResult;
+
+/**
+ * Everything the dependence extraction and the slicers need from a trace: the
+ * traced classes, the traced threads, and a backward stream of instruction
+ * instances per thread.
+ *
+ * The usual implementation is {@link TraceResultSource}, which reads a trace file
+ * through a {@link TraceResult}. {@link SyntheticTraceSource} generates traces of
+ * arbitrary length on the fly.
+ */
+public interface TraceSource {
+
+    /**
+     * @return all threads that have been traced
+     */
+    List<ThreadId> getThreads();
+
+    /**
+     * @return the thread with the given java thread id, or <code>null</code> if there is none
+     */
+    ThreadId getThreadId(long javaThreadId);
+
+    /**
+     * @return all classes whose instructions may show up in the trace
+     */
+    List<ReadClass> getReadClasses();
+
+    /**
+     * @param javaClassName the java class name (e.g. <code>java.lang.String</code>)
+     * @return the class with the given name, or <code>null</code> if it was not traced
+     */
+    ReadClass findReadClass(String javaClassName);
+
+    /**
+     * Returns an iterator running backwards through all instructions executed by the given thread.
+     *
+     * @param threadId the thread whose instructions should be returned
+     * @param instanceFactory creates the instruction instances returned by the iterator
+     * @return the backward iterator, or <code>null</code> if there is no such thread
+     */
+    <InstanceType extends InstructionInstance> BackwardInstanceIterator<InstanceType> getBackwardIterator(
+            ThreadId threadId, InstructionInstanceFactory<? extends InstanceType> instanceFactory);
+
+}
@@ -0,0 +1,108 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.variables
+ *    Class:     FieldTable
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/variables/FieldTable.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.variables;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The global table of dense int ids for fields.
+ *
+ * Static fields get one id per (owner class, field name). Instance fields get one id
+ * per field name: an {@link ObjectField} is identified by its object and the name of
+ * the field (the owner class given in the bytecode is the static type of the accessed
+ * object, not necessarily the class declaring the field).
+ *
+ * Ids start at 1 and are never reused, so {@link ObjectField}s and {@link StaticField}s
+ * can be compared by their ids alone.
+ */
+public final class FieldTable {
+
+    private static final Map<String, Integer> instanceFieldIds = new HashMap<String, Integer>();
+    private static final Map<String, Map<String, Integer>> staticFieldIds = new HashMap<String, Map<String, Integer>>();
+
+    // indexed by the field id; the arrays are replaced when the table grows
+    private static volatile String[] fieldNames = new String[16];
+    private static volatile String[] ownerNames = new String[16];
+    private static int nextId = 1;
+
+    private FieldTable() {
+        // utility class
+    }
+
+    /**
+     * @return the id of the instance field with the given name
+     */
+    public static synchronized int getInstanceFieldId(String fieldName) {
+        Integer id = instanceFieldIds.get(fieldName);
+        if (id == null)
+            instanceFieldIds.put(fieldName, id = newId(null, fieldName));
+        return id;
+    }
+
+    /**
+     * @return the id of the static field with the given owner class and name
+     */
+    public static synchronized int getStaticFieldId(String ownerInternalClassName, String fieldName) {
+        Map<String, Integer> ownerIds = staticFieldIds.get(ownerInternalClassName);
+        if (ownerIds == null)
+            staticFieldIds.put(ownerInternalClassName, ownerIds = new HashMap<String, Integer>());
+        Integer id = ownerIds.get(fieldName);
+        if (id == null)
+            ownerIds.put(fieldName, id = newId(ownerInternalClassName, fieldName));
+        return id;
+    }
+
+    private static int newId(String ownerInternalClassName, String fieldName) {
+        int id = nextId++;
+        String[] names = fieldNames;
+        String[] owners = ownerNames;
+        if (id >= names.length) {
+            names = Arrays.copyOf(names, 2*names.length);
+            owners = Arrays.copyOf(owners, 2*owners.length);
+        }
+        // the field names are interned, so that they can be compared by identity
+        names[id] = fieldName.intern();
+        owners[id] = ownerInternalClassName == null ? null : ownerInternalClassName.intern();
+        ownerNames = owners;
+        fieldNames = names;
+        return id;
+    }
+
+    /**
+     * @return the (interned) name of the field with the given id
+     */
+    public static String getFieldName(int fieldId) {
+        return fieldNames[fieldId];
+    }
+
+    /**
+     * @return the (interned) internal name of the owner class of the static field with the
+     *         given id, or <code>null</code> for instance fields
+     */
+    public static String getOwnerInternalClassName(int fieldId) {
+        return ownerNames[fieldId];
+    }
+
+}
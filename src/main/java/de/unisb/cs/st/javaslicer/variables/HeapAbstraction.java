@@ -0,0 +1,121 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.variables
+ *    Class:     HeapAbstraction
+ *    Filename:  javaslicer-core/src/main/java/de/unisb/cs/st/javaslicer/variables/HeapAbstraction.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.variables;
+
+import java.util.Locale;
+
+/**
+ * How the heap locations read and written by the traced program are represented as
+ * {@link ObjectField}s and {@link ArrayElement}s.
+ *
+ * All abstractions except {@link #OBJECTS} merge several heap locations into one variable.
+ * A write to such a variable does not kill the writes to the other locations, so the
+ * resulting slice may be larger than the precise one, but the number of tracked heap
+ * variables is bounded.
+ */
+public enum HeapAbstraction {
+
+    /**
+     * One variable per field of each object and per element of each array (the default).
+     */
+    OBJECTS,
+
+    /**
+     * One variable per field, shared by all objects, and one per array element type, shared
+     * by all arrays of this type. The state is bounded by the number of fields of the traced
+     * classes.
+     */
+    FIELDS,
+
+    /**
+     * One variable per array, shared by all its elements; object fields are tracked per
+     * object. The state per array is bounded, independent of its length.
+     */
+    ARRAYS,
+
+    /**
+     * One variable per field and allocation site, and one per array allocation site.
+     * Objects which have not been allocated by a traced instruction share one site.
+     * The state is bounded by the number of allocation sites and fields; the allocation
+     * site of each object is determined by an additional pass over the trace.
+     */
+    ALLOCATION_SITES;
+
+    /**
+     * The object id of the abstract object representing all objects and arrays in
+     * {@link #FIELDS} mode, and all objects with an unknown allocation site in
+     * {@link #ALLOCATION_SITES} mode.
+     */
+    public static final long ALL_OBJECTS = -1;
+
+    /**
+     * @return the object id of the abstract object representing all objects allocated by
+     *         the instruction with the given index (in {@link #ALLOCATION_SITES} mode)
+     */
+    public static long getAllocationSiteId(int instructionIndex) {
+        return -2l - instructionIndex;
+    }
+
+    /**
+     * @return whether each object has its own field variables
+     */
+    public boolean tracksObjects() {
+        return this == OBJECTS || this == ARRAYS;
+    }
+
+    /**
+     * @return whether each array element has its own variable
+     */
+    public boolean tracksArrayElements() {
+        return this == OBJECTS;
+    }
+
+    /**
+     * Returns whether the given variable may represent several heap locations in this
+     * abstraction. Writes to such a variable are weak updates: they do not kill the
+     * earlier writes.
+     */
+    public boolean isSummary(Variable var) {
+        if (var instanceof ObjectField)
+            return !tracksObjects() || ((ObjectField) var).getObjectId() < 0;
+        if (var instanceof ArrayElement)
+            return !tracksArrayElements();
+        return false;
+    }
+
+    /**
+     * Parses an abstraction name as used on the command line, e.g. <code>fields</code> or
+     * <code>allocation-sites</code>.
+     *
+     * @throws IllegalArgumentException if there is no such abstraction
+     */
+    public static HeapAbstraction parse(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ENGLISH).replace('-', '_'));
+    }
+
+    @Override
+    public String toString() {
+        return name().toLowerCase(Locale.ENGLISH).replace('_', '-');
+    }
+
+}
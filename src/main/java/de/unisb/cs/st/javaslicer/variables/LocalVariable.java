@@ -46,6 +46,10 @@ public class LocalVariable implements Variable {
         return this.varIndex;
     }
 
+    public ReadMethod getMethod() {
+        return this.method;
+    }
+
     public String getVarName() {
         if (this.method != null) {
         	de.unisb.cs.st.javaslicer.common.classRepresentation.LocalVariable[] localVarArr = this.method.getLocalVariables();
@@ -26,30 +26,40 @@ package de.unisb.cs.st.javaslicer.variables;
 public class ObjectField implements Variable {
 
     private final long objectId;
-    private final String fieldName;
+    private final int fieldId;
 
     public ObjectField(final long objectId, final String fieldName) {
+        this(objectId, FieldTable.getInstanceFieldId(fieldName));
+    }
+
+    /**
+     * @param fieldId the id of the field in the {@link FieldTable}
+     */
+    public ObjectField(final long objectId, final int fieldId) {
         this.objectId = objectId;
-        this.fieldName = fieldName;
+        this.fieldId = fieldId;
     }
 
     public long getObjectId() {
         return this.objectId;
     }
 
+    public int getFieldId() {
+        return this.fieldId;
+    }
+
     public String getFieldName() {
-        return this.fieldName;
+        return FieldTable.getFieldName(this.fieldId);
     }
 
     @Override
     public String toString() {
-        return "field["+this.objectId+","+this.fieldName+"]";
+        return "field["+this.objectId+","+getFieldName()+"]";
     }
 
     @Override
     public int hashCode() {
-        // the fieldName strings are internalized, so we can use identity comparison
-        return 31*this.fieldName.hashCode() + (int)this.objectId;
+        return 31*this.fieldId + (int)this.objectId;
     }
 
     @Override
@@ -61,14 +71,7 @@ public class ObjectField implements Variable {
         if (getClass() != obj.getClass())
             return false;
         final ObjectField other = (ObjectField) obj;
-        if (this.objectId != other.objectId)
-            return false;
-        // the fieldName strings are internalized, so we can use identity comparison
-        if (this.fieldName != other.fieldName) {
-            assert this.fieldName != null && !this.fieldName.equals(other.fieldName);
-            return false;
-        }
-        return true;
+        return this.objectId == other.objectId && this.fieldId == other.fieldId;
     }
 
 }
@@ -25,32 +25,40 @@ package de.unisb.cs.st.javaslicer.variables;
 
 public class StaticField implements Variable {
 
-    private final String ownerInternalClassName;
-    private final String fieldName;
+    private final int fieldId;
 
     public StaticField(String ownerInternalClassName, String fieldName) {
-        this.ownerInternalClassName = ownerInternalClassName;
-        this.fieldName = fieldName;
+        this(FieldTable.getStaticFieldId(ownerInternalClassName, fieldName));
     }
 
+    /**
+     * @param fieldId the id of the field in the {@link FieldTable}
+     */
+    public StaticField(int fieldId) {
+        this.fieldId = fieldId;
+    }
+
+    public int getFieldId() {
+        return this.fieldId;
+    }
 
     public String getOwnerInternalClassName() {
-        return this.ownerInternalClassName;
+        return FieldTable.getOwnerInternalClassName(this.fieldId);
     }
 
 
     public String getFieldName() {
-        return this.fieldName;
+        return FieldTable.getFieldName(this.fieldId);
     }
 
     @Override
     public String toString() {
-        return "staticfield["+this.ownerInternalClassName+","+this.fieldName+"]";
+        return "staticfield["+getOwnerInternalClassName()+","+getFieldName()+"]";
     }
 
     @Override
     public int hashCode() {
-        return this.ownerInternalClassName.hashCode() + this.fieldName.hashCode();
+        return this.fieldId;
     }
 
     @Override
@@ -61,17 +69,7 @@ public class StaticField implements Variable {
             return false;
         if (getClass() != obj.getClass())
             return false;
-        final StaticField other = (StaticField) obj;
-        // the owner and fieldName strings are internalized, so we can use identity comparison
-        if (this.fieldName != other.fieldName) {
-            assert this.fieldName != null && !this.fieldName.equals(other.fieldName);
-            return false;
-        }
-        if (this.ownerInternalClassName != other.ownerInternalClassName) {
-            assert this.ownerInternalClassName != null && !this.ownerInternalClassName.equals(other.ownerInternalClassName);
-            return false;
-        }
-        return true;
+        return this.fieldId == ((StaticField) obj).fieldId;
     }
 
 }
@@ -0,0 +1,83 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.controlflowanalysis
+ *    Class:     MayModifyAnalysisTest
+ *    Filename:  javaslicer-core/src/test/java/de/unisb/cs/st/javaslicer/controlflowanalysis/MayModifyAnalysisTest.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.controlflowanalysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.objectweb.asm.Opcodes.*;
+
+import org.junit.Test;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceFixtures;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource.Configuration;
+
+public class MayModifyAnalysisTest {
+
+    @Test
+    public void testLoopBranch() {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration()
+            .setNumInstances(100).setExceptionPeriod(7).setArrayLength(5));
+        MayModifyAnalysis analysis = new MayModifyAnalysis(source.getReadClasses());
+        ReadMethod run = SyntheticTraceFixtures.getMethod(source, "run");
+        Instruction loopBranch = SyntheticTraceFixtures.getInstruction(run, IF_ICMPGE, 13);
+        MayModifySummary summary = analysis.getSummary(loopBranch);
+        assertNotNull(summary);
+        assertSame(loopBranch, summary.getBranch());
+        // i and acc are written in the loop body, n is not
+        assertTrue(summary.mayWriteLocalVariable(1));
+        assertTrue(summary.mayWriteLocalVariable(2));
+        assertFalse(summary.mayWriteLocalVariable(0));
+        // the loop body calls arrays(), which writes array elements
+        assertTrue(summary.mayWriteArrayType(-1));
+        assertTrue(summary.controls(SyntheticTraceFixtures.getInstruction(run, IINC, 13)));
+        assertFalse(summary.controls(SyntheticTraceFixtures.getInstruction(run, ISTORE, 11)));
+
+        // the summaries of a method are cached
+        assertSame(summary, analysis.getSummary(loopBranch));
+        assertNull(analysis.getSummary(SyntheticTraceFixtures.getInstruction(run, PUTSTATIC, 23)));
+        assertEquals(1, analysis.getAnalysedMethods());
+    }
+
+    @Test
+    public void testUntracedCall() {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration()
+            .setNumInstances(100).setExceptionPeriod(7));
+        MayModifyAnalysis analysis = new MayModifyAnalysis(source.getReadClasses());
+        ReadMethod mayThrow = SyntheticTraceFixtures.getMethod(source, "mayThrow");
+        MayModifySummary summary = analysis.getSummary(SyntheticTraceFixtures.getInstruction(mayThrow, IFNE, 81));
+        assertNotNull(summary);
+        assertTrue(summary.getWrittenLocalVariables().isEmpty());
+        // the constructor of the exception is not traced, so any heap location may be written
+        assertTrue(summary.mayWriteHeap());
+        assertTrue(summary.mayWriteField(0));
+        assertFalse(summary.isEmpty());
+    }
+
+}
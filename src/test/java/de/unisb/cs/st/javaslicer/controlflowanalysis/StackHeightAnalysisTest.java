@@ -0,0 +1,136 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.controlflowanalysis
+ *    Class:     StackHeightAnalysisTest
+ *    Filename:  javaslicer-core/src/test/java/de/unisb/cs/st/javaslicer/controlflowanalysis/StackHeightAnalysisTest.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.controlflowanalysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.objectweb.asm.Opcodes.*;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.AbstractInstructionInstance;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Field;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadClass;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.AbstractInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.IIncInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.IntPush;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.JumpInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.LabelMarker;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.SimpleInstruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.VarInstruction;
+import de.unisb.cs.st.javaslicer.instructionSimulation.SimulationEnvironment;
+import de.unisb.cs.st.javaslicer.instructionSimulation.Simulator;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource.Configuration;
+import de.unisb.cs.st.javaslicer.variables.LocalVariable;
+import de.unisb.cs.st.javaslicer.variables.StackEntry;
+
+public class StackHeightAnalysisTest {
+
+    private static final int[] SIMPLE_OPCODES = {
+        NOP, ACONST_NULL, ICONST_0, FCONST_1, LCONST_1, DCONST_0, POP, POP2, DUP, DUP2, DUP_X1, DUP_X2,
+        DUP2_X1, DUP2_X2, SWAP, I2F, I2L, L2I, L2D, LNEG, FCMPL, IADD, FDIV, LCMP, DCMPG, LADD, DREM, LSHL,
+        IDIV, LREM, ARRAYLENGTH, MONITORENTER
+    };
+
+    @Test
+    public void testEntryHeights() {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration().setNumInstances(100));
+        for (ReadClass readClass: source.getReadClasses()) {
+            for (ReadMethod method: readClass.getMethods()) {
+                int[] heights = StackHeightAnalysis.computeEntryHeights(method);
+                assertNotNull(method.toString(), heights);
+                int start = method.getInstructionNumberStart();
+                assertEquals(0, heights[method.getMethodEntryLabel().getIndex() - start]);
+                Instruction[] instrs = method.getInstructions().toArray(new Instruction[0]);
+                for (int i = 0; i + 1 < instrs.length; ++i) {
+                    int height = heights[i];
+                    int next = heights[i + 1];
+                    if (height == StackHeightAnalysis.UNREACHABLE || next == StackHeightAnalysis.UNREACHABLE
+                            || !fallsThrough(instrs[i]) || isCatchBlock(instrs[i + 1]))
+                        continue;
+                    // along a fall-through edge, the height follows the static effect of the instruction
+                    int[] readWrite = StackHeightAnalysis.getStackEffect(instrs[i]);
+                    assertEquals(instrs[i].toString(), height - readWrite[0] + readWrite[1], next);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testStackEffectsMatchSimulator() {
+        ReadMethod method;
+        synchronized (SyntheticTraceSource.class) {
+            ReadClass readClass = new ReadClass("test/Heights", AbstractInstruction.getNextIndex(), ACC_PUBLIC,
+                "Heights.java", new ArrayList<Field>(), "java.lang.Object");
+            method = new ReadMethod(readClass, ACC_STATIC, "m", "()V", AbstractInstruction.getNextIndex());
+            LabelMarker entry = new LabelMarker(method, 0, 1, true, false, 0);
+            method.addInstruction(entry);
+            method.setMethodEntryLabel(entry);
+            for (int opcode: SIMPLE_OPCODES)
+                method.addInstruction(new SimpleInstruction(method, opcode, 1));
+            for (int opcode: new int[] { ILOAD, LLOAD, ASTORE, DSTORE })
+                method.addInstruction(new VarInstruction(method, opcode, 1, 3));
+            method.addInstruction(new IIncInstruction(method, 3, 1, 1));
+            method.addInstruction(new IntPush(method, SIPUSH, 1000, 1));
+            for (int opcode: new int[] { IFEQ, IF_ICMPLT, GOTO })
+                method.addInstruction(new JumpInstruction(method, opcode, 1, entry));
+            method.setInstructionNumberEnd(AbstractInstruction.getNextIndex());
+            readClass.addMethod(method);
+            readClass.setInstructionNumberEnd(AbstractInstruction.getNextIndex());
+            readClass.ready();
+        }
+
+        Simulator<InstructionInstance> simulator = new Simulator<InstructionInstance>(
+            new SyntheticTraceSource(new Configuration().setNumInstances(100)));
+        for (Instruction instr: method.getInstructions()) {
+            int[] readWrite = StackHeightAnalysis.getStackEffect(instr);
+            int[] opStack = { 0, 20 };
+            SimulationEnvironment simEnv = new SimulationEnvironment(new long[] { 0, 1 }, opStack, new int[2],
+                new StackEntry[][] { null, new StackEntry[8] }, new LocalVariable[][] { null, new LocalVariable[8] },
+                new boolean[2], new Instruction[2], new ReadMethod[] { null, method }, new boolean[2]);
+            simulator.simulateInstruction(new AbstractInstructionInstance((AbstractInstruction) instr, 0, 1, 0, null), simEnv);
+            assertEquals(instr.toString(), 20 + readWrite[0] - readWrite[1], opStack[1]);
+        }
+    }
+
+    private static boolean fallsThrough(Instruction instr) {
+        switch (instr.getOpcode()) {
+        case GOTO: case JSR: case RET: case TABLESWITCH: case LOOKUPSWITCH: case ATHROW:
+        case IRETURN: case LRETURN: case FRETURN: case DRETURN: case ARETURN: case RETURN:
+            return false;
+        default:
+            return true;
+        }
+    }
+
+    private static boolean isCatchBlock(Instruction instr) {
+        return instr instanceof LabelMarker && ((LabelMarker) instr).isCatchBlock();
+    }
+
+}
@@ -0,0 +1,231 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.dependences
+ *    Class:     CompactedDependenceGraphTest
+ *    Filename:  javaslicer-core/src/test/java/de/unisb/cs/st/javaslicer/dependences/CompactedDependenceGraphTest.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.dependences;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.CompactedDependenceGraph;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.CompactedDependenceGraph.Slice;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DataDependenceType;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DependencesExtractor;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DependencesVisitorAdapter;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.VisitorCapability;
+import de.unisb.cs.st.javaslicer.slicing.Slicer;
+import de.unisb.cs.st.javaslicer.slicing.SlicingCriterion;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceFixtures;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource.Configuration;
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+public class CompactedDependenceGraphTest {
+
+    /**
+     * Records all dependences uncompacted, and the instances of each line of the synthetic program.
+     */
+    private static class Recorder extends DependencesVisitorAdapter<InstructionInstance> {
+
+        final Map<Long, Set<Long>> dependences = new HashMap<Long, Set<Long>>();
+        final Map<Long, Instruction> instructions = new HashMap<Long, Instruction>();
+        final Map<String, List<InstructionInstance>> instancesByLine = new HashMap<String, List<InstructionInstance>>();
+
+        @Override
+        public void visitInstructionExecution(InstructionInstance instance) {
+            this.instructions.put(instance.getInstanceNr(), instance.getInstruction());
+            String line = instance.getInstruction().getMethod().getName() + ":" + instance.getInstruction().getLineNumber();
+            List<InstructionInstance> instances = this.instancesByLine.get(line);
+            if (instances == null)
+                this.instancesByLine.put(line, instances = new ArrayList<InstructionInstance>());
+            instances.add(instance);
+        }
+
+        @Override
+        public void visitDataDependence(InstructionInstance from, InstructionInstance to,
+                Collection<? extends Variable> fromVars, Variable toVar, DataDependenceType type) {
+            add(from, to);
+        }
+
+        @Override
+        public void visitControlDependence(InstructionInstance from, InstructionInstance to) {
+            add(from, to);
+        }
+
+        private void add(InstructionInstance from, InstructionInstance to) {
+            Set<Long> deps = this.dependences.get(from.getInstanceNr());
+            if (deps == null)
+                this.dependences.put(from.getInstanceNr(), deps = new HashSet<Long>());
+            deps.add(to.getInstanceNr());
+        }
+
+        long[] walk(Collection<InstructionInstance> criterion, long[] visitedEdges) {
+            Set<Long> reached = new HashSet<Long>();
+            ArrayDeque<Long> queue = new ArrayDeque<Long>();
+            for (InstructionInstance instance: criterion)
+                if (reached.add(instance.getInstanceNr()))
+                    queue.add(instance.getInstanceNr());
+            Long nr;
+            while ((nr = queue.poll()) != null) {
+                Set<Long> deps = this.dependences.get(nr);
+                if (deps == null)
+                    continue;
+                for (Long to: deps) {
+                    ++visitedEdges[0];
+                    if (reached.add(to))
+                        queue.add(to);
+                }
+            }
+            long[] sorted = new long[reached.size()];
+            int i = 0;
+            for (Long r: reached)
+                sorted[i++] = r;
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+    }
+
+    @Test
+    public void testSameSliceAsUncompactedWalk() throws InterruptedException {
+        Recorder recorder = new Recorder();
+        CompactedDependenceGraph graph = buildGraph(new Configuration()
+            .setNumInstances(50000).setExceptionPeriod(7), recorder);
+
+        List<List<InstructionInstance>> criteria = new ArrayList<List<InstructionInstance>>();
+        // the single read of acc after the loop depends on all iterations
+        criteria.add(recorder.instancesByLine.get("run:23").subList(0, 1));
+        // the last executed instance of the loop body
+        criteria.add(recorder.instancesByLine.get("arrays:46").subList(0, 1));
+        // all instances of a line
+        criteria.add(recorder.instancesByLine.get("objects:59"));
+        criteria.add(recorder.instancesByLine.get("mayThrow:83"));
+        long[] visited = checkSlices(graph, recorder, criteria);
+        // the loops are interrupted by exceptions and recursion, so the runs are short
+        assertTrue(visited[1] + " runs visited for " + visited[0] + " dependences",
+            4 * visited[1] < visited[0]);
+    }
+
+    @Test
+    public void testLoopShortcuts() throws InterruptedException {
+        Recorder recorder = new Recorder();
+        CompactedDependenceGraph graph = buildGraph(new Configuration().setNumInstances(100000)
+            .setArrayLength(1000).setNumObjects(0).setRecursionDepth(0).setChainLength(0), recorder);
+
+        List<List<InstructionInstance>> criteria = new ArrayList<List<InstructionInstance>>();
+        criteria.add(recorder.instancesByLine.get("run:23").subList(0, 1));
+        criteria.add(recorder.instancesByLine.get("arrays:46").subList(0, 1));
+        long[] visited = checkSlices(graph, recorder, criteria);
+        assertTrue(visited[1] + " runs visited for " + visited[0] + " dependences",
+            50 * visited[1] < visited[0]);
+    }
+
+    @Test
+    public void testSeveralCriteria() throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration()
+            .setNumInstances(20000).setExceptionPeriod(7));
+        String[] criterionStrings = { "run:23(1):*", "arrays:46(1):*", "mayThrow:83:*" };
+        // the criteria are instantiated again by each traversal
+        List<List<SlicingCriterion>> criteria = new ArrayList<List<SlicingCriterion>>();
+        for (String criterion: criterionStrings)
+            criteria.add(SyntheticTraceFixtures.parse(source, criterion));
+        List<Slice> slices = new Slicer(source).computeSlices(source.getThread(), criteria);
+        assertEquals(criteria.size(), slices.size());
+        for (int i = 0; i < criteria.size(); ++i) {
+            // the same slice as with one traversal per criterion
+            Slice single = new Slicer(source).computeSlices(source.getThread(),
+                Collections.singletonList(criteria.get(i))).get(0);
+            assertArrayEquals(single.getInstanceNrs(), slices.get(i).getInstanceNrs());
+
+            // all dependences are followed, so the slice contains the one of the slicer
+            Set<InstructionInstance> slice = SyntheticTraceFixtures.slice(new Slicer(source), source, criteria.get(i));
+            for (long nr: SyntheticTraceFixtures.instanceNrs(slice))
+                assertTrue(criterionStrings[i] + ": " + nr, slices.get(i).contains(nr));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCriterionWithoutAllData() throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration().setNumInstances(1000));
+        new Slicer(source).computeSlices(source.getThread(),
+            Collections.singletonList(SyntheticTraceFixtures.parse(source, "run:23")));
+    }
+
+    private static CompactedDependenceGraph buildGraph(Configuration config, Recorder recorder)
+            throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(config);
+        DependencesExtractor<InstructionInstance> extractor = DependencesExtractor.forTrace(source);
+        CompactedDependenceGraph graph = new CompactedDependenceGraph();
+        graph.registerAt(extractor);
+        extractor.registerVisitor(recorder, VisitorCapability.INSTRUCTION_EXECUTIONS,
+            VisitorCapability.DATA_DEPENDENCES_READ_AFTER_WRITE, VisitorCapability.CONTROL_DEPENDENCES);
+        extractor.processBackwardTrace(source.getThread());
+
+        long numDependences = 0;
+        for (Set<Long> deps: recorder.dependences.values())
+            numDependences += deps.size();
+        assertTrue(graph.getNumDependences() >= numDependences);
+        assertTrue(graph.getNumRuns() + " runs for " + numDependences + " dependences",
+            10 * graph.getNumRuns() < numDependences);
+        return graph;
+    }
+
+    /**
+     * Checks that the compacted graph computes the same slices as the uncompacted walk.
+     *
+     * @return the number of dependences visited by the uncompacted walk and the number of
+     *         runs visited in the compacted graph, summed over all criteria
+     */
+    private static long[] checkSlices(CompactedDependenceGraph graph, Recorder recorder,
+            List<List<InstructionInstance>> criteria) {
+        long[] visited = new long[2];
+        for (List<InstructionInstance> criterion: criteria) {
+            long[] expected = recorder.walk(criterion, visited);
+            Slice slice = graph.computeSlice(criterion);
+            assertArrayEquals(expected, slice.getInstanceNrs());
+            assertEquals(expected.length, slice.getNumInstances());
+
+            Set<Instruction> expectedInstructions = new HashSet<Instruction>();
+            for (long nr: expected)
+                expectedInstructions.add(recorder.instructions.get(nr));
+            assertEquals(expectedInstructions, slice.getInstructions());
+            visited[1] += slice.getVisitedRuns();
+        }
+        return visited;
+    }
+
+}
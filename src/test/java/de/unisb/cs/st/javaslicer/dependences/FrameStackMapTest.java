@@ -0,0 +1,226 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.dependences
+ *    Class:     FrameStackMapTest
+ *    Filename:  javaslicer-core/src/test/java/de/unisb/cs/st/javaslicer/dependences/FrameStackMapTest.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.dependences;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DataDependenceType;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DependencesExtractor;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DependencesVisitorAdapter;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.FrameStackMap;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.HeapPartitionedMap;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.LastReadersMap;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.VisitorCapability;
+import de.unisb.cs.st.javaslicer.traceResult.ThreadId;
+import de.unisb.cs.st.javaslicer.traceResult.TraceResult;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource.Configuration;
+import de.unisb.cs.st.javaslicer.traceSource.TraceResultSource;
+import de.unisb.cs.st.javaslicer.traceSource.TraceSource;
+import de.unisb.cs.st.javaslicer.variables.ArrayElement;
+import de.unisb.cs.st.javaslicer.variables.LocalVariable;
+import de.unisb.cs.st.javaslicer.variables.ObjectField;
+import de.unisb.cs.st.javaslicer.variables.StackEntry;
+import de.unisb.cs.st.javaslicer.variables.StaticField;
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+public class FrameStackMapTest {
+
+    @Test
+    public void testFrames() {
+        Map<Variable, String> global = new HashMap<Variable, String>();
+        FrameStackMap<String> map = new FrameStackMap<String>(global);
+        map.enterFrame(1, 10, null);
+        map.enterFrame(2, 11, null);
+
+        assertNull(map.put(new LocalVariable(10, 3, null), "l10"));
+        assertNull(map.put(new StackEntry(11, 0), "s11"));
+        assertEquals("s11", map.put(new StackEntry(11, 0), "s11'"));
+        assertNull(map.put(new LocalVariable(11, 20, null), "l11"));
+        assertNull(map.put(new ArrayElement(5, 1), "a"));
+        // negative stack indexes and unknown frames go to the global map
+        assertNull(map.put(new StackEntry(11, -1), "s11-"));
+        assertNull(map.put(new LocalVariable(99, 0, null), "l99"));
+        assertEquals(6, map.size());
+        assertEquals(3, global.size());
+
+        assertEquals("l10", map.get(new LocalVariable(10, 3, null)));
+        assertEquals("s11'", map.get(new StackEntry(11, 0)));
+        assertNull(map.get(new StackEntry(10, 0)));
+        assertEquals("s11-", map.get(new StackEntry(11, -1)));
+
+        Set<Variable> keys = new HashSet<Variable>();
+        for (Entry<Variable, String> e: map.entrySet())
+            keys.add(e.getKey());
+        assertEquals(6, keys.size());
+        assertTrue(keys.contains(new LocalVariable(11, 20, null)));
+        assertEquals(2, map.getFrameEntries(2).size());
+
+        assertTrue(map.hasFrame(2));
+        assertEquals(2, map.dropFrame(2));
+        assertFalse(map.hasFrame(2));
+        assertNull(map.get(new LocalVariable(11, 20, null)));
+        assertEquals(4, map.size());
+
+        // reusing a depth for a new frame does not expose the entries of the old one
+        map.enterFrame(1, 12, null);
+        assertEquals(3, map.size());
+        assertNull(map.get(new LocalVariable(12, 3, null)));
+        assertNull(map.get(new LocalVariable(10, 3, null)));
+        assertNull(map.put(new LocalVariable(12, 3, null), "l12"));
+        assertEquals("l12", map.remove(new LocalVariable(12, 3, null)));
+        assertEquals(0, map.getFrameEntries(1).size());
+
+        map.clear();
+        assertTrue(map.isEmpty() && global.isEmpty());
+    }
+
+    @Test
+    public void testLastReaders() {
+        Map<Variable, List<String>> global = new HashMap<Variable, List<String>>();
+        LastReadersMap<String> map = new LastReadersMap<String>(global);
+        map.enterFrame(1, 10, null);
+
+        map.addReader(new StackEntry(10, 0), "a");
+        map.addReader(new StackEntry(10, 1), "b");
+        map.addReader(new StackEntry(10, 1), "c");
+        map.addReader(new StackEntry(10, -1), "d");
+        map.addReader(new LocalVariable(10, 2, null), "e");
+        map.addReader(new ArrayElement(5, 1), "f");
+        assertEquals(5, map.size());
+        assertEquals(2, global.size());
+
+        assertEquals(Arrays.asList("a"), map.get(new StackEntry(10, 0)));
+        assertEquals(Arrays.asList("b", "c"), map.get(new StackEntry(10, 1)));
+        assertEquals(3, map.getFrameEntries(1).size());
+
+        assertEquals(Arrays.asList("a"), map.removeReaders(new StackEntry(10, 0)));
+        assertNull(map.removeReaders(new StackEntry(10, 0)));
+        assertEquals(Arrays.asList("b", "c"), map.removeReaders(new StackEntry(10, 1)));
+        assertEquals(Arrays.asList("d"), map.removeReaders(new StackEntry(10, -1)));
+        assertEquals(Arrays.asList("e"), map.removeReaders(new LocalVariable(10, 2, null)));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void testHeapPartitions() {
+        Map<Variable, String> other = new HashMap<Variable, String>();
+        HeapPartitionedMap<String> map = new HeapPartitionedMap<String>(other);
+        assertNull(map.put(new ObjectField(5, "x"), "x5"));
+        assertNull(map.put(new ObjectField(5, "y"), "y5"));
+        assertNull(map.put(new ObjectField(6, "x"), "x6"));
+        assertNull(map.put(new ArrayElement(7, 1000000), "a7"));
+        assertNull(map.put(new ArrayElement(7, 3), "b7"));
+        assertNull(map.put(new StaticField("pkg/C", "s"), "s"));
+        assertEquals("x5", map.put(new ObjectField(5, "x"), "x5'"));
+        assertEquals(6, map.size());
+        assertEquals(1, other.size());
+        assertEquals("a7", map.get(new ArrayElement(7, 1000000)));
+        assertNull(map.get(new ArrayElement(7, 4)));
+        assertEquals(6, map.entrySet().size());
+
+        Map<Variable, String> removed = new HashMap<Variable, String>();
+        for (Entry<Variable, String> e: map.removeObject(5))
+            removed.put(e.getKey(), e.getValue());
+        assertEquals(2, removed.size());
+        assertEquals("x5'", removed.get(new ObjectField(5, "x")));
+        assertEquals(0, map.removeObject(5).size());
+        assertEquals(2, map.dropObject(7));
+        assertEquals("x6", map.remove(new ObjectField(6, "x")));
+        assertEquals(1, map.size());
+        assertEquals("s", map.get(new StaticField("pkg/C", "s")));
+    }
+
+    @Test
+    public void testPendingDependencesDiscarded() throws InterruptedException {
+        // recursion and exceptions make new frames reuse the depths of frames which were left
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration()
+            .setNumInstances(20000).setRecursionDepth(5).setExceptionPeriod(3).setChainLength(3));
+        assertTrue(assertAllDiscarded(source, source.getThread()) > 0);
+    }
+
+    @Test
+    public void testPendingDependencesDiscardedOnTraces() throws IOException, URISyntaxException, InterruptedException {
+        for (String trace: new String[] { "exceptions1", "exceptions4", "exceptions7", "exceptions9", "method1" }) {
+            TraceResult result = TraceResult.readFrom(
+                new File(FrameStackMapTest.class.getResource("/traces/" + trace).toURI()));
+            for (ThreadId thread: result.getThreads())
+                assertAllDiscarded(new TraceResultSource(result), thread);
+        }
+    }
+
+    /**
+     * Checks that every pending data dependence is discarded exactly once, which is what the
+     * final clean up of the maps guarantees for entries of frames which are never left.
+     *
+     * @return the number of pending data dependences
+     */
+    private static long assertAllDiscarded(TraceSource source, ThreadId thread) throws InterruptedException {
+        DependencesExtractor<InstructionInstance> extractor = DependencesExtractor.forTrace(source);
+        final Map<String, Integer> pending = new TreeMap<String, Integer>();
+        final long[] events = new long[1];
+        extractor.registerVisitor(new DependencesVisitorAdapter<InstructionInstance>() {
+            @Override
+            public void visitPendingDataDependence(InstructionInstance from, Variable var, DataDependenceType type) {
+                ++events[0];
+                count(from, var, type, 1);
+            }
+            @Override
+            public void discardPendingDataDependence(InstructionInstance from, Variable var, DataDependenceType type) {
+                count(from, var, type, -1);
+            }
+            private void count(InstructionInstance from, Variable var, DataDependenceType type, int delta) {
+                String key = from.getInstanceNr() + " " + var + " " + type;
+                Integer old = pending.get(key);
+                int count = (old == null ? 0 : old.intValue()) + delta;
+                if (count == 0)
+                    pending.remove(key);
+                else
+                    pending.put(key, count);
+            }
+        }, VisitorCapability.PENDING_DATA_DEPENDENCES_ALL);
+        extractor.processBackwardTrace(thread);
+        assertEquals(thread.toString(), Collections.<String, Integer>emptyMap(), pending);
+        return events[0];
+    }
+
+}
@@ -0,0 +1,108 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.dependences
+ *    Class:     FrameTransferMemoizationTest
+ *    Filename:  javaslicer-core/src/test/java/de/unisb/cs/st/javaslicer/dependences/FrameTransferMemoizationTest.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.dependences;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DataDependenceType;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DependencesExtractor;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DependencesVisitorAdapter;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.VisitorCapability;
+import de.unisb.cs.st.javaslicer.metrics.SlicingMetrics;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource.Configuration;
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+public class FrameTransferMemoizationTest {
+
+    /**
+     * Records all data and control dependences, including the variables, as strings.
+     */
+    private static class Recorder extends DependencesVisitorAdapter<InstructionInstance> {
+
+        final List<String> dependences = new ArrayList<String>();
+
+        @Override
+        public void visitDataDependence(InstructionInstance from, InstructionInstance to,
+                Collection<? extends Variable> fromVars, Variable toVar, DataDependenceType type) {
+            Set<String> fromVarNames = new TreeSet<String>();
+            for (Variable var: fromVars)
+                fromVarNames.add(String.valueOf(var));
+            this.dependences.add(from.getInstanceNr() + " -> " + to.getInstanceNr() + " " + toVar + " " + fromVarNames);
+        }
+
+        @Override
+        public void visitControlDependence(InstructionInstance from, InstructionInstance to) {
+            this.dependences.add(from.getInstanceNr() + " -> " + to.getInstanceNr());
+        }
+
+    }
+
+    @Test
+    public void testSameDependences() throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration()
+            .setNumInstances(60000).setExceptionPeriod(3).setArrayLength(5).setChainLength(3));
+        List<String> expected = extract(source, 0, new SlicingMetrics());
+        SlicingMetrics metrics = new SlicingMetrics();
+        assertEquals(expected, extract(source, 64, metrics));
+        assertTrue(metrics.getCounterValue(DependencesExtractor.FRAME_TRANSFER_COUNTERS, "hits") > 10 * metrics.getCounterValue(DependencesExtractor.FRAME_TRANSFER_COUNTERS, "misses"));
+        assertTrue(metrics.getCounterValue(DependencesExtractor.FRAME_TRANSFER_COUNTERS, "replayed instances") > 0);
+        assertEquals(0, metrics.getCounterValue(DependencesExtractor.FRAME_TRANSFER_COUNTERS, "evictions"));
+        assertEquals(source.getNumInstances(), metrics.getProcessedInstances());
+    }
+
+    @Test
+    public void testEviction() throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration()
+            .setNumInstances(20000).setExceptionPeriod(7).setChainLength(3));
+        List<String> expected = extract(source, 0, new SlicingMetrics());
+        SlicingMetrics metrics = new SlicingMetrics();
+        assertEquals(expected, extract(source, 1, metrics));
+        assertTrue(metrics.getCounterValue(DependencesExtractor.FRAME_TRANSFER_COUNTERS, "evictions") > 0);
+    }
+
+    private static List<String> extract(SyntheticTraceSource source, int cacheSize, SlicingMetrics metrics)
+            throws InterruptedException {
+        DependencesExtractor<InstructionInstance> extractor = DependencesExtractor.forTrace(source);
+        extractor.setFrameTransferCacheSize(cacheSize);
+        extractor.setMetrics(metrics);
+        Recorder recorder = new Recorder();
+        extractor.registerVisitor(recorder, VisitorCapability.DATA_DEPENDENCES_READ_AFTER_WRITE,
+            VisitorCapability.CONTROL_DEPENDENCES);
+        extractor.processBackwardTrace(source.getThread());
+        Collections.sort(recorder.dependences);
+        return recorder.dependences;
+    }
+
+}
@@ -0,0 +1,184 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.dependences
+ *    Class:     ReaderCoalescingTest
+ *    Filename:  javaslicer-core/src/test/java/de/unisb/cs/st/javaslicer/dependences/ReaderCoalescingTest.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.dependences;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.CoalescingDependencesVisitor;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DataDependenceType;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DependencesExtractor;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DependencesVisitorAdapter;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.ReaderEquivalence;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.VisitorCapability;
+import de.unisb.cs.st.javaslicer.metrics.SlicingMetrics;
+import de.unisb.cs.st.javaslicer.slicing.Slicer;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceFixtures;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource.Configuration;
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+public class ReaderCoalescingTest {
+
+    /**
+     * Counts the RAW dependences per reader instruction, writer instance and variable.
+     */
+    private static class Counter extends DependencesVisitorAdapter<InstructionInstance>
+            implements CoalescingDependencesVisitor<InstructionInstance> {
+
+        final Map<String, Integer> dependences = new TreeMap<String, Integer>();
+        long callbacks = 0;
+
+        @Override
+        public void visitDataDependence(InstructionInstance from, InstructionInstance to,
+                Collection<? extends Variable> fromVars, Variable toVar, DataDependenceType type) {
+            visitDataDependences(from, 1, to, fromVars, toVar, type);
+        }
+
+        @Override
+        public void visitDataDependences(InstructionInstance representative, int count, InstructionInstance to,
+                Collection<? extends Variable> fromVars, Variable toVar, DataDependenceType type) {
+            ++this.callbacks;
+            String key = representative.getInstruction().getIndex() + " -> " + to.getInstanceNr() + " " + toVar;
+            Integer old = this.dependences.get(key);
+            this.dependences.put(key, (old == null ? 0 : old.intValue()) + count);
+        }
+
+    }
+
+    /**
+     * Forwards the RAW dependences to a {@link Counter}, without accepting batches of readers.
+     */
+    private static class PlainCounter extends DependencesVisitorAdapter<InstructionInstance> {
+
+        final Counter counter = new Counter();
+
+        @Override
+        public void visitDataDependence(InstructionInstance from, InstructionInstance to,
+                Collection<? extends Variable> fromVars, Variable toVar, DataDependenceType type) {
+            this.counter.visitDataDependence(from, to, fromVars, toVar, type);
+        }
+
+    }
+
+    @Test
+    public void testSameDependences() throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration()
+            .setNumInstances(50000).setExceptionPeriod(7).setArrayLength(50).setNumObjects(50).setChainLength(3));
+        Counter expected = extract(source, null, new SlicingMetrics());
+        SlicingMetrics metrics = new SlicingMetrics();
+        Counter coalesced = extract(source, new ReaderEquivalence<InstructionInstance>() {
+            @Override
+            public boolean isEquivalentReader(InstructionInstance reader, InstructionInstance representative) {
+                return true;
+            }
+        }, metrics);
+        assertEquals(expected.dependences, coalesced.dependences);
+        assertTrue(metrics.getCounterValue(ReaderEquivalence.COUNTERS, "readers") > 0);
+        assertTrue(metrics.getCounterValue(ReaderEquivalence.COUNTERS, "batches") > 0);
+        assertTrue(coalesced.callbacks < expected.callbacks);
+    }
+
+    @Test
+    public void testNotEquivalent() throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration()
+            .setNumInstances(20000).setExceptionPeriod(7).setChainLength(3));
+        SlicingMetrics metrics = new SlicingMetrics();
+        Counter counter = extract(source, new ReaderEquivalence<InstructionInstance>() {
+            @Override
+            public boolean isEquivalentReader(InstructionInstance reader, InstructionInstance representative) {
+                return false;
+            }
+        }, metrics);
+        assertEquals(extract(source, null, new SlicingMetrics()).callbacks, counter.callbacks);
+        assertEquals(0, metrics.getCounterValue(ReaderEquivalence.COUNTERS, "readers"));
+    }
+
+    @Test
+    public void testSameSlice() throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration()
+            .setNumInstances(20000).setExceptionPeriod(7).setChainLength(3));
+        for (String criterion: new String[] { "run:13(1):*", "objects:60(1):*", "recurse:32(2):*" }) {
+            SlicingMetrics metrics = new SlicingMetrics();
+            Slicer slicer = new Slicer(source);
+            slicer.setMetrics(metrics);
+            Set<Long> full = SyntheticTraceFixtures.instanceNrs(SyntheticTraceFixtures.slice(
+                slicer, source, SyntheticTraceFixtures.parse(source, criterion)));
+            assertEquals(-1, metrics.getCounterValue(ReaderEquivalence.COUNTERS, "readers"));
+            metrics = new SlicingMetrics();
+            slicer = new Slicer(source);
+            slicer.setMetrics(metrics);
+            slicer.setReaderCoalescing(true);
+            Set<Long> coalesced = SyntheticTraceFixtures.instanceNrs(SyntheticTraceFixtures.slice(
+                slicer, source, SyntheticTraceFixtures.parse(source, criterion)));
+            assertEquals(criterion, full, coalesced);
+            assertTrue(metrics.getCounterValue(ReaderEquivalence.COUNTERS, "readers") > 0);
+        }
+    }
+
+    @Test
+    public void testVisitorWithoutBatches() throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration()
+            .setNumInstances(20000).setExceptionPeriod(7).setChainLength(3));
+        Counter expected = extract(source, null, new SlicingMetrics());
+        // one visitor which cannot take batches disables the coalescing for all of them
+        SlicingMetrics metrics = new SlicingMetrics();
+        DependencesExtractor<InstructionInstance> extractor = DependencesExtractor.forTrace(source);
+        extractor.setReaderCoalescing(new ReaderEquivalence<InstructionInstance>() {
+            @Override
+            public boolean isEquivalentReader(InstructionInstance reader, InstructionInstance representative) {
+                return true;
+            }
+        });
+        extractor.setMetrics(metrics);
+        Counter counter = new Counter();
+        PlainCounter plainCounter = new PlainCounter();
+        extractor.registerVisitor(counter, VisitorCapability.DATA_DEPENDENCES_READ_AFTER_WRITE);
+        extractor.registerVisitor(plainCounter, VisitorCapability.DATA_DEPENDENCES_READ_AFTER_WRITE);
+        extractor.processBackwardTrace(source.getThread());
+        assertEquals(expected.dependences, plainCounter.counter.dependences);
+        assertEquals(expected.callbacks, plainCounter.counter.callbacks);
+        assertEquals(expected.callbacks, counter.callbacks);
+        assertEquals(-1, metrics.getCounterValue(ReaderEquivalence.COUNTERS, "readers"));
+    }
+
+    private static Counter extract(SyntheticTraceSource source, ReaderEquivalence<InstructionInstance> equivalence,
+            SlicingMetrics metrics) throws InterruptedException {
+        DependencesExtractor<InstructionInstance> extractor = DependencesExtractor.forTrace(source);
+        extractor.setReaderCoalescing(equivalence);
+        extractor.setMetrics(metrics);
+        Counter counter = new Counter();
+        extractor.registerVisitor(counter, VisitorCapability.DATA_DEPENDENCES_READ_AFTER_WRITE);
+        extractor.processBackwardTrace(source.getThread());
+        return counter;
+    }
+
+}
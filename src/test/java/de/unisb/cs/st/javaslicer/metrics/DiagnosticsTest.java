@@ -0,0 +1,58 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.metrics
+ *    Class:     DiagnosticsTest
+ *    Filename:  javaslicer-core/src/test/java/de/unisb/cs/st/javaslicer/metrics/DiagnosticsTest.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.metrics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assume.assumeFalse;
+
+import org.junit.Test;
+
+import de.unisb.cs.st.javaslicer.metrics.Diagnostics.Category;
+import de.unisb.cs.st.javaslicer.metrics.Diagnostics.Level;
+
+public class DiagnosticsTest {
+
+    @Test
+    public void testParseLevels() {
+        assertArrayEquals(new Level[] { Level.OFF, Level.OFF, Level.OFF, Level.OFF },
+            Diagnostics.parseLevels(null));
+        assertArrayEquals(new Level[] { Level.TRACE, Level.TRACE, Level.TRACE, Level.TRACE },
+            Diagnostics.parseLevels("all=trace"));
+        assertArrayEquals(new Level[] { Level.TRACE, Level.OFF, Level.DEBUG, Level.OFF },
+            Diagnostics.parseLevels("traversal=trace, criteria"));
+        assertArrayEquals(new Level[] { Level.INFO, Level.WARN, Level.INFO, Level.INFO },
+            Diagnostics.parseLevels("all=info,visitors=warn,unknown,criteria=verbose"));
+    }
+
+    @Test
+    public void testDisabled() {
+        assumeFalse(Diagnostics.ENABLED);
+        for (Category category: Category.values())
+            assertFalse(Diagnostics.isEnabled(category, Level.WARN));
+        Diagnostics.log(Category.TRAVERSAL, Level.WARN, "%s", "ignored");
+        assertEquals(0, Diagnostics.getRecentEvents().size());
+    }
+
+}
@@ -0,0 +1,96 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.metrics
+ *    Class:     SlicingEventsTest
+ *    Filename:  javaslicer-core/src/test/java/de/unisb/cs/st/javaslicer/metrics/SlicingEventsTest.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Test;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
+import de.unisb.cs.st.javaslicer.slicing.DirectSlicer;
+import de.unisb.cs.st.javaslicer.slicing.SlicingCriterion;
+import de.unisb.cs.st.javaslicer.slicing.StaticSlicingCriterion;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource.Configuration;
+
+public class SlicingEventsTest {
+
+    @Test
+    public void testDirectSlicerEvents() throws IOException {
+        assumeTrue(SlicingEvents.AVAILABLE);
+
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration().setNumInstances(20000));
+        List<SlicingCriterion> sc = StaticSlicingCriterion.parseAll(
+            SyntheticTraceSource.PROGRAM_CLASS_NAME + ".run:23:{acc}", source.getReadClasses());
+
+        Set<Instruction> slice;
+        File file = File.createTempFile("slicing", ".jfr");
+        try {
+            Recording recording = new Recording();
+            try {
+                recording.enable(SlicingEvents.ControlDependences.class);
+                recording.enable(SlicingEvents.SliceCompleted.class);
+                recording.enable(SlicingEvents.MethodSimulation.class);
+                recording.start();
+                slice = new DirectSlicer(source).getDynamicSlice(source.getThread(), sc);
+                recording.stop();
+                recording.dump(file.toPath());
+            } finally {
+                recording.close();
+            }
+
+            Map<String, Integer> counts = new HashMap<String, Integer>();
+            long simulatedInstances = 0;
+            for (RecordedEvent event: RecordingFile.readAllEvents(file.toPath())) {
+                String name = event.getEventType().getName();
+                Integer old = counts.get(name);
+                counts.put(name, old == null ? 1 : old + 1);
+                if ("de.unisb.cs.st.javaslicer.MethodSimulation".equals(name))
+                    simulatedInstances += event.getLong("instances");
+                if ("de.unisb.cs.st.javaslicer.SliceCompleted".equals(name)) {
+                    assertEquals(source.getNumInstances(), event.getLong("instances"));
+                    assertEquals(slice.size(), event.getLong("sliceSize"));
+                }
+            }
+            assertEquals(Integer.valueOf(1), counts.get("de.unisb.cs.st.javaslicer.SliceCompleted"));
+            assertTrue(counts.get("de.unisb.cs.st.javaslicer.ControlDependences") > 0);
+            assertEquals(source.getNumInstances(), simulatedInstances);
+        } finally {
+            file.delete();
+        }
+    }
+
+}
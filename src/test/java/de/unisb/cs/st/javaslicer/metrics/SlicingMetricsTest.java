@@ -0,0 +1,140 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.metrics
+ *    Class:     SlicingMetricsTest
+ *    Filename:  javaslicer-core/src/test/java/de/unisb/cs/st/javaslicer/metrics/SlicingMetricsTest.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
+import de.unisb.cs.st.javaslicer.metrics.SlicingMetrics.Counter;
+import de.unisb.cs.st.javaslicer.slicing.DirectSlicer;
+import de.unisb.cs.st.javaslicer.slicing.SliceInstructionsCollector;
+import de.unisb.cs.st.javaslicer.slicing.Slicer;
+import de.unisb.cs.st.javaslicer.slicing.SlicingCriterion;
+import de.unisb.cs.st.javaslicer.slicing.StaticSlicingCriterion;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource.Configuration;
+
+public class SlicingMetricsTest {
+
+    private static final SyntheticTraceSource source =
+        new SyntheticTraceSource(new Configuration().setNumInstances(20000));
+
+    private static List<SlicingCriterion> getCriterion() {
+        return StaticSlicingCriterion.parseAll(
+            SyntheticTraceSource.PROGRAM_CLASS_NAME + ".run:23:{acc}", source.getReadClasses());
+    }
+
+    @Test
+    public void testDirectSlicer() {
+        SlicingMetrics metrics = new SlicingMetrics();
+        DirectSlicer slicer = new DirectSlicer(source);
+        slicer.setMetrics(metrics);
+        Set<Instruction> slice = slicer.getDynamicSlice(source.getThread(), getCriterion());
+
+        assertEquals(source.getNumInstances(), metrics.getProcessedInstances());
+        assertEquals(slice.size(), metrics.getSliceInstructions());
+        assertEquals(-1, metrics.getSliceInstances());
+        assertTrue(metrics.getMaxStackDepth() > 1);
+        assertTrue(metrics.getPeakInterestingVariables() > 0);
+        assertTrue(metrics.getControlDependenceCacheMisses() > 0);
+        assertEquals(metrics.getAnalysedMethods(), metrics.getControlDependenceCacheMisses());
+        assertTrue(metrics.getFieldLayoutCacheMisses() > 0);
+        assertTrue(metrics.getPeakTrackedArrays() > 0);
+    }
+
+    @Test
+    public void testSlicer() throws InterruptedException {
+        SlicingMetrics metrics = new SlicingMetrics();
+        Slicer slicer = new Slicer(source);
+        slicer.setMetrics(metrics);
+        SliceInstructionsCollector collector = new SliceInstructionsCollector();
+        slicer.addSliceVisitor(collector);
+        slicer.process(source.getThread(), getCriterion(), false);
+
+        assertEquals(source.getNumInstances(), metrics.getProcessedInstances());
+        assertEquals(collector.getDynamicSlice().size(), metrics.getSliceInstances());
+        assertTrue(metrics.getPeakLastReadersSize() > 0);
+        assertTrue(metrics.getControlDependenceCacheHits() > 0);
+        long phaseMillis = metrics.getTraceReadingMillis() + metrics.getSimulationMillis()
+            + metrics.getControlDependencesMillis() + metrics.getDataDependencesMillis()
+            + metrics.getVisitorsMillis();
+        assertTrue(phaseMillis <= metrics.getElapsedMillis());
+    }
+
+    @Test
+    public void testMBean() throws JMException {
+        SlicingMetrics metrics = new SlicingMetrics();
+        ObjectName name = metrics.registerMBean();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertTrue(server.isRegistered(name));
+            DirectSlicer slicer = new DirectSlicer(source);
+            slicer.setMetrics(metrics);
+            slicer.getDynamicSlice(source.getThread(), getCriterion());
+            assertEquals(Long.valueOf(source.getNumInstances()), server.getAttribute(name, "ProcessedInstances"));
+        } finally {
+            metrics.unregisterMBean();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    public void testCounters() throws JMException {
+        SlicingMetrics metrics = new SlicingMetrics();
+        assertEquals(-1, metrics.getCounterValue("feature", "events"));
+        Counter events = metrics.getCounter("feature", "events");
+        assertSame(events, metrics.getCounter("feature", "events"));
+        events.add(3);
+        events.increment();
+        assertEquals(4, metrics.getCounterValue("feature", "events"));
+
+        ObjectName name = metrics.registerMBean();
+        try {
+            assertEquals(Collections.singletonMap("feature.events", Long.valueOf(4)),
+                ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Counters"));
+        } finally {
+            metrics.unregisterMBean();
+        }
+
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        metrics.printReport(new PrintStream(report));
+        assertTrue(report.toString().contains("feature:"));
+    }
+
+}
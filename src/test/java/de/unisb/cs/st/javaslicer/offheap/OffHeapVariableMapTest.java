@@ -0,0 +1,206 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.offheap
+ *    Class:     OffHeapVariableMapTest
+ *    Filename:  javaslicer-core/src/test/java/de/unisb/cs/st/javaslicer/offheap/OffHeapVariableMapTest.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.offheap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.offheap.OffHeapConfiguration.Mode;
+import de.unisb.cs.st.javaslicer.slicing.DirectSlicer;
+import de.unisb.cs.st.javaslicer.slicing.SliceInstructionsCollector;
+import de.unisb.cs.st.javaslicer.slicing.Slicer;
+import de.unisb.cs.st.javaslicer.slicing.SlicingCriterion;
+import de.unisb.cs.st.javaslicer.slicing.StaticSlicingCriterion;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceFixtures;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource.Configuration;
+import de.unisb.cs.st.javaslicer.variables.ArrayElement;
+import de.unisb.cs.st.javaslicer.variables.LocalVariable;
+import de.unisb.cs.st.javaslicer.variables.ObjectField;
+import de.unisb.cs.st.javaslicer.variables.StackEntry;
+import de.unisb.cs.st.javaslicer.variables.StaticField;
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+public class OffHeapVariableMapTest {
+
+    private static final String[] fieldNames = { "a", "b", "next", "value" };
+
+    private static Variable randomVariable(Random rand) {
+        long id = rand.nextInt(500);
+        int index = rand.nextInt(8);
+        switch (rand.nextInt(5)) {
+        case 0:
+            return new LocalVariable(id, index, null);
+        case 1:
+            return new StackEntry(id, index);
+        case 2:
+            return new ObjectField(id, fieldNames[index % fieldNames.length]);
+        case 3:
+            return new ArrayElement(id, index);
+        default:
+            return new StaticField(("Owner" + (id % 3)).intern(), fieldNames[index % fieldNames.length]);
+        }
+    }
+
+    private static void checkAgainstHashMap(File directory) {
+        Random rand = new Random(42);
+        VariableEncoder encoder = new VariableEncoder();
+        Map<Variable, Integer> expected = new HashMap<Variable, Integer>();
+        OffHeapVariableMap<Integer> map = new OffHeapVariableMap<Integer>(encoder, directory);
+        Set<Variable> expectedSet = new HashSet<Variable>();
+        OffHeapVariableSet set = new OffHeapVariableSet(encoder, directory);
+
+        for (int i = 0; i < 200000; ++i) {
+            Variable var = randomVariable(rand);
+            // grow in the first half, shrink in the second half
+            boolean insert = rand.nextInt(100) < (i < 100000 ? 70 : 20);
+            if (insert) {
+                assertEquals(expected.put(var, i), map.put(var, i));
+                assertEquals(expectedSet.add(var), set.add(var));
+            } else {
+                assertEquals(expected.remove(var), map.remove(var));
+                assertEquals(expectedSet.remove(var), set.remove(var));
+            }
+            assertEquals(expected.get(var), map.get(var));
+            if (i % 1000 == 0) {
+                map.compact();
+                set.compact();
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(expectedSet.size(), set.size());
+
+        Map<Variable, Integer> copy = new HashMap<Variable, Integer>();
+        for (Entry<Variable, Integer> e: map.entrySet())
+            copy.put(e.getKey(), e.getValue());
+        assertEquals(expected, copy);
+        assertEquals(expectedSet, new HashSet<Variable>(set));
+
+        map.clear();
+        set.clear();
+        assertTrue(map.isEmpty() && set.isEmpty());
+        assertEquals(16L * OffHeapVariableTable.MIN_CAPACITY, map.getOffHeapBytes());
+    }
+
+    @Test
+    public void testDirectBuffers() {
+        checkAgainstHashMap(null);
+    }
+
+    @Test
+    public void testMappedFiles() throws IOException {
+        File dir = File.createTempFile("offheap", ".dir");
+        assertTrue(dir.delete() && dir.mkdir());
+        try {
+            checkAgainstHashMap(dir);
+            // the storage files are deleted right after mapping them
+            assertEquals(0, dir.list().length);
+        } finally {
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testCompact() {
+        OffHeapVariableSet set = new OffHeapVariableSet(new VariableEncoder(), null);
+        for (int i = 0; i < 10000; ++i)
+            set.add(new StackEntry(i, 0));
+        long fullBytes = set.getOffHeapBytes();
+        for (int i = 0; i < 9900; ++i)
+            assertTrue(set.remove(new StackEntry(i, 0)));
+        set.compact();
+        assertTrue(set.getOffHeapBytes() < fullBytes / 8);
+        for (int i = 9900; i < 10000; ++i)
+            assertTrue(set.contains(new StackEntry(i, 0)));
+    }
+
+    @Test
+    public void testLocalVariableKeys() {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration().setNumInstances(100));
+        ReadMethod run = SyntheticTraceFixtures.getMethod(source, "run");
+        VariableEncoder encoder = new VariableEncoder();
+        OffHeapVariableMap<Integer> map = new OffHeapVariableMap<Integer>(encoder, null);
+        // like on the heap, the method does not distinguish local variables
+        map.put(new LocalVariable(3, 1, run), 1);
+        assertEquals(Integer.valueOf(1), map.get(new LocalVariable(3, 1, null)));
+        assertEquals(Integer.valueOf(1), map.put(new LocalVariable(3, 1, null), 2));
+        assertEquals(1, map.size());
+        for (Entry<Variable, Integer> e: map.entrySet())
+            assertSame(run, ((LocalVariable) e.getKey()).getMethod());
+        long[] key = new long[2];
+        encoder.encode(new LocalVariable(3, 1, null), key);
+        encoder.releaseFrame(3);
+        assertNull(((LocalVariable) encoder.decode(key[0], key[1])).getMethod());
+    }
+
+    @Test
+    public void testSlicersOffHeap() throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration().setNumInstances(20000));
+        List<SlicingCriterion> sc = StaticSlicingCriterion.parseAll(
+            SyntheticTraceSource.PROGRAM_CLASS_NAME + ".run:23:{acc}", source.getReadClasses());
+
+        Set<Set<Instruction>> directSlices = new HashSet<Set<Instruction>>();
+        Set<Set<Instruction>> slices = new HashSet<Set<Instruction>>();
+        OffHeapConfiguration[] configs = {
+            new OffHeapConfiguration().setMode(Mode.HEAP),
+            new OffHeapConfiguration().setMode(Mode.OFF_HEAP),
+            // switches after the first few instances
+            new OffHeapConfiguration().setMode(Mode.AUTO).setHeapBudget(1000),
+        };
+        for (OffHeapConfiguration config: configs) {
+            DirectSlicer directSlicer = new DirectSlicer(source);
+            directSlicer.setOffHeapConfiguration(config);
+            directSlices.add(directSlicer.getDynamicSlice(source.getThread(), sc));
+
+            Slicer slicer = new Slicer(source);
+            slicer.setOffHeapConfiguration(config);
+            SliceInstructionsCollector collector = new SliceInstructionsCollector();
+            slicer.addSliceVisitor(collector);
+            slicer.process(source.getThread(), sc, false);
+            Set<Instruction> slice = new HashSet<Instruction>();
+            for (InstructionInstance inst: collector.getDynamicSlice())
+                slice.add(inst.getInstruction());
+            slices.add(slice);
+        }
+        assertEquals(1, directSlices.size());
+        assertEquals(1, slices.size());
+    }
+
+}
@@ -0,0 +1,126 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.slicing
+ *    Class:     BlackBoxScopeTest
+ *    Filename:  javaslicer-core/src/test/java/de/unisb/cs/st/javaslicer/slicing/BlackBoxScopeTest.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.slicing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionType;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.BlackBoxScope;
+import de.unisb.cs.st.javaslicer.metrics.SlicingMetrics;
+import de.unisb.cs.st.javaslicer.traceResult.UntracedCallVisitor;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceFixtures;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource.Configuration;
+
+public class BlackBoxScopeTest {
+
+    private static class CallCollector implements UntracedCallVisitor {
+
+        final List<InstructionInstance> calls = new ArrayList<InstructionInstance>();
+
+        @Override
+        public void visitUntracedMethodCall(InstructionInstance instrInstance) {
+            this.calls.add(instrInstance);
+        }
+
+    }
+
+    @Test
+    public void testPatterns() {
+        BlackBoxScope scope = BlackBoxScope.parse("java.*, javax.,synthetic.Program");
+        assertTrue(scope.contains("java.util.ArrayList"));
+        assertTrue(scope.contains("javax.swing.JPanel"));
+        assertTrue(scope.contains("synthetic.Program"));
+        assertTrue(scope.contains("synthetic.Program$Inner"));
+        assertFalse(scope.contains("synthetic.ProgramTest"));
+        assertFalse(scope.contains("javafx.scene.Node"));
+        assertTrue(BlackBoxScope.parse("").isEmpty());
+    }
+
+    @Test
+    public void testSameSliceAsDirectSlicer() throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration()
+            .setNumInstances(20000).setExceptionPeriod(7).setChainLength(3));
+        // all methods called from run() are black boxes, except for frames left by an exception
+        BlackBoxScope scope = BlackBoxScope.parse(SyntheticTraceSource.PROGRAM_CLASS_NAME);
+        String[] criteria = { "run:23(1):*", "run:13(1):*", "mayThrow:83(1):*" };
+        for (String criterion: criteria) {
+            List<SlicingCriterion> sc = SyntheticTraceFixtures.parse(source, criterion);
+            SlicingMetrics metrics = new SlicingMetrics();
+            CallCollector calls = new CallCollector();
+            Set<Instruction> slice = slice(source, sc, scope, metrics, calls);
+            DirectSlicer directSlicer = new DirectSlicer(source);
+            directSlicer.setBlackBoxScope(scope);
+            assertEquals(criterion, new TreeSet<Instruction>(directSlicer.getDynamicSlice(source.getThread(), sc)), slice);
+            for (Instruction instr: slice) {
+                String method = instr.getMethod().getName();
+                assertTrue(instr.toString(), method.equals("run") || method.equals("mayThrow"));
+            }
+            long blackBoxFrames = metrics.getCounterValue(BlackBoxScope.COUNTERS, "frames");
+            assertTrue(blackBoxFrames > 0);
+            assertTrue(calls.calls.size() >= blackBoxFrames);
+            for (InstructionInstance call: calls.calls)
+                assertEquals(InstructionType.METHODINVOCATION, call.getInstruction().getType());
+        }
+    }
+
+    @Test
+    public void testSummary() throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration()
+            .setNumInstances(20000).setExceptionPeriod(7).setChainLength(3));
+        BlackBoxScope scope = BlackBoxScope.parse(SyntheticTraceSource.PROGRAM_CLASS_NAME);
+        // the loop counter does not depend on the called methods
+        List<SlicingCriterion> sc = SyntheticTraceFixtures.parse(source, "run:13(1):*");
+        assertEquals(slice(source, sc, null, new SlicingMetrics(), new CallCollector()),
+            slice(source, sc, scope, new SlicingMetrics(), new CallCollector()));
+        // the accumulator flows through all invocations
+        Set<Instruction> slice = slice(source, SyntheticTraceFixtures.parse(source, "run:23(1):*"), scope, new SlicingMetrics(), new CallCollector());
+        Set<Integer> invocationLines = new TreeSet<Integer>();
+        for (Instruction instr: slice)
+            if (instr.getType() == InstructionType.METHODINVOCATION && instr.getMethod().getName().equals("run"))
+                invocationLines.add(instr.getLineNumber());
+        assertTrue(invocationLines.toString(), invocationLines.containsAll(Arrays.asList(14, 15, 16, 17, 19)));
+    }
+
+    private static Set<Instruction> slice(SyntheticTraceSource source, List<SlicingCriterion> sc,
+            BlackBoxScope scope, SlicingMetrics metrics, UntracedCallVisitor calls) throws InterruptedException {
+        Slicer slicer = new Slicer(source);
+        slicer.setBlackBoxScope(scope);
+        slicer.addUntracedCallVisitor(calls);
+        slicer.setMetrics(metrics);
+        return SyntheticTraceFixtures.instructions(SyntheticTraceFixtures.slice(slicer, source, sc));
+    }
+
+}
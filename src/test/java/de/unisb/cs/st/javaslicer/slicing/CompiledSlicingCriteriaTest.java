@@ -0,0 +1,78 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.slicing
+ *    Class:     CompiledSlicingCriteriaTest
+ *    Filename:  javaslicer-core/src/test/java/de/unisb/cs/st/javaslicer/slicing/CompiledSlicingCriteriaTest.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.slicing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DependencesExtractor;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DependencesVisitorAdapter;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.VisitorCapability;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource.Configuration;
+
+public class CompiledSlicingCriteriaTest {
+
+    @Test
+    public void testSameMatchesAsUncompiled() throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration().setNumInstances(20000));
+        String prefix = SyntheticTraceSource.PROGRAM_CLASS_NAME;
+        List<SlicingCriterion> criteria = StaticSlicingCriterion.parseAll(
+            prefix + ".recurse:33," + prefix + ".recurse:31(4)," + prefix + ".arrays:43," + prefix + ".run:23:{acc}",
+            source.getReadClasses());
+
+        final List<SlicingCriterionInstance> uncompiled = new ArrayList<SlicingCriterionInstance>();
+        for (SlicingCriterion crit: criteria)
+            uncompiled.add(crit.getInstance());
+        final CompiledSlicingCriteria compiled = new CompiledSlicingCriteria(criteria);
+        final long[] matches = new long[2];
+
+        DependencesExtractor<InstructionInstance> extractor = DependencesExtractor.forTrace(source);
+        extractor.registerVisitor(new DependencesVisitorAdapter<InstructionInstance>() {
+            @Override
+            public void visitInstructionExecution(InstructionInstance instance) {
+                boolean mayMatch = compiled.mayMatch(instance);
+                for (int i = 0; i < uncompiled.size(); ++i) {
+                    boolean expected = uncompiled.get(i).matches(instance);
+                    SlicingCriterionInstance crit = compiled.getInstances().get(i);
+                    boolean actual = mayMatch && crit.matches(instance);
+                    assertEquals(instance.toString(), expected, actual);
+                    assertEquals(uncompiled.get(i).getOccurenceNumber(), crit.getOccurenceNumber());
+                    if (expected)
+                        ++matches[i == 1 ? 1 : 0];
+                }
+            }
+        }, VisitorCapability.INSTRUCTION_EXECUTIONS);
+        extractor.processBackwardTrace(source.getThread());
+
+        assertTrue(matches[0] > 0);
+        assertTrue(matches[1] > 0);
+    }
+
+}
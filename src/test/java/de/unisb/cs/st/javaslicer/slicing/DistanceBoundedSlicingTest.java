@@ -0,0 +1,99 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.slicing
+ *    Class:     DistanceBoundedSlicingTest
+ *    Filename:  javaslicer-core/src/test/java/de/unisb/cs/st/javaslicer/slicing/DistanceBoundedSlicingTest.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.slicing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.junit.Test;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.metrics.SlicingMetrics;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource.Configuration;
+import de.unisb.cs.st.javaslicer.variables.Variable;
+
+public class DistanceBoundedSlicingTest {
+
+    private static class DistanceCollector implements SliceVisitor {
+
+        final Map<Long, Integer> distances = new HashMap<Long, Integer>();
+
+        @Override
+        public void visitMatchedInstance(InstructionInstance instance) {
+            this.distances.put(instance.getInstanceNr(), 0);
+        }
+
+        @Override
+        public void visitSliceDependence(InstructionInstance from, InstructionInstance to,
+                Variable variable, int distance) {
+            Integer old = this.distances.get(to.getInstanceNr());
+            if (old == null || distance < old.intValue())
+                this.distances.put(to.getInstanceNr(), distance);
+        }
+
+    }
+
+    @Test
+    public void testBoundedSliceIsPrefixOfFullSlice() throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration().setNumInstances(20000));
+        String prefix = SyntheticTraceSource.PROGRAM_CLASS_NAME;
+        List<SlicingCriterion> sc = StaticSlicingCriterion.parseAll(prefix + ".run:23(1):*", source.getReadClasses());
+
+        DistanceCollector full = new DistanceCollector();
+        long fullInstances = slice(source, sc, Integer.MAX_VALUE, full);
+        assertEquals(source.getNumInstances(), fullInstances);
+
+        boolean stoppedEarly = false;
+        for (int maxDistance = 0; maxDistance <= 4; ++maxDistance) {
+            DistanceCollector bounded = new DistanceCollector();
+            long instances = slice(source, sc, maxDistance, bounded);
+            for (Integer distance: bounded.distances.values())
+                assertTrue(distance.intValue() <= maxDistance);
+            Map<Long, Integer> expected = new HashMap<Long, Integer>();
+            for (Entry<Long, Integer> e: full.distances.entrySet())
+                if (e.getValue().intValue() <= maxDistance)
+                    expected.put(e.getKey(), e.getValue());
+            assertEquals("max distance " + maxDistance, expected, bounded.distances);
+            stoppedEarly |= instances < fullInstances;
+        }
+        assertTrue(stoppedEarly);
+    }
+
+    private static long slice(SyntheticTraceSource source, List<SlicingCriterion> sc, int maxDistance,
+            SliceVisitor visitor) throws InterruptedException {
+        Slicer slicer = new Slicer(source);
+        slicer.setMaxDistance(maxDistance);
+        slicer.addSliceVisitor(visitor);
+        SlicingMetrics metrics = new SlicingMetrics();
+        slicer.setMetrics(metrics);
+        slicer.process(source.getThread(), sc, false);
+        return metrics.getProcessedInstances();
+    }
+
+}
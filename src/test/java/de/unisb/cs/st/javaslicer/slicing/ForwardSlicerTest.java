@@ -0,0 +1,104 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.slicing
+ *    Class:     ForwardSlicerTest
+ *    Filename:  javaslicer-core/src/test/java/de/unisb/cs/st/javaslicer/slicing/ForwardSlicerTest.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.slicing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.slicing.ForwardSlicer.SliceSet;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource.Configuration;
+
+public class ForwardSlicerTest {
+
+    private static final String PREFIX = SyntheticTraceSource.PROGRAM_CLASS_NAME;
+
+    @Test
+    public void testSameSliceAsSlicer() throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration()
+            .setNumInstances(20000).setExceptionPeriod(7));
+        String[] criteria = {
+            PREFIX + ".run:23(1):*",
+            PREFIX + ".arrays:46:*",
+            PREFIX + ".objects:59:*",
+            PREFIX + ".mayThrow:83:*",
+            PREFIX + ".recurse:33",
+            PREFIX + ".arrays:43(2):*," + PREFIX + ".recurse:31(4):*",
+        };
+        for (String criterion: criteria) {
+            List<SlicingCriterion> sc = StaticSlicingCriterion.parseAll(criterion, source.getReadClasses());
+
+            SliceInstructionsCollector collector = new SliceInstructionsCollector();
+            Slicer slicer = new Slicer(source);
+            slicer.addSliceVisitor(collector);
+            slicer.process(source.getThread(), sc, false);
+            Set<Instruction> expected = new HashSet<Instruction>();
+            for (InstructionInstance instance: collector.getDynamicSlice())
+                expected.add(instance.getInstruction());
+
+            ForwardSlicer forwardSlicer = new ForwardSlicer(source);
+            forwardSlicer.process(source.getThread(), sc);
+            assertFalse(criterion, expected.isEmpty());
+            assertEquals(criterion, expected, forwardSlicer.getDynamicSlice());
+        }
+    }
+
+    @Test
+    public void testSlicesOfAllInstances() throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration().setNumInstances(20000));
+        List<SlicingCriterion> sc = StaticSlicingCriterion.parseAll(PREFIX + ".run:23(1):*", source.getReadClasses());
+        ForwardSlicer forwardSlicer = new ForwardSlicer(source);
+        forwardSlicer.process(source.getThread(), sc);
+        assertEquals(source.getNumInstances(), forwardSlicer.getNumInstances());
+
+        // the slice of the criterion instance is the slice of the only criterion instance
+        // (run:23 is executed once, as the last instances of the trace)
+        SliceSet criterionSlice = forwardSlicer.getCriterionSlice();
+        boolean found = false;
+        for (long nr = 0; nr < 20 && !found; ++nr)
+            found = forwardSlicer.getSlice(nr) == criterionSlice;
+        assertTrue(found);
+
+        // slices are hash-consed, so there are far fewer distinct slices than instances
+        assertTrue(forwardSlicer.getNumDistinctSlices() + " distinct slices",
+            10 * forwardSlicer.getNumDistinctSlices() < forwardSlicer.getNumInstances());
+
+        for (long nr = 0; nr < forwardSlicer.getNumInstances(); nr += 97) {
+            SliceSet slice = forwardSlicer.getSlice(nr);
+            Set<Instruction> instructions = forwardSlicer.getInstructions(slice);
+            assertEquals(slice.size(), instructions.size());
+            for (Instruction instr: instructions)
+                assertTrue(slice.contains(instr.getIndex()));
+        }
+    }
+
+}
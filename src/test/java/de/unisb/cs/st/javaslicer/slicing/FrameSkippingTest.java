@@ -0,0 +1,98 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.slicing
+ *    Class:     FrameSkippingTest
+ *    Filename:  javaslicer-core/src/test/java/de/unisb/cs/st/javaslicer/slicing/FrameSkippingTest.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.slicing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import de.unisb.cs.st.javaslicer.controlflowanalysis.ModRefAnalysis;
+import de.unisb.cs.st.javaslicer.controlflowanalysis.ModRefSummary;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.FrameFilter;
+import de.unisb.cs.st.javaslicer.metrics.SlicingMetrics;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceFixtures;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource.Configuration;
+
+public class FrameSkippingTest {
+
+    @Test
+    public void testSameSliceWithSkippedFrames() throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration()
+            .setNumInstances(20000).setExceptionPeriod(7).setChainLength(3));
+        String[] criteria = { "run:23(1):*", "run:13(1):*", "objects:60(1):*", "objects:59(1):*",
+            "arrays:46(1):*", "recurse:32(2):*", "mayThrow:83(1):*" };
+        for (String criterion: criteria) {
+            List<SlicingCriterion> sc = SyntheticTraceFixtures.parse(source, criterion);
+            SlicingMetrics fullMetrics = new SlicingMetrics();
+            Set<Long> full = slice(source, sc, false, fullMetrics);
+            SlicingMetrics skippingMetrics = new SlicingMetrics();
+            Set<Long> skipping = slice(source, sc, true, skippingMetrics);
+            assertEquals(criterion, full, skipping);
+            assertEquals(-1, fullMetrics.getCounterValue(FrameFilter.COUNTERS, "frames"));
+            assertEquals(source.getNumInstances(), skippingMetrics.getProcessedInstances());
+        }
+    }
+
+    @Test
+    public void testSkipsFramesAfterCriterion() throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration()
+            .setNumInstances(20000).setExceptionPeriod(7).setChainLength(3));
+        // only a few instances of the loop counter are relevant, all called methods are not
+        List<SlicingCriterion> sc = SyntheticTraceFixtures.parse(source, "run:13(1):*");
+        SlicingMetrics metrics = new SlicingMetrics();
+        slice(source, sc, true, metrics);
+        assertTrue(metrics.getCounterValue(FrameFilter.COUNTERS, "frames") > 0);
+        long skippedInstances = metrics.getCounterValue(FrameFilter.COUNTERS, "instances");
+        assertTrue("skipped " + skippedInstances + " of " + metrics.getProcessedInstances(),
+            skippedInstances > metrics.getProcessedInstances() / 2);
+    }
+
+    @Test
+    public void testSummaries() {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration());
+        ModRefAnalysis analysis = new ModRefAnalysis(source.getReadClasses());
+        ModRefSummary arrays = analysis.getSummary(SyntheticTraceFixtures.getMethod(source, "arrays"));
+        assertTrue(arrays.getWrittenArrayTypes() != 0);
+        assertFalse(arrays.callsUntracedMethods());
+        ModRefSummary run = analysis.getSummary(SyntheticTraceFixtures.getMethod(source, "run"));
+        assertTrue(run.getReachableMethods().contains(arrays.getMethod()));
+        assertTrue(run.getWrittenFields().cardinality() >= arrays.getWrittenFields().cardinality());
+        assertEquals(arrays.getWrittenArrayTypes(),
+            run.getWrittenArrayTypes() & arrays.getWrittenArrayTypes());
+    }
+
+    private static Set<Long> slice(SyntheticTraceSource source, List<SlicingCriterion> sc,
+            boolean frameSkipping, SlicingMetrics metrics) throws InterruptedException {
+        Slicer slicer = new Slicer(source);
+        slicer.setFrameSkipping(frameSkipping);
+        slicer.setMetrics(metrics);
+        return SyntheticTraceFixtures.instanceNrs(SyntheticTraceFixtures.slice(slicer, source, sc));
+    }
+
+}
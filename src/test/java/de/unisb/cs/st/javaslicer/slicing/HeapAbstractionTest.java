@@ -0,0 +1,135 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.slicing
+ *    Class:     HeapAbstractionTest
+ *    Filename:  javaslicer-core/src/test/java/de/unisb/cs/st/javaslicer/slicing/HeapAbstractionTest.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.slicing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.ReaderEquivalence;
+import de.unisb.cs.st.javaslicer.metrics.SlicingMetrics;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceFixtures;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource.Configuration;
+import de.unisb.cs.st.javaslicer.variables.ArrayElement;
+import de.unisb.cs.st.javaslicer.variables.HeapAbstraction;
+import de.unisb.cs.st.javaslicer.variables.ObjectField;
+import de.unisb.cs.st.javaslicer.variables.StaticField;
+
+public class HeapAbstractionTest {
+
+    @Test
+    public void testNames() {
+        for (HeapAbstraction abstraction: HeapAbstraction.values())
+            assertEquals(abstraction, HeapAbstraction.parse(abstraction.toString()));
+        assertEquals(HeapAbstraction.ALLOCATION_SITES, HeapAbstraction.parse("allocation-sites"));
+        assertEquals(HeapAbstraction.FIELDS, HeapAbstraction.parse(" Fields"));
+    }
+
+    @Test
+    public void testSummaryVariables() {
+        ObjectField field = new ObjectField(42, 3);
+        ArrayElement element = new ArrayElement(42, 3);
+        StaticField staticField = new StaticField("synthetic/Program", "counter");
+        assertFalse(HeapAbstraction.OBJECTS.isSummary(field));
+        assertFalse(HeapAbstraction.OBJECTS.isSummary(element));
+        assertFalse(HeapAbstraction.ARRAYS.isSummary(field));
+        assertTrue(HeapAbstraction.ARRAYS.isSummary(element));
+        assertTrue(HeapAbstraction.FIELDS.isSummary(field));
+        assertTrue(HeapAbstraction.ALLOCATION_SITES.isSummary(
+            new ObjectField(HeapAbstraction.getAllocationSiteId(7), 3)));
+        for (HeapAbstraction abstraction: HeapAbstraction.values())
+            assertFalse(abstraction.isSummary(staticField));
+    }
+
+    @Test
+    public void testConservativeSlices() throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration()
+            .setNumInstances(20000).setExceptionPeriod(7).setArrayLength(20).setChainLength(3));
+        String[] criteria = { "run:23(1):*", "arrays:46(1):*", "mayThrow:83(1):*" };
+        for (String criterion: criteria) {
+            List<SlicingCriterion> sc = SyntheticTraceFixtures.parse(source, criterion);
+            SlicingMetrics preciseMetrics = new SlicingMetrics();
+            Set<InstructionInstance> precise = slice(source, sc, HeapAbstraction.OBJECTS, preciseMetrics);
+            for (HeapAbstraction abstraction: HeapAbstraction.values()) {
+                SlicingMetrics metrics = new SlicingMetrics();
+                Set<InstructionInstance> slice = slice(source, sc, abstraction, metrics);
+                assertTrue(criterion + " " + abstraction, slice.containsAll(precise));
+                if (!abstraction.tracksObjects())
+                    assertTrue(criterion + " " + abstraction,
+                        metrics.getPeakLastReadersSize() < preciseMetrics.getPeakLastReadersSize());
+
+                DirectSlicer directSlicer = new DirectSlicer(source);
+                directSlicer.setHeapAbstraction(abstraction);
+                assertEquals(criterion + " " + abstraction, SyntheticTraceFixtures.instructions(slice),
+                    new TreeSet<Instruction>(directSlicer.getDynamicSlice(source.getThread(), sc)));
+            }
+        }
+    }
+
+    @Test
+    public void testMergedSummaryReaders() throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration()
+            .setNumInstances(20000).setExceptionPeriod(7).setArrayLength(20).setChainLength(3));
+        List<SlicingCriterion> sc = SyntheticTraceFixtures.parse(source, "run:23(1):*");
+        SlicingMetrics preciseMetrics = new SlicingMetrics();
+        DirectSlicer preciseSlicer = new DirectSlicer(source);
+        preciseSlicer.setMetrics(preciseMetrics);
+        preciseSlicer.getDynamicSlice(source.getThread(), sc);
+        for (HeapAbstraction abstraction: HeapAbstraction.values()) {
+            if (abstraction == HeapAbstraction.OBJECTS)
+                continue;
+            // the readers of one instruction within a loop on the slice are merged
+            SlicingMetrics metrics = new SlicingMetrics();
+            slice(source, sc, abstraction, metrics);
+            assertTrue(abstraction.toString(),
+                metrics.getCounterValue(ReaderEquivalence.COUNTERS, "summary readers") > 0);
+
+            // the summary variables of created objects are not interesting any more
+            SlicingMetrics directMetrics = new SlicingMetrics();
+            DirectSlicer directSlicer = new DirectSlicer(source);
+            directSlicer.setHeapAbstraction(abstraction);
+            directSlicer.setMetrics(directMetrics);
+            directSlicer.getDynamicSlice(source.getThread(), sc);
+            assertTrue(abstraction.toString(),
+                directMetrics.getPeakInterestingVariables() <= preciseMetrics.getPeakInterestingVariables());
+        }
+    }
+
+    private static Set<InstructionInstance> slice(SyntheticTraceSource source, List<SlicingCriterion> sc,
+            HeapAbstraction abstraction, SlicingMetrics metrics) throws InterruptedException {
+        Slicer slicer = new Slicer(source);
+        slicer.setHeapAbstraction(abstraction);
+        slicer.setMetrics(metrics);
+        return SyntheticTraceFixtures.slice(slicer, source, sc);
+    }
+
+}
@@ -0,0 +1,61 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.slicing
+ *    Class:     RelevantSlicerTest
+ *    Filename:  javaslicer-core/src/test/java/de/unisb/cs/st/javaslicer/slicing/RelevantSlicerTest.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.slicing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.RelevantDependencesExtractor;
+import de.unisb.cs.st.javaslicer.metrics.SlicingMetrics;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceFixtures;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource.Configuration;
+
+public class RelevantSlicerTest {
+
+    @Test
+    public void testContainsDynamicSlice() throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration()
+            .setNumInstances(20000).setExceptionPeriod(7).setArrayLength(5).setChainLength(3));
+        String[] criteria = { "run:{acc}", "run:23(1):*", "objects:59(1):*", "arrays:46(1):*" };
+        for (String criterion: criteria) {
+            List<SlicingCriterion> sc = SyntheticTraceFixtures.parse(source, criterion);
+            Set<Instruction> dynamic = new DirectSlicer(source).getDynamicSlice(source.getThread(), sc);
+            SlicingMetrics metrics = new SlicingMetrics();
+            RelevantSlicer slicer = new RelevantSlicer(source);
+            slicer.setMetrics(metrics);
+            Set<Instruction> relevant = slicer.getDynamicSlice(source.getThread(), sc);
+            assertTrue(criterion, relevant.containsAll(dynamic));
+            // the loop exit of run() might have skipped writes to the variables read by the slice
+            assertTrue(criterion, metrics.getCounterValue(RelevantDependencesExtractor.COUNTERS, "branches") > 0);
+            assertEquals(criterion, relevant.size(), metrics.getSliceInstructions());
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.slicing
+ *    Class:     StaticSliceFilteringTest
+ *    Filename:  javaslicer-core/src/test/java/de/unisb/cs/st/javaslicer/slicing/StaticSliceFilteringTest.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.slicing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.controlflowanalysis.StaticDependenceGraph;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DependencesExtractor;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.DependencesVisitorAdapter;
+import de.unisb.cs.st.javaslicer.dependenceAnalysis.VisitorCapability;
+import de.unisb.cs.st.javaslicer.metrics.SlicingMetrics;
+import de.unisb.cs.st.javaslicer.slicing.StaticSlicingCriterion.StaticSlicingCriterionInstance;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceFixtures;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource.Configuration;
+
+public class StaticSliceFilteringTest {
+
+    @Test
+    public void testSameSliceWithFiltering() throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration()
+            .setNumInstances(20000).setExceptionPeriod(7).setChainLength(3));
+        String[] criteria = { "run:23(1):*", "run:13(1):*", "objects:60(1):*", "objects:59(1):*",
+            "arrays:46(1):*", "recurse:32(2):*", "mayThrow:83(1):*", "run:23:*" };
+        for (String criterion: criteria) {
+            List<SlicingCriterion> sc = SyntheticTraceFixtures.parse(source, criterion);
+            SlicingMetrics fullMetrics = new SlicingMetrics();
+            Set<Long> full = slice(source, sc, false, fullMetrics);
+            SlicingMetrics filteringMetrics = new SlicingMetrics();
+            Set<Long> filtering = slice(source, sc, true, filteringMetrics);
+            assertEquals(criterion, full, filtering);
+            assertEquals(-1, fullMetrics.getCounterValue(StaticDependenceGraph.COUNTERS, "filtered instances"));
+            assertEquals(-1, fullMetrics.getCounterValue(StaticDependenceGraph.COUNTERS, "instructions"));
+            assertTrue(filteringMetrics.getCounterValue(StaticDependenceGraph.COUNTERS, "instructions") > 0);
+            assertEquals(source.getNumInstances(), filteringMetrics.getProcessedInstances());
+        }
+    }
+
+    @Test
+    public void testFiltersInstances() throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration()
+            .setNumInstances(20000).setExceptionPeriod(7).setChainLength(3));
+        // the loop counter does not depend on any of the called methods
+        SlicingMetrics metrics = new SlicingMetrics();
+        slice(source, SyntheticTraceFixtures.parse(source, "run:13(1):*"), true, metrics);
+        assertTrue(metrics.getCounterValue(StaticDependenceGraph.COUNTERS, "filtered instances") > metrics.getProcessedInstances() / 2);
+    }
+
+    @Test
+    public void testAllocationsAreSimulated() throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration()
+            .setNumInstances(20000).setExceptionPeriod(7).setChainLength(3));
+        long allCreations = countObjectCreations(source, null);
+        assertTrue(allCreations > 0);
+        // no instruction is relevant, but the object creations are reported nevertheless
+        assertEquals(allCreations, countObjectCreations(source, new BitSet()));
+    }
+
+    @Test
+    public void testStaticSlice() {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration());
+        StaticDependenceGraph graph = new StaticDependenceGraph(source.getReadClasses());
+        BitSet criterion = new BitSet();
+        ((StaticSlicingCriterionInstance) SyntheticTraceFixtures.parse(source, "run:13(1):*").get(0).getInstance())
+            .addMatchingInstructions(criterion);
+        BitSet slice = graph.computeSlice(criterion);
+        assertTrue(slice.cardinality() > criterion.cardinality());
+        for (int index = criterion.nextSetBit(0); index >= 0; index = criterion.nextSetBit(index+1))
+            assertTrue(slice.get(index));
+        for (Instruction instr: SyntheticTraceFixtures.getMethod(source, "arrays").getInstructions())
+            assertFalse(instr.toString(), slice.get(instr.getIndex()));
+        for (int index = criterion.nextSetBit(0); index >= 0; index = criterion.nextSetBit(index+1))
+            for (Instruction dep: graph.getDependences(SyntheticTraceFixtures.getInstruction(source, index)))
+                assertTrue(dep.toString(), slice.get(dep.getIndex()));
+    }
+
+    private static long countObjectCreations(SyntheticTraceSource source, BitSet relevantInstructions)
+            throws InterruptedException {
+        final long[] creations = new long[1];
+        DependencesExtractor<InstructionInstance> extractor = DependencesExtractor.forTrace(source);
+        extractor.setRelevantInstructions(relevantInstructions);
+        extractor.registerVisitor(new DependencesVisitorAdapter<InstructionInstance>() {
+            @Override
+            public void visitObjectCreation(long objectId, InstructionInstance instrInstance) {
+                ++creations[0];
+            }
+        }, VisitorCapability.OBJECT_CREATION);
+        extractor.processBackwardTrace(source.getThread());
+        return creations[0];
+    }
+
+    private static Set<Long> slice(SyntheticTraceSource source, List<SlicingCriterion> sc,
+            boolean staticSliceFiltering, SlicingMetrics metrics) throws InterruptedException {
+        Slicer slicer = new Slicer(source);
+        slicer.setStaticSliceFiltering(staticSliceFiltering);
+        slicer.setMetrics(metrics);
+        return SyntheticTraceFixtures.instanceNrs(SyntheticTraceFixtures.slice(slicer, source, sc));
+    }
+
+}
@@ -0,0 +1,87 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.slicing
+ *    Class:     ThinSlicingTest
+ *    Filename:  javaslicer-core/src/test/java/de/unisb/cs/st/javaslicer/slicing/ThinSlicingTest.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.slicing;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionType;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.instructions.FieldInstruction;
+import de.unisb.cs.st.javaslicer.instructionSimulation.Simulator;
+import de.unisb.cs.st.javaslicer.instructionSimulation.VariableRole;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceFixtures;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource.Configuration;
+
+public class ThinSlicingTest {
+
+    @Test
+    public void testValueFlowOnly() throws InterruptedException {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration()
+            .setNumInstances(20000).setExceptionPeriod(7).setArrayLength(5).setChainLength(3));
+        String[] criteria = { "run:23(1):*", "objects:59(1):*", "arrays:46(1):*" };
+        for (String criterion: criteria) {
+            List<SlicingCriterion> sc = SyntheticTraceFixtures.parse(source, criterion);
+            Set<Instruction> full = slice(source, sc, false);
+            Set<Instruction> thin = slice(source, sc, true);
+            assertTrue(criterion, full.containsAll(thin));
+            assertTrue(criterion, thin.size() < full.size());
+            // the list traversal only computes the base references
+            assertTrue(criterion, containsField(full, "next"));
+            assertFalse(criterion, containsField(thin, "next"));
+            // but the values stored in and read from the list are produced by these instructions
+            assertTrue(criterion, containsField(thin, "value"));
+            for (Instruction instr: thin)
+                assertFalse(criterion + ": " + instr, instr.getType() == InstructionType.JUMP);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testValueRoleRequired() {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration());
+        new Simulator<InstructionInstance>(source).setUsedVariableRoles(EnumSet.of(VariableRole.BASE_OBJECT));
+    }
+
+    private static boolean containsField(Set<Instruction> slice, String fieldName) {
+        for (Instruction instr: slice)
+            if (instr.getType() == InstructionType.FIELD && ((FieldInstruction) instr).getFieldName().equals(fieldName))
+                return true;
+        return false;
+    }
+
+    private static Set<Instruction> slice(SyntheticTraceSource source, List<SlicingCriterion> sc,
+            boolean thinSlicing) throws InterruptedException {
+        Slicer slicer = new Slicer(source);
+        slicer.setThinSlicing(thinSlicing);
+        return SyntheticTraceFixtures.instructions(SyntheticTraceFixtures.slice(slicer, source, sc));
+    }
+
+}
@@ -0,0 +1,110 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.traceSource
+ *    Class:     SyntheticTraceFixtures
+ *    Filename:  javaslicer-core/src/test/java/de/unisb/cs/st/javaslicer/traceSource/SyntheticTraceFixtures.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.traceSource;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionType;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadClass;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.ReadMethod;
+import de.unisb.cs.st.javaslicer.slicing.SliceInstructionsCollector;
+import de.unisb.cs.st.javaslicer.slicing.Slicer;
+import de.unisb.cs.st.javaslicer.slicing.SlicingCriterion;
+import de.unisb.cs.st.javaslicer.slicing.StaticSlicingCriterion;
+
+/**
+ * Lookups and slicing helpers for the tests which run on a {@link SyntheticTraceSource}.
+ */
+public final class SyntheticTraceFixtures {
+
+    private SyntheticTraceFixtures() {
+        // utility class
+    }
+
+    public static ReadMethod getMethod(SyntheticTraceSource source, String name) {
+        for (ReadClass readClass: source.getReadClasses())
+            for (ReadMethod method: readClass.getMethods())
+                if (method.getName().equals(name))
+                    return method;
+        throw new AssertionError("no method " + name);
+    }
+
+    /**
+     * Returns the first instruction (not a label) of the method with the given opcode and line.
+     */
+    public static Instruction getInstruction(ReadMethod method, int opcode, int line) {
+        for (Instruction instr: method.getInstructions())
+            if (instr.getOpcode() == opcode && instr.getLineNumber() == line
+                    && instr.getType() != InstructionType.LABEL)
+                return instr;
+        throw new AssertionError("no instruction " + opcode + " at line " + line);
+    }
+
+    public static Instruction getInstruction(SyntheticTraceSource source, int index) {
+        for (ReadClass readClass: source.getReadClasses())
+            for (ReadMethod method: readClass.getMethods())
+                for (Instruction instr: method.getInstructions())
+                    if (instr.getIndex() == index)
+                        return instr;
+        throw new AssertionError("no instruction " + index);
+    }
+
+    /**
+     * Parses slicing criteria relative to the class of the synthetic program,
+     * e.g. <code>"run:23(1):*"</code>.
+     */
+    public static List<SlicingCriterion> parse(SyntheticTraceSource source, String criterion) {
+        return StaticSlicingCriterion.parseAll(
+            SyntheticTraceSource.PROGRAM_CLASS_NAME + "." + criterion, source.getReadClasses());
+    }
+
+    /**
+     * Computes the slice of the trace's thread with the given (configured) slicer.
+     */
+    public static Set<InstructionInstance> slice(Slicer slicer, SyntheticTraceSource source,
+            List<SlicingCriterion> sc) throws InterruptedException {
+        SliceInstructionsCollector collector = new SliceInstructionsCollector();
+        slicer.addSliceVisitor(collector);
+        slicer.process(source.getThread(), sc, false);
+        return collector.getDynamicSlice();
+    }
+
+    public static Set<Long> instanceNrs(Set<InstructionInstance> slice) {
+        Set<Long> instanceNrs = new TreeSet<Long>();
+        for (InstructionInstance instance: slice)
+            instanceNrs.add(instance.getInstanceNr());
+        return instanceNrs;
+    }
+
+    public static Set<Instruction> instructions(Set<InstructionInstance> slice) {
+        Set<Instruction> instructions = new TreeSet<Instruction>();
+        for (InstructionInstance instance: slice)
+            instructions.add(instance.getInstruction());
+        return instructions;
+    }
+
+}
@@ -0,0 +1,120 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.traceSource
+ *    Class:     SyntheticTraceSourceTest
+ *    Filename:  javaslicer-core/src/test/java/de/unisb/cs/st/javaslicer/traceSource/SyntheticTraceSourceTest.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.traceSource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import de.unisb.cs.st.javaslicer.common.classRepresentation.AbstractInstructionInstanceFactory;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.Instruction;
+import de.unisb.cs.st.javaslicer.common.classRepresentation.InstructionInstance;
+import de.unisb.cs.st.javaslicer.slicing.DirectSlicer;
+import de.unisb.cs.st.javaslicer.slicing.SliceInstructionsCollector;
+import de.unisb.cs.st.javaslicer.slicing.Slicer;
+import de.unisb.cs.st.javaslicer.slicing.SlicingCriterion;
+import de.unisb.cs.st.javaslicer.slicing.StaticSlicingCriterion;
+import de.unisb.cs.st.javaslicer.traceSource.SyntheticTraceSource.Configuration;
+
+public class SyntheticTraceSourceTest {
+
+    @Test
+    public void testInstanceStream() {
+        SyntheticTraceSource source = new SyntheticTraceSource(new Configuration().setNumInstances(50000));
+        assertTrue(source.getNumInstances() >= 50000);
+
+        BackwardInstanceIterator<InstructionInstance> it =
+            source.getBackwardIterator(source.getThread(), new AbstractInstructionInstanceFactory());
+        long num = 0;
+        int lastDepth = 1;
+        while (it.hasNext()) {
+            InstructionInstance inst = it.next();
+            assertEquals(num, inst.getInstanceNr());
+            assertTrue("stack depth may change by at most one", Math.abs(inst.getStackDepth() - lastDepth) <= 1);
+            lastDepth = inst.getStackDepth();
+            ++num;
+        }
+        assertEquals(source.getNumInstances(), num);
+        assertEquals(1, lastDepth);
+    }
+
+    @Test
+    public void testSlicersAgree() throws InterruptedException {
+        Configuration[] configurations = {
+            new Configuration(),
+            new Configuration().setArrayLength(0).setNumObjects(0).setChainLength(0).setExceptionPeriod(0),
+            new Configuration().setRecursionDepth(0).setNumObjects(0).setChainLength(0).setExceptionPeriod(0),
+            new Configuration().setRecursionDepth(0).setArrayLength(0).setChainLength(0).setExceptionPeriod(0),
+            new Configuration().setRecursionDepth(0).setArrayLength(0).setNumObjects(0).setExceptionPeriod(0),
+        };
+        for (Configuration configuration: configurations) {
+            SyntheticTraceSource source = new SyntheticTraceSource(configuration.setNumInstances(20000));
+            Set<Instruction> slice = getSlice(source);
+            Set<Instruction> directSlice = getDirectSlice(source);
+            assertFalse(configuration.toString(), slice.isEmpty());
+            assertEquals(configuration.toString(), directSlice, slice);
+        }
+    }
+
+    @Test
+    public void testExceptions() throws InterruptedException {
+        // the Slicer does not follow the dependences of exception handlers as far as the
+        // DirectSlicer does (the same holds for the exceptions* traces), so we only check
+        // that it does not find more
+        Configuration configuration = new Configuration().setRecursionDepth(0).setArrayLength(0)
+            .setNumObjects(0).setChainLength(0).setExceptionPeriod(1);
+        SyntheticTraceSource source = new SyntheticTraceSource(configuration.setNumInstances(20000));
+        Set<Instruction> slice = getSlice(source);
+        Set<Instruction> directSlice = getDirectSlice(source);
+        assertFalse(slice.isEmpty());
+        assertTrue(directSlice.containsAll(slice));
+        assertTrue(directSlice.size() > slice.size());
+    }
+
+    private static Set<Instruction> getSlice(SyntheticTraceSource source) throws InterruptedException {
+        Slicer slicer = new Slicer(source);
+        SliceInstructionsCollector collector = new SliceInstructionsCollector();
+        slicer.addSliceVisitor(collector);
+        slicer.process(source.getThread(), getCriterion(source), false);
+        Set<Instruction> slice = new HashSet<Instruction>();
+        for (InstructionInstance inst: collector.getDynamicSlice())
+            slice.add(inst.getInstruction());
+        return slice;
+    }
+
+    private static Set<Instruction> getDirectSlice(SyntheticTraceSource source) {
+        return new DirectSlicer(source).getDynamicSlice(source.getThread(), getCriterion(source));
+    }
+
+    private static List<SlicingCriterion> getCriterion(SyntheticTraceSource source) {
+        return StaticSlicingCriterion.parseAll(
+            SyntheticTraceSource.PROGRAM_CLASS_NAME + ".run:23:{acc}", source.getReadClasses());
+    }
+
+}
@@ -0,0 +1,64 @@
+/** License information:
+ *    Component: javaslicer-core
+ *    Package:   de.unisb.cs.st.javaslicer.variables
+ *    Class:     FieldTableTest
+ *    Filename:  javaslicer-core/src/test/java/de/unisb/cs/st/javaslicer/variables/FieldTableTest.java
+ *
+ * This file is part of the JavaSlicer tool, developed by Clemens Hammacher at Saarland University.
+ * See http://www.st.cs.uni-saarland.de/javaslicer/ for more information.
+ *
+ * JavaSlicer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JavaSlicer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with JavaSlicer. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.unisb.cs.st.javaslicer.variables;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class FieldTableTest {
+
+    @Test
+    public void testIds() {
+        int a = FieldTable.getInstanceFieldId(new String("a"));
+        assertEquals(a, FieldTable.getInstanceFieldId("a"));
+        assertSame("a", FieldTable.getFieldName(a));
+        assertNull(FieldTable.getOwnerInternalClassName(a));
+
+        int sa1 = FieldTable.getStaticFieldId("pkg/C1", "a");
+        int sa2 = FieldTable.getStaticFieldId("pkg/C2", "a");
+        assertFalse(sa1 == sa2);
+        assertFalse(sa1 == a);
+        assertEquals(sa1, FieldTable.getStaticFieldId(new String("pkg/C1"), new String("a")));
+        assertSame("pkg/C2", FieldTable.getOwnerInternalClassName(sa2));
+
+        // enough ids to grow the table
+        for (int i = 0; i < 100; ++i)
+            assertEquals("f" + i, FieldTable.getFieldName(FieldTable.getInstanceFieldId("f" + i)));
+        assertSame("a", FieldTable.getFieldName(a));
+    }
+
+    @Test
+    public void testVariables() {
+        assertEquals(new ObjectField(7, "x"), new ObjectField(7, FieldTable.getInstanceFieldId("x")));
+        assertFalse(new ObjectField(7, "x").equals(new ObjectField(8, "x")));
+        assertEquals("field[7,x]", new ObjectField(7, "x").toString());
+        assertEquals(new StaticField("pkg/C", "y"), new StaticField(FieldTable.getStaticFieldId("pkg/C", "y")));
+        assertFalse(new StaticField("pkg/C", "y").equals(new StaticField("pkg/D", "y")));
+        assertEquals("staticfield[pkg/C,y]", new StaticField("pkg/C", "y").toString());
+    }
+
+}